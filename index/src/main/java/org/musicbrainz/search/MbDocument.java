@@ -36,8 +36,10 @@ import org.apache.lucene.util.NumericUtils;
 import org.musicbrainz.search.index.Index;
 import org.musicbrainz.search.index.IndexField;
 import org.musicbrainz.search.index.MetaIndexField;
+import org.musicbrainz.search.index.StoreField;
 
 import java.util.Date;
+import java.util.concurrent.atomic.AtomicLong;
 
 /** 
  * A wrapper around Lucene Document
@@ -70,6 +72,28 @@ public class MbDocument {
         doc.add(new Field(field.getName(), value, field.getFieldType()));
     }
 
+    /**
+     * Add stored field holding the xml of an MMD object, the object is only serialized when the field is written to
+     * the index (see StoreField)
+     *
+     * @param field
+     * @param store
+     */
+    public void addStoreField(IndexField field, Object store) {
+        addStoreField(field, store, null);
+    }
+
+    /**
+     * Add stored field holding the xml of an MMD object, recording the time spent serializing it
+     *
+     * @param field
+     * @param store
+     * @param serializeTime nanoseconds spent serializing are added to this
+     */
+    public void addStoreField(IndexField field, Object store, AtomicLong serializeTime) {
+        doc.add(new StoreField(field.getName(), field.getFieldType(), store, serializeTime));
+    }
+
     /**
      * Used to add database ids, just added as string because range searches ectera make no sense for them
      *
@@ -167,6 +191,41 @@ public class MbDocument {
         }
     }
 
+    /**
+     * Add single valued field as DocValues only, allows the value to be read back per hit without loading the
+     * stored document. Does nothing if empty because a document may only have one value for each DocValues field.
+     *
+     * @param field
+     * @param value
+     */
+    public void addDocValuesField(IndexField field, String value) {
+        if (value != null && !value.isEmpty()) {
+            doc.add(new BinaryDocValuesField(field.getName(), new BytesRef(value)));
+        }
+    }
+
+    /**
+     * Add value to multi valued DocValues only field, duplicate values within a document are only kept once
+     *
+     * @param field
+     * @param value
+     */
+    public void addSortedSetDocValuesField(IndexField field, String value) {
+        if (value != null && !value.isEmpty()) {
+            doc.add(new SortedSetDocValuesField(field.getName(), new BytesRef(value)));
+        }
+    }
+
+    /**
+     * Add single valued numeric DocValues only field
+     *
+     * @param field
+     * @param value
+     */
+    public void addNumericDocValuesField(IndexField field, long value) {
+        doc.add(new NumericDocValuesField(field.getName(), value));
+    }
+
     /* Methods used for searching */
     
     public String get(IndexField indexField) {
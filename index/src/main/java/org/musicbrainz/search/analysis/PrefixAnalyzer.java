@@ -0,0 +1,42 @@
+package org.musicbrainz.search.analysis;
+
+import org.apache.lucene.analysis.Analyzer;
+import org.apache.lucene.analysis.AnalyzerWrapper;
+import org.apache.lucene.analysis.ngram.EdgeNGramTokenFilter;
+import org.musicbrainz.search.LuceneVersion;
+
+/**
+ * Analyzes text in the same way as the analyzer of the field it is a prefix field for, then indexes every leading
+ * part of each token from the minimum prefix length up to MAX_PREFIX_LENGTH characters so that a prefix search is
+ * just a search for a single term. The minimum should be the shortest term the dismax parser makes prefix queries for.
+ */
+public class PrefixAnalyzer extends AnalyzerWrapper {
+
+    public static final int MIN_PREFIX_LENGTH = 4;
+    public static final int MAX_PREFIX_LENGTH = 16;
+
+    private final Analyzer delegate;
+    private final int minPrefixLength;
+
+    public PrefixAnalyzer(Analyzer delegate) {
+        this(delegate, MIN_PREFIX_LENGTH);
+    }
+
+    public PrefixAnalyzer(Analyzer delegate, int minPrefixLength) {
+        super(delegate.getReuseStrategy());
+        this.delegate = delegate;
+        this.minPrefixLength = minPrefixLength;
+    }
+
+    @Override
+    protected Analyzer getWrappedAnalyzer(String fieldName) {
+        return delegate;
+    }
+
+    @Override
+    protected TokenStreamComponents wrapComponents(String fieldName, TokenStreamComponents components) {
+        return new TokenStreamComponents(components.getTokenizer(),
+                new EdgeNGramTokenFilter(LuceneVersion.LUCENE_VERSION, components.getTokenStream(),
+                        minPrefixLength, MAX_PREFIX_LENGTH));
+    }
+}
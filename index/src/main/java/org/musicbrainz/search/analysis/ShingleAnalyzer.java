@@ -0,0 +1,35 @@
+package org.musicbrainz.search.analysis;
+
+import org.apache.lucene.analysis.Analyzer;
+import org.apache.lucene.analysis.AnalyzerWrapper;
+import org.apache.lucene.analysis.shingle.ShingleFilter;
+
+/**
+ * Analyzes text in the same way as the analyzer of the field it is a shingle field for, then indexes each pair of
+ * adjacent tokens as a single term so that a two word phrase search is just a search for a single term. Each value
+ * of a multi-valued field is analyzed separately so pairs never span two values.
+ */
+public class ShingleAnalyzer extends AnalyzerWrapper {
+
+    public static final String TOKEN_SEPARATOR = " ";
+
+    private final Analyzer delegate;
+
+    public ShingleAnalyzer(Analyzer delegate) {
+        super(delegate.getReuseStrategy());
+        this.delegate = delegate;
+    }
+
+    @Override
+    protected Analyzer getWrappedAnalyzer(String fieldName) {
+        return delegate;
+    }
+
+    @Override
+    protected TokenStreamComponents wrapComponents(String fieldName, TokenStreamComponents components) {
+        ShingleFilter filter = new ShingleFilter(components.getTokenStream(), 2, 2);
+        filter.setTokenSeparator(TOKEN_SEPARATOR);
+        filter.setOutputUnigrams(false);
+        return new TokenStreamComponents(components.getTokenizer(), filter);
+    }
+}
@@ -0,0 +1,24 @@
+package org.musicbrainz.search.analysis;
+
+import org.apache.lucene.analysis.Analyzer;
+import org.apache.lucene.analysis.TokenStream;
+import org.apache.lucene.analysis.Tokenizer;
+import org.apache.lucene.analysis.core.KeywordTokenizer;
+
+import java.io.Reader;
+
+/**
+ * Used by the suggester, the whole name is kept as a single token so that completions match from the start of the
+ * name, but accents and case are removed so the user does not have to type them.
+ */
+public class SuggestAnalyzer extends Analyzer {
+
+    @Override
+    protected TokenStreamComponents createComponents(String fieldName, Reader reader) {
+        Tokenizer source = new KeywordTokenizer(reader);
+        TokenStream filter = new AccentFilter(source);
+        filter = new LowercaseFilter(filter);
+        return new TokenStreamComponents(source, filter);
+    }
+
+}
@@ -9,9 +9,7 @@ import org.musicbrainz.search.index.Utils;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
-import java.util.HashMap;
 import java.util.LinkedHashSet;
-import java.util.Map;
 import java.util.Set;
 
 /**
@@ -29,21 +27,19 @@ public class AliasHelper
                 " ORDER BY " + entityTableName +", alias, alias_sortname";
     }
 
-    public static Map<Integer, Set<Alias>> completeFromDbResults(int min, int max, PreparedStatement st) throws SQLException
+    public static IntObjectMap<Set<Alias>> completeFromDbResults(int min, int max, PreparedStatement st) throws SQLException
     {
         ObjectFactory of = new ObjectFactory();
-        Map<Integer, Set<Alias>> aliases = new HashMap<Integer, Set<Alias>>();
+        IntObjectMap<Set<Alias>> aliases = new IntObjectMap<Set<Alias>>();
         st.setInt(1, min);
         st.setInt(2, max);
         ResultSet rs = st.executeQuery();
         while (rs.next()) {
             int entityId = rs.getInt("entityId");
-            Set<Alias> list;
-            if (!aliases.containsKey(entityId)) {
+            Set<Alias> list = aliases.get(entityId);
+            if (list == null) {
                 list = new LinkedHashSet<Alias>();
                 aliases.put(entityId, list);
-            } else {
-                list = aliases.get(entityId);
             }
             Alias alias = of.createAlias();
             alias.setContent(rs.getString("alias"));
@@ -85,7 +81,7 @@ public class AliasHelper
      * @param aliasIndexField
      * @return
      */
-    public static AliasList addAliasesToDocAndConstructAliasList(ObjectFactory of, MbDocument doc, Map<Integer, Set<Alias>> aliases, int entityId, IndexField aliasIndexField)
+    public static AliasList addAliasesToDocAndConstructAliasList(ObjectFactory of, MbDocument doc, IntObjectMap<Set<Alias>> aliases, int entityId, IndexField aliasIndexField)
     {
         AliasList aliasList = of.createAliasList();
         for (Alias nextAlias : aliases.get(entityId))
@@ -241,6 +241,40 @@ public class ArtistCreditHelper {
         }
     }
 
+    /**
+     * Populate all artist credit fields from Lucene index fields from ArtistCreditWrapper instance, using its serialized
+     * artist credit for the display field
+     *
+     * @param doc
+     * @param acw
+     * @param artist
+     * @param artistNameCredit
+     * @param artistId
+     * @param artistName
+     * @param artistCredit
+     */
+    public static void buildIndexFieldsFromArtistCredit(MbDocument doc,
+                                                        ArtistCreditWrapper acw,
+                                                        IndexField artist,
+                                                        IndexField artistNameCredit,
+                                                        IndexField artistId,
+                                                        IndexField artistName,
+                                                        IndexField artistCredit)
+
+    {
+        if (acw!=null && acw.getArtistCredit()!=null) {
+            buildIndexFieldsOnlyFromArtistCredit( doc,
+                    acw.getArtistCredit(),
+                    artist,
+                    artistNameCredit,
+                    artistId,
+                    artistName);
+
+            //Display Field
+            doc.addField(artistCredit, acw.getSerializedArtistCredit());
+        }
+    }
+
     public static void buildIndexFieldsOnlyFromArtistCredit(MbDocument doc,
                                                         ArtistCredit ac,
                                                         IndexField artist,
@@ -1,6 +1,7 @@
 package org.musicbrainz.search.helper;
 
 import org.musicbrainz.mmd2.ArtistCredit;
+import org.musicbrainz.search.index.MMDSerializer;
 
 /**
  * Wraps an Artist Credit object to allow us to store the artist credit database key
@@ -9,6 +10,7 @@ import org.musicbrainz.mmd2.ArtistCredit;
 public class ArtistCreditWrapper {
     private int     artistCreditId;
     private ArtistCredit    artistCredit;
+    private String          serializedArtistCredit;
 
     public int getArtistCreditId() {
         return artistCreditId;
@@ -24,5 +26,21 @@ public class ArtistCreditWrapper {
 
     public void setArtistCredit(ArtistCredit artistCredit) {
         this.artistCredit = artistCredit;
+        this.serializedArtistCredit = null;
+    }
+
+    /**
+     * Serialized once and kept, because a wrapper from the ArtistCreditStore is shared by every entity with the
+     * artist credit
+     *
+     * @return the serialized artist credit
+     */
+    public String getSerializedArtistCredit() {
+        String serialized = serializedArtistCredit;
+        if (serialized == null) {
+            serialized = MMDSerializer.serialize(artistCredit);
+            serializedArtistCredit = serialized;
+        }
+        return serialized;
     }
 }
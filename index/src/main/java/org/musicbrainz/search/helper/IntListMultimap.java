@@ -0,0 +1,75 @@
+package org.musicbrainz.search.helper;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Lists of values grouped by an int key, such as the tags of each entity in a chunk, used instead of a
+ * Map<Integer, List<V>> of LinkedLists or an ArrayListMultimap so the ids are not boxed and the values of a key are
+ * held in one array rather than a node each.
+ *
+ * Unlike ArrayListMultimap, get() returns null for a key without values, the same as the maps it replaces.
+ */
+public class IntListMultimap<V> {
+
+    // Most entities have one or two values
+    private static final int INITIAL_LIST_CAPACITY = 2;
+
+    private final IntObjectMap<ArrayList<V>> lists;
+
+    public IntListMultimap() {
+        lists = new IntObjectMap<ArrayList<V>>();
+    }
+
+    /**
+     * @param expectedKeys number of keys expected, such as the chunk size
+     */
+    public IntListMultimap(int expectedKeys) {
+        lists = new IntObjectMap<ArrayList<V>>(expectedKeys);
+    }
+
+    /**
+     * Add a value to the end of the values of the key
+     *
+     * @param key
+     * @param value
+     */
+    public void put(int key, V value) {
+        ArrayList<V> list = lists.get(key);
+        if (list == null) {
+            list = new ArrayList<V>(INITIAL_LIST_CAPACITY);
+            lists.put(key, list);
+        }
+        list.add(value);
+    }
+
+    /**
+     * @param key
+     * @return the values of the key in the order they were added, or null if it has none
+     */
+    public List<V> get(int key) {
+        return lists.get(key);
+    }
+
+    public boolean containsKey(int key) {
+        return lists.containsKey(key);
+    }
+
+    /**
+     * @return number of keys with values
+     */
+    public int keyCount() {
+        return lists.size();
+    }
+
+    public boolean isEmpty() {
+        return lists.isEmpty();
+    }
+
+    /**
+     * @return the list of values of each key
+     */
+    public List<? extends List<V>> values() {
+        return lists.values();
+    }
+}
@@ -0,0 +1,143 @@
+package org.musicbrainz.search.helper;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Map from int keys to objects, used instead of a HashMap<Integer, V> for the entity id groupings loaded for each
+ * chunk, so the ids are not boxed and there is no entry object for each key.
+ *
+ * Keys are kept in an open addressing table with linear probing, which is kept at most half full. Entries can't be
+ * removed and values can't be null, a null value marks an empty slot, neither is needed by the loaders.
+ */
+public class IntObjectMap<V> {
+
+    private static final int MIN_CAPACITY = 16;
+
+    private int[] keys;
+    private Object[] values;
+    private int mask;
+    private int size;
+
+    public IntObjectMap() {
+        this(MIN_CAPACITY / 2);
+    }
+
+    /**
+     * @param expectedSize number of keys the map is expected to hold before it has to grow
+     */
+    public IntObjectMap(int expectedSize) {
+        int capacity = MIN_CAPACITY;
+        while (capacity / 2 < expectedSize) {
+            capacity <<= 1;
+        }
+        allocate(capacity);
+    }
+
+    private void allocate(int capacity) {
+        keys = new int[capacity];
+        values = new Object[capacity];
+        mask = capacity - 1;
+    }
+
+    /**
+     * Spread consecutive ids over the table
+     */
+    private static int hash(int key) {
+        int h = key * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+
+    private int slot(int key) {
+        int i = hash(key) & mask;
+        while (values[i] != null && keys[i] != key) {
+            i = (i + 1) & mask;
+        }
+        return i;
+    }
+
+    /**
+     * @param key
+     * @return the value or null if there isn't one for the key
+     */
+    @SuppressWarnings("unchecked")
+    public V get(int key) {
+        return (V) values[slot(key)];
+    }
+
+    public boolean containsKey(int key) {
+        return values[slot(key)] != null;
+    }
+
+    /**
+     * @param key
+     * @param value not null
+     * @return the previous value or null if there wasn't one
+     */
+    @SuppressWarnings("unchecked")
+    public V put(int key, V value) {
+        if (value == null) {
+            throw new IllegalArgumentException("Null values are not supported");
+        }
+        int i = slot(key);
+        V previous = (V) values[i];
+        values[i] = value;
+        if (previous == null) {
+            keys[i] = key;
+            size++;
+            if (size > keys.length / 2) {
+                rehash(keys.length * 2);
+            }
+        }
+        return previous;
+    }
+
+    private void rehash(int capacity) {
+        int[] oldKeys = keys;
+        Object[] oldValues = values;
+        allocate(capacity);
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldValues[i] != null) {
+                int j = slot(oldKeys[i]);
+                keys[j] = oldKeys[i];
+                values[j] = oldValues[i];
+            }
+        }
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * @return the keys, in no particular order
+     */
+    public int[] keys() {
+        int[] result = new int[size];
+        int j = 0;
+        for (int i = 0; i < keys.length; i++) {
+            if (values[i] != null) {
+                result[j++] = keys[i];
+            }
+        }
+        return result;
+    }
+
+    /**
+     * @return the values, in the same order as keys()
+     */
+    @SuppressWarnings("unchecked")
+    public List<V> values() {
+        List<V> result = new ArrayList<V>(size);
+        for (Object value : values) {
+            if (value != null) {
+                result.add((V) value);
+            }
+        }
+        return result;
+    }
+}
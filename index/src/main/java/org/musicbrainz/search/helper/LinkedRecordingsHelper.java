@@ -1,7 +1,6 @@
 package org.musicbrainz.search.helper;
 
 import com.google.common.base.Strings;
-import com.google.common.collect.ArrayListMultimap;
 import org.musicbrainz.mmd2.*;
 import org.musicbrainz.search.MbDocument;
 import org.musicbrainz.search.index.IndexField;
@@ -67,10 +66,10 @@ public class LinkedRecordingsHelper
      * @throws java.sql.SQLException
      * @throws java.io.IOException
      */
-    public static ArrayListMultimap<Integer, Relation> loadRelations(int min, int max, PreparedStatement st) throws SQLException, IOException
+    public static IntListMultimap<Relation> loadRelations(int min, int max, PreparedStatement st) throws SQLException, IOException
     {
         ObjectFactory of = new ObjectFactory();
-        ArrayListMultimap<Integer, Relation> recordings = ArrayListMultimap.create();
+        IntListMultimap<Relation> recordings = new IntListMultimap<Relation>();
         st.setInt(1, min);
         st.setInt(2, max);
         ResultSet rs = st.executeQuery();
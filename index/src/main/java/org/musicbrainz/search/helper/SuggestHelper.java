@@ -0,0 +1,71 @@
+package org.musicbrainz.search.helper;
+
+import org.musicbrainz.mmd2.Alias;
+import org.musicbrainz.mmd2.AliasList;
+import org.musicbrainz.mmd2.Tag;
+import org.musicbrainz.search.MbDocument;
+import org.musicbrainz.search.index.SuggestIndexField;
+
+import java.util.List;
+
+/**
+ * Adds the names and popularity used to build the suggester to a document
+ */
+public class SuggestHelper
+{
+    /**
+     * Add name that the document should be suggested for
+     *
+     * @param doc
+     * @param name
+     */
+    public static void addSuggestion(MbDocument doc, String name)
+    {
+        doc.addSortedSetDocValuesField(SuggestIndexField.SUGGEST, name);
+    }
+
+    /**
+     * Add the name and sort name of each alias
+     *
+     * @param doc
+     * @param aliasList may be null
+     */
+    public static void addSuggestions(MbDocument doc, AliasList aliasList)
+    {
+        if (aliasList == null)
+        {
+            return;
+        }
+        for (Alias alias : aliasList.getAlias())
+        {
+            addSuggestion(doc, alias.getContent());
+            addSuggestion(doc, alias.getSortName());
+        }
+    }
+
+    /**
+     * Set the weight of the document in the suggester, calculated from the same signals used to boost it at search time
+     * together with how often it has been tagged and a count of how often it is used (e.g number of releases)
+     *
+     * @param doc
+     * @param tags may be null
+     * @param count
+     * @param boost
+     */
+    public static void setWeight(MbDocument doc, List<Tag> tags, int count, float boost)
+    {
+        long weight = 1 + count;
+        if (tags != null)
+        {
+            for (Tag tag : tags)
+            {
+                if (tag.getCount() != null)
+                {
+                    weight += tag.getCount().longValue();
+                }
+            }
+        }
+        weight = (long) (weight * boost);
+        doc.addNumericDocValuesField(SuggestIndexField.SUGGEST_WEIGHT, Math.min(Math.max(weight, 1), Integer.MAX_VALUE));
+    }
+}
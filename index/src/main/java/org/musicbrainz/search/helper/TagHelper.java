@@ -40,10 +40,6 @@ import java.math.BigInteger;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
-import java.util.ArrayList;
-import java.util.HashMap;
-import java.util.List;
-import java.util.Map;
 
 /**
  * Shared for retrieving tags for an entity, all entities use the same pattern
@@ -73,12 +69,12 @@ public class TagHelper {
      * @throws SQLException
      * @throws java.io.IOException
      */
-    public static Map<Integer, List<Tag>> loadTags(int min, int max, PreparedStatement st, String entityKey) throws SQLException, IOException
+    public static IntListMultimap<Tag> loadTags(int min, int max, PreparedStatement st, String entityKey) throws SQLException, IOException
     {
         st.setInt(1, min);
         st.setInt(2, max);
         ResultSet rs = st.executeQuery();
-        Map<Integer, List<Tag>> tags = completeTagsFromDbResults(rs, entityKey);
+        IntListMultimap<Tag> tags = completeTagsFromDbResults(rs, entityKey);
         rs.close();
         return tags;
     }
@@ -90,24 +86,16 @@ public class TagHelper {
      * @return
      * @throws SQLException
      */
-    public static Map<Integer,List<Tag>> completeTagsFromDbResults(ResultSet rs,
-                                                                  String entityKey) throws SQLException {
-        Map<Integer, List<Tag>> tags = new HashMap<Integer, List<Tag>>();
+    public static IntListMultimap<Tag> completeTagsFromDbResults(ResultSet rs,
+                                                                 String entityKey) throws SQLException {
+        IntListMultimap<Tag> tags = new IntListMultimap<Tag>();
         ObjectFactory of = new ObjectFactory();
-        List<Tag> tagList;
         while (rs.next()) {
             int entityId = rs.getInt(entityKey);
-            if (!tags.containsKey(entityId)) {
-                tagList = new ArrayList<Tag>();
-                tags.put(entityId,tagList );
-            } else {
-                tagList = tags.get(entityId);
-            }
-
             Tag tag = of.createTag();
             tag.setName(rs.getString("tag"));
             tag.setCount(BigInteger.valueOf(rs.getInt("count")));
-            tagList.add(tag);
+            tags.put(entityId, tag);
         }
         return tags;
     }
@@ -122,7 +110,7 @@ public class TagHelper {
      * @param aliasIndexField
      * @return
      */
-    public static TagList addTagsToDocAndConstructTagList(ObjectFactory of, MbDocument doc, Map<Integer, List<Tag>> tags, int entityId, IndexField aliasIndexField)
+    public static TagList addTagsToDocAndConstructTagList(ObjectFactory of, MbDocument doc, IntListMultimap<Tag> tags, int entityId, IndexField aliasIndexField)
     {
         TagList tagList = of.createTagList();
         for (Tag nextTag : tags.get(entityId)) {
@@ -43,6 +43,10 @@ public class AreaBoostDoc {
     private static float AREA_DOC_BOOST = 2.0f;
     private final static String  AREA_TYPE = "Country";
 
+    public static float getBoost(String areaType) {
+        return AREA_TYPE.equals(areaType) ? AREA_DOC_BOOST : 1.0f;
+    }
+
     public static void boost(String areaType, Document doc) {
         if(!Strings.isNullOrEmpty(areaType) && areaType.equals(AREA_TYPE)) {
             for(IndexableField indexablefield:doc.getFields())
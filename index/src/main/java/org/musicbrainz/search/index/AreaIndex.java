@@ -35,6 +35,9 @@ import org.apache.lucene.index.IndexWriter;
 import org.musicbrainz.mmd2.*;
 import org.musicbrainz.search.MbDocument;
 import org.musicbrainz.search.helper.AliasHelper;
+import org.musicbrainz.search.helper.IntListMultimap;
+import org.musicbrainz.search.helper.IntObjectMap;
+import org.musicbrainz.search.helper.SuggestHelper;
 import org.musicbrainz.search.helper.TagHelper;
 
 import java.io.IOException;
@@ -128,7 +131,7 @@ public class AreaIndex extends DatabaseIndex {
 
         ObjectFactory of = new ObjectFactory();
 
-        Map<Integer, Set<Alias>> aliases = AliasHelper.completeFromDbResults(min, max, getPreparedStatement("ALIASES"));
+        IntObjectMap<Set<Alias>> aliases = AliasHelper.completeFromDbResults(min, max, getPreparedStatement("ALIASES"));
 
         //Iso1Code
         Map<Integer, Iso31661CodeList> iso1 = new HashMap<Integer, Iso31661CodeList>();
@@ -244,7 +247,7 @@ public class AreaIndex extends DatabaseIndex {
         }
 
         // Get Tags
-        Map<Integer,List<Tag>> tags = TagHelper.loadTags(min, max, getPreparedStatement("TAGS"), "area");
+        IntListMultimap<Tag> tags = TagHelper.loadTags(min, max, getPreparedStatement("TAGS"), "area");
 
         st = getPreparedStatement("AREA");
         st.setInt(1, min);
@@ -258,7 +261,7 @@ public class AreaIndex extends DatabaseIndex {
     }
 
 
-    public Document documentFromResultSet(Map<Integer, RelationList> areaParents, Map<Integer, Set<Alias>> aliases, ResultSet rs, Map<Integer, Iso31661CodeList> iso1, Map<Integer, Iso31662CodeList> iso2, Map<Integer, Iso31663CodeList> iso3, Map<Integer, List<Tag>> tags) throws SQLException {
+    public Document documentFromResultSet(Map<Integer, RelationList> areaParents, IntObjectMap<Set<Alias>> aliases, ResultSet rs, Map<Integer, Iso31661CodeList> iso1, Map<Integer, Iso31662CodeList> iso2, Map<Integer, Iso31663CodeList> iso3, IntListMultimap<Tag> tags) throws SQLException {
         MbDocument doc = new MbDocument();
 
         ObjectFactory of = new ObjectFactory();
@@ -272,10 +275,12 @@ public class AreaIndex extends DatabaseIndex {
 
         String guid = rs.getString("gid");
         doc.addField(AreaIndexField.AREA_ID, guid);
+        doc.addDocValuesField(ProjectionIndexField.MBID, guid);
         area.setId(guid);
 
         String name = rs.getString("name");
         doc.addField(AreaIndexField.AREA, name);
+        SuggestHelper.addSuggestion(doc, name);
         area.setName(name);
 
         doc.addField(AreaIndexField.SORTNAME,name);
@@ -353,10 +358,11 @@ public class AreaIndex extends DatabaseIndex {
             area.setTagList(tagList);
         }
 
-        String store = MMDSerializer.serialize(areaList);
-        doc.addField(AreaIndexField.AREA_STORE, store);
+        doc.addStoreField(AreaIndexField.AREA_STORE, areaList);
 
         AreaBoostDoc.boost(area.getType(), doc.getLuceneDocument());
+        SuggestHelper.addSuggestions(doc, area.getAliasList());
+        SuggestHelper.setWeight(doc, tags.get(areaId), 0, AreaBoostDoc.getBoost(area.getType()));
         return doc.getLuceneDocument();
     }
 
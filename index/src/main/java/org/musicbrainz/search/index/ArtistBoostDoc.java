@@ -66,6 +66,10 @@ public class ArtistBoostDoc {
         artistGuIdSet.add("f1bedf1f-4445-4651-9c35-f4a3f3860a13");   //Guiseppe Verdi
     }
 
+    public static float getBoost(String artistGuid) {
+        return artistGuIdSet.contains(artistGuid) ? ARTIST_DOC_BOOST : 1.0f;
+    }
+
     public static void boost(String artistGuid, MbDocument doc) {
 
         boost(artistGuid,doc.getLuceneDocument());
@@ -0,0 +1,208 @@
+package org.musicbrainz.search.index;
+
+import org.musicbrainz.mmd2.Alias;
+import org.musicbrainz.mmd2.NameCredit;
+import org.musicbrainz.search.helper.ArtistCreditHelper;
+import org.musicbrainz.search.helper.ArtistCreditWrapper;
+
+import java.io.IOException;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Artist credits, with their artist aliases, keyed by artist credit id and shared by every index built in the same
+ * run, because a single artist credit is used by many recordings, tracks, releases and release groups and used to be
+ * queried and assembled again for each of them.
+ *
+ * Credits that are not in the store are loaded from tmp_artistcredit with the lookups an index adds with
+ * DatabaseIndex.addArtistCreditLookups(), on that index's own connection. The least recently used credits are
+ * dropped once their estimated size goes over the limit. The store is used by indexes being built at the same time
+ * so is synchronized, credits are loaded outside the lock so a credit may occasionally be loaded twice. Credits are
+ * shared by every entity using them so must not be changed once added.
+ */
+public class ArtistCreditStore {
+
+    /**
+     * @param artistCreditTable name of tmp_artistcredit as used in sql
+     * @return start of the lookup of artist credits
+     */
+    public static String getArtistCreditsSql(String artistCreditTable) {
+        return
+            "SELECT a.artist_credit, " +
+            "  a.pos, " +
+            "  a.joinphrase, " +
+            "  a.artistId,  " +
+            "  a.comment, " +
+            "  a.artistName, " +
+            "  a.artistCreditName, " +
+            "  a.artistSortName " +
+            " FROM " + artistCreditTable + " a " +
+            " WHERE a.artist_credit in ";
+    }
+
+    /**
+     * @param artistCreditTable name of tmp_artistcredit as used in sql
+     * @return start of the lookup of the aliases of the artists of artist credits
+     */
+    public static String getArtistCreditAliasesSql(String artistCreditTable) {
+        return
+            "SELECT a.artist_credit, " +
+            " a.pos, " +
+            " aa.name," +
+            " aa.sort_name," +
+            " aa.primary_for_locale," +
+            " aa.locale," +
+            " aa.begin_date_year," +
+            " aa.begin_date_month," +
+            " aa.begin_date_day," +
+            " aa.end_date_year," +
+            " aa.end_date_month," +
+            " aa.end_date_day," +
+            " att.name as type" +
+            " FROM " + artistCreditTable + " a " +
+            "  INNER JOIN artist_alias aa ON a.id=aa.artist" +
+            "  LEFT  JOIN artist_alias_type att on (aa.type=att.id)" +
+            " WHERE a.artistId!='" + ArtistIndex.VARIOUS_ARTIST_MBID +"'" +
+            " AND a.artistId!='" + ArtistIndex.UNKNOWN_ARTIST_MBID  +"'" +
+            " AND a.artist_credit in ";
+    }
+
+    // Rough number of bytes used by an object and by each character of a string
+    private static final int OBJECT_SIZE = 48;
+    private static final int CHAR_SIZE = 2;
+
+    private final long maxSize;
+    private long size;
+    private long hits;
+    private long misses;
+    private long evictions;
+
+    private final LinkedHashMap<Integer, ArtistCreditWrapper> artistCredits
+            = new LinkedHashMap<Integer, ArtistCreditWrapper>(1024, 0.75f, true);
+    private final Map<Integer, Long> sizes = new HashMap<Integer, Long>();
+
+    /**
+     * @param maxSize most bytes the stored artist credits are estimated to use
+     */
+    public ArtistCreditStore(long maxSize) {
+        this.maxSize = maxSize;
+    }
+
+    /**
+     * Get artist credits, loading any not in the store
+     *
+     * @param artistCreditIds
+     * @param artistCreditLookup lookup of getArtistCreditsSql()
+     * @param aliasLookup lookup of getArtistCreditAliasesSql()
+     * @return map of artist credit id to artist credit, without the ids that don't exist
+     * @throws SQLException
+     * @throws IOException
+     */
+    public Map<Integer, ArtistCreditWrapper> getArtistCredits(Set<Integer> artistCreditIds,
+                                                             KeyLookup artistCreditLookup,
+                                                             KeyLookup aliasLookup) throws SQLException, IOException {
+        Map<Integer, ArtistCreditWrapper> found = new HashMap<Integer, ArtistCreditWrapper>();
+        Set<Integer> missing = new HashSet<Integer>();
+        synchronized (this) {
+            for (Integer artistCreditId : artistCreditIds) {
+                ArtistCreditWrapper acw = artistCredits.get(artistCreditId);
+                if (acw != null) {
+                    found.put(artistCreditId, acw);
+                    hits++;
+                } else {
+                    missing.add(artistCreditId);
+                    misses++;
+                }
+            }
+        }
+
+        if (missing.isEmpty()) {
+            return found;
+        }
+
+        // The rows of an artist credit are all in one batch, so each batch is completed on its own
+        Map<Integer, ArtistCreditWrapper> loaded = new HashMap<Integer, ArtistCreditWrapper>();
+        KeyLookup.Batches batches = artistCreditLookup.executeBatches(missing);
+        try {
+            ResultSet rs;
+            while ((rs = batches.next()) != null) {
+                loaded.putAll(ArtistCreditHelper.completeArtistCreditFromDbResults(rs,
+                        "artist_credit", "artist_credit", "artistId", "artistName", "artistSortName", "comment",
+                        "joinphrase", "artistCreditName"));
+            }
+        } finally {
+            batches.close();
+        }
+        batches = aliasLookup.executeBatches(loaded.keySet());
+        try {
+            ResultSet rs;
+            while ((rs = batches.next()) != null) {
+                ArtistCreditHelper.updateArtistCreditWithAliases(loaded, "artist_credit", rs);
+            }
+        } finally {
+            batches.close();
+        }
+
+        synchronized (this) {
+            for (Map.Entry<Integer, ArtistCreditWrapper> next : loaded.entrySet()) {
+                put(next.getKey(), next.getValue());
+            }
+        }
+        found.putAll(loaded);
+        return found;
+    }
+
+    private void put(int artistCreditId, ArtistCreditWrapper acw) {
+        long entrySize = estimateSize(acw);
+        artistCredits.put(artistCreditId, acw);
+        Long previous = sizes.put(artistCreditId, entrySize);
+        if (previous != null) {
+            size -= previous;
+        }
+        size += entrySize;
+
+        Iterator<Map.Entry<Integer, ArtistCreditWrapper>> iterator = artistCredits.entrySet().iterator();
+        while (size > maxSize && iterator.hasNext()) {
+            size -= sizes.remove(iterator.next().getKey());
+            iterator.remove();
+            evictions++;
+        }
+    }
+
+    static long estimateSize(String value) {
+        return value == null ? 0 : OBJECT_SIZE + CHAR_SIZE * value.length();
+    }
+
+    /**
+     * Estimate the memory used by an artist credit from the strings it holds, the objects holding them are counted
+     * roughly
+     */
+    static long estimateSize(ArtistCreditWrapper acw) {
+        long estimate = OBJECT_SIZE * 3;
+        for (NameCredit nc : acw.getArtistCredit().getNameCredit()) {
+            estimate += OBJECT_SIZE * 2 + estimateSize(nc.getName()) + estimateSize(nc.getJoinphrase());
+            estimate += estimateSize(nc.getArtist().getId()) + estimateSize(nc.getArtist().getName())
+                    + estimateSize(nc.getArtist().getSortName()) + estimateSize(nc.getArtist().getDisambiguation());
+            if (nc.getArtist().getAliasList() != null) {
+                for (Alias alias : nc.getArtist().getAliasList().getAlias()) {
+                    estimate += OBJECT_SIZE + estimateSize(alias.getContent()) + estimateSize(alias.getSortName());
+                }
+            }
+        }
+        return estimate;
+    }
+
+    /**
+     * @return hits, misses and estimated size for the build report
+     */
+    public synchronized String getStats() {
+        return "hits=" + hits + " misses=" + misses + " evictions=" + evictions + " artistcredits="
+                + artistCredits.size() + " size=" + (size / (1024 * 1024)) + "MB";
+    }
+}
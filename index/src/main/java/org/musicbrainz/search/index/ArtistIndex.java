@@ -28,6 +28,9 @@ import org.musicbrainz.mmd2.*;
 import org.musicbrainz.search.MbDocument;
 import org.musicbrainz.search.analysis.MusicbrainzSimilarity;
 import org.musicbrainz.search.helper.AliasHelper;
+import org.musicbrainz.search.helper.IntListMultimap;
+import org.musicbrainz.search.helper.IntObjectMap;
+import org.musicbrainz.search.helper.SuggestHelper;
 import org.musicbrainz.search.helper.TagHelper;
 
 import java.io.IOException;
@@ -80,6 +83,11 @@ public class ArtistIndex extends DatabaseIndex {
         return ArtistIndexField.ID;
     }
 
+    @Override
+    public IndexField[] getFuzzyFields() {
+        return new IndexField[] { ArtistIndexField.ARTIST, ArtistIndexField.SORTNAME, ArtistIndexField.ALIAS };
+    }
+
     public int getMaxId() throws SQLException {
         Statement st = dbConnection.createStatement();
         ResultSet rs = st.executeQuery("SELECT MAX(id) FROM artist");
@@ -190,10 +198,10 @@ public class ArtistIndex extends DatabaseIndex {
 
     public void indexData(IndexWriter indexWriter, int min, int max) throws SQLException, IOException {
 
-        Map<Integer,List<Tag>> tags = TagHelper.loadTags(min, max, getPreparedStatement("TAGS"), "artist");
+        IntListMultimap<Tag> tags = TagHelper.loadTags(min, max, getPreparedStatement("TAGS"), "artist");
         Map<Integer, List<String>> ipiCodes = loadIpiCodes(min, max);
         Map<Integer, List<String>> isniCodes = loadIsniCodes(min, max);
-        Map<Integer, Set<Alias>> aliases = AliasHelper.completeFromDbResults(min, max, getPreparedStatement("ALIASES"));
+        IntObjectMap<Set<Alias>> aliases = AliasHelper.completeFromDbResults(min, max, getPreparedStatement("ALIASES"));
 
         //Artist Credits)
         Map<Integer, Set<String>> artistCredits = new HashMap<Integer, Set<String>>();
@@ -227,7 +235,7 @@ public class ArtistIndex extends DatabaseIndex {
         rs.close();
     }
 
-    public Document documentFromResultSet(ResultSet rs, Map<Integer, List<Tag>> tags, Map<Integer, List<String>> ipiCodes, Map<Integer, List<String>> isniCodes, Map<Integer, Set<Alias>> aliases, Map<Integer, Set<String>> artistCredits) throws SQLException {
+    public Document documentFromResultSet(ResultSet rs, IntListMultimap<Tag> tags, Map<Integer, List<String>> ipiCodes, Map<Integer, List<String>> isniCodes, IntObjectMap<Set<Alias>> aliases, Map<Integer, Set<String>> artistCredits) throws SQLException {
 
         MbDocument doc = new MbDocument();
 
@@ -238,10 +246,14 @@ public class ArtistIndex extends DatabaseIndex {
         String artistGuid = rs.getString("gid");
         doc.addField(ArtistIndexField.ID, artistId);
         doc.addField(ArtistIndexField.ARTIST_ID, artistGuid);
+        doc.addDocValuesField(ProjectionIndexField.MBID, artistGuid);
         artist.setId(artistGuid);
 
         String artistName = rs.getString("name");
         doc.addField(ArtistIndexField.ARTIST, artistName);
+        doc.addField(ArtistIndexField.ARTIST_PREFIX, artistName);
+        doc.addField(ArtistIndexField.ARTIST_SHINGLE, artistName);
+        doc.addDocValuesField(ProjectionIndexField.NAME, artistName);
         artist.setName(artistName);
 
         //Accented artist
@@ -249,10 +261,14 @@ public class ArtistIndex extends DatabaseIndex {
 
         String sortName = rs.getString("sort_name");
         doc.addField(ArtistIndexField.SORTNAME, sortName);
+        doc.addDocValuesField(ProjectionIndexField.SORTNAME, sortName);
         artist.setSortName(sortName);
+        SuggestHelper.addSuggestion(doc, artistName);
+        SuggestHelper.addSuggestion(doc, sortName);
 
         String type = rs.getString("type");
         doc.addFieldOrUnknown(ArtistIndexField.TYPE, type);
+        doc.addSortedSetDocValuesField(FacetIndexField.TYPE, type);
         if (!Strings.isNullOrEmpty(type)) {
             artist.setType(type);
         }
@@ -278,6 +294,7 @@ public class ArtistIndex extends DatabaseIndex {
 
         String comment = rs.getString("comment");
         doc.addFieldOrNoValue(ArtistIndexField.COMMENT, comment);
+        doc.addDocValuesField(ProjectionIndexField.DISAMBIGUATION, comment);
         if (!Strings.isNullOrEmpty(comment)) {
             artist.setDisambiguation(comment);
         }
@@ -286,6 +303,7 @@ public class ArtistIndex extends DatabaseIndex {
         doc.addFieldOrUnknown(ArtistIndexField.COUNTRY, country);
         if (!Strings.isNullOrEmpty(country)) {
             artist.setCountry(country.toUpperCase(Locale.US));
+            doc.addSortedSetDocValuesField(FacetIndexField.COUNTRY, country.toUpperCase(Locale.US));
         }
 
         String areaId = rs.getString("area_gid");
@@ -336,6 +354,7 @@ public class ArtistIndex extends DatabaseIndex {
         String gender = rs.getString("gender");
         if (gender != null) {
             doc.addField(ArtistIndexField.GENDER, gender);
+            doc.addSortedSetDocValuesField(FacetIndexField.GENDER, gender);
             Gender gen= new Gender();
             gen.setContent(gender);
             artist.setGender(gen);
@@ -364,6 +383,9 @@ public class ArtistIndex extends DatabaseIndex {
         if (tags.containsKey(artistId))
         {
             artist.setTagList(TagHelper.addTagsToDocAndConstructTagList(of, doc, tags, artistId, ArtistIndexField.TAG));
+            for (Tag tag : artist.getTagList().getTag()) {
+                doc.addSortedSetDocValuesField(FacetIndexField.TAG, tag.getName());
+            }
         }
 
         if (ipiCodes.containsKey(artistId)) {
@@ -382,9 +404,10 @@ public class ArtistIndex extends DatabaseIndex {
         }
 
         ArtistBoostDoc.boost(artistGuid, doc);
+        SuggestHelper.addSuggestions(doc, artist.getAliasList());
+        SuggestHelper.setWeight(doc, tags.get(artistId), 0, ArtistBoostDoc.getBoost(artistGuid));
 
-        String store = MMDSerializer.serialize(artist);
-        doc.addField(ArtistIndexField.ARTIST_STORE, store);
+        doc.addStoreField(ArtistIndexField.ARTIST_STORE, artist);
 
         return doc.getLuceneDocument();
     }
@@ -36,6 +36,8 @@ import org.musicbrainz.search.analysis.CaseInsensitiveKeywordAnalyzer;
 import org.musicbrainz.search.analysis.MusicbrainzAnalyzer;
 import org.musicbrainz.search.analysis.MusicbrainzKeepAccentsAnalyzer;
 import org.musicbrainz.search.analysis.MusicbrainzWithPosGapAnalyzer;
+import org.musicbrainz.search.analysis.PrefixAnalyzer;
+import org.musicbrainz.search.analysis.ShingleAnalyzer;
 
 /**
  * Fields created in Lucene Search Index
@@ -47,6 +49,8 @@ public enum ArtistIndexField implements IndexField {
     ARTIST_ID	    ("arid",		MusicBrainzFieldTypes.TEXT_STORED_NOT_ANALYZED_NO_NORMS, new KeywordAnalyzer()),
     ARTIST		    ("artist",		MusicBrainzFieldTypes.TEXT_STORED_ANALYZED, new MusicbrainzAnalyzer()),
     ARTIST_ACCENT   ("artistaccent",MusicBrainzFieldTypes.TEXT_NOT_STORED_ANALYZED, new MusicbrainzKeepAccentsAnalyzer()),
+    ARTIST_PREFIX   ("artistprefix",MusicBrainzFieldTypes.TEXT_NOT_STORED_ANALYZED_NO_NORMS, new PrefixAnalyzer(new MusicbrainzAnalyzer(), 2)),
+    ARTIST_SHINGLE  ("artistshingle",MusicBrainzFieldTypes.TEXT_NOT_STORED_ANALYZED, new ShingleAnalyzer(new MusicbrainzAnalyzer())),
     BEGIN		    ("begin",		MusicBrainzFieldTypes.TEXT_NOT_STORED_NOT_ANALYZED_NO_NORMS, new KeywordAnalyzer()),
     COMMENT		    ("comment",		MusicBrainzFieldTypes.TEXT_NOT_STORED_ANALYZED),
     COUNTRY         ("country",     MusicBrainzFieldTypes.TEXT_NOT_STORED_ANALYZED_NO_NORMS, new CaseInsensitiveKeywordAnalyzer()),
@@ -0,0 +1,80 @@
+package org.musicbrainz.search.index;
+
+import org.apache.lucene.index.SegmentCommitInfo;
+import org.apache.lucene.index.SegmentInfos;
+import org.apache.lucene.index.TieredMergePolicy;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Tiered merge policy whose forced merges leave segments of about the same size.
+ *
+ * Merging with forceMerge(n) under the tiered merge policy merges the smallest segments into one, leaving one large
+ * segment and a few small ones, so most of the work of a parallel search is still done by one thread. Instead the
+ * segments are shared out largest first between n merges, each taking the segments into the merge with the least
+ * so far, and all n merges are run at once. Merges while the index is being built are left to the tiered merge policy.
+ */
+public class BalancedMergePolicy extends TieredMergePolicy {
+
+    private static final Comparator<SegmentCommitInfo> LARGEST_FIRST = new Comparator<SegmentCommitInfo>() {
+        public int compare(SegmentCommitInfo o1, SegmentCommitInfo o2) {
+            try {
+                long size1 = o1.sizeInBytes();
+                long size2 = o2.sizeInBytes();
+                return size1 > size2 ? -1 : (size1 < size2 ? 1 : 0);
+            } catch (IOException ioe) {
+                throw new RuntimeException(ioe);
+            }
+        }
+    };
+
+    @Override
+    public MergeSpecification findForcedMerges(SegmentInfos infos,
+                                               int maxSegmentCount,
+                                               Map<SegmentCommitInfo, Boolean> segmentsToMerge) throws IOException {
+        // Called again as each merge finishes, the merges are only planned once all the earlier ones have finished
+        if (!writer.get().getMergingSegments().isEmpty()) {
+            return null;
+        }
+
+        List<SegmentCommitInfo> segments = new ArrayList<SegmentCommitInfo>();
+        for (SegmentCommitInfo info : infos) {
+            if (segmentsToMerge.containsKey(info)) {
+                segments.add(info);
+            }
+        }
+        if (segments.size() <= maxSegmentCount) {
+            return null;
+        }
+
+        Collections.sort(segments, LARGEST_FIRST);
+        List<List<SegmentCommitInfo>> groups = new ArrayList<List<SegmentCommitInfo>>();
+        long[] groupSizes = new long[maxSegmentCount];
+        for (int i = 0; i < maxSegmentCount; i++) {
+            groups.add(new ArrayList<SegmentCommitInfo>());
+        }
+        for (SegmentCommitInfo info : segments) {
+            int smallest = 0;
+            for (int i = 1; i < maxSegmentCount; i++) {
+                if (groupSizes[i] < groupSizes[smallest]) {
+                    smallest = i;
+                }
+            }
+            groups.get(smallest).add(info);
+            groupSizes[smallest] += info.sizeInBytes();
+        }
+
+        MergeSpecification spec = new MergeSpecification();
+        for (List<SegmentCommitInfo> group : groups) {
+            if (group.size() > 1) {
+                spec.add(new OneMerge(group));
+            }
+        }
+        return spec.merges.isEmpty() ? null : spec;
+    }
+}
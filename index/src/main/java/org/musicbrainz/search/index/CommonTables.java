@@ -25,15 +25,25 @@ import java.sql.Connection;
 import java.sql.SQLException;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.UUID;
 
 /**
  * Build temporary tables that are used by multiple indexes
  *
+ * Temporary tables only exist on the connection that created them. When the chunks of an index are fetched on
+ * several connections (see ParallelChunkIndexer) the tables are instead created once as shared unlogged tables that
+ * every connection can see, in a schema of their own named for the build (see newSharedSchema()) so builds running
+ * at the same time against one database don't use each other's tables. The indexes are given the schema (see
+ * DatabaseIndex.setCommonTablesSchema()) and the schema must be dropped with dropSharedTables() once they have been
+ * built.
  */
 public class CommonTables  {
 
+    private static final String SHARED_SCHEMA_PREFIX = "search_build_";
+
     protected Connection dbConnection;
     private   List<String> indexesToBeBuilt ;
+    private   String schema;
 
 
     public CommonTables(Connection dbConnection, String indexToBeBuilt) {
@@ -43,8 +53,41 @@ public class CommonTables  {
     }
 
     public CommonTables(Connection dbConnection, List<String> indexesToBeBuilt) {
+        this(dbConnection, indexesToBeBuilt, null);
+    }
+
+    /**
+     * @param dbConnection
+     * @param indexesToBeBuilt
+     * @param schema schema to create unlogged tables visible to every connection in, null for temporary tables
+     */
+    public CommonTables(Connection dbConnection, List<String> indexesToBeBuilt, String schema) {
         this.dbConnection=dbConnection;
         this.indexesToBeBuilt= indexesToBeBuilt;
+        this.schema=schema;
+    }
+
+    /**
+     * @return name of a new schema for the shared tables of one build
+     */
+    public static String newSharedSchema() {
+        return SHARED_SCHEMA_PREFIX + UUID.randomUUID().toString().replace("-", "");
+    }
+
+    /**
+     * @param schema schema of the shared tables, null for temporary tables
+     * @param table
+     * @return name of the table as used in sql
+     */
+    public static String getTableName(String schema, String table) {
+        return schema == null ? table : schema + "." + table;
+    }
+
+    /**
+     * @return schema of the shared tables, null for temporary tables
+     */
+    public String getSchema() {
+        return schema;
     }
 
     public Connection getDbConnection() {
@@ -63,7 +106,7 @@ public class CommonTables  {
         StopWatch clock = new StopWatch();
         clock.start();
         getDbConnection().createStatement().execute(
-            "CREATE TEMPORARY TABLE tmp_artistcredit AS " +
+            createTable("tmp_artistcredit") +
                 "SELECT acn.artist_credit as artist_credit, " +
                 "  acn.position as pos, " +
                 "  acn.join_phrase as joinphrase, " +
@@ -82,7 +125,7 @@ public class CommonTables  {
 
         clock.start();
         getDbConnection().createStatement().execute(
-             "CREATE INDEX tmp_artistcredit_idx ON tmp_artistcredit (artist_credit) ");
+             "CREATE INDEX tmp_artistcredit_idx ON " + getTableName(schema, "tmp_artistcredit") + " (artist_credit) ");
         clock.stop();
         System.out.println("tmp_artistcredit:Created Indexes:"+Utils.formatClock(clock));
         clock.reset();
@@ -94,7 +137,7 @@ public class CommonTables  {
         clock.start();
 
         getDbConnection().createStatement().execute(
-            "CREATE TEMPORARY TABLE tmp_release AS " +
+            createTable("tmp_release") +
                 "SELECT r.id, r.gid, r.name as name, " +
                 "  barcode, " +
                 "  rgt.name as type, rg.id as rg_id, rg.gid as rg_gid, rm.amazon_asin, " +
@@ -119,7 +162,7 @@ public class CommonTables  {
 
         clock.start();
         getDbConnection().createStatement().execute(
-                "CREATE INDEX tmp_release_idx_release ON tmp_release (id) ");
+                "CREATE INDEX tmp_release_idx_release ON " + getTableName(schema, "tmp_release") + " (id) ");
         clock.stop();
         System.out.println("tmp_release     :Created Indexes:" + Utils.formatClock(clock));
         clock.reset();
@@ -132,7 +175,7 @@ public class CommonTables  {
 
         //Note:assumes a release country always only maps to an area with a single 3166_1 code
         getDbConnection().createStatement().execute(
-                "CREATE TEMPORARY TABLE tmp_release_event AS " +
+                createTable("tmp_release_event") +
                         " SELECT r1.release, r2.code as country, " +
                         "  r1.date_year, r1.date_month, r1.date_day," +
                         "  a1.gid as gid, a1.name as name" +
@@ -152,7 +195,7 @@ public class CommonTables  {
 
         clock.start();
         getDbConnection().createStatement().execute(
-                "CREATE INDEX tmp_release_event_idx_release ON tmp_release_event (release) ");
+                "CREATE INDEX tmp_release_event_idx_release ON " + getTableName(schema, "tmp_release_event") + " (release) ");
         clock.stop();
         System.out.println("tmp_release_event     :Created Indexes:" + Utils.formatClock(clock));
         clock.reset();
@@ -165,7 +208,7 @@ public class CommonTables  {
         clock.start();
 
         getDbConnection().createStatement().execute(
-            "CREATE TEMPORARY TABLE tmp_track AS " +
+            createTable("tmp_track") +
                 "SELECT t.id, t.gid, t.recording, t.length, t.name as track_name, t.position as track_position, t.number as track_number, m.track_count, " +
                 "  m.release as release_id, m.position as medium_position, mf.name as format " +
                 " FROM track t " +
@@ -178,15 +221,50 @@ public class CommonTables  {
 
         clock.start();
         getDbConnection().createStatement().execute(
-                "CREATE INDEX tmp_track_idx_recording ON tmp_track (recording) ");
+                "CREATE INDEX tmp_track_idx_recording ON " + getTableName(schema, "tmp_track") + " (recording) ");
         clock.stop();
         System.out.println("tmp_track       :Created Indexes"+ Utils.formatClock(clock));
         clock.reset();
     }
 
 
+    /**
+     * @param table
+     * @return start of the statement creating the table
+     */
+    private String createTable(String table)
+    {
+        if(schema!=null)
+        {
+            return "CREATE UNLOGGED TABLE " + getTableName(schema, table) + " AS ";
+        }
+        return "CREATE TEMPORARY TABLE " + table + " AS ";
+    }
+
+    /**
+     * Drop the schema of the shared tables, once every index using them has been built or the build has failed
+     *
+     * @throws SQLException
+     */
+    public void dropSharedTables() throws SQLException
+    {
+        if(schema==null)
+        {
+            return;
+        }
+        getDbConnection().createStatement().execute("DROP SCHEMA IF EXISTS " + schema + " CASCADE");
+        if(!getDbConnection().getAutoCommit())
+        {
+            getDbConnection().commit();
+        }
+    }
+
     public void createTemporaryTables(boolean isUpdater)  throws SQLException
     {
+        if(schema!=null)
+        {
+            getDbConnection().createStatement().execute("CREATE SCHEMA " + schema);
+        }
 
         if(
             (indexesToBeBuilt.contains(ReleaseIndex.INDEX_NAME))||
@@ -216,5 +294,11 @@ public class CommonTables  {
                 createTrackTableUsingDb();
             }
         }
+
+        // Other connections only see the shared tables once committed
+        if(schema!=null && !getDbConnection().getAutoCommit())
+        {
+            getDbConnection().commit();
+        }
     }
 }
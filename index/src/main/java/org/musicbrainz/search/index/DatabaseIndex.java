@@ -31,12 +31,14 @@ import org.apache.lucene.search.similarities.Similarity;
 import org.apache.lucene.util.NumericUtils;
 import org.musicbrainz.search.MbDocument;
 import org.musicbrainz.search.analysis.MusicbrainzAnalyzer;
+import org.musicbrainz.search.helper.ArtistCreditWrapper;
 
 import java.io.IOException;
 import java.sql.*;
 import java.util.Date;
 import java.util.EnumSet;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.Map;
 
 /**
@@ -48,14 +50,23 @@ public abstract class DatabaseIndex implements Index {
     private static final String INDEX_SUFFIX = "_index";
 
     protected HashMap<String, PreparedStatement> preparedStatements;
+    protected HashMap<String, String> preparedStatementsSql;
+    protected HashMap<String, KeyLookup> keyLookups;
     protected Connection dbConnection;
-    
+    protected ArtistCreditStore artistCreditStore;
+    protected String commonTablesSchema;
+
+    // Estimated memory used by the artist credits of an index that isn't given a shared store
+    private static final long ARTIST_CREDIT_STORE_SIZE = 32L * 1024 * 1024;
+
     public String getFilename() {
         return getName() + INDEX_SUFFIX;
     }
 
     protected DatabaseIndex(Connection dbConnection) {
         this.preparedStatements = new HashMap<String, PreparedStatement>();
+        this.preparedStatementsSql = new HashMap<String, String>();
+        this.keyLookups = new HashMap<String, KeyLookup>();
         this.dbConnection = dbConnection;
     }
 
@@ -171,17 +182,153 @@ public abstract class DatabaseIndex implements Index {
     public PreparedStatement addPreparedStatement(String identifier, String SQL) throws SQLException {
         PreparedStatement st = dbConnection.prepareStatement(SQL);
         preparedStatements.put(identifier, st);
+        preparedStatementsSql.put(identifier, SQL);
         return st;
     }
 
+    /**
+     * Open a cursor over every row of a prepared statement from id 0 to maxId, rather than one chunk of ids
+     *
+     * The statement must take the min and max id as its two parameters, it is run as a subquery so it can be ordered
+     * by the key column whatever its own ordering.
+     *
+     * @param identifier prepared statement added in init()
+     * @param maxId
+     * @param keyColumn column holding the entity id
+     * @param orderBy columns the rows are ordered by, the key column first
+     * @return
+     * @throws SQLException
+     */
+    public StreamingCursor openStreamingCursor(String identifier, int maxId, String keyColumn, String orderBy) throws SQLException {
+        PreparedStatement st = dbConnection.prepareStatement(
+                "SELECT * FROM (" + preparedStatementsSql.get(identifier) + ") AS q ORDER BY " + orderBy,
+                ResultSet.TYPE_FORWARD_ONLY,
+                ResultSet.CONCUR_READ_ONLY);
+        st.setInt(1, 0);
+        st.setInt(2, maxId);
+        return new StreamingCursor(st, keyColumn);
+    }
+
     public PreparedStatement getPreparedStatement(String identifier) {
         return preparedStatements.get(identifier);
     }
 
+    /**
+     * Add a query for fetching the rows of a set of ids (see KeyLookup)
+     *
+     * @param identifier
+     * @param SQL query ending with IN
+     * @return
+     */
+    public KeyLookup addKeyLookup(String identifier, String SQL) {
+        return addKeyLookup(identifier, SQL, null);
+    }
+
+    /**
+     * Add a query for fetching the rows of a set of ids (see KeyLookup)
+     *
+     * @param identifier
+     * @param SQL query ending with IN
+     * @param orderBy columns the rows are ordered by
+     * @return
+     */
+    public KeyLookup addKeyLookup(String identifier, String SQL, String orderBy) {
+        KeyLookup lookup = new KeyLookup(dbConnection, SQL, orderBy);
+        keyLookups.put(identifier, lookup);
+        return lookup;
+    }
+
+    public KeyLookup getKeyLookup(String identifier) {
+        return keyLookups.get(identifier);
+    }
+
     public Connection getDbConnection() {
         return dbConnection;
     }
 
+    /**
+     * @param artistCreditStore artist credits shared with the other indexes being built
+     */
+    public void setArtistCreditStore(ArtistCreditStore artistCreditStore) {
+        this.artistCreditStore = artistCreditStore;
+    }
+
+    public ArtistCreditStore getArtistCreditStore() {
+        return artistCreditStore;
+    }
+
+    /**
+     * @param commonTablesSchema schema of the shared tables created by CommonTables, null to use temporary tables
+     */
+    public void setCommonTablesSchema(String commonTablesSchema) {
+        this.commonTablesSchema = commonTablesSchema;
+    }
+
+    public String getCommonTablesSchema() {
+        return commonTablesSchema;
+    }
+
+    /**
+     * @param table one of the tables created by CommonTables
+     * @return name of the table as used in sql, set before init()
+     */
+    protected String getCommonTable(String table) {
+        return CommonTables.getTableName(commonTablesSchema, table);
+    }
+
+    /**
+     * Add the lookups used to load artist credits missing from the artist credit store, for indexes with artist
+     * credits, needs tmp_artistcredit (see CommonTables).
+     *
+     * The updater always gets a new store so it sees changes to artist credits.
+     *
+     * @param isUpdater
+     */
+    protected void addArtistCreditLookups(boolean isUpdater) {
+        if (isUpdater || artistCreditStore == null) {
+            artistCreditStore = new ArtistCreditStore(ARTIST_CREDIT_STORE_SIZE);
+        }
+        String artistCreditTable = getCommonTable("tmp_artistcredit");
+        addKeyLookup("ARTISTCREDITSTORE", ArtistCreditStore.getArtistCreditsSql(artistCreditTable),
+                "a.artist_credit, a.pos");
+        addKeyLookup("ARTISTCREDITSTOREALIASES", ArtistCreditStore.getArtistCreditAliasesSql(artistCreditTable),
+                "a.artist_credit, a.pos, aa.name");
+    }
+
+    /**
+     * Get the artist credits of entities from the artist credit store
+     *
+     * @param rs rows of the entity key and its artist_credit, closed once read
+     * @param entityKey
+     * @return map of entity key to artist credit
+     * @throws SQLException
+     * @throws IOException
+     */
+    protected Map<Integer, ArtistCreditWrapper> loadArtistCredits(ResultSet rs, String entityKey)
+            throws SQLException, IOException {
+        Map<Integer, Integer> artistCreditIds = new HashMap<Integer, Integer>();
+        while (rs.next()) {
+            artistCreditIds.put(rs.getInt(entityKey), rs.getInt("artist_credit"));
+        }
+        rs.close();
+
+        Map<Integer, ArtistCreditWrapper> artistCredits = new HashMap<Integer, ArtistCreditWrapper>();
+        if (artistCreditIds.isEmpty()) {
+            return artistCredits;
+        }
+        Map<Integer, ArtistCreditWrapper> storedArtistCredits = artistCreditStore.getArtistCredits(
+                new HashSet<Integer>(artistCreditIds.values()),
+                getKeyLookup("ARTISTCREDITSTORE"),
+                getKeyLookup("ARTISTCREDITSTOREALIASES"));
+        for (Map.Entry<Integer, Integer> next : artistCreditIds.entrySet()) {
+            ArtistCreditWrapper acw = storedArtistCredits.get(next.getValue());
+            if (acw != null) {
+                artistCredits.put(next.getKey(), acw);
+            }
+        }
+        return artistCredits;
+    }
+
     /**
      * Initialize the indexer, usually this includes creation of prepared statements
      * and any temporary tables or indexes that re reuired.
@@ -197,6 +344,10 @@ public abstract class DatabaseIndex implements Index {
         for (PreparedStatement st : preparedStatements.values() ) {
             st.close();
         }
+        for (Map.Entry<String, KeyLookup> lookup : keyLookups.entrySet()) {
+            System.out.println(getName() + ":" + lookup.getKey() + " Lookups " + lookup.getValue().getStats());
+            lookup.getValue().close();
+        }
     }
 
     public abstract int getNoOfRows(int maxId) throws SQLException ;
@@ -223,6 +374,15 @@ public abstract class DatabaseIndex implements Index {
     {
         return null;
     }
+
+    /**
+     * @return fields the search server makes fuzzy queries against, the terms of these fields are added to the fuzzy
+     * candidate index if built
+     */
+    public IndexField[] getFuzzyFields()
+    {
+        return new IndexField[0];
+    }
     
 }
 
@@ -29,7 +29,6 @@
 package org.musicbrainz.search.index;
 
 import com.google.common.base.Strings;
-import com.google.common.collect.ArrayListMultimap;
 import org.apache.lucene.analysis.Analyzer;
 import org.apache.lucene.document.Document;
 import org.apache.lucene.index.IndexWriter;
@@ -105,11 +104,11 @@ public class EventIndex extends DatabaseIndex {
 
     public void indexData(IndexWriter indexWriter, int min, int max) throws SQLException, IOException {
 
-        Map<Integer, Set<Alias>> aliases = AliasHelper.completeFromDbResults(min, max, getPreparedStatement("ALIASES"));
-        ArrayListMultimap<Integer, Relation> artistRelations = LinkedArtistsHelper.loadRelations(min, max, getPreparedStatement("ARTISTS"));
-        ArrayListMultimap<Integer, Relation> placeRelations  = LinkedPlacesHelper.loadRelations(min, max, getPreparedStatement("PLACES"));
-        ArrayListMultimap<Integer, Relation> areaRelations  = LinkedAreasHelper.loadRelations(min, max, getPreparedStatement("AREAS"));
-        Map<Integer,List<Tag>> tags = TagHelper.loadTags(min, max, getPreparedStatement("TAGS"), "event");
+        IntObjectMap<Set<Alias>> aliases = AliasHelper.completeFromDbResults(min, max, getPreparedStatement("ALIASES"));
+        IntListMultimap<Relation> artistRelations = LinkedArtistsHelper.loadRelations(min, max, getPreparedStatement("ARTISTS"));
+        IntListMultimap<Relation> placeRelations  = LinkedPlacesHelper.loadRelations(min, max, getPreparedStatement("PLACES"));
+        IntListMultimap<Relation> areaRelations  = LinkedAreasHelper.loadRelations(min, max, getPreparedStatement("AREAS"));
+        IntListMultimap<Tag> tags = TagHelper.loadTags(min, max, getPreparedStatement("TAGS"), "event");
 
         PreparedStatement st = getPreparedStatement("EVENT");
         st.setInt(1, min);
@@ -123,11 +122,11 @@ public class EventIndex extends DatabaseIndex {
     }
 
     public Document documentFromResultSet(ResultSet rs,
-                                          ArrayListMultimap<Integer, Relation> artistRelations,
-                                          ArrayListMultimap<Integer, Relation> placeRelations,
-                                          ArrayListMultimap<Integer, Relation> areaRelations,
-                                          Map<Integer,List<Tag>> tags,
-                                          Map<Integer, Set<Alias>> aliases) throws SQLException {
+                                          IntListMultimap<Relation> artistRelations,
+                                          IntListMultimap<Relation> placeRelations,
+                                          IntListMultimap<Relation> areaRelations,
+                                          IntListMultimap<Tag> tags,
+                                          IntObjectMap<Set<Alias>> aliases) throws SQLException {
 
         MbDocument doc = new MbDocument();
 
@@ -204,8 +203,7 @@ public class EventIndex extends DatabaseIndex {
             event.setTagList(TagHelper.addTagsToDocAndConstructTagList(of, doc, tags, eventId, EventIndexField.TAG));
         }
 
-        String store = MMDSerializer.serialize(event);
-        doc.addField(EventIndexField.EVENT_STORE, store);
+        doc.addStoreField(EventIndexField.EVENT_STORE, event);
         return doc.getLuceneDocument();
     }
 
@@ -0,0 +1,79 @@
+/*
+ * MusicBrainz Search Server
+ * Copyright (C) 2009  Paul Taylor
+
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301, USA.
+ */
+
+package org.musicbrainz.search.index;
+
+import org.apache.lucene.analysis.Analyzer;
+import org.apache.lucene.document.FieldType;
+
+/**
+ * Low cardinality values of the main entity indexes stored as SortedSet DocValues, so that the number of matches with
+ * each value can be counted while collecting the hits of a search.
+ *
+ * These are not indexed so have no analyzer or field type, add with MbDocument.addSortedSetDocValuesField(), unknown
+ * values are not added so are not counted.
+ */
+public enum FacetIndexField implements IndexField {
+
+    TYPE            ("dv_facet_type",           "type"),
+    PRIMARY_TYPE    ("dv_facet_primarytype",    "primarytype"),
+    SECONDARY_TYPE  ("dv_facet_secondarytype",  "secondarytype"),
+    STATUS          ("dv_facet_status",         "status"),
+    COUNTRY         ("dv_facet_country",        "country"),
+    FORMAT          ("dv_facet_format",         "format"),
+    GENDER          ("dv_facet_gender",         "gender"),
+    TAG             ("dv_facet_tag",            "tag"),
+    ;
+
+    private String name;
+    private String paramName;
+
+    private FacetIndexField(String name, String paramName) {
+        this.name = name;
+        this.paramName = paramName;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * @return name used to request counts of this field in the facets parameter
+     */
+    public String getParamName() {
+        return paramName;
+    }
+
+    public Analyzer getAnalyzer() {
+        return null;
+    }
+
+    public FieldType getFieldType() {
+        return null;
+    }
+
+    public static FacetIndexField getByParamName(String paramName) {
+        for (FacetIndexField field : FacetIndexField.values()) {
+            if (field.getParamName().equalsIgnoreCase(paramName)) {
+                return field;
+            }
+        }
+        return null;
+    }
+}
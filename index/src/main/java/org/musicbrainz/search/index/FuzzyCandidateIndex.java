@@ -0,0 +1,463 @@
+package org.musicbrainz.search.index;
+
+import org.apache.lucene.document.BinaryDocValuesField;
+import org.apache.lucene.document.Document;
+import org.apache.lucene.document.Field;
+import org.apache.lucene.document.StringField;
+import org.apache.lucene.index.AtomicReaderContext;
+import org.apache.lucene.index.BinaryDocValues;
+import org.apache.lucene.index.DirectoryReader;
+import org.apache.lucene.index.IndexReader;
+import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.index.IndexWriterConfig;
+import org.apache.lucene.index.MultiFields;
+import org.apache.lucene.index.SegmentReader;
+import org.apache.lucene.index.Term;
+import org.apache.lucene.index.Terms;
+import org.apache.lucene.index.TermsEnum;
+import org.apache.lucene.search.BooleanClause;
+import org.apache.lucene.search.BooleanQuery;
+import org.apache.lucene.search.Collector;
+import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.search.Scorer;
+import org.apache.lucene.search.TermQuery;
+import org.apache.lucene.store.Directory;
+import org.apache.lucene.store.FSDirectory;
+import org.apache.lucene.util.BytesRef;
+import org.musicbrainz.search.LuceneVersion;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Index of the distinct terms of the fuzzy fields of an index (see DatabaseIndex.getFuzzyFields()) by their trigrams,
+ * built once the index has been built and stored alongside it so it can be loaded by the search server.
+ *
+ * Terms within a few edits of a search term share most of its trigrams, so rather than intersecting a Levenshtein
+ * automaton with the whole term dictionary of the field the candidate terms are found by trigram overlap, and only
+ * those candidates are checked for edit distance.
+ *
+ * The LiveDataFeedIndexUpdater keeps it up to date by adding the terms of the segments written since it was last built
+ * or updated. Terms no longer in the index are left as candidates, they are dropped when a search finds they no longer
+ * match any document.
+ */
+public class FuzzyCandidateIndex
+{
+    public static final String FUZZY_DIR = "fuzzy";
+
+    private static final String FIELD = "field";
+    private static final String GRAM = "gram";
+    private static final String WORD = "word";
+    // Field and term, to check whether a term has already been added
+    private static final String KEY = "key";
+
+    // Commit data holding the names of the segments of the index whose terms have been added
+    private static final String SEGMENTS = "segments";
+
+    private static final int GRAM_LENGTH = 3;
+
+    // Pad terms so the start and end of a term have their own grams
+    private static final char START = '\u0002';
+    private static final char END = '\u0003';
+
+    // An edit (counting a transposition as one edit) changes at most this many of the grams of a term
+    private static final int GRAMS_PER_EDIT = 4;
+
+    // Longer terms are never worth fuzzy matching, and would need too many clauses
+    private static final int MAX_TERM_LENGTH = 255;
+
+    /**
+     * Build fuzzy candidate index from the fuzzy fields of the index and store in directory, replacing any
+     * previously built
+     *
+     * @param reader
+     * @param fields
+     * @param dir
+     * @return false if the index contains none of the fields so no candidate index was built
+     * @throws IOException
+     */
+    public static boolean build(IndexReader reader, IndexField[] fields, File dir) throws IOException
+    {
+        delete(dir);
+
+        boolean hasTerms = false;
+        for (IndexField field : fields)
+        {
+            if (MultiFields.getTerms(reader, field.getName()) != null)
+            {
+                hasTerms = true;
+                break;
+            }
+        }
+        if (!hasTerms)
+        {
+            return false;
+        }
+
+        Directory directory = FSDirectory.open(dir);
+        IndexWriter writer = new IndexWriter(directory, new IndexWriterConfig(LuceneVersion.LUCENE_VERSION, null));
+        try
+        {
+            for (IndexField field : fields)
+            {
+                Terms terms = MultiFields.getTerms(reader, field.getName());
+                if (terms == null)
+                {
+                    continue;
+                }
+                TermsEnum termsEnum = terms.iterator(null);
+                BytesRef term;
+                while ((term = termsEnum.next()) != null)
+                {
+                    addTerm(writer, field.getName(), term);
+                }
+            }
+            writer.forceMerge(1);
+            writer.setCommitData(getSegmentsCommitData(reader));
+        }
+        finally
+        {
+            writer.close();
+            directory.close();
+        }
+        return true;
+    }
+
+    /**
+     * Add the terms of the fuzzy fields of segments written since the fuzzy candidate index was built or last updated,
+     * so that names added to the index by the LiveDataFeedIndexUpdater can be fuzzy matched
+     *
+     * @param reader reader of the index as committed
+     * @param fields
+     * @param dir
+     * @return number of terms added, 0 if the index was built without a fuzzy candidate index
+     * @throws IOException
+     */
+    public static int update(IndexReader reader, IndexField[] fields, File dir) throws IOException
+    {
+        DirectoryReader candidateReader = open(dir);
+        if (candidateReader == null)
+        {
+            return 0;
+        }
+
+        Set<String> indexedSegments = new HashSet<String>();
+        String segments = candidateReader.getIndexCommit().getUserData().get(SEGMENTS);
+        if (segments != null)
+        {
+            indexedSegments.addAll(Arrays.asList(segments.split(",")));
+        }
+
+        // Merged segments are new but mostly contain terms already added, so check each term before adding it
+        int added = 0;
+        Set<String> addedKeys = new HashSet<String>();
+        IndexWriter writer = new IndexWriter(candidateReader.directory(), new IndexWriterConfig(LuceneVersion.LUCENE_VERSION, null));
+        try
+        {
+            for (AtomicReaderContext leaf : reader.leaves())
+            {
+                if (indexedSegments.contains(getSegmentName(leaf)))
+                {
+                    continue;
+                }
+                for (IndexField field : fields)
+                {
+                    Terms terms = leaf.reader().terms(field.getName());
+                    if (terms == null)
+                    {
+                        continue;
+                    }
+                    TermsEnum termsEnum = terms.iterator(null);
+                    BytesRef term;
+                    while ((term = termsEnum.next()) != null)
+                    {
+                        String key = getKey(field.getName(), term.utf8ToString());
+                        if (candidateReader.docFreq(new Term(KEY, key)) == 0 && addedKeys.add(key))
+                        {
+                            if (addTerm(writer, field.getName(), term))
+                            {
+                                added++;
+                            }
+                        }
+                    }
+                }
+            }
+            writer.setCommitData(getSegmentsCommitData(reader));
+        }
+        finally
+        {
+            writer.close();
+            candidateReader.close();
+            candidateReader.directory().close();
+        }
+        return added;
+    }
+
+    /**
+     * @param writer
+     * @param field
+     * @param term
+     * @return false if the term is too long to be fuzzy matched so was not added
+     * @throws IOException
+     */
+    private static boolean addTerm(IndexWriter writer, String field, BytesRef term) throws IOException
+    {
+        String text = term.utf8ToString();
+        if (text.length() > MAX_TERM_LENGTH)
+        {
+            return false;
+        }
+        Document doc = new Document();
+        doc.add(new StringField(FIELD, field, Field.Store.NO));
+        doc.add(new StringField(KEY, getKey(field, text), Field.Store.NO));
+        for (String gram : grams(START + text + END))
+        {
+            doc.add(new StringField(GRAM, gram, Field.Store.NO));
+        }
+        doc.add(new BinaryDocValuesField(WORD, BytesRef.deepCopyOf(term)));
+        writer.addDocument(doc);
+        return true;
+    }
+
+    private static String getKey(String field, String text)
+    {
+        return field + ':' + text;
+    }
+
+    /**
+     * @param leaf
+     * @return name of the segment, or null if the reader is not a segment reader
+     */
+    private static String getSegmentName(AtomicReaderContext leaf)
+    {
+        return leaf.reader() instanceof SegmentReader ? ((SegmentReader) leaf.reader()).getSegmentName() : null;
+    }
+
+    private static Map<String, String> getSegmentsCommitData(IndexReader reader)
+    {
+        StringBuilder segments = new StringBuilder();
+        for (AtomicReaderContext leaf : reader.leaves())
+        {
+            String name = getSegmentName(leaf);
+            if (name != null)
+            {
+                if (segments.length() > 0)
+                {
+                    segments.append(',');
+                }
+                segments.append(name);
+            }
+        }
+        return Collections.singletonMap(SEGMENTS, segments.toString());
+    }
+
+    /**
+     * Delete a previously built fuzzy candidate index, so that an index rebuilt without one does not use candidates
+     * from an older build
+     *
+     * @param dir
+     */
+    public static void delete(File dir)
+    {
+        File[] files = dir.listFiles();
+        if (files == null)
+        {
+            return;
+        }
+        for (File file : files)
+        {
+            file.delete();
+        }
+        dir.delete();
+    }
+
+    /**
+     * Open fuzzy candidate index previously built by build()
+     *
+     * @param dir
+     * @return null if no fuzzy candidate index has been built
+     * @throws IOException
+     */
+    public static DirectoryReader open(File dir) throws IOException
+    {
+        if (!dir.isDirectory())
+        {
+            return null;
+        }
+        Directory directory = FSDirectory.open(dir);
+        if (!DirectoryReader.indexExists(directory))
+        {
+            directory.close();
+            return null;
+        }
+        return DirectoryReader.open(directory);
+    }
+
+    /**
+     * Find the terms of the field that start with the same prefixLength characters as text and are within maxEdits of
+     * it, as would be matched by a FuzzyQuery
+     *
+     * @param searcher searcher of the fuzzy candidate index
+     * @param field
+     * @param text
+     * @param prefixLength
+     * @param maxEdits
+     * @return matching terms and their edit distance from text, or null if text is too long to look up
+     * @throws IOException
+     */
+    public static Map<String, Integer> findCandidates(IndexSearcher searcher, String field, String text,
+                                                      int prefixLength, int maxEdits) throws IOException
+    {
+        if (text.length() > MAX_TERM_LENGTH)
+        {
+            return null;
+        }
+
+        // Every candidate starts with the prefix so must contain its grams, and can only have lost a few of the rest
+        String prefix = text.substring(0, Math.min(prefixLength, text.length()));
+        Set<String> prefixGrams = grams(START + prefix);
+        Set<String> grams = grams(START + text + END);
+        grams.removeAll(prefixGrams);
+
+        BooleanQuery query = new BooleanQuery(true);
+        query.add(new TermQuery(new Term(FIELD, field)), BooleanClause.Occur.MUST);
+        for (String gram : prefixGrams)
+        {
+            query.add(new TermQuery(new Term(GRAM, gram)), BooleanClause.Occur.MUST);
+        }
+        int minShouldMatch = grams.size() - GRAMS_PER_EDIT * maxEdits;
+        if (minShouldMatch > 0)
+        {
+            for (String gram : grams)
+            {
+                query.add(new TermQuery(new Term(GRAM, gram)), BooleanClause.Occur.SHOULD);
+            }
+            query.setMinimumNumberShouldMatch(minShouldMatch);
+        }
+
+        CandidateCollector collector = new CandidateCollector(text, prefix, maxEdits);
+        searcher.search(query, collector);
+        return collector.candidates;
+    }
+
+    /**
+     * @param text
+     * @return distinct grams of text
+     */
+    private static Set<String> grams(String text)
+    {
+        Set<String> grams = new LinkedHashSet<String>();
+        for (int i = 0; i + GRAM_LENGTH <= text.length(); i++)
+        {
+            grams.add(text.substring(i, i + GRAM_LENGTH));
+        }
+        return grams;
+    }
+
+    /**
+     * Optimal string alignment distance between two strings, i.e Levenshtein distance also counting a transposition
+     * of adjacent characters as a single edit, measured in code points as FuzzyQuery does
+     *
+     * @param a
+     * @param b
+     * @return
+     */
+    static int distance(int[] a, int[] b)
+    {
+        int[][] d = new int[a.length + 1][b.length + 1];
+        for (int i = 0; i <= a.length; i++)
+        {
+            d[i][0] = i;
+        }
+        for (int j = 0; j <= b.length; j++)
+        {
+            d[0][j] = j;
+        }
+        for (int i = 1; i <= a.length; i++)
+        {
+            for (int j = 1; j <= b.length; j++)
+            {
+                int cost = a[i - 1] == b[j - 1] ? 0 : 1;
+                d[i][j] = Math.min(Math.min(d[i - 1][j] + 1, d[i][j - 1] + 1), d[i - 1][j - 1] + cost);
+                if (i > 1 && j > 1 && a[i - 1] == b[j - 2] && a[i - 2] == b[j - 1])
+                {
+                    d[i][j] = Math.min(d[i][j], d[i - 2][j - 2] + 1);
+                }
+            }
+        }
+        return d[a.length][b.length];
+    }
+
+    private static int[] toCodePoints(String text)
+    {
+        int[] codePoints = new int[text.codePointCount(0, text.length())];
+        for (int i = 0, j = 0; i < text.length(); i += Character.charCount(codePoints[j++]))
+        {
+            codePoints[j] = text.codePointAt(i);
+        }
+        return codePoints;
+    }
+
+    /**
+     * Checks the edit distance of every term sharing enough grams with the search term
+     */
+    static class CandidateCollector extends Collector
+    {
+        private final int[] text;
+        private final String prefix;
+        private final int maxEdits;
+        private final Map<String, Integer> candidates = new LinkedHashMap<String, Integer>();
+        private BinaryDocValues words;
+
+        CandidateCollector(String text, String prefix, int maxEdits)
+        {
+            this.text = toCodePoints(text);
+            this.prefix = prefix;
+            this.maxEdits = maxEdits;
+        }
+
+        @Override
+        public void setScorer(Scorer scorer)
+        {
+        }
+
+        @Override
+        public void collect(int doc)
+        {
+            String word = words.get(doc).utf8ToString();
+            if (!word.startsWith(prefix))
+            {
+                return;
+            }
+            int[] candidate = toCodePoints(word);
+            if (Math.abs(candidate.length - text.length) > maxEdits)
+            {
+                return;
+            }
+            int edits = distance(text, candidate);
+            if (edits <= maxEdits)
+            {
+                candidates.put(word, edits);
+            }
+        }
+
+        @Override
+        public void setNextReader(AtomicReaderContext context) throws IOException
+        {
+            words = context.reader().getBinaryDocValues(WORD);
+        }
+
+        @Override
+        public boolean acceptsDocsOutOfOrder()
+        {
+            return true;
+        }
+    }
+}
@@ -0,0 +1,205 @@
+package org.musicbrainz.search.index;
+
+import org.apache.lucene.index.IndexWriter;
+
+import java.io.IOException;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Build several database indexes at the same time, each on its own database connection with its own IndexWriter.
+ *
+ * Indexes are grouped into lanes, a lane is built by one thread on one connection one index after another. Temporary
+ * tables (see CommonTables) only exist on the connection that created them, so each lane creates the tables its
+ * indexes need (unless the IndexBuilder created shared tables for several chunk workers), and the releasegroup index
+ * is built after the release index on the same lane so it can reuse the tmp_artistcredit table rather than create it
+ * again.
+ *
+ * Lanes are started in the order given, which should be longest first, so the recording and release indexes start
+ * straight away and the small indexes are fitted in as the other lanes finish. Every index writer queues its documents
+ * on one pool of analysis threads, so once the small indexes are done the long builds still running get all of them
+ * rather than a fixed share, and each index is submitted for optimizing as soon as it has been built.
+ */
+public class IndexBuildScheduler {
+
+    private final IndexOptions options;
+    private final ReplicationInformation replicationInformation;
+    private final CompletionService<Boolean> optimizers;
+    private final ArtistCreditStore artistCreditStore;
+    private final ExecutorService verifier;
+    private final String commonTablesSchema;
+    private ExecutorService analysisPool;
+    private final List<Connection> connections = Collections.synchronizedList(new ArrayList<Connection>());
+
+    /**
+     * @param options
+     * @param replicationInformation replication information added to every index
+     * @param optimizers completion service each built index is submitted to for optimizing and closing
+     * @param artistCreditStore artist credits shared by every index
+     * @param verifier runs the row count check of each index once merged, null if not checked
+     * @param commonTablesSchema schema of the shared tables created by the IndexBuilder, null if each lane creates
+     *                           temporary tables
+     */
+    public IndexBuildScheduler(IndexOptions options,
+                               ReplicationInformation replicationInformation,
+                               CompletionService<Boolean> optimizers,
+                               ArtistCreditStore artistCreditStore,
+                               ExecutorService verifier,
+                               String commonTablesSchema) {
+        this.options = options;
+        this.replicationInformation = replicationInformation;
+        this.optimizers = optimizers;
+        this.artistCreditStore = artistCreditStore;
+        this.verifier = verifier;
+        this.commonTablesSchema = commonTablesSchema;
+    }
+
+    /**
+     * Group indexes into the lanes they are built on
+     *
+     * @param indexesToBeBuilt index names, longest to build first
+     * @return lanes in the same order, each the names of the indexes built one after another on one connection
+     */
+    static List<List<String>> createLanes(List<String> indexesToBeBuilt) {
+        List<List<String>> lanes = new ArrayList<List<String>>();
+        List<String> releaseLane = null;
+        boolean isReleaseGroupDeferred = indexesToBeBuilt.contains(ReleaseIndex.INDEX_NAME);
+        for (String name : indexesToBeBuilt) {
+            if (name.equals(ReleaseGroupIndex.INDEX_NAME) && isReleaseGroupDeferred) {
+                continue;
+            }
+            List<String> lane = new ArrayList<String>();
+            lane.add(name);
+            lanes.add(lane);
+            if (name.equals(ReleaseIndex.INDEX_NAME)) {
+                releaseLane = lane;
+            }
+        }
+        if (isReleaseGroupDeferred && indexesToBeBuilt.contains(ReleaseGroupIndex.INDEX_NAME)) {
+            releaseLane.add(ReleaseGroupIndex.INDEX_NAME);
+        }
+        return lanes;
+    }
+
+    /**
+     * Build the indexes, returns once every index has been built and submitted for optimizing
+     *
+     * @param indexesToBeBuilt index names, longest to build first
+     * @throws SQLException
+     * @throws IOException
+     * @throws InterruptedException
+     */
+    public void build(List<String> indexesToBeBuilt) throws SQLException, IOException, InterruptedException {
+        List<List<String>> lanes = createLanes(indexesToBeBuilt);
+        if (lanes.isEmpty()) {
+            return;
+        }
+
+        int concurrentIndexes = Math.min(Math.max(options.getMaxConcurrentIndexes(), 1), lanes.size());
+        int analysisThreads = Math.max(options.getAnalysisThreads(), 1);
+        System.out.println("Building " + indexesToBeBuilt.size() + " indexes, " + concurrentIndexes
+                + " at a time sharing " + analysisThreads + " analysis threads");
+
+        // Documents may still be queued when an index is submitted for optimizing, so the pool is shut down by close()
+        synchronized (this) {
+            if (analysisPool == null) {
+                analysisPool = Executors.newFixedThreadPool(analysisThreads);
+            }
+        }
+
+        ExecutorService es = Executors.newFixedThreadPool(concurrentIndexes);
+        try {
+            List<Future<Boolean>> results = new ArrayList<Future<Boolean>>();
+            for (List<String> lane : lanes) {
+                results.add(es.submit(new LaneBuilder(lane, analysisThreads)));
+            }
+            for (Future<Boolean> result : results) {
+                try {
+                    result.get();
+                } catch (ExecutionException ee) {
+                    Throwable cause = ee.getCause();
+                    if (cause instanceof SQLException) {
+                        throw (SQLException) cause;
+                    } else if (cause instanceof IOException) {
+                        throw (IOException) cause;
+                    } else if (cause instanceof RuntimeException) {
+                        throw (RuntimeException) cause;
+                    }
+                    throw new RuntimeException(cause);
+                }
+            }
+        } finally {
+            es.shutdownNow();
+        }
+    }
+
+    /**
+     * Close the connections opened for each lane and stop the analysis threads, only once the indexes have been
+     * optimized and their row counts checked because checking the number of rows uses the connection.
+     */
+    public void close() {
+        synchronized (this) {
+            if (analysisPool != null) {
+                analysisPool.shutdown();
+                analysisPool = null;
+            }
+        }
+        synchronized (connections) {
+            for (Connection connection : connections) {
+                try {
+                    connection.close();
+                } catch (SQLException e) {
+                    e.printStackTrace();
+                }
+            }
+            connections.clear();
+        }
+    }
+
+    /**
+     * Builds the indexes of one lane on a new connection
+     */
+    private class LaneBuilder implements Callable<Boolean> {
+
+        private final List<String> lane;
+        private final int analysisThreads;
+
+        public LaneBuilder(List<String> lane, int analysisThreads) {
+            this.lane = lane;
+            this.analysisThreads = analysisThreads;
+        }
+
+        public Boolean call() throws SQLException, IOException {
+            Connection dbConnection = options.getMainDatabaseConnection();
+            if (dbConnection == null) {
+                throw new SQLException("Couldn't connect to database to build " + lane);
+            }
+            connections.add(dbConnection);
+
+            // With several chunk workers the IndexBuilder has already created shared tables for every index
+            if (commonTablesSchema == null) {
+                CommonTables commonTables = new CommonTables(dbConnection, lane);
+                commonTables.createTemporaryTables(false);
+            }
+
+            for (String name : lane) {
+                DatabaseIndex index = IndexBuilder.createDatabaseIndex(name, dbConnection);
+                index.setArtistCreditStore(artistCreditStore);
+                index.setCommonTablesSchema(commonTablesSchema);
+                IndexWriter indexWriter = IndexBuilder.createIndexWriter(index, options, analysisPool, analysisThreads);
+                int maxId = IndexBuilder.buildDatabaseIndex(indexWriter, index, options, replicationInformation);
+                optimizers.submit(new IndexBuilder.IndexWriterOptimizerAndClose(maxId, indexWriter, index, options, verifier));
+            }
+            return true;
+        }
+    }
+}
@@ -30,12 +30,16 @@
 package org.musicbrainz.search.index;
 
 import org.apache.commons.lang.time.StopWatch;
+import org.apache.lucene.index.ConcurrentMergeScheduler;
 import org.apache.lucene.index.DirectoryReader;
 import org.apache.lucene.index.IndexReader;
 import org.apache.lucene.index.IndexWriter;
 import org.apache.lucene.index.IndexWriterConfig;
+import org.apache.lucene.store.Directory;
 import org.apache.lucene.store.FSDirectory;
+import org.apache.lucene.store.IOContext;
 import org.apache.lucene.store.NoLockFactory;
+import org.apache.lucene.store.RateLimitedDirectoryWrapper;
 import org.kohsuke.args4j.CmdLineException;
 import org.kohsuke.args4j.CmdLineParser;
 import org.musicbrainz.search.LuceneVersion;
@@ -51,8 +55,6 @@ import java.util.concurrent.*;
 public class IndexBuilder
 {
 
-    private static final int MAX_THREADS_FOR_CONCURRENT_OPTIMIZATION = 1;
-
     public static void main(String[] args) throws SQLException, IOException, InterruptedException
     {
 
@@ -113,24 +115,7 @@ public class IndexBuilder
 
         // MusicBrainz data indexing do the largest indexes first then can run optimizer whilst start building
         // the indexes on subsequent tables
-        DatabaseIndex[] indexes = {
-                new RecordingIndex(mainDbConn),
-                new ReleaseIndex(mainDbConn),
-                new WorkIndex(mainDbConn),
-                new ArtistIndex(mainDbConn),
-                new ReleaseGroupIndex(mainDbConn),
-                new LabelIndex(mainDbConn),
-                new AreaIndex(mainDbConn),
-                new PlaceIndex(mainDbConn),
-                new EventIndex(mainDbConn),
-                new AnnotationIndex(mainDbConn),
-                new UrlIndex(mainDbConn),
-                new InstrumentIndex(mainDbConn),
-                new SeriesIndex(mainDbConn),
-                new EditorIndex(mainDbConn),
-                new TagIndex(mainDbConn),
-                new CDStubIndex(mainDbConn), //Note different db
-        };
+        DatabaseIndex[] indexes = createDatabaseIndexes(mainDbConn);
 
         List<String> indexesToBeBuilt = new ArrayList<String>();
         for (DatabaseIndex index : indexes) {
@@ -146,56 +131,105 @@ public class IndexBuilder
         if(indexesToBeBuilt.size()>0) {
             initialReplicationInformation = indexes[0].readReplicationInformationFromDatabase();
         }
-        // Create temporary tables used by multiple indexes
-        CommonTables commonTables = new CommonTables(mainDbConn, indexesToBeBuilt);
-        commonTables.createTemporaryTables(false);
-
-        ExecutorService es = Executors.newFixedThreadPool(MAX_THREADS_FOR_CONCURRENT_OPTIMIZATION);
+        // Artist credits are shared by the recording, release and releasegroup indexes
+        ArtistCreditStore artistCreditStore = new ArtistCreditStore(options.getArtistCreditStoreSize() * 1024L * 1024);
+        // Merge indexes whilst the next ones are built, several at once
+        ExecutorService es = Executors.newFixedThreadPool(
+                Math.max(Math.max(options.getConcurrentMerges(), options.getMaxConcurrentIndexes()), 1));
         CompletionService<Boolean> cs = new ExecutorCompletionService<Boolean>(es);
-        for (DatabaseIndex index : indexes) {
-
-            // Check if this index should be built
-            if (!options.buildIndex(index.getName())) {
-                System.out.println("Skipping index: " + index.getName());
-                continue;
+        // Row counts are checked in the background, one at a time to keep the load on the database down
+        ExecutorService verifier = options.isVerifyRowCount() ? Executors.newSingleThreadExecutor() : null;
+        IndexBuildScheduler scheduler = null;
+        // Chunks fetched on several connections need tables every connection can see, created once for all indexes
+        // in a schema of their own
+        CommonTables sharedTables = null;
+        String commonTablesSchema = null;
+        try
+        {
+            if (options.getChunkWorkers() > 1 && indexesToBeBuilt.size() > 0) {
+                commonTablesSchema = CommonTables.newSharedSchema();
+                sharedTables = new CommonTables(mainDbConn, indexesToBeBuilt, commonTablesSchema);
+                sharedTables.createTemporaryTables(false);
+            }
+            if (options.getMaxConcurrentIndexes() > 1 && indexesToBeBuilt.size() > 1) {
+                // Each index is built on its own connection, creating the temporary tables it needs
+                scheduler = new IndexBuildScheduler(options, initialReplicationInformation, cs, artistCreditStore,
+                        verifier, commonTablesSchema);
+                scheduler.build(indexesToBeBuilt);
             }
+            else {
+                // Create temporary tables used by multiple indexes
+                if (commonTablesSchema == null) {
+                    CommonTables commonTables = new CommonTables(mainDbConn, indexesToBeBuilt);
+                    commonTables.createTemporaryTables(false);
+                }
 
-            IndexWriter indexWriter = createIndexWriter(index,options);
-            int maxId = buildDatabaseIndex(indexWriter, index, options, initialReplicationInformation);
-            cs.submit(new IndexWriterOptimizerAndClose(maxId,indexWriter, index, options));
-        }
+                for (DatabaseIndex index : indexes) {
 
-        // FreeDB data indexing
-        if(options.buildIndex("freedb")) {
+                    // Check if this index should be built
+                    if (!options.buildIndex(index.getName())) {
+                        System.out.println("Skipping index: " + index.getName());
+                        continue;
+                    }
 
-            File dumpFile = new File(options.getFreeDBDump());
-            //If they have set freedbdump file 
-            if (options.getFreeDBDump() != null && options.getFreeDBDump().length()!=0)  {
-                if( dumpFile.isFile()) {
-                    buildFreeDBIndex(dumpFile, options);
-                } else {
-                    System.out.println("  Can't build FreeDB index: invalid file "+options.getFreeDBDump());
+                    index.setArtistCreditStore(artistCreditStore);
+                    index.setCommonTablesSchema(commonTablesSchema);
+                    IndexWriter indexWriter = createIndexWriter(index, options, null, options.getAnalysisThreads());
+                    int maxId = buildDatabaseIndex(indexWriter, index, options, initialReplicationInformation);
+                    cs.submit(new IndexWriterOptimizerAndClose(maxId,indexWriter, index, options, verifier));
                 }
             }
-        }
 
-        //Wait for each index to be optimized and closed before exiting from Index Build
-        System.out.println("Waiting for any indexes to finish optimizing:"+ Utils.formatCurrentTimeForOutput());
-        for (int i =0;i<indexesToBeBuilt.size();i++) {
-            Future<Boolean> result = cs.take();
-            try
-            {
-                if(!result.get())
+            // FreeDB data indexing
+            if(options.buildIndex("freedb")) {
+
+                File dumpFile = new File(options.getFreeDBDump());
+                //If they have set freedbdump file 
+                if (options.getFreeDBDump() != null && options.getFreeDBDump().length()!=0)  {
+                    if( dumpFile.isFile()) {
+                        buildFreeDBIndex(dumpFile, options);
+                    } else {
+                        System.out.println("  Can't build FreeDB index: invalid file "+options.getFreeDBDump());
+                    }
+                }
+            }
+
+            //Wait for each index to be optimized and closed before exiting from Index Build
+            System.out.println("Waiting for any indexes to finish optimizing:"+ Utils.formatCurrentTimeForOutput());
+            for (int i =0;i<indexesToBeBuilt.size();i++) {
+                Future<Boolean> result = cs.take();
+                try
                 {
-                    System.out.println("Optimize Failed");
+                    if(!result.get())
+                    {
+                        System.out.println("Optimize Failed");
+                    }
                 }
+                catch(ExecutionException ee)
+                {
+                    System.out.println("Optimize Failed with unexpected exception");
+                }
+            }
+            es.shutdown();
+            if(verifier!=null)
+            {
+                // Row counts use the database connections so finish before they are closed
+                verifier.shutdown();
+                verifier.awaitTermination(Long.MAX_VALUE, TimeUnit.SECONDS);
+            }
+            System.out.println("Artist Credit Store:" + artistCreditStore.getStats());
+        }
+        finally
+        {
+            if(scheduler!=null)
+            {
+                scheduler.close();
             }
-            catch(ExecutionException ee)
+            if(sharedTables!=null)
             {
-                System.out.println("Optimize Failed with unexpected exception");
+                sharedTables.dropSharedTables();
             }
         }
-        es.shutdown();
         if(mainDbConn!=null)
         {
             mainDbConn.close();
@@ -203,43 +237,116 @@ public class IndexBuilder
         System.out.println("Index Builder Finished:"+ Utils.formatCurrentTimeForOutput());
     }
 
+    /**
+     * Create every database index, the largest first, so the long recording and release builds start first and
+     * the small indexes are built last
+     *
+     * @param dbConnection connection the indexes read from
+     * @return
+     */
+    static DatabaseIndex[] createDatabaseIndexes(Connection dbConnection)
+    {
+        return new DatabaseIndex[] {
+                new RecordingIndex(dbConnection),
+                new ReleaseIndex(dbConnection),
+                new WorkIndex(dbConnection),
+                new ArtistIndex(dbConnection),
+                new ReleaseGroupIndex(dbConnection),
+                new LabelIndex(dbConnection),
+                new PlaceIndex(dbConnection),
+                new EventIndex(dbConnection),
+                new AnnotationIndex(dbConnection),
+                new CDStubIndex(dbConnection), //Note different db
+                new AreaIndex(dbConnection),
+                new UrlIndex(dbConnection),
+                new InstrumentIndex(dbConnection),
+                new SeriesIndex(dbConnection),
+                new EditorIndex(dbConnection),
+                new TagIndex(dbConnection),
+        };
+    }
+
+    /**
+     * @param name
+     * @param dbConnection
+     * @return the database index with this name reading from the connection
+     */
+    static DatabaseIndex createDatabaseIndex(String name, Connection dbConnection)
+    {
+        for (DatabaseIndex index : createDatabaseIndexes(dbConnection)) {
+            if (index.getName().equals(name)) {
+                return index;
+            }
+        }
+        throw new IllegalArgumentException("Unknown index " + name);
+    }
+
 
     /**
      * Initialize IndexWriter for populating index
      *
      * All addDocuments request are put on a queue to allow another query to be made to database without waiting
-     * for all added documents to be analysed, queue is serviced by available processor no of threads.
-     * If the max query outperforms the lucene analysis then analysis will switch to main thread because
-     * the pool queue size cannot be larger than the max number of documents returned from one query.
+     * for all added documents to be analysed, queue is serviced by analysisThreads threads, the available processors
+     * unless the pool of analysis threads is shared between indexes being built at the same time.
+     * If the queries outperform the lucene analysis then once the analysis queue size is reached the threads reading
+     * the database wait for analysis to catch up, the time spent waiting is reported when the index is closed.
      * Will get best results on multicpu systems accessing database on another system.
      *
      * @param index
      * @param options
+     * @param analysisPool analysis threads shared with the other indexes being built, null to create a pool of
+     *                     analysisThreads for this index
+     * @param analysisThreads
      * @return
      * @throws IOException
      * @throws SQLException
      */
-    private static IndexWriter createIndexWriter(DatabaseIndex index, IndexOptions options) throws IOException, SQLException
+    static IndexWriter createIndexWriter(DatabaseIndex index, IndexOptions options, ExecutorService analysisPool, int analysisThreads) throws IOException, SQLException
     {
         IndexWriter indexWriter;
         String path = options.getIndexesDir() + index.getFilename();
 
-        FSDirectory fsDir = FSDirectory.open(new File(path), NoLockFactory.getNoLockFactory() );
+        Directory dir = FSDirectory.open(new File(path), NoLockFactory.getNoLockFactory() );
+        if (options.getMergeMaxMBPerSec() > 0) {
+            RateLimitedDirectoryWrapper rateLimitedDir = new RateLimitedDirectoryWrapper(dir);
+            rateLimitedDir.setMaxWriteMBPerSec(options.getMergeMaxMBPerSec(), IOContext.Context.MERGE);
+            dir = rateLimitedDir;
+        }
 
         IndexWriterConfig config = new IndexWriterConfig(LuceneVersion.LUCENE_VERSION, index.getAnalyzer());
         config.setOpenMode(IndexWriterConfig.OpenMode.CREATE);
         config.setMaxBufferedDocs(options.getMaxBufferedDocs());
+        if (options.getMergeStrategy(index.getName()) == MergeStrategy.BALANCED) {
+            config.setMergePolicy(new BalancedMergePolicy());
+            // Run the final merge into each segment at the same time
+            ConcurrentMergeScheduler mergeScheduler = new ConcurrentMergeScheduler();
+            mergeScheduler.setMaxMergesAndThreads(options.getMergeSegments() + 2, options.getMergeSegments());
+            config.setMergeScheduler(mergeScheduler);
+        }
 
         if(index.getSimilarity()!=null)
         {
             config.setSimilarity(index.getSimilarity());
         }
-        indexWriter = new ThreadedIndexWriter(
-                                                fsDir,
+        if(analysisPool!=null)
+        {
+            indexWriter = new ThreadedIndexWriter(
+                                                dir,
                                                 config,
-                                                Runtime.getRuntime().availableProcessors(),
-                                                options.getDatabaseChunkSize()
+                                                analysisPool,
+                                                analysisThreads,
+                                                options.getAnalysisQueueSize()
                                                 );
+        }
+        else
+        {
+            indexWriter = new ThreadedIndexWriter(
+                                                dir,
+                                                config,
+                                                analysisThreads,
+                                                options.getAnalysisQueueSize()
+                                                );
+        }
 
         return indexWriter;
     }
@@ -254,7 +361,7 @@ public class IndexBuilder
      * @throws IOException 
      * @throws SQLException 
      */
-    private static int buildDatabaseIndex(IndexWriter indexWriter, DatabaseIndex index, IndexOptions options, ReplicationInformation initialReplicationInformation) throws IOException, SQLException
+    static int buildDatabaseIndex(IndexWriter indexWriter, DatabaseIndex index, IndexOptions options, ReplicationInformation initialReplicationInformation) throws IOException, SQLException
     {
         try
         {
@@ -268,12 +375,22 @@ public class IndexBuilder
 
                 if (options.isTest() && options.getTestIndexSize() < maxId)
                     maxId = options.getTestIndexSize();
-                int j = 0;
-                while (j <= maxId) {
-                    int k = Math.min(j + options.getDatabaseChunkSize() - 1, maxId);
-                    System.out.print(index.getName()+":Indexing " + j + "..." + k + " / " + maxId + " (" + (100*k/maxId) + "%)\r");
-                    index.indexData(indexWriter, j, k);
-                    j += options.getDatabaseChunkSize();
+                if (options.isStreaming() && index instanceof StreamingIndex) {
+                    // Run each query once over all the ids rather than once per chunk
+                    ((StreamingIndex) index).indexDataStreaming(indexWriter, maxId, options.getDatabaseChunkSize());
+                }
+                else if (options.getChunkWorkers() > 1 && maxId >= options.getDatabaseChunkSize()) {
+                    // Index several chunks at once, each on its own connection
+                    new ParallelChunkIndexer(index, indexWriter, options, maxId).indexData(options.getChunkWorkers());
+                }
+                else {
+                    int j = 0;
+                    while (j <= maxId) {
+                        int k = Math.min(j + options.getDatabaseChunkSize() - 1, maxId);
+                        System.out.print(index.getName()+":Indexing " + j + "..." + k + " / " + maxId + " (" + (100*k/maxId) + "%)\r");
+                        index.indexData(indexWriter, j, k);
+                        j += options.getDatabaseChunkSize();
+                    }
                 }
             }
             index.destroy();
@@ -321,6 +438,37 @@ public class IndexBuilder
 
     }
 
+    /*
+     * Compare the number of documents in an index with the number of rows in the database, run in the background
+     * because counting the rows of the largest tables takes a while.
+     */
+    static class RowCountCheck implements Runnable
+    {
+        private int             maxId;
+        private int             noOfDocs;
+        private DatabaseIndex   index;
+
+        public RowCountCheck(int maxId, int noOfDocs, DatabaseIndex index)
+        {
+            this.maxId=maxId;
+            this.noOfDocs=noOfDocs;
+            this.index=index;
+        }
+
+        public void run()
+        {
+            try
+            {
+                int dbRows = index.getNoOfRows(maxId);
+                System.out.println(index.getName()+":"+dbRows+" db rows:"+noOfDocs+" lucene docs");
+            }
+            catch(SQLException sqle)
+            {
+                sqle.printStackTrace();
+            }
+        }
+    }
+
     /*
      * Optimize the index in and close writer once index has been optimized
      *
@@ -334,6 +482,7 @@ public class IndexBuilder
         private IndexWriter     indexWriter;
         private DatabaseIndex   index;
         private IndexOptions    options;
+        private ExecutorService verifier;
 
         /**
          *
@@ -341,13 +490,15 @@ public class IndexBuilder
          * @param indexWriter
          * @param index
          * @param options
+         * @param verifier runs the row count check once merged, null if not checked
          */
-        public IndexWriterOptimizerAndClose(int maxId, IndexWriter indexWriter, DatabaseIndex index, IndexOptions options)
+        public IndexWriterOptimizerAndClose(int maxId, IndexWriter indexWriter, DatabaseIndex index, IndexOptions options, ExecutorService verifier)
         {
             this.maxId=maxId;
             this.indexWriter= indexWriter;
             this.index=index;
             this.options=options;
+            this.verifier=verifier;
         }
 
         public Boolean call()
@@ -358,17 +509,52 @@ public class IndexBuilder
                 StopWatch clock = new StopWatch();
                 clock.start();
                 String path = options.getIndexesDir() + index.getFilename();
-                System.out.println(index.getName()+":Started forceMerge at "+Utils.formatCurrentTimeForOutput());
-                indexWriter.forceMerge(1);
+                MergeStrategy mergeStrategy = options.getMergeStrategy(index.getName());
+                System.out.println(index.getName()+":Started "+mergeStrategy.getName()+" merge at "+Utils.formatCurrentTimeForOutput());
+                switch (mergeStrategy) {
+                    case SINGLE:
+                        indexWriter.forceMerge(1);
+                        break;
+                    case BALANCED:
+                        indexWriter.forceMerge(options.getMergeSegments());
+                        break;
+                    default:
+                        // Close waits for any merges still running
+                        break;
+                }
                 indexWriter.close();
                 clock.stop();
+                if (indexWriter instanceof ThreadedIndexWriter) {
+                    System.out.println(index.getName()+":Analysis "+((ThreadedIndexWriter) indexWriter).getStats());
+                }
+                reader = DirectoryReader.open(FSDirectory.open(new File(path)));
+                System.out.println(index.getName()+":Finished "+mergeStrategy.getName()+" merge:" + Utils.formatClock(clock)
+                        + " (" + reader.leaves().size() + " segments)");
                 // For debugging to check sql is not creating too few/many rows
-                if(true) {
-                    int dbRows = index.getNoOfRows(maxId);
-                    reader = DirectoryReader.open(FSDirectory.open(new File(path)));
-                    System.out.println(index.getName()+":"+dbRows+" db rows:"+(reader.maxDoc() - 1)+" lucene docs");
+                if(verifier!=null) {
+                    verifier.submit(new RowCountCheck(maxId, reader.maxDoc() - 1, index));
+                }
+
+                clock.reset();
+                clock.start();
+                if(MusicBrainzSuggester.build(reader, new File(path, MusicBrainzSuggester.SUGGEST_FILE))) {
+                    clock.stop();
+                    System.out.println(index.getName()+":Finished building suggester:" + Utils.formatClock(clock));
+                }
+
+                File fuzzyDir = new File(path, FuzzyCandidateIndex.FUZZY_DIR);
+                if(options.isFuzzyIndex()) {
+                    clock.reset();
+                    clock.start();
+                    if(FuzzyCandidateIndex.build(reader, index.getFuzzyFields(), fuzzyDir)) {
+                        clock.stop();
+                        System.out.println(index.getName()+":Finished building fuzzy candidate index:" + Utils.formatClock(clock));
+                    }
                 }
-                System.out.println(index.getName()+":Finished forceMerge:" + Utils.formatClock(clock));
+                else {
+                    FuzzyCandidateIndex.delete(fuzzyDir);
+                }
+                reader.close();
                 return true;
             }
             catch(IOException ioe)
@@ -384,19 +570,6 @@ public class IndexBuilder
                 }
                 return false;
             }
-            catch(SQLException sqle)
-            {
-                sqle.printStackTrace();
-                try
-                {
-                    indexWriter.close();
-                }
-                catch(Exception ex)
-                {
-                    ex.printStackTrace();
-                }
-                return false;
-            }
         }
     }
 }
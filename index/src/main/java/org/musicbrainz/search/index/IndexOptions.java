@@ -109,5 +109,66 @@ public class IndexOptions {
     private int maxBufferedDocs = MAX_BUFFERED_DOCS;
     public int getMaxBufferedDocs() { return maxBufferedDocs; }
 
+    // Fuzzy candidate index
+    @Option(name="--fuzzyindex", usage="Build an index of the trigrams of the terms searched by fuzzy dismax searches alongside each index, so the search server can find fuzzy matches without scanning the term dictionary.")
+    private boolean fuzzyIndex = false;
+    public boolean isFuzzyIndex() { return fuzzyIndex; }
+
+    // Concurrent index building
+    @Option(name="--maxconcurrentindexes", usage="The number of indexes built at the same time, each on its own database connection. (default: 1)")
+    private int maxConcurrentIndexes = 1;
+    public int getMaxConcurrentIndexes() { return maxConcurrentIndexes; }
+
+    @Option(name="--analysisthreads", usage="The total number of threads analysing documents, shared between the indexes being built at the same time. (default: number of processors)")
+    private int analysisThreads = Runtime.getRuntime().availableProcessors();
+    public int getAnalysisThreads() { return analysisThreads; }
+
+    @Option(name="--analysisqueuesize", usage="The number of documents waiting to be analysed at which the threads reading the database wait for analysis to catch up. (default: the chunk size)")
+    private int analysisQueueSize = 0;
+    public int getAnalysisQueueSize() { return analysisQueueSize > 0 ? analysisQueueSize : databaseChunkSize; }
+
+    @Option(name="--chunkworkers", usage="The number of chunks of an index fetched from the database at the same time, each on its own database connection. (default: 1)")
+    private int chunkWorkers = 1;
+    public int getChunkWorkers() { return chunkWorkers; }
+
+    @Option(name="--streaming", usage="Build indexes that support it (recording) with one ordered query for each kind of data over all ids, read a chunk at a time, rather than querying each chunk separately.")
+    private boolean streaming = false;
+    public boolean isStreaming() { return streaming; }
+
+    @Option(name="--artistcreditstoresize", usage="The memory in MB used to keep artist credits, shared by the recording, release and releasegroup indexes, rather than loading them for every chunk. (default: 256)")
+    private int artistCreditStoreSize = 256;
+    public int getArtistCreditStoreSize() { return artistCreditStoreSize; }
+
+    @Option(name="--mergestrategy", usage="How indexes are merged once built: single (one segment), balanced (--mergesegments segments of about the same size) or tiered (no final merge). Either one strategy for every index, or a comma-separated list such as balanced,recording=tiered where index=strategy applies to that index only. (default: single)")
+    private String mergeStrategy = MergeStrategy.SINGLE.getName();
+    public MergeStrategy getMergeStrategy(String indexName) {
+        MergeStrategy strategy = MergeStrategy.SINGLE;
+        for (String next : mergeStrategy.split(",")) {
+            int separator = next.indexOf('=');
+            if (separator == -1) {
+                strategy = MergeStrategy.getByName(next.trim());
+            } else if (next.substring(0, separator).trim().equals(indexName)) {
+                return MergeStrategy.getByName(next.substring(separator + 1).trim());
+            }
+        }
+        return strategy;
+    }
+
+    @Option(name="--mergesegments", usage="The number of segments indexes using the balanced merge strategy are merged into. (default: 4)")
+    private int mergeSegments = 4;
+    public int getMergeSegments() { return mergeSegments; }
+
+    @Option(name="--concurrentmerges", usage="The number of built indexes merged at the same time, or more if more indexes are built at the same time. (default: 2)")
+    private int concurrentMerges = 2;
+    public int getConcurrentMerges() { return concurrentMerges; }
+
+    @Option(name="--mergemaxmbpersec", usage="The rate in MB/sec merges of each index are limited to writing at, so merges running alongside index building don't starve it of IO. (default: 0, no limit)")
+    private double mergeMaxMBPerSec = 0;
+    public double getMergeMaxMBPerSec() { return mergeMaxMBPerSec; }
+
+    @Option(name="--verifyrowcount", usage="Compare the number of documents in each index with the number of rows in the database once it has been merged, in the background.")
+    private boolean verifyRowCount = false;
+    public boolean isVerifyRowCount() { return verifyRowCount; }
+
 
 }
@@ -28,6 +28,8 @@ import org.musicbrainz.mmd2.*;
 import org.musicbrainz.search.MbDocument;
 import org.musicbrainz.search.analysis.MusicbrainzSimilarity;
 import org.musicbrainz.search.helper.AliasHelper;
+import org.musicbrainz.search.helper.IntListMultimap;
+import org.musicbrainz.search.helper.IntObjectMap;
 import org.musicbrainz.search.helper.TagHelper;
 
 import java.io.IOException;
@@ -107,8 +109,8 @@ public class InstrumentIndex extends DatabaseIndex {
         ObjectFactory of = new ObjectFactory();
 
         //Aliases
-        Map<Integer, Set<Alias>> aliases = AliasHelper.completeFromDbResults(min, max, getPreparedStatement("ALIASES"));
-        Map<Integer,List<Tag>> tags = TagHelper.loadTags(min, max, getPreparedStatement("TAGS"), "instrument");
+        IntObjectMap<Set<Alias>> aliases = AliasHelper.completeFromDbResults(min, max, getPreparedStatement("ALIASES"));
+        IntListMultimap<Tag> tags = TagHelper.loadTags(min, max, getPreparedStatement("TAGS"), "instrument");
 
         // Get instruments
         PreparedStatement st = getPreparedStatement("INSTRUMENTS");
@@ -121,7 +123,7 @@ public class InstrumentIndex extends DatabaseIndex {
         rs.close();
     }
 
-    public Document documentFromResultSet(ResultSet rs, Map<Integer, List<Tag>> tags, Map<Integer, Set<Alias>> aliases) throws SQLException {
+    public Document documentFromResultSet(ResultSet rs, IntListMultimap<Tag> tags, IntObjectMap<Set<Alias>> aliases) throws SQLException {
 
         MbDocument doc = new MbDocument();
 
@@ -168,8 +170,7 @@ public class InstrumentIndex extends DatabaseIndex {
             instrument.setTagList(tagList);
         }
 
-        String store = MMDSerializer.serialize(instrument);
-        doc.addField(InstrumentIndexField.INSTRUMENT_STORE, store);
+        doc.addStoreField(InstrumentIndexField.INSTRUMENT_STORE, instrument);
         return doc.getLuceneDocument();
     }
 
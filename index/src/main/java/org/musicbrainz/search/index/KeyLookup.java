@@ -0,0 +1,195 @@
+package org.musicbrainz.search.index;
+
+import org.apache.commons.lang.time.StopWatch;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.Collection;
+import java.util.Iterator;
+
+/**
+ * Fetch the rows for a set of ids, such as the releases of the tracks in a chunk, with a query ending in an IN list.
+ *
+ * Rather than preparing a new statement with one parameter for each id every time, statements are only prepared for a
+ * few fixed numbers of ids and reused. The ids are split into batches of the largest size, and the last batch is
+ * padded up to the next size by repeating its last id, which does not change the rows returned. The rows are read a
+ * batch at a time (see Batches), all the rows of one id are in the same batch.
+ *
+ * The time spent preparing statements and running them is recorded separately, planning happens in the database when
+ * a statement is first run so is part of the run time, but once a statement has been reused a few times the Postgres
+ * driver switches to a server side prepared statement and the plan is reused as well.
+ */
+public class KeyLookup {
+
+    // Numbers of ids statements are prepared for
+    static final int[] BATCH_SIZES = {1, 8, 64, 256, 1024};
+
+    private final Connection dbConnection;
+    private final String sql;
+    private final String orderBy;
+    private final PreparedStatement[] statements = new PreparedStatement[BATCH_SIZES.length];
+
+    private final StopWatch prepareClock = new StopWatch();
+    private final StopWatch executeClock = new StopWatch();
+    private int noOfStatements;
+    private int noOfQueries;
+
+    /**
+     * @param dbConnection
+     * @param sql query ending with IN, the parenthesised list of parameters is added to the end
+     */
+    public KeyLookup(Connection dbConnection, String sql) {
+        this(dbConnection, sql, null);
+    }
+
+    /**
+     * @param dbConnection
+     * @param sql query ending with IN, the parenthesised list of parameters is added to the end
+     * @param orderBy columns the rows of each batch are ordered by, or null if unordered
+     */
+    public KeyLookup(Connection dbConnection, String sql, String orderBy) {
+        this.dbConnection = dbConnection;
+        this.sql = sql;
+        this.orderBy = orderBy;
+        prepareClock.start();
+        prepareClock.suspend();
+        executeClock.start();
+        executeClock.suspend();
+    }
+
+    /**
+     * @param noOfKeys
+     * @return index of the smallest batch size that holds the keys
+     */
+    static int batchSizeIndex(int noOfKeys) {
+        for (int i = 0; i < BATCH_SIZES.length; i++) {
+            if (noOfKeys <= BATCH_SIZES[i]) {
+                return i;
+            }
+        }
+        return BATCH_SIZES.length - 1;
+    }
+
+    private PreparedStatement getStatement(int sizeIndex) throws SQLException {
+        if (statements[sizeIndex] == null) {
+            StringBuilder inClause = new StringBuilder("(");
+            for (int i = 0; i < BATCH_SIZES[sizeIndex]; i++) {
+                if (i > 0) {
+                    inClause.append(',');
+                }
+                inClause.append('?');
+            }
+            inClause.append(')');
+            if (orderBy != null) {
+                inClause.append(" ORDER BY ").append(orderBy);
+            }
+            prepareClock.resume();
+            statements[sizeIndex] = dbConnection.prepareStatement(sql + inClause);
+            prepareClock.suspend();
+            noOfStatements++;
+        }
+        return statements[sizeIndex];
+    }
+
+    /**
+     * Run the query for the next batch of keys
+     */
+    private ResultSet executeBatch(Iterator<Integer> keys) throws SQLException {
+        int[] batch = new int[BATCH_SIZES[BATCH_SIZES.length - 1]];
+        int noOfKeys = 0;
+        while (noOfKeys < batch.length && keys.hasNext()) {
+            batch[noOfKeys++] = keys.next();
+        }
+        int sizeIndex = batchSizeIndex(noOfKeys);
+        PreparedStatement st = getStatement(sizeIndex);
+        for (int i = 0; i < BATCH_SIZES[sizeIndex]; i++) {
+            st.setInt(i + 1, batch[Math.min(i, noOfKeys - 1)]);
+        }
+        executeClock.resume();
+        try {
+            noOfQueries++;
+            return st.executeQuery();
+        } finally {
+            executeClock.suspend();
+        }
+    }
+
+    /**
+     * @param keys ids to fetch rows for
+     * @return the batches of the keys, none are run until asked for
+     */
+    public Batches executeBatches(Collection<Integer> keys) {
+        return new Batches(keys.iterator());
+    }
+
+    /**
+     * The batches of one lookup, read with
+     * <pre>
+     * KeyLookup.Batches batches = lookup.executeBatches(keys);
+     * try {
+     *     ResultSet rs;
+     *     while ((rs = batches.next()) != null) {
+     *         while (rs.next()) {
+     *             ...
+     *         }
+     *     }
+     * } finally {
+     *     batches.close();
+     * }
+     * </pre>
+     */
+    public class Batches {
+
+        private final Iterator<Integer> keys;
+        private ResultSet current;
+
+        private Batches(Iterator<Integer> keys) {
+            this.keys = keys;
+        }
+
+        /**
+         * Close the rows of the previous batch and run the next
+         *
+         * @return rows of the next batch, null once every batch has been read
+         * @throws SQLException
+         */
+        public ResultSet next() throws SQLException {
+            close();
+            if (!keys.hasNext()) {
+                return null;
+            }
+            current = executeBatch(keys);
+            return current;
+        }
+
+        /**
+         * Close the rows of the current batch, if any
+         *
+         * @throws SQLException
+         */
+        public void close() throws SQLException {
+            if (current != null) {
+                current.close();
+                current = null;
+            }
+        }
+    }
+
+    /**
+     * @return time spent preparing and running statements, and how many of each
+     */
+    public String getStats() {
+        return "Prepare " + Utils.formatClock(prepareClock) + " (" + noOfStatements + " statements) Execute "
+                + Utils.formatClock(executeClock) + " (" + noOfQueries + " queries)";
+    }
+
+    public void close() throws SQLException {
+        for (PreparedStatement st : statements) {
+            if (st != null) {
+                st.close();
+            }
+        }
+    }
+}
@@ -60,6 +60,10 @@ public class LabelBoostDoc {
     }
 
 
+    public static float getBoost(String labelGuid) {
+        return labelGuIdSet.contains(labelGuid) ? DOC_BOOST : 1.0f;
+    }
+
     public static void boost(String labelGuid, MbDocument doc) {
 
         boost(labelGuid,doc.getLuceneDocument());
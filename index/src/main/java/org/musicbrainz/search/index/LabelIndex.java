@@ -28,6 +28,9 @@ import org.musicbrainz.mmd2.*;
 import org.musicbrainz.search.MbDocument;
 import org.musicbrainz.search.analysis.MusicbrainzSimilarity;
 import org.musicbrainz.search.helper.AliasHelper;
+import org.musicbrainz.search.helper.IntListMultimap;
+import org.musicbrainz.search.helper.IntObjectMap;
+import org.musicbrainz.search.helper.SuggestHelper;
 import org.musicbrainz.search.helper.TagHelper;
 
 import java.io.IOException;
@@ -61,6 +64,11 @@ public class LabelIndex extends DatabaseIndex {
 	public IndexField getIdentifierField() {
 		return LabelIndexField.ID;
 	}
+
+	@Override
+	public IndexField[] getFuzzyFields() {
+		return new IndexField[] { LabelIndexField.LABEL, LabelIndexField.SORTNAME, LabelIndexField.ALIAS };
+	}
     
     public int getMaxId() throws SQLException {
         Statement st = dbConnection.createStatement();
@@ -135,9 +143,9 @@ public class LabelIndex extends DatabaseIndex {
 
     public void indexData(IndexWriter indexWriter, int min, int max) throws SQLException, IOException {
 
-        Map<Integer,List<Tag>> tags = TagHelper.loadTags(min, max, getPreparedStatement("TAGS"), "label");
+        IntListMultimap<Tag> tags = TagHelper.loadTags(min, max, getPreparedStatement("TAGS"), "label");
         Map<Integer, List<String>> ipiCodes = loadIpiCodes(min,max);
-        Map<Integer, Set<Alias>> aliases = AliasHelper.completeFromDbResults(min, max, getPreparedStatement("ALIASES"));
+        IntObjectMap<Set<Alias>> aliases = AliasHelper.completeFromDbResults(min, max, getPreparedStatement("ALIASES"));
 
         // Get labels
         PreparedStatement st = getPreparedStatement("LABELS");
@@ -155,9 +163,9 @@ public class LabelIndex extends DatabaseIndex {
     }
 
     public Document documentFromResultSet(ResultSet rs,
-                                          Map<Integer,List<Tag>> tags,
+                                          IntListMultimap<Tag> tags,
                                           Map<Integer, List<String>> ipiCodes,
-                                          Map<Integer, Set<Alias>> aliases) throws SQLException {
+                                          IntObjectMap<Set<Alias>> aliases) throws SQLException {
 
         MbDocument doc = new MbDocument();
 
@@ -169,12 +177,18 @@ public class LabelIndex extends DatabaseIndex {
 
         String labelGuid = rs.getString("gid");
         doc.addField(LabelIndexField.LABEL_ID, labelGuid);
+        doc.addDocValuesField(ProjectionIndexField.MBID, labelGuid);
         label.setId(labelGuid);
 
         String name=rs.getString("name");
         doc.addField(LabelIndexField.LABEL,name );
+        doc.addField(LabelIndexField.LABEL_PREFIX, name);
+        doc.addField(LabelIndexField.LABEL_SHINGLE, name);
         label.setName(name);
+        doc.addDocValuesField(ProjectionIndexField.NAME, name);
+        SuggestHelper.addSuggestion(doc, name);
         doc.addField(LabelIndexField.SORTNAME, name);
+        doc.addDocValuesField(ProjectionIndexField.SORTNAME, name);
         label.setSortName(name);
 
 
@@ -190,6 +204,7 @@ public class LabelIndex extends DatabaseIndex {
 
         String comment = rs.getString("comment");
         doc.addFieldOrNoValue(LabelIndexField.COMMENT, comment);
+        doc.addDocValuesField(ProjectionIndexField.DISAMBIGUATION, comment);
         if (!Strings.isNullOrEmpty(comment)) {
             label.setDisambiguation(comment);
         }
@@ -263,9 +278,10 @@ public class LabelIndex extends DatabaseIndex {
         }
 
         LabelBoostDoc.boost(labelGuid, doc);
+        SuggestHelper.addSuggestions(doc, label.getAliasList());
+        SuggestHelper.setWeight(doc, tags.get(labelId), 0, LabelBoostDoc.getBoost(labelGuid));
 
-        String store = MMDSerializer.serialize(label);
-        doc.addField(LabelIndexField.LABEL_STORE, store);
+        doc.addStoreField(LabelIndexField.LABEL_STORE, label);
 
 
 
@@ -49,6 +49,8 @@ public enum LabelIndexField implements IndexField {
     IPI         ("ipi",         MusicBrainzFieldTypes.TEXT_NOT_STORED_ANALYZED_NO_NORMS, new CaseInsensitiveKeywordAnalyzer()),
     LABEL		("label",		MusicBrainzFieldTypes.TEXT_STORED_ANALYZED, new MusicbrainzAnalyzer()),
     LABEL_ACCENT("labelaccent", MusicBrainzFieldTypes.TEXT_NOT_STORED_ANALYZED, new MusicbrainzKeepAccentsAnalyzer()),
+    LABEL_PREFIX("labelprefix", MusicBrainzFieldTypes.TEXT_NOT_STORED_ANALYZED_NO_NORMS, new PrefixAnalyzer(new MusicbrainzAnalyzer())),
+    LABEL_SHINGLE("labelshingle", MusicBrainzFieldTypes.TEXT_NOT_STORED_ANALYZED, new ShingleAnalyzer(new MusicbrainzAnalyzer())),
     LABEL_ID	("laid",		MusicBrainzFieldTypes.TEXT_STORED_NOT_ANALYZED_NO_NORMS, new KeywordAnalyzer()),
     SORTNAME	("sortname",	MusicBrainzFieldTypes.TEXT_NOT_STORED_ANALYZED),
     TAG		    ("tag",		    MusicBrainzFieldTypes.TEXT_NOT_STORED_ANALYZED, new MusicbrainzWithPosGapAnalyzer()),
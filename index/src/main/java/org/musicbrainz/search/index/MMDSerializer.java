@@ -68,13 +68,44 @@ public class MMDSerializer {
         }
     }
 
+    // Writers that have grown bigger than this for an unusually large document are not kept
+    private static final int MAX_REUSED_BUFFER_SIZE = 1024 * 1024;
+
+    /**
+     * Marshaller and output buffer of a thread, creating a marshaller for every document was a noticeable part of
+     * building the store, and marshallers are not thread safe so can't be shared by the threads serializing documents
+     */
+    private static class ThreadSerializer {
+        private final Marshaller marshaller;
+        private StringWriter sw = new StringWriter();
+
+        private ThreadSerializer() throws JAXBException {
+            marshaller = context.createMarshaller();
+            marshaller.setProperty("com.sun.xml.bind.namespacePrefixMapper", prefixMapper);
+        }
+
+        private String serialize(Object o) throws JAXBException {
+            StringBuffer buffer = sw.getBuffer();
+            if (buffer.capacity() > MAX_REUSED_BUFFER_SIZE) {
+                sw = new StringWriter();
+            } else {
+                buffer.setLength(0);
+            }
+            marshaller.marshal(o, sw);
+            return sw.toString();
+        }
+    }
+
+    private static final ThreadLocal<ThreadSerializer> serializers = new ThreadLocal<ThreadSerializer>();
+
     public static String serialize(Object o) {
         try {
-            StringWriter sw = new StringWriter();
-            Marshaller m = context.createMarshaller();
-            m.setProperty("com.sun.xml.bind.namespacePrefixMapper", prefixMapper);
-            m.marshal(o, sw);
-            return sw.toString();
+            ThreadSerializer serializer = serializers.get();
+            if (serializer == null) {
+                serializer = new ThreadSerializer();
+                serializers.set(serializer);
+            }
+            return serializer.serialize(o);
         }
         catch (JAXBException je) {
             throw new RuntimeException(je);
@@ -0,0 +1,41 @@
+package org.musicbrainz.search.index;
+
+/**
+ * How the segments of an index are merged once it has been built
+ */
+public enum MergeStrategy {
+
+    /**
+     * Force merge into one segment, the smallest index but the slowest merge
+     */
+    SINGLE("single"),
+
+    /**
+     * Force merge into a fixed number of segments of about the same size, which can be searched in parallel
+     */
+    BALANCED("balanced"),
+
+    /**
+     * Leave the segments as merged by the tiered merge policy while building, no final merge
+     */
+    TIERED("tiered"),;
+
+    private String name;
+
+    MergeStrategy(String name) {
+        this.name = name;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public static MergeStrategy getByName(String name) {
+        for (MergeStrategy strategy : values()) {
+            if (strategy.getName().equals(name)) {
+                return strategy;
+            }
+        }
+        throw new IllegalArgumentException("Unknown merge strategy " + name);
+    }
+}
@@ -0,0 +1,325 @@
+package org.musicbrainz.search.index;
+
+import org.apache.lucene.index.AtomicReader;
+import org.apache.lucene.index.AtomicReaderContext;
+import org.apache.lucene.index.BinaryDocValues;
+import org.apache.lucene.index.IndexReader;
+import org.apache.lucene.index.NumericDocValues;
+import org.apache.lucene.index.SortedSetDocValues;
+import org.apache.lucene.search.suggest.InputIterator;
+import org.apache.lucene.search.suggest.Lookup;
+import org.apache.lucene.search.suggest.analyzing.AnalyzingSuggester;
+import org.apache.lucene.util.Bits;
+import org.apache.lucene.util.BytesRef;
+import org.musicbrainz.search.analysis.SuggestAnalyzer;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+/**
+ * Weighted FST suggester built from the suggest fields of an index once it has been built, and stored alongside the
+ * index so it can be loaded by the search server.
+ *
+ * The whole FST is held on the heap by the search server so the number of suggestions is capped, when an index has
+ * more than MAX_SUGGESTIONS only the most popular are kept. The FST cannot be updated in place, so it is rebuilt from
+ * the index by the IndexBuilder and after each LiveDataFeedIndexUpdater commit.
+ */
+public class MusicBrainzSuggester
+{
+    public static final String SUGGEST_FILE = "suggest.fst";
+
+    // Bounds memory where many documents share a name (e.g. Intro), only the most popular are kept
+    private static final int MAX_SURFACE_FORMS_PER_ANALYZED_FORM = 16;
+
+    // Bounds the size of the FST, names below the weight of the last one kept are not suggested
+    public static final int MAX_SUGGESTIONS = 2000000;
+
+    // Used by AnalyzingSuggester to separate surface form and payload
+    private static final int PAYLOAD_SEP = '\u001f';
+
+    public static AnalyzingSuggester newSuggester()
+    {
+        return new AnalyzingSuggester(new SuggestAnalyzer(), new SuggestAnalyzer(),
+                AnalyzingSuggester.EXACT_FIRST, MAX_SURFACE_FORMS_PER_ANALYZED_FORM, -1, false);
+    }
+
+    /**
+     * Build suggester from the index and store in file, keeping at most MAX_SUGGESTIONS
+     *
+     * @param reader
+     * @param file
+     * @return false if the index contains no suggest fields so no suggester was built
+     * @throws IOException
+     */
+    public static boolean build(IndexReader reader, File file) throws IOException
+    {
+        return build(reader, file, MAX_SUGGESTIONS);
+    }
+
+    /**
+     * Build suggester from the index and store in file, the file is replaced in one step so a search server
+     * reloading it never sees a partly written suggester
+     *
+     * @param reader
+     * @param file
+     * @param maxSuggestions only the most popular suggestions are kept beyond this
+     * @return false if the index contains no suggest fields so no suggester was built
+     * @throws IOException
+     */
+    public static boolean build(IndexReader reader, File file, int maxSuggestions) throws IOException
+    {
+        boolean hasSuggestions = false;
+        for (AtomicReaderContext leaf : reader.leaves())
+        {
+            if (leaf.reader().getSortedSetDocValues(SuggestIndexField.SUGGEST.getName()) != null)
+            {
+                hasSuggestions = true;
+                break;
+            }
+        }
+        if (!hasSuggestions)
+        {
+            return false;
+        }
+
+        AnalyzingSuggester suggester = newSuggester();
+        suggester.build(newCappedIterator(reader.leaves(), maxSuggestions));
+        File tmpFile = new File(file.getPath() + ".tmp");
+        if (!suggester.store(new BufferedOutputStream(new FileOutputStream(tmpFile))))
+        {
+            tmpFile.delete();
+            return false;
+        }
+        if (!tmpFile.renameTo(file))
+        {
+            tmpFile.delete();
+            throw new IOException("Unable to replace " + file);
+        }
+        return true;
+    }
+
+    /**
+     * Count the suggestions at each weight to find the lowest weight that can be kept without exceeding
+     * maxSuggestions, and how many suggestions of that weight can be kept
+     *
+     * @param leaves
+     * @param maxSuggestions
+     * @return iterator over at most maxSuggestions of the most popular suggestions
+     * @throws IOException
+     */
+    static SuggestInputIterator newCappedIterator(List<AtomicReaderContext> leaves, int maxSuggestions) throws IOException
+    {
+        TreeMap<Long, Integer> countByWeight = new TreeMap<Long, Integer>(Collections.reverseOrder());
+        int total = 0;
+        SuggestInputIterator counter = new SuggestInputIterator(leaves);
+        while (counter.next() != null)
+        {
+            Integer count = countByWeight.get(counter.weight());
+            countByWeight.put(counter.weight(), count == null ? 1 : count + 1);
+            total++;
+        }
+        if (total <= maxSuggestions)
+        {
+            return new SuggestInputIterator(leaves);
+        }
+
+        int kept = 0;
+        for (Map.Entry<Long, Integer> next : countByWeight.entrySet())
+        {
+            if (kept + next.getValue() >= maxSuggestions)
+            {
+                return new SuggestInputIterator(leaves, next.getKey(), maxSuggestions - kept);
+            }
+            kept += next.getValue();
+        }
+        return new SuggestInputIterator(leaves);
+    }
+
+    /**
+     * Load suggester previously built by build()
+     *
+     * @param file
+     * @return
+     * @throws IOException
+     */
+    public static Lookup load(File file) throws IOException
+    {
+        AnalyzingSuggester suggester = newSuggester();
+        suggester.load(new BufferedInputStream(new FileInputStream(file)));
+        return suggester;
+    }
+
+    /**
+     * Iterates over every suggestion of every live document, with the document popularity as weight and the mbid
+     * (if any) as payload
+     */
+    static class SuggestInputIterator implements InputIterator
+    {
+        private final List<AtomicReaderContext> leaves;
+        private int leafIndex = -1;
+        private int docId = -1;
+        private AtomicReader reader;
+        private Bits liveDocs;
+        private SortedSetDocValues suggestions;
+        private NumericDocValues weights;
+        private BinaryDocValues mbids;
+
+        private long weight;
+        private BytesRef payload;
+
+        // Suggestions below minWeight are skipped, and only maxAtMinWeight of those at minWeight are returned
+        private final long minWeight;
+        private final int maxAtMinWeight;
+        private int atMinWeight;
+
+        SuggestInputIterator(List<AtomicReaderContext> leaves)
+        {
+            this(leaves, Long.MIN_VALUE, Integer.MAX_VALUE);
+        }
+
+        SuggestInputIterator(List<AtomicReaderContext> leaves, long minWeight, int maxAtMinWeight)
+        {
+            this.leaves = leaves;
+            this.minWeight = minWeight;
+            this.maxAtMinWeight = maxAtMinWeight;
+        }
+
+        /**
+         * Move to the next leaf containing suggestions
+         *
+         * @return false if no more leaves
+         * @throws IOException
+         */
+        private boolean nextLeaf() throws IOException
+        {
+            while (++leafIndex < leaves.size())
+            {
+                reader = leaves.get(leafIndex).reader();
+                suggestions = reader.getSortedSetDocValues(SuggestIndexField.SUGGEST.getName());
+                if (suggestions != null)
+                {
+                    weights = reader.getNumericDocValues(SuggestIndexField.SUGGEST_WEIGHT.getName());
+                    mbids = reader.getBinaryDocValues(ProjectionIndexField.MBID.getName());
+                    liveDocs = reader.getLiveDocs();
+                    docId = -1;
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        /**
+         * Move to next live document and position on its first suggestion
+         *
+         * @return false if no more documents in this leaf
+         */
+        private boolean nextDoc()
+        {
+            while (++docId < reader.maxDoc())
+            {
+                if (liveDocs != null && !liveDocs.get(docId))
+                {
+                    continue;
+                }
+                weight = weights != null ? weights.get(docId) : 1;
+                if (weight < minWeight || (weight == minWeight && atMinWeight >= maxAtMinWeight))
+                {
+                    continue;
+                }
+                suggestions.setDocument(docId);
+                payload = mbids != null ? BytesRef.deepCopyOf(mbids.get(docId)) : new BytesRef();
+                return true;
+            }
+            return false;
+        }
+
+        @Override
+        public BytesRef next() throws IOException
+        {
+            while (true)
+            {
+                if (suggestions != null && docId >= 0)
+                {
+                    long ord;
+                    while ((ord = suggestions.nextOrd()) != SortedSetDocValues.NO_MORE_ORDS)
+                    {
+                        BytesRef suggestion = suggestions.lookupOrd(ord);
+                        if (containsPayloadSeparator(suggestion))
+                        {
+                            continue;
+                        }
+                        if (weight == minWeight && atMinWeight++ >= maxAtMinWeight)
+                        {
+                            break;
+                        }
+                        return BytesRef.deepCopyOf(suggestion);
+                    }
+                }
+                if (suggestions == null || !nextDoc())
+                {
+                    if (!nextLeaf())
+                    {
+                        return null;
+                    }
+                }
+            }
+        }
+
+        private boolean containsPayloadSeparator(BytesRef value)
+        {
+            for (int i = value.offset; i < value.offset + value.length; i++)
+            {
+                if (value.bytes[i] == PAYLOAD_SEP)
+                {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        public Comparator<BytesRef> getComparator()
+        {
+            return null;
+        }
+
+        @Override
+        public long weight()
+        {
+            return weight;
+        }
+
+        @Override
+        public BytesRef payload()
+        {
+            return payload;
+        }
+
+        @Override
+        public boolean hasPayloads()
+        {
+            return true;
+        }
+
+        @Override
+        public Set<BytesRef> contexts()
+        {
+            return null;
+        }
+
+        @Override
+        public boolean hasContexts()
+        {
+            return false;
+        }
+    }
+}
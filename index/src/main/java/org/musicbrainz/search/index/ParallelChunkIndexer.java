@@ -0,0 +1,151 @@
+package org.musicbrainz.search.index;
+
+import org.apache.lucene.index.IndexWriter;
+
+import java.io.IOException;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Index the chunks of one database index with several workers, so the database queries for the next chunks are
+ * running while the documents of the current chunk are being built and analysed, rather than the database sitting
+ * idle between chunks.
+ *
+ * Each worker has its own connection and its own instance of the index, because prepared statements and the
+ * query clocks of an index cannot be shared between threads. The tables the index needs (see CommonTables) are
+ * created once by the IndexBuilder as shared tables every connection can see, in the schema the index has been given,
+ * rather than copied to a temporary table on each connection. The first worker uses the index and connection it is given. Workers take the next chunk in id order when they finish one, and all add their documents
+ * to the same ThreadedIndexWriter, whose bounded queue holds back the workers if analysis falls behind.
+ */
+public class ParallelChunkIndexer {
+
+    private final DatabaseIndex index;
+    private final IndexWriter indexWriter;
+    private final IndexOptions options;
+    private final int maxId;
+
+    private final AtomicInteger nextChunk = new AtomicInteger(0);
+    private final AtomicBoolean isFailed = new AtomicBoolean(false);
+
+    /**
+     * @param index initialised index, the shared tables it needs have been created
+     * @param indexWriter
+     * @param options
+     * @param maxId highest id to index
+     */
+    public ParallelChunkIndexer(DatabaseIndex index, IndexWriter indexWriter, IndexOptions options, int maxId) {
+        this.index = index;
+        this.indexWriter = indexWriter;
+        this.options = options;
+        this.maxId = maxId;
+    }
+
+    /**
+     * Index every chunk, returns once all have been added to the writer
+     *
+     * @param workers number of chunks being indexed at once
+     * @throws SQLException
+     * @throws IOException
+     */
+    public void indexData(int workers) throws SQLException, IOException {
+        // No point opening connections for workers that would have no chunk to index
+        workers = Math.min(workers, maxId / options.getDatabaseChunkSize() + 1);
+        ExecutorService es = Executors.newFixedThreadPool(workers);
+        try {
+            List<Future<Boolean>> results = new ArrayList<Future<Boolean>>();
+            results.add(es.submit(new ChunkWorker(index)));
+            for (int i = 1; i < workers; i++) {
+                results.add(es.submit(new ChunkWorker(null)));
+            }
+            for (Future<Boolean> result : results) {
+                try {
+                    result.get();
+                } catch (InterruptedException ie) {
+                    Thread.currentThread().interrupt();
+                    throw new IOException("Interrupted indexing " + index.getName(), ie);
+                } catch (ExecutionException ee) {
+                    Throwable cause = ee.getCause();
+                    if (cause instanceof SQLException) {
+                        throw (SQLException) cause;
+                    } else if (cause instanceof IOException) {
+                        throw (IOException) cause;
+                    } else if (cause instanceof RuntimeException) {
+                        throw (RuntimeException) cause;
+                    }
+                    throw new RuntimeException(cause);
+                }
+            }
+        } finally {
+            es.shutdownNow();
+        }
+    }
+
+    /**
+     * Indexes chunks until there are none left, with the given index or else a new one on its own connection
+     */
+    private class ChunkWorker implements Callable<Boolean> {
+
+        private DatabaseIndex workerIndex;
+        private Connection dbConnection;
+
+        public ChunkWorker(DatabaseIndex workerIndex) {
+            this.workerIndex = workerIndex;
+        }
+
+        private void open() throws SQLException {
+            dbConnection = options.getMainDatabaseConnection();
+            if (dbConnection == null) {
+                throw new SQLException("Couldn't connect to database to index " + index.getName());
+            }
+            workerIndex = IndexBuilder.createDatabaseIndex(index.getName(), dbConnection);
+            workerIndex.setArtistCreditStore(index.getArtistCreditStore());
+            workerIndex.setCommonTablesSchema(index.getCommonTablesSchema());
+            workerIndex.init(indexWriter, false);
+        }
+
+        public Boolean call() throws SQLException, IOException {
+            try {
+                if (workerIndex == null) {
+                    open();
+                }
+                int chunkSize = options.getDatabaseChunkSize();
+                while (!isFailed.get()) {
+                    int j = nextChunk.getAndAdd(chunkSize);
+                    if (j > maxId) {
+                        break;
+                    }
+                    int k = Math.min(j + chunkSize - 1, maxId);
+                    System.out.print(index.getName()+":Indexing " + j + "..." + k + " / " + maxId + " (" + (100*k/maxId) + "%)\r");
+                    workerIndex.indexData(indexWriter, j, k);
+                }
+                return true;
+            } catch (SQLException e) {
+                isFailed.set(true);
+                throw e;
+            } catch (IOException e) {
+                isFailed.set(true);
+                throw e;
+            } catch (RuntimeException e) {
+                isFailed.set(true);
+                throw e;
+            } finally {
+                // The given index is destroyed by the caller, and its connection is used after indexing
+                if (workerIndex != index && dbConnection != null) {
+                    if (workerIndex != null) {
+                        workerIndex.destroy();
+                    }
+                    dbConnection.close();
+                }
+            }
+        }
+    }
+}
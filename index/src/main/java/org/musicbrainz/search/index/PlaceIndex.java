@@ -35,6 +35,9 @@ import org.apache.lucene.index.IndexWriter;
 import org.musicbrainz.mmd2.*;
 import org.musicbrainz.search.MbDocument;
 import org.musicbrainz.search.helper.AliasHelper;
+import org.musicbrainz.search.helper.IntListMultimap;
+import org.musicbrainz.search.helper.IntObjectMap;
+import org.musicbrainz.search.helper.SuggestHelper;
 import org.musicbrainz.search.helper.TagHelper;
 import org.postgresql.geometric.PGpoint;
 
@@ -107,8 +110,8 @@ public class PlaceIndex extends DatabaseIndex {
     public void indexData(IndexWriter indexWriter, int min, int max) throws SQLException, IOException {
 
         // Get place aliases
-        Map<Integer, Set<Alias>> aliases = AliasHelper.completeFromDbResults(min, max, getPreparedStatement("ALIASES"));
-        Map<Integer,List<Tag>> tags = TagHelper.loadTags(min, max, getPreparedStatement("TAGS"), "place");
+        IntObjectMap<Set<Alias>> aliases = AliasHelper.completeFromDbResults(min, max, getPreparedStatement("ALIASES"));
+        IntListMultimap<Tag> tags = TagHelper.loadTags(min, max, getPreparedStatement("TAGS"), "place");
 
         PreparedStatement st = getPreparedStatement("PLACE");
         st.setInt(1, min);
@@ -122,8 +125,8 @@ public class PlaceIndex extends DatabaseIndex {
     }
 
     public Document documentFromResultSet(ResultSet rs,
-                                          Map<Integer,List<Tag>> tags,
-                                          Map<Integer, Set<Alias>> aliases) throws SQLException {
+                                          IntListMultimap<Tag> tags,
+                                          IntObjectMap<Set<Alias>> aliases) throws SQLException {
 
         MbDocument doc = new MbDocument();
 
@@ -135,10 +138,12 @@ public class PlaceIndex extends DatabaseIndex {
 
         String guid = rs.getString("gid");
         doc.addField(PlaceIndexField.PLACE_ID, guid);
+        doc.addDocValuesField(ProjectionIndexField.MBID, guid);
         place.setId(guid);
 
         String name = rs.getString("name");
         doc.addField(PlaceIndexField.PLACE, name);
+        SuggestHelper.addSuggestion(doc, name);
         place.setName(name);
 
         String comment = rs.getString("comment");
@@ -236,9 +241,10 @@ public class PlaceIndex extends DatabaseIndex {
         {
             place.setTagList(TagHelper.addTagsToDocAndConstructTagList(of, doc, tags, placeId, PlaceIndexField.TAG ));
         }
+        SuggestHelper.addSuggestions(doc, place.getAliasList());
+        SuggestHelper.setWeight(doc, tags.get(placeId), 0, 1.0f);
 
-        String store = MMDSerializer.serialize(place);
-        doc.addField(PlaceIndexField.PLACE_STORE, store);
+        doc.addStoreField(PlaceIndexField.PLACE_STORE, place);
         return doc.getLuceneDocument();
     }
 
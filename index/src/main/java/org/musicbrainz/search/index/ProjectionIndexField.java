@@ -0,0 +1,78 @@
+/*
+ * MusicBrainz Search Server
+ * Copyright (C) 2009  Paul Taylor
+
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301, USA.
+ */
+
+package org.musicbrainz.search.index;
+
+import org.apache.lucene.analysis.Analyzer;
+import org.apache.lucene.document.FieldType;
+
+/**
+ * Lightweight fields stored as DocValues for the main entity indexes, so that a response only needing these can be
+ * written without loading the stored document and unserializing the store field.
+ *
+ * These are not indexed so have no analyzer or field type, add with MbDocument.addDocValuesField()
+ *
+ * The inputs to the score need no field here, the score of a hit is computed from the postings and norms, which
+ * already hold the document boosts (see ArtistBoostDoc), and the popularity weight is already kept as DocValues in
+ * SuggestIndexField.SUGGEST_WEIGHT.
+ */
+public enum ProjectionIndexField implements IndexField {
+
+    MBID            ("dv_mbid",         "id"),
+    NAME            ("dv_name",         "name"),
+    SORTNAME        ("dv_sortname",     "sortname"),
+    DISAMBIGUATION  ("dv_comment",      "disambiguation"),
+    ;
+
+    private String name;
+    private String paramName;
+
+    private ProjectionIndexField(String name, String paramName) {
+        this.name = name;
+        this.paramName = paramName;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * @return name used to request this field in the fl parameter
+     */
+    public String getParamName() {
+        return paramName;
+    }
+
+    public Analyzer getAnalyzer() {
+        return null;
+    }
+
+    public FieldType getFieldType() {
+        return null;
+    }
+
+    public static ProjectionIndexField getByParamName(String paramName) {
+        for (ProjectionIndexField field : ProjectionIndexField.values()) {
+            if (field.getParamName().equalsIgnoreCase(paramName)) {
+                return field;
+            }
+        }
+        return null;
+    }
+}
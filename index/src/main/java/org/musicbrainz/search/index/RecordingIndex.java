@@ -34,8 +34,9 @@ import java.io.IOException;
 import java.math.BigInteger;
 import java.sql.*;
 import java.util.*;
+import java.util.concurrent.atomic.AtomicLong;
 
-public class RecordingIndex extends DatabaseIndex {
+public class RecordingIndex extends DatabaseIndex implements StreamingIndex {
 
     private static final String VARIOUS_ARTISTS_GUID = "89ad4ac3-39f7-470e-963a-56509c546377";
     private static final String VARIOUS_ARTISTS_NAME = "Various Artists";
@@ -51,7 +52,13 @@ public class RecordingIndex extends DatabaseIndex {
     private StopWatch releaseClock = new StopWatch();
     private StopWatch recordingClock = new StopWatch();
     private StopWatch buildClock = new StopWatch();
-    private StopWatch storeClock = new StopWatch();
+    // Time spent serializing the store, summed over the threads adding documents to the index
+    private final AtomicLong storeTime = new AtomicLong();
+
+    // Estimated memory used by releases kept between chunks
+    private static final long RELEASE_CACHE_SIZE = 128L * 1024 * 1024;
+
+    private ReleaseCache releaseCache;
 
 
     private final static int QUANTIZED_DURATION = 2000;
@@ -65,7 +72,6 @@ public class RecordingIndex extends DatabaseIndex {
         releaseClock.start();
         recordingClock.start();
         buildClock.start();
-        storeClock.start();
         trackClock.suspend();
         isrcClock.suspend();
         artistClock.suspend();
@@ -73,7 +79,6 @@ public class RecordingIndex extends DatabaseIndex {
         recordingClock.suspend();
         trackArtistClock.suspend();
         buildClock.suspend();
-        storeClock.suspend();
     }
 
     public RecordingIndex() {
@@ -92,6 +97,11 @@ public class RecordingIndex extends DatabaseIndex {
         return RecordingIndexField.ID;
     }
 
+    @Override
+    public IndexField[] getFuzzyFields() {
+        return new IndexField[] { RecordingIndexField.RECORDING, RecordingIndexField.RELEASE, RecordingIndexField.ARTIST };
+    }
+
     public int getMaxId() throws SQLException {
         Statement st = dbConnection.createStatement();
         ResultSet rs = st.executeQuery("SELECT MAX(id) FROM recording");
@@ -106,11 +116,6 @@ public class RecordingIndex extends DatabaseIndex {
         return rs.getInt(1);
     }
 
-    String releases;
-    String releaseArtistCredits;
-    String releaseEvents;
-    String releaseSecondaryTypes;
-
     @Override
     public Similarity getSimilarity() {
         return new RecordingSimilarity();
@@ -118,11 +123,14 @@ public class RecordingIndex extends DatabaseIndex {
 
     public void init(IndexWriter indexWriter, boolean isUpdater) throws SQLException {
 
+        // The updater must see changes to releases so doesn't keep them
+        releaseCache = isUpdater ? null : new ReleaseCache(RELEASE_CACHE_SIZE);
+
         if (!isUpdater) {
             addPreparedStatement("TRACKS",
                     "SELECT id, gid, track_name, length as duration, recording, track_position, track_number, track_count, " +
                             "  release_id, medium_position, format " +
-                            " FROM tmp_track " +
+                            " FROM " + getCommonTable("tmp_track") + " " +
                             " WHERE recording between ? AND ?");
         } else {
             addPreparedStatement("TRACKS",
@@ -138,91 +146,27 @@ public class RecordingIndex extends DatabaseIndex {
         addPreparedStatement("TAGS", TagHelper.constructTagQuery("recording_tag", "recording"));
 
         addPreparedStatement("ISRCS",
-                "SELECT recording as recordingId, isrc " +
+                "SELECT recording as recordingId, isrc, id " +
                         " FROM isrc " +
                         " WHERE recording BETWEEN ? AND ?  " +
                         " ORDER BY recording, id");
 
         addPreparedStatement("ARTISTCREDITS",
-                "SELECT r.id as recordingId, " +
-                        "  a.artist_credit, " +
-                        "  a.pos, " +
-                        "  a.joinphrase, " +
-                        "  a.artistId,  " +
-                        "  a.comment, " +
-                        "  a.artistName, " +
-                        "  a.artistCreditName, " +
-                        "  a.artistSortName " +
-                        " FROM recording AS r " +
-                        "  INNER JOIN tmp_artistcredit a ON r.artist_credit=a.artist_credit " +
-                        " WHERE r.id BETWEEN ? AND ?  " +
-                        " ORDER BY r.id, a.pos");
-
-        addPreparedStatement("ARTISTCREDITALIASES",
-                "SELECT r.id as recordingId," +
-                        " a.artist_credit, " +
-                        " a.pos, " +
-                        " aa.name," +
-                        " aa.sort_name," +
-                        " aa.primary_for_locale," +
-                        " aa.locale," +
-                        " aa.begin_date_year," +
-                        " aa.begin_date_month," +
-                        " aa.begin_date_day," +
-                        " aa.end_date_year," +
-                        " aa.end_date_month," +
-                        " aa.end_date_day," +
-                        " att.name as type" +
+                "SELECT r.id as recordingId, r.artist_credit " +
                         " FROM recording AS r " +
-                        "  INNER JOIN tmp_artistcredit a ON r.artist_credit=a.artist_credit " +
-                        "  INNER JOIN artist_alias aa ON a.id=aa.artist" +
-                        "  LEFT  JOIN artist_alias_type att on (aa.type=att.id)" +
-                        " WHERE r.id BETWEEN ? AND ?  " +
-                        " AND a.artistId!='" + ArtistIndex.VARIOUS_ARTIST_MBID +"'" +
-                        " AND a.artistId!='" + ArtistIndex.UNKNOWN_ARTIST_MBID  +"'" +
-                        " ORDER BY r.id, a.pos, aa.name");
+                        " WHERE r.id BETWEEN ? AND ?  ");
 
 
         addPreparedStatement("TRACKARTISTCREDITS",
                 "SELECT t.id as id, " +
-                        "  a.artist_credit, " +
-                        "  a.pos, " +
-                        "  a.joinphrase, " +
-                        "  a.artistId,  " +
-                        "  a.comment, " +
-                        "  a.artistName, " +
-                        "  a.artistCreditName, " +
-                        "  a.artistSortName " +
+                        "  t.recording as recording, " +
+                        "  t.artist_credit " +
                         " FROM track AS t " +
-                        "  INNER JOIN tmp_artistcredit a ON t.artist_credit=a.artist_credit " +
-                        " WHERE t.recording BETWEEN ? AND ?  " +
-                        " ORDER BY t.recording, a.pos");
-
-        addPreparedStatement("TRACKARTISTCREDITALIASES",
-                "SELECT r.id as recordingId," +
-                        " a.artist_credit, " +
-                        " a.pos, " +
-                        " aa.name," +
-                        " aa.sort_name," +
-                        " aa.primary_for_locale," +
-                        " aa.locale," +
-                        " aa.begin_date_year," +
-                        " aa.begin_date_month," +
-                        " aa.begin_date_day," +
-                        " aa.end_date_year," +
-                        " aa.end_date_month," +
-                        " aa.end_date_day," +
-                        " att.name as type" +
-                        " FROM track AS r " +
-                        "  INNER JOIN tmp_artistcredit a ON r.artist_credit=a.artist_credit " +
-                        "  INNER JOIN artist_alias aa ON a.id=aa.artist" +
-                        "  LEFT  JOIN artist_alias_type att on (aa.type=att.id)" +
-                        " WHERE r.recording BETWEEN ? AND ?  " +
-                        " AND a.artistId!='" + ArtistIndex.VARIOUS_ARTIST_MBID +"'" +
-                        " AND a.artistId!='" + ArtistIndex.UNKNOWN_ARTIST_MBID  +"'" +
-                        " ORDER BY r.id, a.pos, aa.name");
-
-        releaseArtistCredits =
+                        " WHERE t.recording BETWEEN ? AND ?  ");
+
+        addArtistCreditLookups(isUpdater);
+
+        addKeyLookup("RELEASEARTISTCREDITS",
                 "SELECT r.id as releaseKey, " +
                         "  a.artist_credit, " +
                         "  a.pos, " +
@@ -233,31 +177,31 @@ public class RecordingIndex extends DatabaseIndex {
                         "  a.artistCreditName, " +
                         "  a.artistSortName " +
                         " FROM release AS r " +
-                        "  INNER JOIN tmp_artistcredit a ON r.artist_credit=a.artist_credit " +
+                        "  INNER JOIN " + getCommonTable("tmp_artistcredit") + " a ON r.artist_credit=a.artist_credit " +
                         " WHERE a.artistId!='" + ArtistIndex.VARIOUS_ARTIST_MBID +"'" +
-                        " AND r.id in ";
+                        " AND r.id in ");
 
-        releases =
+        addKeyLookup("RELEASES",
                 "SELECT " +
                         "  id as releaseKey, gid as releaseid, name as releasename, type, " +
                         "  status, tracks,artist_credit, rg_gid " +
-                        " FROM tmp_release r1 " +
-                        " WHERE r1.id in ";
+                        " FROM " + getCommonTable("tmp_release") + " r1 " +
+                        " WHERE r1.id in ");
 
-        releaseEvents =
+        addKeyLookup("RELEASEEVENTS",
                 " SELECT release, country, " +
                         "   date_year, date_month, date_day, name, gid"+
-                        " FROM tmp_release_event r " +
-                        " WHERE r.release in ";
+                        " FROM " + getCommonTable("tmp_release_event") + " r " +
+                        " WHERE r.release in ");
 
-        releaseSecondaryTypes =
+        addKeyLookup("RELEASESECONDARYTYPES",
                 "SELECT rg.name as type, r.id as releaseKey" +
-                        " FROM tmp_release r " +
+                        " FROM " + getCommonTable("tmp_release") + " r " +
                         " INNER JOIN release_group_secondary_type_join  rgj " +
                         " ON r.rg_id=rgj.release_group " +
                         " INNER JOIN release_group_secondary_type rg  " +
                         " ON rgj.secondary_type = rg.id " +
-                        " WHERE r.id in ";
+                        " WHERE r.id in ");
 
         addPreparedStatement("RECORDINGS",
                 "SELECT re.id as recordingId, re.gid as trackid, re.length as duration, re.name as trackname, re.comment, re.video " +
@@ -275,7 +219,10 @@ public class RecordingIndex extends DatabaseIndex {
         System.out.println(this.getName() + ":Releases Queries " + Utils.formatClock(releaseClock));
         System.out.println(this.getName() + ":Recording Queries " + Utils.formatClock(recordingClock));
         System.out.println(this.getName() + ":Build Index " + Utils.formatClock(buildClock));
-        System.out.println(this.getName() + ":Build Store " + Utils.formatClock(storeClock));
+        System.out.println(this.getName() + ":Build Store " + Utils.formatNanos(storeTime.get()) + " (all threads)");
+        if (releaseCache != null) {
+            System.out.println(this.getName() + ":Release Cache " + releaseCache.getStats());
+        }
 
     }
 
@@ -288,13 +235,13 @@ public class RecordingIndex extends DatabaseIndex {
      * @throws SQLException
      * @throws IOException
      */
-    private Map<Integer, List<Tag>> loadTags(int min, int max) throws SQLException, IOException {
+    private IntListMultimap<Tag> loadTags(int min, int max) throws SQLException, IOException {
 
         PreparedStatement st = getPreparedStatement("TAGS");
         st.setInt(1, min);
         st.setInt(2, max);
         ResultSet rs = st.executeQuery();
-        Map<Integer, List<Tag>> tags = TagHelper.completeTagsFromDbResults(rs, "recording");
+        IntListMultimap<Tag> tags = TagHelper.completeTagsFromDbResults(rs, "recording");
         rs.close();
         return tags;
     }
@@ -308,29 +255,28 @@ public class RecordingIndex extends DatabaseIndex {
      * @throws SQLException
      * @throws IOException
      */
-    private Map<Integer, List<String>> loadISRCs(int min, int max) throws SQLException, IOException {
+    private IntListMultimap<String> loadISRCs(int min, int max) throws SQLException, IOException {
 
         //ISRC
         isrcClock.resume();
-        Map<Integer, List<String>> isrcWrapper = new HashMap<Integer, List<String>>();
         PreparedStatement st = getPreparedStatement("ISRCS");
         st.setInt(1, min);
         st.setInt(2, max);
         ResultSet rs = st.executeQuery();
+        IntListMultimap<String> isrcWrapper = loadISRCs(rs);
+        rs.close();
+        isrcClock.suspend();
+        return isrcWrapper;
+    }
+
+    private IntListMultimap<String> loadISRCs(ResultSet rs) throws SQLException {
+
+        IntListMultimap<String> isrcWrapper = new IntListMultimap<String>();
         while (rs.next()) {
             int recordingId = rs.getInt("recordingId");
-            List<String> list;
-            if (!isrcWrapper.containsKey(recordingId)) {
-                list = new LinkedList<String>();
-                isrcWrapper.put(recordingId, list);
-            } else {
-                list = isrcWrapper.get(recordingId);
-            }
             String isrc = new String(rs.getString("isrc"));
-            list.add(isrc);
+            isrcWrapper.put(recordingId, isrc);
         }
-        rs.close();
-        isrcClock.suspend();
         return isrcWrapper;
     }
 
@@ -350,40 +296,13 @@ public class RecordingIndex extends DatabaseIndex {
         PreparedStatement st = getPreparedStatement("ARTISTCREDITS");
         st.setInt(1, min);
         st.setInt(2, max);
-        ResultSet rs = st.executeQuery();
-        Map<Integer, ArtistCreditWrapper> artistCredits
-                = ArtistCreditHelper.completeArtistCreditFromDbResults(rs, "recordingId", "artist_Credit", "artistId", "artistName", "artistSortName", "comment", "joinphrase", "artistCreditName");
-        rs.close();
+        Map<Integer, ArtistCreditWrapper> artistCredits = loadArtists(st.executeQuery());
         artistClock.suspend();
         return artistCredits;
     }
 
-    private Map<Integer, ArtistCreditWrapper> updateArtistCreditWithAliases(
-            Map<Integer, ArtistCreditWrapper> artistCredits,
-            int min,
-            int max)
-            throws SQLException, IOException {
-
-        //Artist Credit Aliases
-        PreparedStatement st = getPreparedStatement("ARTISTCREDITALIASES");
-        st.setInt(1, min);
-        st.setInt(2, max);
-        ResultSet rs = st.executeQuery();
-        return ArtistCreditHelper.updateArtistCreditWithAliases(artistCredits,"recordingId", rs);
-    }
-
-    private Map<Integer, ArtistCreditWrapper> updateTrackArtistCreditWithAliases(
-            Map<Integer, ArtistCreditWrapper> artistCredits,
-            int min,
-            int max)
-            throws SQLException, IOException {
-
-        //Artist Credit Aliases
-        PreparedStatement st = getPreparedStatement("TRACKARTISTCREDITALIASES");
-        st.setInt(1, min);
-        st.setInt(2, max);
-        ResultSet rs = st.executeQuery();
-        return ArtistCreditHelper.updateArtistCreditWithAliases(artistCredits,"recordingId", rs);
+    private Map<Integer, ArtistCreditWrapper> loadArtists(ResultSet rs) throws SQLException, IOException {
+        return loadArtistCredits(rs, "recordingId");
     }
 
     /**
@@ -402,57 +321,49 @@ public class RecordingIndex extends DatabaseIndex {
         PreparedStatement st = getPreparedStatement("TRACKARTISTCREDITS");
         st.setInt(1, min);
         st.setInt(2, max);
-        ResultSet rs = st.executeQuery();
-        Map<Integer, ArtistCreditWrapper> artistCredits
-                = ArtistCreditHelper.completeArtistCreditFromDbResults
-                (rs,
-                        "id",
-                        "artist_Credit",
-                        "artistId",
-                        "artistName",
-                        "artistSortName",
-                        "comment",
-                        "joinphrase",
-                        "artistCreditName"
-                );
-        rs.close();
+        Map<Integer, ArtistCreditWrapper> artistCredits = loadTrackArtists(st.executeQuery());
         trackArtistClock.suspend();
         return artistCredits;
     }
 
+    private Map<Integer, ArtistCreditWrapper> loadTrackArtists(ResultSet rs) throws SQLException, IOException {
+        return loadArtistCredits(rs, "id");
+    }
+
     /**
      * Get Release Artist Credit
      *
-     * @param min min recording id
-     * @param max max recording id
+     * @param releases
      * @return A map of matches
      * @throws SQLException if sql problem
      * @throws IOException  if io exception
      */
-    private Map<Integer, ArtistCreditWrapper> loadReleaseArtists(Map<Integer, Release> releases,int min, int max) throws SQLException, IOException {
+    private Map<Integer, ArtistCreditWrapper> loadReleaseArtists(Map<Integer, Release> releases) throws SQLException, IOException {
 
         //Add release artists
-        PreparedStatement stmt = createReleaseArtistCreditsStatement(releases.size());
-        int count = 1;
-        for (Integer key : releases.keySet()) {
-            stmt.setInt(count, key);
-            count++;
+        if (releases.isEmpty()) {
+            return new HashMap<Integer, ArtistCreditWrapper>();
+        }
+        Map<Integer, ArtistCreditWrapper> releaseArtistCredits = new HashMap<Integer, ArtistCreditWrapper>();
+        KeyLookup.Batches batches = getKeyLookup("RELEASEARTISTCREDITS").executeBatches(releases.keySet());
+        try {
+            ResultSet rs;
+            while ((rs = batches.next()) != null) {
+                releaseArtistCredits.putAll(ArtistCreditHelper.completeArtistCreditFromDbResults
+                        (rs,
+                                "releaseKey",
+                                "artist_Credit",
+                                "artistId",
+                                "artistName",
+                                "artistSortName",
+                                "comment",
+                                "joinphrase",
+                                "artistCreditName"
+                        ));
+            }
+        } finally {
+            batches.close();
         }
-
-        ResultSet rs = stmt.executeQuery();
-        Map<Integer, ArtistCreditWrapper> releaseArtistCredits
-                = ArtistCreditHelper.completeArtistCreditFromDbResults
-                (rs,
-                        "releaseKey",
-                        "artist_Credit",
-                        "artistId",
-                        "artistName",
-                        "artistSortName",
-                        "comment",
-                        "joinphrase",
-                        "artistCreditName"
-                );
-        rs.close();
         return  releaseArtistCredits;
     }
 
@@ -467,24 +378,25 @@ public class RecordingIndex extends DatabaseIndex {
      * @throws SQLException
      * @throws IOException
      */
-    private Map<Integer, List<TrackWrapper>> loadTracks(int min, int max) throws SQLException, IOException {
+    private IntListMultimap<TrackWrapper> loadTracks(int min, int max) throws SQLException, IOException {
 
         //Tracks and Release Info
         trackClock.resume();
-        Map<Integer, List<TrackWrapper>> tracks = new HashMap<Integer, List<TrackWrapper>>();
         PreparedStatement st = getPreparedStatement("TRACKS");
         st.setInt(1, min);
         st.setInt(2, max);
         ResultSet rs = st.executeQuery();
+        IntListMultimap<TrackWrapper> tracks = loadTracks(rs);
+        rs.close();
+        trackClock.suspend();
+        return tracks;
+    }
+
+    private IntListMultimap<TrackWrapper> loadTracks(ResultSet rs) throws SQLException {
+
+        IntListMultimap<TrackWrapper> tracks = new IntListMultimap<TrackWrapper>();
         while (rs.next()) {
             int recordingId = rs.getInt("recording");
-            List<TrackWrapper> list;
-            if (!tracks.containsKey(recordingId)) {
-                list = new LinkedList<TrackWrapper>();
-                tracks.put(recordingId, list);
-            } else {
-                list = tracks.get(recordingId);
-            }
             TrackWrapper tw = new TrackWrapper();
             tw.setTrackId(rs.getInt("id"));
             tw.setTrackGuid(rs.getString("gid"));
@@ -496,113 +408,73 @@ public class RecordingIndex extends DatabaseIndex {
             tw.setMediumFormat(rs.getString("format"));
             tw.setDuration(rs.getInt("duration"));
             tw.setTrackNumber(rs.getString("track_number"));
-            list.add(tw);
+            tracks.put(recordingId, tw);
         }
-        rs.close();
-        trackClock.suspend();
         return tracks;
     }
 
     /**
-     * Create the release statement
+     * Get the releases of the tracks and their release artist credits, releases loaded for an earlier chunk are
+     * taken from the release cache
      *
-     * @param noOfElements
-     * @return
+     * @param tracks
+     * @param releases map the releases are added to
+     * @param releaseArtists map the release artist credits are added to
      * @throws SQLException
+     * @throws IOException
      */
-    private PreparedStatement createReleaseStatement(int noOfElements) throws SQLException {
-        StringBuilder inClause = new StringBuilder();
-        boolean firstValue = true;
-        for (int i = 0; i < noOfElements; i++) {
-            if (firstValue) {
-                firstValue = false;
-            } else {
-                inClause.append(',');
-            }
-            inClause.append('?');
-        }
-        PreparedStatement stmt = dbConnection.prepareStatement(
-                releases + "(" + inClause.toString() + ')');
-        return stmt;
-
-    }
+    private void loadReleases(IntListMultimap<TrackWrapper> tracks,
+                              Map<Integer, Release> releases,
+                              Map<Integer, ArtistCreditWrapper> releaseArtists) throws SQLException, IOException {
 
-    private PreparedStatement createReleaseEventStatement(int noOfElements) throws SQLException {
-        StringBuilder inClause = new StringBuilder();
-        boolean firstValue = true;
-        for (int i = 0; i < noOfElements; i++) {
-            if (firstValue) {
-                firstValue = false;
-            } else {
-                inClause.append(',');
+        // Add all the releaseKeys to a set to prevent duplicates
+        Set<Integer> releaseKeys = new HashSet<Integer>();
+        for (List<TrackWrapper> recording : tracks.values()) {
+            for (TrackWrapper track : recording) {
+                releaseKeys.add(track.getReleaseId());
             }
-            inClause.append('?');
         }
-        PreparedStatement stmt = dbConnection.prepareStatement(
-                releaseEvents + "(" + inClause.toString() + ')');
-        return stmt;
-
-    }
 
-    /**
-     * Create the release secondary types statement
-     *
-     * @param noOfElements
-     * @return
-     * @throws SQLException
-     */
-    private PreparedStatement createReleaseSecondaryTypesStatement(int noOfElements) throws SQLException {
-        StringBuilder inClause = new StringBuilder();
-        boolean firstValue = true;
-        for (int i = 0; i < noOfElements; i++) {
-            if (firstValue) {
-                firstValue = false;
-            } else {
-                inClause.append(',');
+        Set<Integer> uncachedReleaseKeys = releaseKeys;
+        if (releaseCache != null) {
+            uncachedReleaseKeys = new HashSet<Integer>();
+            for (Integer key : releaseKeys) {
+                ReleaseCache.Entry entry = releaseCache.get(key);
+                if (entry != null) {
+                    releases.put(key, entry.getRelease());
+                    if (entry.getArtistCredit() != null) {
+                        releaseArtists.put(key, entry.getArtistCredit());
+                    }
+                } else {
+                    uncachedReleaseKeys.add(key);
+                }
             }
-            inClause.append('?');
         }
-        PreparedStatement stmt = dbConnection.prepareStatement(
-                releaseSecondaryTypes + "(" + inClause.toString() + ')');
-        return stmt;
 
-    }
+        if (uncachedReleaseKeys.isEmpty()) {
+            return;
+        }
 
-    /**
-     * Create the release artist credits statement
-     *
-     * @param noOfElements
-     * @return
-     * @throws SQLException
-     */
-    private PreparedStatement createReleaseArtistCreditsStatement(int noOfElements) throws SQLException {
-        StringBuilder inClause = new StringBuilder();
-        boolean firstValue = true;
-        for (int i = 0; i < noOfElements; i++) {
-            if (firstValue) {
-                firstValue = false;
-            } else {
-                inClause.append(',');
+        Map<Integer, Release> loadedReleases = loadReleases(uncachedReleaseKeys);
+        Map<Integer, ArtistCreditWrapper> loadedReleaseArtists = loadReleaseArtists(loadedReleases);
+        if (releaseCache != null) {
+            for (Map.Entry<Integer, Release> next : loadedReleases.entrySet()) {
+                releaseCache.put(next.getKey(), next.getValue(), loadedReleaseArtists.get(next.getKey()));
             }
-            inClause.append('?');
         }
-        PreparedStatement stmt = dbConnection.prepareStatement(
-                releaseArtistCredits + "(" + inClause.toString() + ')');
-        return stmt;
-
+        releases.putAll(loadedReleases);
+        releaseArtists.putAll(loadedReleaseArtists);
     }
 
-
     /**
-     * Get release information for recordings
+     * Get release information from the database
      *
-     * @param tracks
+     * @param releaseKeys
      * @return A map of matches
      * @throws SQLException
      * @throws IOException
      */
-    private Map<Integer, Release> loadReleases
-    (Map<Integer, List<TrackWrapper>> tracks) throws SQLException, IOException {
+    private Map<Integer, Release> loadReleases(Set<Integer> releaseKeys) throws SQLException, IOException {
 
 
         Map<Integer, Release> releases = new HashMap<Integer, Release>();
@@ -614,113 +486,124 @@ public class RecordingIndex extends DatabaseIndex {
             System.out.println("Warning: IllegalStateException during StopWatch.resume");
         }
 
-        // Add all the releaseKeys to a set to prevent duplicates
-        Set<Integer> releaseKeys = new HashSet<Integer>();
-        for (List<TrackWrapper> recording : tracks.values()) {
-            for (TrackWrapper track : recording) {
-                releaseKeys.add(track.getReleaseId());
-            }
-        }
-
-        if (releaseKeys.isEmpty()) {
-            return releases;
-        }
-
-        PreparedStatement stmt = createReleaseStatement(releaseKeys.size());
-        int count = 1;
-        for (Integer key : releaseKeys) {
-            stmt.setInt(count, key);
-            count++;
-        }
-
         Release release;
-        ResultSet rs = stmt.executeQuery();
-        while (rs.next()) {
-            int releaseKey = rs.getInt("releaseKey");
-            if (!releases.containsKey(releaseKey)) {
-                release = of.createRelease();
-                releases.put(releaseKey, release);
-            } else {
-                release = releases.get(releaseKey);
-            }
+        ResultSet rs;
+        KeyLookup.Batches batches = getKeyLookup("RELEASES").executeBatches(releaseKeys);
+        try {
+            while ((rs = batches.next()) != null) {
+                while (rs.next()) {
+                    int releaseKey = rs.getInt("releaseKey");
+                    if (!releases.containsKey(releaseKey)) {
+                        release = of.createRelease();
+                        releases.put(releaseKey, release);
+                    } else {
+                        release = releases.get(releaseKey);
+                    }
 
-            MediumList ml = of.createMediumList();
-            ReleaseGroup rg = of.createReleaseGroup();
-            release.setId(rs.getString("releaseId"));
-            release.setTitle(rs.getString("releasename"));
-            PrimaryType pt = new PrimaryType();
-            pt.setContent(rs.getString("type"));
-            rg.setPrimaryType(pt);
-            rg.setId(rs.getString("rg_gid"));
-            release.setReleaseGroup(rg);
-            Status status = new Status();
-            status.setContent(rs.getString("status"));
-            release.setStatus(status);
-            ml.setTrackCount(BigInteger.valueOf(rs.getInt("tracks")));
-            release.setReleaseGroup(rg);
-            release.setMediumList(ml);
-            //Manually create various artist artists they are not retrieved from the database
-            //for performance reasons
-            if (rs.getInt("artist_credit") == VARIOUS_ARTIST_CREDIT_ID) {
-                ArtistCredit ac = createVariousArtistsCredit();
-                release.setArtistCredit(ac);
+                    MediumList ml = of.createMediumList();
+                    ReleaseGroup rg = of.createReleaseGroup();
+                    release.setId(rs.getString("releaseId"));
+                    release.setTitle(rs.getString("releasename"));
+                    PrimaryType pt = new PrimaryType();
+                    pt.setContent(rs.getString("type"));
+                    rg.setPrimaryType(pt);
+                    rg.setId(rs.getString("rg_gid"));
+                    release.setReleaseGroup(rg);
+                    Status status = new Status();
+                    status.setContent(rs.getString("status"));
+                    release.setStatus(status);
+                    ml.setTrackCount(BigInteger.valueOf(rs.getInt("tracks")));
+                    release.setReleaseGroup(rg);
+                    release.setMediumList(ml);
+                    //Manually create various artist artists they are not retrieved from the database
+                    //for performance reasons
+                    if (rs.getInt("artist_credit") == VARIOUS_ARTIST_CREDIT_ID) {
+                        ArtistCredit ac = createVariousArtistsCredit();
+                        release.setArtistCredit(ac);
+                    }
+                }
             }
+        } finally {
+            batches.close();
         }
-        rs.close();
 
 
         //Add ReleaseEvents for each Release
-        stmt = createReleaseEventStatement(releaseKeys.size());
-        count = 1;
-        for (Integer key : releaseKeys) {
-            stmt.setInt(count, key);
-            count++;
-        }
-        rs = stmt.executeQuery();
-        while (rs.next()) {
-            int releaseKey = rs.getInt("release");
-            release = releases.get(releaseKey);
-            if(release!=null) {
-                if (release.getReleaseEventList() == null) {
-                    release.setReleaseEventList(of.createReleaseEventList());
-                }
-                ReleaseEvent re = of.createReleaseEvent();
-                re.setDate(Strings.emptyToNull(Utils.formatDate(rs.getInt("date_year"), rs.getInt("date_month"), rs.getInt("date_day"))));
-                String iso_code=rs.getString("country");
-                String gid       = rs.getString("gid");
-                String name      = rs.getString("name");
-                String sort_name = name;
-                if(iso_code!=null) {
-                    Iso31661CodeList isoList = of.createIso31661CodeList();
-                    isoList.getIso31661Code().add(iso_code);
-                    DefAreaElementInner area = of.createDefAreaElementInner();
-                    area.setIso31661CodeList(isoList);
-                    re.setArea(area);
-                    area.setId(gid);
-                    area.setName(name);
-                    area.setSortName(sort_name);
+        batches = getKeyLookup("RELEASEEVENTS").executeBatches(releaseKeys);
+        try {
+            while ((rs = batches.next()) != null) {
+                while (rs.next()) {
+                    int releaseKey = rs.getInt("release");
+                    release = releases.get(releaseKey);
+                    if(release!=null) {
+                        if (release.getReleaseEventList() == null) {
+                            release.setReleaseEventList(of.createReleaseEventList());
+                        }
+                        ReleaseEvent re = of.createReleaseEvent();
+                        re.setDate(Strings.emptyToNull(Utils.formatDate(rs.getInt("date_year"), rs.getInt("date_month"), rs.getInt("date_day"))));
+                        String iso_code=rs.getString("country");
+                        String gid       = rs.getString("gid");
+                        String name      = rs.getString("name");
+                        String sort_name = name;
+                        if(iso_code!=null) {
+                            Iso31661CodeList isoList = of.createIso31661CodeList();
+                            isoList.getIso31661Code().add(iso_code);
+                            DefAreaElementInner area = of.createDefAreaElementInner();
+                            area.setIso31661CodeList(isoList);
+                            re.setArea(area);
+                            area.setId(gid);
+                            area.setName(name);
+                            area.setSortName(sort_name);
+                        }
+                        release.getReleaseEventList().getReleaseEvent().add(re);
+                    }
                 }
-                release.getReleaseEventList().getReleaseEvent().add(re);
             }
+        } finally {
+            batches.close();
         }
         //Add secondary types of the releasegroup that each release is part of
-        stmt = createReleaseSecondaryTypesStatement(releaseKeys.size());
-        count = 1;
-        for (Integer key : releaseKeys) {
-            stmt.setInt(count, key);
-            count++;
+        batches = getKeyLookup("RELEASESECONDARYTYPES").executeBatches(releaseKeys);
+        try {
+            while ((rs = batches.next()) != null) {
+                while (rs.next()) {
+                    int releaseKey = rs.getInt("releaseKey");
+                    release = releases.get(releaseKey);
+                    ReleaseGroup rg = release.getReleaseGroup();
+                    if (rg.getSecondaryTypeList() == null) {
+                        rg.setSecondaryTypeList(of.createSecondaryTypeList());
+                    }
+                    SecondaryType st = new SecondaryType();
+                    st.setContent(rs.getString("type"));
+                    rg.getSecondaryTypeList().getSecondaryType().add(st);
+                }
+            }
+        } finally {
+            batches.close();
         }
-        rs = stmt.executeQuery();
-        while (rs.next()) {
-            int releaseKey = rs.getInt("releaseKey");
-            release = releases.get(releaseKey);
-            ReleaseGroup rg = release.getReleaseGroup();
-            if (rg.getSecondaryTypeList() == null) {
-                rg.setSecondaryTypeList(of.createSecondaryTypeList());
+
+        //Releases are shared by the recordings of a chunk and by later chunks through the release cache, and their
+        //documents are serialized by the index writer threads, so anything derived is set once here rather than
+        //for each recording
+        for (Release next : releases.values()) {
+            if (next.getReleaseEventList() != null) {
+                Collections.sort(next.getReleaseEventList().getReleaseEvent(), new ReleaseEventComparator());
+            }
+            ReleaseGroup rg = next.getReleaseGroup();
+            String primaryType = "";
+            if (rg.getPrimaryType() != null)
+            {
+                primaryType = rg.getPrimaryType().getContent();
+            }
+            if (rg.getSecondaryTypeList() != null) {
+                List<String> secondaryTypeStringList = new ArrayList<String>();
+                for (SecondaryType secondaryType : rg.getSecondaryTypeList().getSecondaryType()) {
+                    secondaryTypeStringList.add(secondaryType.getContent());
+                }
+                rg.setType(ReleaseGroupHelper.calculateOldTypeFromPrimaryType(primaryType, secondaryTypeStringList));
+            } else {
+                rg.setType(primaryType);
             }
-            SecondaryType st = new SecondaryType();
-            st.setContent(rs.getString("type"));
-            rg.getSecondaryTypeList().getSecondaryType().add(st);
         }
 
         try {
@@ -734,13 +617,14 @@ public class RecordingIndex extends DatabaseIndex {
 
     public void indexData(IndexWriter indexWriter, int min, int max) throws SQLException, IOException {
 
-        Map<Integer, List<Tag>>             tags                = loadTags(min, max);
-        Map<Integer, List<String>>          isrcs               = loadISRCs(min, max);
-        Map<Integer, ArtistCreditWrapper>   artistCredits       = updateArtistCreditWithAliases(loadArtists(min, max), min, max);
-        Map<Integer, ArtistCreditWrapper>   trackArtistCredits  = updateTrackArtistCreditWithAliases(loadTrackArtists(min, max), min, max);
-        Map<Integer, List<TrackWrapper>>    tracks              = loadTracks(min, max);
-        Map<Integer, Release>               releases            = loadReleases(tracks);
-        Map<Integer, ArtistCreditWrapper>   releaseArtists      = loadReleaseArtists(releases, min, max);
+        IntListMultimap<Tag>                tags                = loadTags(min, max);
+        IntListMultimap<String>             isrcs               = loadISRCs(min, max);
+        Map<Integer, ArtistCreditWrapper>   artistCredits       = loadArtists(min, max);
+        Map<Integer, ArtistCreditWrapper>   trackArtistCredits  = loadTrackArtists(min, max);
+        IntListMultimap<TrackWrapper>       tracks              = loadTracks(min, max);
+        Map<Integer, Release>               releases            = new HashMap<Integer, Release>();
+        Map<Integer, ArtistCreditWrapper>   releaseArtists      = new HashMap<Integer, ArtistCreditWrapper>();
+        loadReleases(tracks, releases, releaseArtists);
 
         PreparedStatement st = getPreparedStatement("RECORDINGS");
         st.setInt(1, min);
@@ -755,12 +639,85 @@ public class RecordingIndex extends DatabaseIndex {
 
     }
 
+    /**
+     * Index every recording in one pass, each query is run once over all the recordings ordered by recording id and
+     * read a window of ids at a time (see StreamingCursor), instead of being run and planned again for every chunk.
+     *
+     * Releases are still loaded for each window because they are found by release id rather than recording id, but
+     * mostly come from the release cache.
+     */
+    public void indexDataStreaming(IndexWriter indexWriter, int maxId, int windowSize) throws SQLException, IOException {
+
+        // Postgres only streams the rows of a query with a server side cursor within a transaction
+        boolean isAutoCommit = dbConnection.getAutoCommit();
+        dbConnection.setAutoCommit(false);
+        List<StreamingCursor> cursors = new ArrayList<StreamingCursor>();
+        try {
+            StreamingCursor tagsCursor = openStreamingCursor("TAGS", maxId, "recording", "recording");
+            cursors.add(tagsCursor);
+            StreamingCursor isrcsCursor = openStreamingCursor("ISRCS", maxId, "recordingId", "recordingId, id");
+            cursors.add(isrcsCursor);
+            StreamingCursor artistsCursor = openStreamingCursor("ARTISTCREDITS", maxId, "recordingId", "recordingId");
+            cursors.add(artistsCursor);
+            StreamingCursor trackArtistsCursor = openStreamingCursor("TRACKARTISTCREDITS", maxId, "recording", "recording, id");
+            cursors.add(trackArtistsCursor);
+            StreamingCursor tracksCursor = openStreamingCursor("TRACKS", maxId, "recording", "recording, id");
+            cursors.add(tracksCursor);
+            StreamingCursor recordingsCursor = openStreamingCursor("RECORDINGS", maxId, "recordingId", "recordingId");
+            cursors.add(recordingsCursor);
+
+            int min = 0;
+            while (min <= maxId) {
+                int max = (int) Math.min((long) min + windowSize - 1, maxId);
+                System.out.print(getName() + ":Indexing " + min + "..." + max + " / " + maxId + " (" + (100L * max / Math.max(maxId, 1)) + "%)\r");
+
+                IntListMultimap<Tag> tags = TagHelper.completeTagsFromDbResults(tagsCursor.window(min, max), "recording");
+
+                isrcClock.resume();
+                IntListMultimap<String> isrcs = loadISRCs(isrcsCursor.window(min, max));
+                isrcClock.suspend();
+
+                artistClock.resume();
+                Map<Integer, ArtistCreditWrapper> artistCredits = loadArtists(artistsCursor.window(min, max));
+                artistClock.suspend();
+
+                trackArtistClock.resume();
+                Map<Integer, ArtistCreditWrapper> trackArtistCredits = loadTrackArtists(trackArtistsCursor.window(min, max));
+                trackArtistClock.suspend();
+
+                trackClock.resume();
+                IntListMultimap<TrackWrapper> tracks = loadTracks(tracksCursor.window(min, max));
+                trackClock.suspend();
+
+                Map<Integer, Release> releases = new HashMap<Integer, Release>();
+                Map<Integer, ArtistCreditWrapper> releaseArtists = new HashMap<Integer, ArtistCreditWrapper>();
+                loadReleases(tracks, releases, releaseArtists);
+
+                ResultSet rs = recordingsCursor.window(min, max);
+                while (rs.next()) {
+                    indexWriter.addDocument(documentFromResultSet(rs, tags, isrcs, artistCredits, trackArtistCredits, tracks, releases, releaseArtists));
+                }
+                min = max + 1;
+                if (max == Integer.MAX_VALUE) {
+                    break;
+                }
+            }
+        }
+        finally {
+            for (StreamingCursor cursor : cursors) {
+                cursor.close();
+            }
+            dbConnection.commit();
+            dbConnection.setAutoCommit(isAutoCommit);
+        }
+    }
+
     public Document documentFromResultSet(ResultSet rs,
-                                          Map<Integer, List<Tag>> tags,
-                                          Map<Integer, List<String>> isrcs,
+                                          IntListMultimap<Tag> tags,
+                                          IntListMultimap<String> isrcs,
                                           Map<Integer, ArtistCreditWrapper> artistCredits,
                                           Map<Integer, ArtistCreditWrapper> trackArtistCredits,
-                                          Map<Integer, List<TrackWrapper>> tracks,
+                                          IntListMultimap<TrackWrapper> tracks,
                                           Map<Integer, Release> releases,
                                           Map<Integer, ArtistCreditWrapper>   releaseArtists) throws SQLException {
 
@@ -780,11 +737,14 @@ public class RecordingIndex extends DatabaseIndex {
 
         String guid = rs.getString("trackid");
         doc.addField(RecordingIndexField.RECORDING_ID, guid);
+        doc.addDocValuesField(ProjectionIndexField.MBID, guid);
         recording.setId(guid);
 
         String recordingName = rs.getString("trackname");
         //Just add an accent version for recording name not track names
         doc.addField(RecordingIndexField.RECORDING_ACCENT, recordingName);
+        doc.addDocValuesField(ProjectionIndexField.NAME, recordingName);
+        SuggestHelper.addSuggestion(doc, recordingName);
         recording.setTitle(recordingName);
 
         trackNames.add(recordingName.toLowerCase(Locale.UK));
@@ -796,6 +756,7 @@ public class RecordingIndex extends DatabaseIndex {
 
         String comment = rs.getString("comment");
         doc.addFieldOrNoValue(RecordingIndexField.COMMENT, comment);
+        doc.addDocValuesField(ProjectionIndexField.DISAMBIGUATION, comment);
         if (!Strings.isNullOrEmpty(comment)) {
             recording.setDisambiguation(comment);
         }
@@ -906,7 +867,6 @@ public class RecordingIndex extends DatabaseIndex {
                             (rg.getSecondaryTypeList() != null) &&
                                     (rg.getSecondaryTypeList().getSecondaryType() != null)
                             ) {
-                        List<String> secondaryTypeStringList = new ArrayList<String>();
                         for (SecondaryType secondaryType : rg.getSecondaryTypeList().getSecondaryType()) {
                             String st = "";
                             if (secondaryType != null)
@@ -914,21 +874,10 @@ public class RecordingIndex extends DatabaseIndex {
                                 st = secondaryType.getContent();
                             }
                             doc.addField(RecordingIndexField.RELEASE_SECONDARY_TYPE, st);
-                            secondaryTypeStringList.add(st);
-                        }
-
-                        String type = ReleaseGroupHelper.calculateOldTypeFromPrimaryType(primaryType, secondaryTypeStringList);
-                        doc.addFieldOrNoValue(RecordingIndexField.RELEASE_TYPE, type);
-                        rg.setType(type);
-                    } else {
-                        String pt = "";
-                        if (release.getReleaseGroup().getPrimaryType() != null)
-                        {
-                            pt = release.getReleaseGroup().getPrimaryType().getContent();
                         }
-                        doc.addFieldOrNoValue(RecordingIndexField.RELEASE_TYPE, pt);
-                        rg.setType(pt);
                     }
+                    //Type was calculated when the release was loaded
+                    doc.addFieldOrNoValue(RecordingIndexField.RELEASE_TYPE, rg.getType());
 
 
                     doc.addNumericField(RecordingIndexField.NUM_TRACKS, trackWrapper.getTrackCount());
@@ -972,7 +921,7 @@ public class RecordingIndex extends DatabaseIndex {
                                 }
                             }
                         }
-                        Collections.sort(release.getReleaseEventList().getReleaseEvent(), new ReleaseEventComparator());
+                        //Release events were sorted when the release was loaded
                         ReleaseEvent firstReleaseEvent = release.getReleaseEventList().getReleaseEvent().get(0);
                         if (!Strings.isNullOrEmpty(firstReleaseEvent.getDate())) {
                             release.setDate(firstReleaseEvent.getDate());
@@ -1026,6 +975,7 @@ public class RecordingIndex extends DatabaseIndex {
         {
             recording.setTagList(TagHelper.addTagsToDocAndConstructTagList(of, doc, tags, id, RecordingIndexField.TAG));
         }
+        SuggestHelper.setWeight(doc, tags.get(id), tracks.containsKey(id) ? tracks.get(id).size() : 0, 1.0f);
 
         //If we have no recording length in the recording itself or the track length then we add this value so
         //they can search for recordings/tracks with no length
@@ -1047,12 +997,12 @@ public class RecordingIndex extends DatabaseIndex {
         //Allow searching of all unique recording/track names
         for (String next : trackNames) {
             doc.addNonEmptyField(RecordingIndexField.RECORDING, next);
+            doc.addNonEmptyField(RecordingIndexField.RECORDING_PREFIX, next);
+            doc.addNonEmptyField(RecordingIndexField.RECORDING_SHINGLE, next);
         }
 
+        doc.addStoreField(RecordingIndexField.RECORDING_STORE, recording, storeTime);
         buildClock.suspend();
-        storeClock.resume();
-        doc.addField(RecordingIndexField.RECORDING_STORE, MMDSerializer.serialize(recording));
-        storeClock.suspend();
         return doc.getLuceneDocument();
     }
 
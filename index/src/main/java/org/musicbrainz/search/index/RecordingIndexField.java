@@ -7,6 +7,8 @@ import org.apache.lucene.document.FieldType;
 import org.musicbrainz.search.analysis.CaseInsensitiveKeywordAnalyzer;
 import org.musicbrainz.search.analysis.MusicbrainzKeepAccentsAnalyzer;
 import org.musicbrainz.search.analysis.MusicbrainzWithPosGapAnalyzer;
+import org.musicbrainz.search.analysis.PrefixAnalyzer;
+import org.musicbrainz.search.analysis.ShingleAnalyzer;
 import org.musicbrainz.search.analysis.TitleWithPosGapAnalyzer;
 
 /**
@@ -34,6 +36,8 @@ public enum RecordingIndexField implements IndexField {
     RECORDING_ID            ("rid",		            MusicBrainzFieldTypes.TEXT_STORED_NOT_ANALYZED_NO_NORMS, new KeywordAnalyzer()),
     RECORDING               ("recording",		    MusicBrainzFieldTypes.TEXT_STORED_ANALYZED, new MusicbrainzWithPosGapAnalyzer()),
     RECORDING_ACCENT        ("recordingaccent",     MusicBrainzFieldTypes.TEXT_NOT_STORED_ANALYZED, new MusicbrainzKeepAccentsAnalyzer()),
+    RECORDING_PREFIX        ("recordingprefix",     MusicBrainzFieldTypes.TEXT_NOT_STORED_ANALYZED_NO_NORMS, new PrefixAnalyzer(new MusicbrainzWithPosGapAnalyzer())),
+    RECORDING_SHINGLE       ("recordingshingle",    MusicBrainzFieldTypes.TEXT_NOT_STORED_ANALYZED, new ShingleAnalyzer(new MusicbrainzWithPosGapAnalyzer())),
     RELEASE				    ("release",		        MusicBrainzFieldTypes.TEXT_NOT_STORED_ANALYZED, new TitleWithPosGapAnalyzer()),
     RELEASE_DATE	        ("date",		        MusicBrainzFieldTypes.TEXT_NOT_STORED_NOT_ANALYZED_NO_NORMS, new KeywordAnalyzer()),
     RELEASE_ID			    ("reid",		        MusicBrainzFieldTypes.TEXT_NOT_STORED_NOT_ANALYZED_NO_NORMS, new KeywordAnalyzer()),
@@ -0,0 +1,137 @@
+package org.musicbrainz.search.index;
+
+import org.musicbrainz.mmd2.Release;
+import org.musicbrainz.mmd2.ReleaseEvent;
+import org.musicbrainz.search.helper.ArtistCreditWrapper;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Releases as assembled by the recording index, kept across chunks because the recordings of a release are spread
+ * over many chunks, and compilations and popular releases would otherwise be loaded from the database again for
+ * every chunk that has one of their tracks.
+ *
+ * The least recently used releases are dropped once their estimated size goes over the limit. Cached releases are
+ * shared by every recording that uses them, the same as the releases loaded for a single chunk, so must not be changed
+ * once added.
+ */
+public class ReleaseCache {
+
+    /**
+     * A release and its release artist credit, if it has one that isn't Various Artists
+     */
+    public static class Entry {
+
+        private final Release release;
+        private final ArtistCreditWrapper artistCredit;
+        private final long size;
+
+        private Entry(Release release, ArtistCreditWrapper artistCredit, long size) {
+            this.release = release;
+            this.artistCredit = artistCredit;
+            this.size = size;
+        }
+
+        public Release getRelease() {
+            return release;
+        }
+
+        public ArtistCreditWrapper getArtistCredit() {
+            return artistCredit;
+        }
+    }
+
+    // Rough number of bytes used by an object
+    private static final int OBJECT_SIZE = 48;
+
+    private final long maxSize;
+    private long size;
+    private long hits;
+    private long misses;
+    private long evictions;
+
+    private final LinkedHashMap<Integer, Entry> entries = new LinkedHashMap<Integer, Entry>(1024, 0.75f, true);
+
+    /**
+     * @param maxSize most bytes the cached releases are estimated to use
+     */
+    public ReleaseCache(long maxSize) {
+        this.maxSize = maxSize;
+    }
+
+    /**
+     * @param releaseId
+     * @return the cached release or null if it has to be loaded
+     */
+    public Entry get(int releaseId) {
+        Entry entry = entries.get(releaseId);
+        if (entry != null) {
+            hits++;
+        } else {
+            misses++;
+        }
+        return entry;
+    }
+
+    /**
+     * @param releaseId
+     * @param release
+     * @param artistCredit may be null
+     */
+    public void put(int releaseId, Release release, ArtistCreditWrapper artistCredit) {
+        Entry entry = new Entry(release, artistCredit, estimateSize(release, artistCredit));
+        Entry previous = entries.put(releaseId, entry);
+        if (previous != null) {
+            size -= previous.size;
+        }
+        size += entry.size;
+
+        Iterator<Map.Entry<Integer, Entry>> iterator = entries.entrySet().iterator();
+        while (size > maxSize && iterator.hasNext()) {
+            size -= iterator.next().getValue().size;
+            iterator.remove();
+            evictions++;
+        }
+    }
+
+    private static long estimateSize(String value) {
+        return ArtistCreditStore.estimateSize(value);
+    }
+
+    /**
+     * Estimate the memory used by a release from the strings it holds, the objects holding them are counted roughly
+     */
+    static long estimateSize(Release release, ArtistCreditWrapper artistCredit) {
+        long estimate = OBJECT_SIZE * 8;
+        estimate += estimateSize(release.getId());
+        estimate += estimateSize(release.getTitle());
+        if (release.getReleaseGroup() != null) {
+            estimate += estimateSize(release.getReleaseGroup().getId()) + OBJECT_SIZE * 2;
+            if (release.getReleaseGroup().getSecondaryTypeList() != null) {
+                estimate += OBJECT_SIZE * 2 * release.getReleaseGroup().getSecondaryTypeList().getSecondaryType().size();
+            }
+        }
+        if (release.getReleaseEventList() != null) {
+            for (ReleaseEvent re : release.getReleaseEventList().getReleaseEvent()) {
+                estimate += OBJECT_SIZE * 2 + estimateSize(re.getDate());
+                if (re.getArea() != null) {
+                    estimate += OBJECT_SIZE * 3 + estimateSize(re.getArea().getId()) + estimateSize(re.getArea().getName());
+                }
+            }
+        }
+        if (artistCredit != null) {
+            estimate += ArtistCreditStore.estimateSize(artistCredit);
+        }
+        return estimate;
+    }
+
+    /**
+     * @return hits, misses and estimated size for the build report
+     */
+    public String getStats() {
+        return "hits=" + hits + " misses=" + misses + " evictions=" + evictions + " releases=" + entries.size()
+                + " size=" + (size / (1024 * 1024)) + "MB";
+    }
+}
@@ -68,6 +68,11 @@ public class ReleaseGroupIndex extends DatabaseIndex {
 	public IndexField getIdentifierField() {
 		return ReleaseGroupIndexField.ID;
 	}
+
+	@Override
+	public IndexField[] getFuzzyFields() {
+		return new IndexField[] { ReleaseGroupIndexField.RELEASEGROUP, ReleaseGroupIndexField.RELEASE, ReleaseGroupIndexField.ARTIST };
+	}
     
     public int getMaxId() throws SQLException {
         Statement st = dbConnection.createStatement();
@@ -101,43 +106,10 @@ public class ReleaseGroupIndex extends DatabaseIndex {
                 " WHERE release_group BETWEEN ? AND ?");
 
         addPreparedStatement("ARTISTCREDITS",
-                "SELECT r.id as releaseGroupId, " +
-                "  a.artist_credit, " +
-                "  a.pos, " +
-                "  a.joinphrase, " +
-                "  a.artistId,  " +
-                "  a.comment, " +
-                "  a.artistName, " +
-                "  a.artistCreditName, " +
-                "  a.artistSortName " +
+                "SELECT r.id as releaseGroupId, r.artist_credit " +
                 " FROM release_group AS r " +
-                "  INNER JOIN tmp_artistcredit a ON r.artist_credit=a.artist_credit " +
-                " WHERE r.id BETWEEN ? AND ?  " +
-                " ORDER BY r.id, a.pos");
-
-        addPreparedStatement("ARTISTCREDITALIASES",
-                "SELECT r.id as releaseGroupId," +
-                " a.artist_credit, " +
-                " a.pos, " +
-                " aa.name," +
-                " aa.sort_name," +
-                " aa.primary_for_locale," +
-                " aa.locale," +
-                " aa.begin_date_year," +
-                " aa.begin_date_month," +
-                " aa.begin_date_day," +
-                " aa.end_date_year," +
-                " aa.end_date_month," +
-                " aa.end_date_day," +
-                " att.name as type" +
-                " FROM release_group AS r " +
-                "  INNER JOIN tmp_artistcredit a ON r.artist_credit=a.artist_credit " +
-                "  INNER JOIN artist_alias aa ON a.id=aa.artist" +
-                "  LEFT  JOIN artist_alias_type att on (aa.type=att.id)" +
-                " WHERE r.id BETWEEN ? AND ?  " +
-                " AND a.artistId!='" + ArtistIndex.VARIOUS_ARTIST_MBID +"'" +
-                " AND a.artistId!='" + ArtistIndex.UNKNOWN_ARTIST_MBID  +"'" +
-                " ORDER BY r.id, a.pos, aa.name");
+                " WHERE r.id BETWEEN ? AND ? ");
+        addArtistCreditLookups(isUpdater);
 
         addPreparedStatement("SECONDARYTYPES",
                 "SELECT rg.name as type, rgj.release_group as release_group " +
@@ -156,9 +128,9 @@ public class ReleaseGroupIndex extends DatabaseIndex {
 
 
     public void indexData(IndexWriter indexWriter, int min, int max) throws SQLException, IOException {
-        Map<Integer,List<Tag>> tags                             = TagHelper.loadTags(min, max, getPreparedStatement("TAGS"), "release_group");
+        IntListMultimap<Tag> tags                               = TagHelper.loadTags(min, max, getPreparedStatement("TAGS"), "release_group");
         Map<Integer, List<ReleaseWrapper>> releases             = loadReleases(min, max);
-        Map<Integer, ArtistCreditWrapper> artistCredits         = updateArtistCreditWithAliases(loadArtistCredits(min, max),min, max);
+        Map<Integer, ArtistCreditWrapper> artistCredits         = loadArtistCredits(min, max);
         Map<Integer, List<String>> secondaryTypes               = loadSecondaryTypes(min, max);
         //ReleaseGroups
         PreparedStatement st = getPreparedStatement("RELEASEGROUPS");
@@ -219,29 +191,11 @@ public class ReleaseGroupIndex extends DatabaseIndex {
      */
     private Map<Integer, ArtistCreditWrapper> loadArtistCredits(int min, int max) throws SQLException, IOException {
 
-        //Artist Credits
+        //Artist Credits, from the artist credit store
         PreparedStatement st = getPreparedStatement("ARTISTCREDITS");
         st.setInt(1, min);
         st.setInt(2, max);
-        ResultSet rs = st.executeQuery();
-        Map<Integer, ArtistCreditWrapper> artistCredits
-                = ArtistCreditHelper.completeArtistCreditFromDbResults(rs, "releaseGroupId", "artist_Credit", "artistId", "artistName", "artistSortName", "comment", "joinphrase", "artistCreditName");
-        rs.close();
-        return artistCredits;
-    }
-
-    private Map<Integer, ArtistCreditWrapper> updateArtistCreditWithAliases(
-            Map<Integer, ArtistCreditWrapper> artistCredits,
-            int min,
-            int max)
-            throws SQLException, IOException {
-
-        //Artist Credit Aliases
-        PreparedStatement st = getPreparedStatement("ARTISTCREDITALIASES");
-        st.setInt(1, min);
-        st.setInt(2, max);
-        ResultSet rs = st.executeQuery();
-        return ArtistCreditHelper.updateArtistCreditWithAliases(artistCredits,"releaseGroupId", rs);
+        return loadArtistCredits(st.executeQuery(), "releaseGroupId");
     }
 
     /**
@@ -278,29 +232,36 @@ public class ReleaseGroupIndex extends DatabaseIndex {
 
     public Document documentFromResultSet(ResultSet rs,
                                           Map<Integer, List<String>> secondaryTypes,
-                                          Map<Integer,List<Tag>> tags,
+                                          IntListMultimap<Tag> tags,
                                           Map<Integer, List<ReleaseWrapper>> releases,
                                           Map<Integer, ArtistCreditWrapper> artistCredits) throws SQLException {
         MbDocument doc = new MbDocument();
         int id = rs.getInt("id");
         doc.addField(ReleaseGroupIndexField.ID, id);
         doc.addField(ReleaseGroupIndexField.RELEASEGROUP_ID, rs.getString("gid"));
+        doc.addDocValuesField(ProjectionIndexField.MBID, rs.getString("gid"));
         String name = rs.getString("name");
         doc.addField(ReleaseGroupIndexField.RELEASEGROUP, name);
+        doc.addDocValuesField(ProjectionIndexField.NAME, name);
         doc.addField(ReleaseGroupIndexField.RELEASEGROUP_ACCENT, name);
+        SuggestHelper.addSuggestion(doc, name);
 
         String primaryType = rs.getString("type");
         doc.addFieldOrUnknown(ReleaseGroupIndexField.PRIMARY_TYPE, primaryType);
+        doc.addSortedSetDocValuesField(FacetIndexField.PRIMARY_TYPE, primaryType);
 
         if (secondaryTypes.containsKey(id)) {
             for (String secondaryType : secondaryTypes.get(id)) {
                 doc.addField(ReleaseGroupIndexField.SECONDARY_TYPE, secondaryType);
+                doc.addSortedSetDocValuesField(FacetIndexField.SECONDARY_TYPE, secondaryType);
             }
         }
         String type = ReleaseGroupHelper.calculateOldTypeFromPrimaryType(primaryType, secondaryTypes.get(id));
         doc.addFieldOrUnknown(ReleaseGroupIndexField.TYPE, type);
+        doc.addSortedSetDocValuesField(FacetIndexField.TYPE, type);
 
         doc.addFieldOrNoValue(ReleaseGroupIndexField.COMMENT, rs.getString("comment"));
+        doc.addDocValuesField(ProjectionIndexField.DISAMBIGUATION, rs.getString("comment"));
 
         //Add each release name within this release group
         if (releases.containsKey(id)) {
@@ -308,6 +269,7 @@ public class ReleaseGroupIndex extends DatabaseIndex {
                 doc.addFieldOrNoValue(ReleaseGroupIndexField.RELEASE, release.getReleaseName());
                 doc.addFieldOrNoValue(ReleaseGroupIndexField.RELEASE_ID, release.getReleaseId());
                 doc.addFieldOrNoValue(ReleaseGroupIndexField.RELEASESTATUS, release.getStatus());
+                doc.addSortedSetDocValuesField(FacetIndexField.STATUS, release.getStatus());
             }
             doc.addNumericField(ReleaseGroupIndexField.NUM_RELEASES, releases.get(id).size());
         }
@@ -321,7 +283,7 @@ public class ReleaseGroupIndex extends DatabaseIndex {
         if(ac!=null) {
             ArtistCreditHelper.buildIndexFieldsFromArtistCredit
                (doc,
-                ac.getArtistCredit(),
+                ac,
                 ReleaseGroupIndexField.ARTIST,
                 ReleaseGroupIndexField.ARTIST_NAMECREDIT,
                 ReleaseGroupIndexField.ARTIST_ID,
@@ -338,6 +300,7 @@ public class ReleaseGroupIndex extends DatabaseIndex {
                 doc.addField(ReleaseGroupIndexField.TAGCOUNT, tag.getCount().toString());
             }
         }
+        SuggestHelper.setWeight(doc, tags.get(id), releases.containsKey(id) ? releases.get(id).size() : 0, 1.0f);
 
         return doc.getLuceneDocument();
     }
@@ -41,6 +41,7 @@ import java.io.IOException;
 import java.math.BigInteger;
 import java.sql.*;
 import java.util.*;
+import java.util.concurrent.atomic.AtomicLong;
 
 public class  ReleaseIndex extends DatabaseIndex {
 
@@ -52,7 +53,8 @@ public class  ReleaseIndex extends DatabaseIndex {
     private StopWatch artistClock = new StopWatch();
     private StopWatch releaseClock = new StopWatch();
     private StopWatch buildClock = new StopWatch();
-    private StopWatch storeClock = new StopWatch();
+    // Time spent serializing the store, summed over the threads adding documents to the index
+    private final AtomicLong storeTime = new AtomicLong();
 
     public static final String INDEX_NAME = "release";
 
@@ -64,14 +66,12 @@ public class  ReleaseIndex extends DatabaseIndex {
         artistClock.start();
         releaseClock.start();
         buildClock.start();
-        storeClock.start();
         labelClock.suspend();
         mediumClock.suspend();
         puidClock.suspend();
         artistClock.suspend();
         releaseClock.suspend();
         buildClock.suspend();
-        storeClock.suspend();
     }
 
     public ReleaseIndex() {
@@ -90,6 +90,11 @@ public class  ReleaseIndex extends DatabaseIndex {
 		return ReleaseIndexField.ID;
 	}
 
+	@Override
+	public IndexField[] getFuzzyFields() {
+		return new IndexField[] { ReleaseIndexField.RELEASE, ReleaseIndexField.ARTIST, ReleaseIndexField.LABEL };
+	}
+
     public int getMaxId() throws SQLException {
         Statement st = dbConnection.createStatement();
         ResultSet rs = st.executeQuery("SELECT MAX(id) FROM release");
@@ -125,47 +130,14 @@ public class  ReleaseIndex extends DatabaseIndex {
         );
 
         addPreparedStatement("ARTISTCREDITS",
-                "SELECT r.id as releaseId, " +
-                "  a.artist_credit, " +
-                "  a.pos, " +
-                "  a.joinphrase, " +
-                "  a.artistId,  " +
-                "  a.comment, " +
-                "  a.artistName, " +
-                "  a.artistCreditName, " +
-                "  a.artistSortName " +
-                " FROM release AS r " +
-                "  INNER JOIN tmp_artistcredit a ON r.artist_credit=a.artist_credit " +
-                " WHERE r.id BETWEEN ? AND ?  " +
-                " ORDER BY r.id, a.pos");
-
-        addPreparedStatement("ARTISTCREDITALIASES",
-                "SELECT r.id as releaseId," +
-                " a.artist_credit, " +
-                " a.pos, " +
-                " aa.name," +
-                " aa.sort_name," +
-                " aa.primary_for_locale," +
-                " aa.locale," +
-                " aa.begin_date_year," +
-                " aa.begin_date_month," +
-                " aa.begin_date_day," +
-                " aa.end_date_year," +
-                " aa.end_date_month," +
-                " aa.end_date_day," +
-                " att.name as type" +
+                "SELECT r.id as releaseId, r.artist_credit " +
                 " FROM release AS r " +
-                "  INNER JOIN tmp_artistcredit a ON r.artist_credit=a.artist_credit " +
-                "  INNER JOIN artist_alias aa ON a.id=aa.artist" +
-                "  LEFT  JOIN artist_alias_type att on (aa.type=att.id)" +
-                " WHERE r.id BETWEEN ? AND ?  " +
-                " AND a.artistId!='" + ArtistIndex.VARIOUS_ARTIST_MBID +"'" +
-                " AND a.artistId!='" + ArtistIndex.UNKNOWN_ARTIST_MBID  +"'" +
-                " ORDER BY r.id, a.pos, aa.name");
+                " WHERE r.id BETWEEN ? AND ? ");
+        addArtistCreditLookups(isUpdater);
 
         addPreparedStatement("SECONDARYTYPES",
                 "SELECT rg.name as type, r.id as rid" +
-                " FROM tmp_release r " +
+                " FROM " + getCommonTable("tmp_release") + " r " +
                 " INNER JOIN release_group_secondary_type_join  rgj " +
                 " ON r.rg_id=rgj.release_group " +
                 " INNER JOIN release_group_secondary_type rg  " +
@@ -177,13 +149,13 @@ public class  ReleaseIndex extends DatabaseIndex {
                 "  barcode, " +
                 "  type, rg_gid, amazon_asin, " +
                 "  language, language_2t, script, status, comment, quality, packaging " +
-                " FROM tmp_release rl " +
+                " FROM " + getCommonTable("tmp_release") + " rl " +
                 " WHERE id BETWEEN ? AND ? ");
 
         addPreparedStatement("RELEASE_EVENTS",
                 " SELECT release, country, " +
                 "   date_year, date_month, date_day, name, gid"+
-                " FROM tmp_release_event r1 " +
+                " FROM " + getCommonTable("tmp_release_event") + " r1 " +
                 " WHERE release BETWEEN ? AND ? ");
 
         addPreparedStatement("TAGS", TagHelper.constructTagQuery("release_tag", "release"));
@@ -200,7 +172,7 @@ public class  ReleaseIndex extends DatabaseIndex {
             System.out.println(this.getName()+":Puids Queries "    + Utils.formatClock(puidClock));
             System.out.println(this.getName()+":Releases Queries " + Utils.formatClock(releaseClock));
             System.out.println(this.getName() + ":Build Index " + Utils.formatClock(buildClock));
-            System.out.println(this.getName() + ":Build Store " + Utils.formatClock(storeClock));
+            System.out.println(this.getName() + ":Build Store " + Utils.formatNanos(storeTime.get()) + " (all threads)");
 
         }
         catch(Exception ex)
@@ -258,7 +230,7 @@ public class  ReleaseIndex extends DatabaseIndex {
     public void indexData(IndexWriter indexWriter, int min, int max) throws SQLException, IOException {
 
         Map<Integer, List<ReleaseEvent>> releaseEvents      = loadReleaseEvents(min, max);
-        Map<Integer,List<Tag>> tags = TagHelper.loadTags(min, max, getPreparedStatement("TAGS"), "release");
+        IntListMultimap<Tag> tags = TagHelper.loadTags(min, max, getPreparedStatement("TAGS"), "release");
 
         //A particular release can have multiple catalog nos, labels when released as an imprint, typically used
         //by major labels
@@ -316,7 +288,7 @@ public class  ReleaseIndex extends DatabaseIndex {
 
         //Artist Credits
         artistClock.resume();
-        Map<Integer, ArtistCreditWrapper> artistCredits = updateArtistCreditWithAliases(loadArtistCredits(min, max),min, max);
+        Map<Integer, ArtistCreditWrapper> artistCredits = loadArtistCredits(min, max);
         artistClock.suspend();
 
         Map<Integer, List<String>> secondaryTypes = loadSecondaryTypes(min, max);
@@ -343,35 +315,17 @@ public class  ReleaseIndex extends DatabaseIndex {
      */
     private Map<Integer, ArtistCreditWrapper> loadArtistCredits(int min, int max) throws SQLException, IOException {
 
-        //Artist Credits
+        //Artist Credits, from the artist credit store
         PreparedStatement st = getPreparedStatement("ARTISTCREDITS");
         st.setInt(1, min);
         st.setInt(2, max);
-        ResultSet rs = st.executeQuery();
-        Map<Integer, ArtistCreditWrapper> artistCredits
-                = ArtistCreditHelper.completeArtistCreditFromDbResults(rs, "releaseId", "artist_Credit", "artistId", "artistName", "artistSortName", "comment", "joinphrase", "artistCreditName");
-        rs.close();
-        return artistCredits;
-    }
-
-    private Map<Integer, ArtistCreditWrapper> updateArtistCreditWithAliases(
-            Map<Integer, ArtistCreditWrapper> artistCredits,
-            int min,
-            int max)
-            throws SQLException, IOException {
-
-        //Artist Credit Aliases
-        PreparedStatement st = getPreparedStatement("ARTISTCREDITALIASES");
-        st.setInt(1, min);
-        st.setInt(2, max);
-        ResultSet rs = st.executeQuery();
-        return ArtistCreditHelper.updateArtistCreditWithAliases(artistCredits,"releaseId", rs);
+        return loadArtistCredits(st.executeQuery(), "releaseId");
     }
 
 
     public Document documentFromResultSet(ResultSet rs,
                                           Map<Integer, List<String>> secondaryTypes,
-                                          Map<Integer, List<Tag>> tags,
+                                          IntListMultimap<Tag> tags,
                                           Map<Integer, List<ReleaseEvent>> releaseEvents,
                                           Map<Integer, List<List<String>>> labelInfo,
                                           Map<Integer, List<List<String>>> mediums,
@@ -385,15 +339,21 @@ public class  ReleaseIndex extends DatabaseIndex {
         int id = rs.getInt("id");
         doc.addField(ReleaseIndexField.ID, id);
         doc.addField(ReleaseIndexField.RELEASE_ID, rs.getString("gid"));
+        doc.addDocValuesField(ProjectionIndexField.MBID, rs.getString("gid"));
         release.setId(rs.getString("gid"));
 
         String name = rs.getString("name");
         doc.addField(ReleaseIndexField.RELEASE, name );
+        doc.addField(ReleaseIndexField.RELEASE_PREFIX, name);
+        doc.addField(ReleaseIndexField.RELEASE_SHINGLE, name);
         doc.addField(ReleaseIndexField.RELEASE_ACCENT, name);
+        doc.addDocValuesField(ProjectionIndexField.NAME, name);
+        SuggestHelper.addSuggestion(doc, name);
         release.setTitle(name);
 
         String primaryType = rs.getString("type");
         doc.addFieldOrUnknown(ReleaseIndexField.PRIMARY_TYPE, primaryType);
+        doc.addSortedSetDocValuesField(FacetIndexField.PRIMARY_TYPE, primaryType);
         ReleaseGroup rg = of.createReleaseGroup();
         release.setReleaseGroup(rg);
         if (!Strings.isNullOrEmpty(primaryType)){
@@ -406,6 +366,7 @@ public class  ReleaseIndex extends DatabaseIndex {
             SecondaryTypeList stl = of.createSecondaryTypeList();
             for (String secondaryType : secondaryTypes.get(id)) {
                 doc.addField(ReleaseIndexField.SECONDARY_TYPE, secondaryType);
+                doc.addSortedSetDocValuesField(FacetIndexField.SECONDARY_TYPE, secondaryType);
                 SecondaryType st = new SecondaryType();
                 st.setContent(secondaryType);
                 stl.getSecondaryType().add(st);
@@ -415,6 +376,7 @@ public class  ReleaseIndex extends DatabaseIndex {
 
         String type = ReleaseGroupHelper.calculateOldTypeFromPrimaryType(primaryType, secondaryTypes.get(id));
         doc.addFieldOrUnknown(ReleaseIndexField.TYPE, type);
+        doc.addSortedSetDocValuesField(FacetIndexField.TYPE, type);
         if (!Strings.isNullOrEmpty(type)) {
             release.getReleaseGroup().setType(type);
         }
@@ -425,6 +387,7 @@ public class  ReleaseIndex extends DatabaseIndex {
 
         String status = rs.getString("status");
         doc.addFieldOrUnknown(ReleaseIndexField.STATUS, status);
+        doc.addSortedSetDocValuesField(FacetIndexField.STATUS, status);
         if (!Strings.isNullOrEmpty(status)) {
             Status st = new Status();
             st.setContent(status);
@@ -488,6 +451,7 @@ public class  ReleaseIndex extends DatabaseIndex {
 
         String comment = rs.getString("comment");
         doc.addFieldOrNoValue(ReleaseIndexField.COMMENT, comment);
+        doc.addDocValuesField(ProjectionIndexField.DISAMBIGUATION, comment);
         if (!Strings.isNullOrEmpty(comment)) {
             release.setDisambiguation(comment);
         }
@@ -533,6 +497,7 @@ public class  ReleaseIndex extends DatabaseIndex {
 
                 String mediumFormat = entry.get(0);
                 doc.addFieldOrNoValue(ReleaseIndexField.FORMAT, mediumFormat);
+                doc.addSortedSetDocValuesField(FacetIndexField.FORMAT, mediumFormat);
                 if(mediumFormat!=null && !mediumFormat.isEmpty()) {
                     Format format = new Format();
                     format.setContent(mediumFormat);
@@ -603,6 +568,7 @@ public class  ReleaseIndex extends DatabaseIndex {
             }
             release.setTagList(tagList);
         }
+        SuggestHelper.setWeight(doc, tags.get(id), 0, 1.0f);
 
         if (releaseEvents.containsKey(id)) {
             ReleaseEventList rel = of.createReleaseEventList();
@@ -611,6 +577,7 @@ public class  ReleaseIndex extends DatabaseIndex {
                 if(releaseEvent.getArea()!=null) {
                     String nextCountry  = releaseEvent.getArea().getIso31661CodeList().getIso31661Code().get(0);
                     doc.addNonEmptyField(ReleaseIndexField.COUNTRY,nextCountry);
+                    doc.addSortedSetDocValuesField(FacetIndexField.COUNTRY, nextCountry);
                 }
                 String nextDate     = releaseEvent.getDate();
                 doc.addNonEmptyField(ReleaseIndexField.DATE, nextDate );
@@ -635,11 +602,8 @@ public class  ReleaseIndex extends DatabaseIndex {
         }
 
 
+        doc.addStoreField(ReleaseIndexField.RELEASE_STORE, release, storeTime);
         buildClock.suspend();
-        storeClock.resume();
-        String store = MMDSerializer.serialize(release);
-        doc.addField(ReleaseIndexField.RELEASE_STORE, store);
-        storeClock.suspend();
         return doc.getLuceneDocument();
     }
 
@@ -36,6 +36,8 @@ public enum ReleaseIndexField implements IndexField {
     QUALITY             ("quality",		    MusicBrainzFieldTypes.TEXT_NOT_STORED_ANALYZED_NO_NORMS, new CaseInsensitiveKeywordAnalyzer()),
     RELEASE			    ("release",		    MusicBrainzFieldTypes.TEXT_STORED_ANALYZED, new TitleAnalyzer()),
     RELEASE_ACCENT      ("releaseaccent",   MusicBrainzFieldTypes.TEXT_NOT_STORED_ANALYZED, new MusicbrainzKeepAccentsAnalyzer()),
+    RELEASE_PREFIX      ("releaseprefix",   MusicBrainzFieldTypes.TEXT_NOT_STORED_ANALYZED_NO_NORMS, new PrefixAnalyzer(new TitleAnalyzer())),
+    RELEASE_SHINGLE     ("releaseshingle",  MusicBrainzFieldTypes.TEXT_NOT_STORED_ANALYZED, new ShingleAnalyzer(new TitleAnalyzer())),
     RELEASE_ID		    ("reid",		    MusicBrainzFieldTypes.TEXT_STORED_NOT_ANALYZED_NO_NORMS, new KeywordAnalyzer()),
     RELEASEGROUP_ID	    ("rgid",			MusicBrainzFieldTypes.TEXT_NOT_STORED_NOT_ANALYZED_NO_NORMS, new KeywordAnalyzer()),
     SCRIPT			    ("script",		    MusicBrainzFieldTypes.TEXT_NOT_STORED_ANALYZED, new CaseInsensitiveKeywordAnalyzer()),
@@ -28,6 +28,8 @@ import org.musicbrainz.mmd2.*;
 import org.musicbrainz.search.MbDocument;
 import org.musicbrainz.search.analysis.MusicbrainzSimilarity;
 import org.musicbrainz.search.helper.AliasHelper;
+import org.musicbrainz.search.helper.IntListMultimap;
+import org.musicbrainz.search.helper.IntObjectMap;
 import org.musicbrainz.search.helper.TagHelper;
 
 import java.io.IOException;
@@ -102,8 +104,8 @@ public class SeriesIndex extends DatabaseIndex {
 
 
     public void indexData(IndexWriter indexWriter, int min, int max) throws SQLException, IOException {
-        Map<Integer, Set<Alias>> aliases = AliasHelper.completeFromDbResults(min, max, getPreparedStatement("ALIASES"));
-        Map<Integer,List<Tag>> tags = TagHelper.loadTags(min, max, getPreparedStatement("TAGS"), "series");
+        IntObjectMap<Set<Alias>> aliases = AliasHelper.completeFromDbResults(min, max, getPreparedStatement("ALIASES"));
+        IntListMultimap<Tag> tags = TagHelper.loadTags(min, max, getPreparedStatement("TAGS"), "series");
 
         // Get series
         PreparedStatement st = getPreparedStatement("SERIES");
@@ -116,7 +118,7 @@ public class SeriesIndex extends DatabaseIndex {
         rs.close();
     }
 
-    public Document documentFromResultSet(ResultSet rs, Map<Integer, List<Tag>> tags, Map<Integer, Set<Alias>> aliases) throws SQLException {
+    public Document documentFromResultSet(ResultSet rs, IntListMultimap<Tag> tags, IntObjectMap<Set<Alias>> aliases) throws SQLException {
 
         MbDocument doc = new MbDocument();
 
@@ -161,8 +163,7 @@ public class SeriesIndex extends DatabaseIndex {
         }
 
 
-        String store = MMDSerializer.serialize(series);
-        doc.addField(SeriesIndexField.SERIES_STORE, store);
+        doc.addStoreField(SeriesIndexField.SERIES_STORE, series);
         return doc.getLuceneDocument();
     }
 
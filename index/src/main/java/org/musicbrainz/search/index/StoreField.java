@@ -0,0 +1,45 @@
+package org.musicbrainz.search.index;
+
+import org.apache.lucene.document.Field;
+import org.apache.lucene.document.FieldType;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Stored field holding an MMD object that is only serialized to xml when the index writer reads the value.
+ *
+ * Serializing the store was done on the thread reading the database while building each document, so was not sped up
+ * by the ThreadedIndexWriter. Added to a ThreadedIndexWriter the object is now serialized by the thread adding the
+ * document to the index, added to a plain IndexWriter it is still serialized by the calling thread. The object must
+ * not be changed once the field has been added to a document.
+ */
+public class StoreField extends Field {
+
+    private Object store;
+    private final AtomicLong serializeTime;
+
+    /**
+     * @param name
+     * @param type stored type of the field
+     * @param store object to serialize
+     * @param serializeTime nanoseconds spent serializing are added to this, may be null
+     */
+    public StoreField(String name, FieldType type, Object store, AtomicLong serializeTime) {
+        super(name, type);
+        this.store = store;
+        this.serializeTime = serializeTime;
+    }
+
+    @Override
+    public String stringValue() {
+        if (fieldsData == null) {
+            long start = System.nanoTime();
+            fieldsData = MMDSerializer.serialize(store);
+            store = null;
+            if (serializeTime != null) {
+                serializeTime.addAndGet(System.nanoTime() - start);
+            }
+        }
+        return (String) fieldsData;
+    }
+}
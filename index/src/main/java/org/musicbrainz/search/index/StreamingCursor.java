@@ -0,0 +1,107 @@
+package org.musicbrainz.search.index;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+/**
+ * A single query over the whole id range of an index, ordered by entity id, that is read a window of ids at a time.
+ *
+ * Several cursors are read side by side (a merge join on the entity id), the window for each range of ids returns only
+ * the rows for those ids and leaves the cursor on the first row of the next range, so the existing code that loads a
+ * map from the ResultSet of a chunked query can be used unchanged. With a fetch size set and autocommit off the
+ * Postgres driver uses a server side cursor, so only a fetch size of rows is held in memory however many are read.
+ */
+public class StreamingCursor {
+
+    public static final int FETCH_SIZE = 10000;
+
+    private final PreparedStatement statement;
+    private final ResultSet rs;
+    private final String keyColumn;
+
+    // The result set is on a row that has been read but not yet returned by a window
+    private boolean isPending;
+    private boolean isExhausted;
+
+    /**
+     * @param statement query ordered by the key column, parameters already set
+     * @param keyColumn column holding the entity id
+     * @throws SQLException
+     */
+    public StreamingCursor(PreparedStatement statement, String keyColumn) throws SQLException {
+        this.statement = statement;
+        this.keyColumn = keyColumn;
+        statement.setFetchSize(FETCH_SIZE);
+        this.rs = statement.executeQuery();
+    }
+
+    /**
+     * Rows before min are skipped, in case the previous window was not read to the end.
+     *
+     * @param min
+     * @param max
+     * @return a view of the rows with ids from min to max, next() returns false at the first row after max, close()
+     * does nothing
+     */
+    public ResultSet window(int min, int max) {
+        return (ResultSet) Proxy.newProxyInstance(
+                ResultSet.class.getClassLoader(),
+                new Class[]{ResultSet.class},
+                new Window(min, max));
+    }
+
+    private boolean next(int min, int max) throws SQLException {
+        while (true) {
+            if (!isPending) {
+                if (isExhausted || !rs.next()) {
+                    isExhausted = true;
+                    return false;
+                }
+                isPending = true;
+            }
+            int key = rs.getInt(keyColumn);
+            if (key > max) {
+                return false;
+            }
+            isPending = false;
+            if (key >= min) {
+                return true;
+            }
+        }
+    }
+
+    public void close() throws SQLException {
+        rs.close();
+        statement.close();
+    }
+
+    private class Window implements InvocationHandler {
+
+        private final int min;
+        private final int max;
+
+        public Window(int min, int max) {
+            this.min = min;
+            this.max = max;
+        }
+
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            String name = method.getName();
+            if (name.equals("next")) {
+                return next(min, max);
+            } else if (name.equals("close")) {
+                return null;
+            }
+            try {
+                return method.invoke(rs, args);
+            } catch (InvocationTargetException e) {
+                throw e.getCause();
+            }
+        }
+    }
+}
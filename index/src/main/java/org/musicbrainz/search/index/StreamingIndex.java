@@ -0,0 +1,24 @@
+package org.musicbrainz.search.index;
+
+import org.apache.lucene.index.IndexWriter;
+
+import java.io.IOException;
+import java.sql.SQLException;
+
+/**
+ * A database index that can be built in one pass, with one ordered cursor for each of its queries (see
+ * StreamingCursor) rather than running every query again for each chunk of ids.
+ */
+public interface StreamingIndex {
+
+    /**
+     * Index every row from id 0 to maxId, must be called after init()
+     *
+     * @param indexWriter
+     * @param maxId
+     * @param windowSize number of ids whose documents are built together
+     * @throws SQLException
+     * @throws IOException
+     */
+    public void indexDataStreaming(IndexWriter indexWriter, int maxId, int windowSize) throws SQLException, IOException;
+}
@@ -0,0 +1,52 @@
+/*
+ * MusicBrainz Search Server
+ * Copyright (C) 2009  Paul Taylor
+
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301, USA.
+ */
+
+package org.musicbrainz.search.index;
+
+import org.apache.lucene.analysis.Analyzer;
+import org.apache.lucene.document.FieldType;
+
+/**
+ * DocValues fields holding the names to suggest for a document and how popular it is, read once the index has been
+ * built to create the suggester, not searchable.
+ */
+public enum SuggestIndexField implements IndexField {
+
+    SUGGEST         ("dv_suggest"),
+    SUGGEST_WEIGHT  ("dv_suggestweight"),
+    ;
+
+    private String name;
+
+    private SuggestIndexField(String name) {
+        this.name = name;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public Analyzer getAnalyzer() {
+        return null;
+    }
+
+    public FieldType getFieldType() {
+        return null;
+    }
+}
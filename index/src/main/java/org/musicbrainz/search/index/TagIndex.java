@@ -23,6 +23,7 @@ import org.apache.lucene.analysis.Analyzer;
 import org.apache.lucene.document.Document;
 import org.apache.lucene.index.IndexWriter;
 import org.musicbrainz.search.MbDocument;
+import org.musicbrainz.search.helper.SuggestHelper;
 
 import java.io.IOException;
 import java.sql.*;
@@ -94,6 +95,7 @@ public class TagIndex extends DatabaseIndex {
         MbDocument doc = new MbDocument();
         doc.addField(TagIndexField.ID, rs.getString("id"));
         doc.addField(TagIndexField.TAG, rs.getString("name"));
+        SuggestHelper.addSuggestion(doc, rs.getString("name"));
         return doc.getLuceneDocument();
     }
 
@@ -20,85 +20,324 @@
 package org.musicbrainz.search.index;
 
 import org.apache.lucene.analysis.Analyzer;
-import org.apache.lucene.document.Document;
 import org.apache.lucene.index.IndexWriter;
 import org.apache.lucene.index.IndexWriterConfig;
+import org.apache.lucene.index.IndexableField;
 import org.apache.lucene.index.Term;
+import org.apache.lucene.search.Query;
 import org.apache.lucene.store.Directory;
 
 import java.io.IOException;
-import java.util.concurrent.ArrayBlockingQueue;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
 import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
 import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
 
+/**
+ * IndexWriter that analyses and adds documents on a pool of threads, so the thread building documents from the
+ * database can go on to the next query rather than waiting for each document to be analysed.
+ *
+ * Documents added or updated are queued, once the number of queued documents reaches the watermark the threads adding
+ * them wait for the queue to go back under it, rather than analysing documents themselves. Documents added with
+ * addDocuments() or updateDocuments() are kept together and analysed by one thread, so batches should be small.
+ *
+ * If adding a document fails on a pool thread the remaining queued documents are dropped and the failure is thrown
+ * by the next call adding, deleting, merging or closing. Deletes and merges wait for the queued documents first so they
+ * apply to every document added before them, but queued documents are analysed in no particular order so a document
+ * should not be updated while an earlier version of it may still be queued. commit() can't be overridden so call
+ * waitForQueuedDocuments() before committing.
+ *
+ * Several writers can share one pool of analysis threads, so when indexes are built at the same time the threads are
+ * not tied to one index and go to whichever index still has documents queued. A writer only shuts down a pool it
+ * created, closing a writer sharing a pool waits for its own queued documents.
+ */
 public class ThreadedIndexWriter extends IndexWriter {
-    private ExecutorService threadPool;
-    private Analyzer defaultAnalyzer;
 
+    private final ExecutorService threadPool;
+    private final boolean isSharedThreadPool;
+    private final Analyzer defaultAnalyzer;
+    private final int maxQueuedDocuments;
+
+    // Guards the queue counts and stats, and is waited on by threads waiting for the queue to empty or go under the
+    // watermark
+    private final Object queue = new Object();
+    private int queuedDocuments;
+    private int maxQueueDepth;
+    private long queueDepthTotal;
+    private long noOfJobs;
+    private long noOfStalls;
+    private long stallTime;
+    private long firstQueued;
+    private long lastAnalysed;
+
+    private final AtomicLong analysedDocuments = new AtomicLong();
+    private final AtomicLong analysisTime = new AtomicLong();
+    private volatile Throwable failure;
+
+    /**
+     * Documents queued together, added to the index as a block if they were added with addDocuments() or
+     * updateDocuments()
+     */
     private class Job implements Runnable {
-        Document doc;
-        Analyzer analyzer;
+        private final Term term;
+        private final List<? extends Iterable<? extends IndexableField>> docs;
+        private final Analyzer analyzer;
+        private final boolean block;
 
-        public Job(Document doc, Analyzer analyzer) {
-            this.doc = doc;
+        public Job(Term term, List<? extends Iterable<? extends IndexableField>> docs, Analyzer analyzer, boolean block) {
+            this.term = term;
+            this.docs = docs;
             this.analyzer = analyzer;
+            this.block = block;
         }
 
         public void run() {
+            long start = System.nanoTime();
             try {
-
-                ThreadedIndexWriter.super.addDocument(doc, analyzer);
-            } catch (IOException ioe) {
-                ioe.printStackTrace(System.err);
+                if (failure == null) {
+                    // Call the IndexWriter methods taking a term, addDocument() would call back into this class
+                    if (block) {
+                        ThreadedIndexWriter.super.updateDocuments(term, docs, analyzer);
+                    } else {
+                        ThreadedIndexWriter.super.updateDocument(term, docs.get(0), analyzer);
+                    }
+                    analysedDocuments.addAndGet(docs.size());
+                }
+            } catch (Throwable t) {
+                fail(t);
+            } finally {
+                analysisTime.addAndGet(System.nanoTime() - start);
+                dequeued(docs.size());
             }
         }
     }
 
+    /**
+     * @param dir
+     * @param config
+     * @param numThreads number of threads analysing documents
+     * @param maxQueuedDocuments watermark of queued documents at which threads adding documents wait, at least two
+     *                           for each analysis thread are allowed so none are left waiting for work
+     * @throws IOException
+     */
     public ThreadedIndexWriter(Directory dir,
                                IndexWriterConfig config,
                                int numThreads,
-                               int maxQueueSize)
+                               int maxQueuedDocuments)
 
             throws  IOException
 
     {
-        super(dir, config);
-        defaultAnalyzer = config.getAnalyzer();
-        threadPool = new ThreadPoolExecutor(
+        this(dir, config, new ThreadPoolExecutor(
                 numThreads, numThreads, 0,
                 TimeUnit.SECONDS,
-                new ArrayBlockingQueue<Runnable>(maxQueueSize, false),
-                new ThreadPoolExecutor.CallerRunsPolicy());
+                new LinkedBlockingQueue<Runnable>()), false, numThreads, maxQueuedDocuments);
+    }
+
+    /**
+     * @param dir
+     * @param config
+     * @param threadPool analysis threads shared with other writers, left running when this writer is closed
+     * @param numThreads number of threads in the pool
+     * @param maxQueuedDocuments watermark of queued documents at which threads adding documents wait, at least two
+     *                           for each analysis thread are allowed so none are left waiting for work
+     * @throws IOException
+     */
+    public ThreadedIndexWriter(Directory dir,
+                               IndexWriterConfig config,
+                               ExecutorService threadPool,
+                               int numThreads,
+                               int maxQueuedDocuments)
+
+            throws  IOException
+
+    {
+        this(dir, config, threadPool, true, numThreads, maxQueuedDocuments);
+    }
+
+    private ThreadedIndexWriter(Directory dir,
+                                IndexWriterConfig config,
+                                ExecutorService threadPool,
+                                boolean isSharedThreadPool,
+                                int numThreads,
+                                int maxQueuedDocuments)
+
+            throws  IOException
+
+    {
+        super(dir, config);
+        defaultAnalyzer = config.getAnalyzer();
+        this.maxQueuedDocuments = Math.max(maxQueuedDocuments, numThreads * 2);
+        this.threadPool = threadPool;
+        this.isSharedThreadPool = isSharedThreadPool;
+    }
+
+    private void fail(Throwable t) {
+        synchronized (queue) {
+            if (failure == null) {
+                failure = t;
+            }
+            queue.notifyAll();
+        }
+    }
+
+    private void checkFailure() throws IOException {
+        if (failure != null) {
+            throw new IOException("Adding documents failed on an analysis thread", failure);
+        }
+    }
+
+    /**
+     * Queue the documents, waiting first if the queue is at the watermark
+     */
+    private void execute(Job job) throws IOException {
+        synchronized (queue) {
+            checkFailure();
+            if (queuedDocuments >= maxQueuedDocuments) {
+                long start = System.nanoTime();
+                noOfStalls++;
+                try {
+                    while (queuedDocuments >= maxQueuedDocuments && failure == null) {
+                        queue.wait();
+                    }
+                } catch (InterruptedException ie) {
+                    Thread.currentThread().interrupt();
+                    throw new RuntimeException(ie);
+                } finally {
+                    stallTime += System.nanoTime() - start;
+                }
+                checkFailure();
+            }
+            if (noOfJobs == 0) {
+                firstQueued = System.nanoTime();
+            }
+            queuedDocuments += job.docs.size();
+            maxQueueDepth = Math.max(maxQueueDepth, queuedDocuments);
+            queueDepthTotal += queuedDocuments;
+            noOfJobs++;
+        }
+        threadPool.execute(job);
+    }
+
+    private void dequeued(int noOfDocuments) {
+        synchronized (queue) {
+            queuedDocuments -= noOfDocuments;
+            lastAnalysed = System.nanoTime();
+            queue.notifyAll();
+        }
+    }
+
+    /**
+     * Wait for every queued document to be added to the index
+     *
+     * @throws IOException if adding a document failed
+     */
+    public void waitForQueuedDocuments() throws IOException {
+        awaitEmptyQueue();
+        checkFailure();
+    }
+
+    private void awaitEmptyQueue() {
+        synchronized (queue) {
+            try {
+                while (queuedDocuments > 0) {
+                    queue.wait();
+                }
+            } catch (InterruptedException ie) {
+                Thread.currentThread().interrupt();
+                throw new RuntimeException(ie);
+            }
+        }
+    }
+
+    private static List<Iterable<? extends IndexableField>> toList(Iterable<? extends Iterable<? extends IndexableField>> docs) {
+        List<Iterable<? extends IndexableField>> list = new ArrayList<Iterable<? extends IndexableField>>();
+        for (Iterable<? extends IndexableField> doc : docs) {
+            list.add(doc);
+        }
+        return list;
     }
 
-    public void addDocument(Document doc) {
-        threadPool.execute(new Job(doc, defaultAnalyzer));
+    public void addDocument(Iterable<? extends IndexableField> doc) throws IOException {
+        updateDocument(null, doc, defaultAnalyzer);
     }
 
-    public void addDocument(Document doc, Analyzer a) {
-        threadPool.execute(new Job(doc,  a));
+    public void addDocument(Iterable<? extends IndexableField> doc, Analyzer a) throws IOException {
+        updateDocument(null, doc, a);
     }
 
-    public void updateDocument(Term term, Document doc) {
-        throw new UnsupportedOperationException();
+    public void addDocuments(Iterable<? extends Iterable<? extends IndexableField>> docs) throws IOException {
+        updateDocuments(null, docs, defaultAnalyzer);
+    }
 
+    public void addDocuments(Iterable<? extends Iterable<? extends IndexableField>> docs, Analyzer a) throws IOException {
+        updateDocuments(null, docs, a);
     }
 
-    public void updateDocument(Term term, Document doc, Analyzer a) {
+    public void updateDocument(Term term, Iterable<? extends IndexableField> doc) throws IOException {
+        updateDocument(term, doc, defaultAnalyzer);
+    }
+
+    public void updateDocument(Term term, Iterable<? extends IndexableField> doc, Analyzer a) throws IOException {
+        execute(new Job(term, Collections.<Iterable<? extends IndexableField>>singletonList(doc), a, false));
+    }
 
-        throw new UnsupportedOperationException();
+    public void updateDocuments(Term term, Iterable<? extends Iterable<? extends IndexableField>> docs) throws IOException {
+        updateDocuments(term, docs, defaultAnalyzer);
+    }
+
+    public void updateDocuments(Term term, Iterable<? extends Iterable<? extends IndexableField>> docs, Analyzer a) throws IOException {
+        List<Iterable<? extends IndexableField>> list = toList(docs);
+        if (!list.isEmpty()) {
+            execute(new Job(term, list, a, true));
+        }
+    }
+
+    public void deleteDocuments(Term term) throws IOException {
+        waitForQueuedDocuments();
+        super.deleteDocuments(term);
+    }
+
+    public void deleteDocuments(Term... terms) throws IOException {
+        waitForQueuedDocuments();
+        super.deleteDocuments(terms);
+    }
+
+    public void deleteDocuments(Query query) throws IOException {
+        waitForQueuedDocuments();
+        super.deleteDocuments(query);
+    }
+
+    public void deleteDocuments(Query... queries) throws IOException {
+        waitForQueuedDocuments();
+        super.deleteDocuments(queries);
+    }
+
+    public void forceMerge(int maxNumSegments) throws IOException {
+        waitForQueuedDocuments();
+        super.forceMerge(maxNumSegments);
+    }
+
+    public void forceMerge(int maxNumSegments, boolean doWait) throws IOException {
+        waitForQueuedDocuments();
+        super.forceMerge(maxNumSegments, doWait);
     }
 
     public void close() throws  IOException {
         finish();
         super.close();
+        checkFailure();
     }
 
     public void close(boolean doWait) throws IOException {
         finish();
 
         super.close(doWait);
+        checkFailure();
     }
 
     public void rollback() throws IOException {
@@ -107,6 +346,11 @@ public class ThreadedIndexWriter extends IndexWriter {
     }
 
     private void finish() {
+        if (isSharedThreadPool) {
+            // Jobs still run after a failure, dropping their documents, so the queue always empties
+            awaitEmptyQueue();
+            return;
+        }
         threadPool.shutdown();
         while (true) {
             try {
@@ -119,4 +363,20 @@ public class ThreadedIndexWriter extends IndexWriter {
             }
         }
     }
-}
\ No newline at end of file
+
+    /**
+     * @return documents analysed and their rate, how full the queue got, and how long threads adding documents
+     * waited for it
+     */
+    public String getStats() {
+        synchronized (queue) {
+            long elapsed = lastAnalysed - firstQueued;
+            long perSecond = elapsed > 0 ? analysedDocuments.get() * 1000000000L / elapsed : 0;
+            long meanQueueDepth = noOfJobs > 0 ? queueDepthTotal / noOfJobs : 0;
+            return "Analysed " + analysedDocuments.get() + " docs (" + perSecond + " docs/sec) Analysis "
+                    + Utils.formatNanos(analysisTime.get()) + " (all threads) Queue max " + maxQueueDepth + " mean "
+                    + meanQueueDepth + " watermark " + maxQueuedDocuments + " Stalled " + Utils.formatNanos(stallTime)
+                    + " (" + noOfStalls + " times)";
+        }
+    }
+}
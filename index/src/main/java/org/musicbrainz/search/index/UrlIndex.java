@@ -141,8 +141,7 @@ public class UrlIndex extends DatabaseIndex {
         relationList.getRelation().add(relation);
         url.getRelationList().add(relationList);
 
-        String store = MMDSerializer.serialize(url);
-        doc.addField(UrlIndexField.URL_STORE, store);
+        doc.addStoreField(UrlIndexField.URL_STORE, url);
 
         return doc.getLuceneDocument();
     }
@@ -48,6 +48,17 @@ public class Utils {
         return Float.toString(clock.getTime()/1000) + " secs";
     }
 
+    /**
+     * Format time measured in nanoseconds, such as time summed over several threads, for output
+     *
+     * @param nanos
+     * @return
+     */
+    public static String formatNanos(long nanos)
+    {
+        return Float.toString(nanos/1000000000) + " secs";
+    }
+
     /**
      * Format current date as time for output
      *
@@ -20,15 +20,17 @@
 package org.musicbrainz.search.index;
 
 import com.google.common.base.Strings;
-import com.google.common.collect.ArrayListMultimap;
 import org.apache.lucene.analysis.Analyzer;
 import org.apache.lucene.document.Document;
 import org.apache.lucene.index.IndexWriter;
 import org.musicbrainz.mmd2.*;
 import org.musicbrainz.search.MbDocument;
 import org.musicbrainz.search.helper.AliasHelper;
+import org.musicbrainz.search.helper.IntListMultimap;
+import org.musicbrainz.search.helper.IntObjectMap;
 import org.musicbrainz.search.helper.LinkedArtistsHelper;
 import org.musicbrainz.search.helper.LinkedRecordingsHelper;
+import org.musicbrainz.search.helper.SuggestHelper;
 import org.musicbrainz.search.helper.TagHelper;
 
 import java.io.IOException;
@@ -61,6 +63,11 @@ public class WorkIndex extends DatabaseIndex {
         return WorkIndexField.ID;
     }
 
+    @Override
+    public IndexField[] getFuzzyFields() {
+        return new IndexField[] { WorkIndexField.WORK, WorkIndexField.ALIAS };
+    }
+
     public int getMaxId() throws SQLException {
         Statement st = dbConnection.createStatement();
         ResultSet rs = st.executeQuery("SELECT MAX(id) FROM work");
@@ -174,10 +181,10 @@ public class WorkIndex extends DatabaseIndex {
      */
     public void indexData(IndexWriter indexWriter, int min, int max) throws SQLException, IOException {
 
-        Map<Integer, List<Tag>>              tags               = TagHelper.loadTags(min, max, getPreparedStatement("TAGS"), "work");
-        ArrayListMultimap<Integer, Relation> artistRelations    = LinkedArtistsHelper.loadRelations(min, max, getPreparedStatement("ARTISTS"));
-        ArrayListMultimap<Integer, Relation> recordingRelations = LinkedRecordingsHelper.loadRelations(min, max, getPreparedStatement("RECORDINGS"));
-        Map<Integer, Set<Alias>>             aliases            = AliasHelper.completeFromDbResults(min, max, getPreparedStatement("ALIASES"));
+        IntListMultimap<Tag>      tags               = TagHelper.loadTags(min, max, getPreparedStatement("TAGS"), "work");
+        IntListMultimap<Relation> artistRelations    = LinkedArtistsHelper.loadRelations(min, max, getPreparedStatement("ARTISTS"));
+        IntListMultimap<Relation> recordingRelations = LinkedRecordingsHelper.loadRelations(min, max, getPreparedStatement("RECORDINGS"));
+        IntObjectMap<Set<Alias>>  aliases            = AliasHelper.completeFromDbResults(min, max, getPreparedStatement("ALIASES"));
         Map<Integer, List<String>>           iswcs              = loadISWCs(min,max);
         Map<Integer, List<String>>           languages          = loadLanguages(min, max);
 
@@ -194,10 +201,10 @@ public class WorkIndex extends DatabaseIndex {
     }
 
     public Document documentFromResultSet(ResultSet rs,
-                                          Map<Integer, List<Tag>> tags,
-                                          ArrayListMultimap<Integer, Relation> artistRelations,
-                                          ArrayListMultimap<Integer, Relation> recordingRelations,
-                                          Map<Integer, Set<Alias>>   aliases,
+                                          IntListMultimap<Tag> tags,
+                                          IntListMultimap<Relation> artistRelations,
+                                          IntListMultimap<Relation> recordingRelations,
+                                          IntObjectMap<Set<Alias>>   aliases,
                                           Map<Integer, List<String>> iswcs,
                                           Map<Integer, List<String>> languages
                                           ) throws SQLException {
@@ -210,11 +217,16 @@ public class WorkIndex extends DatabaseIndex {
         String guid = rs.getString("gid");
         doc.addField(WorkIndexField.ID, id);
         doc.addField(WorkIndexField.WORK_ID, guid);
+        doc.addDocValuesField(ProjectionIndexField.MBID, guid);
         work.setId(guid);
 
         String name = rs.getString("name");
         doc.addField(WorkIndexField.WORK, name);
+        doc.addField(WorkIndexField.WORK_PREFIX, name);
+        doc.addField(WorkIndexField.WORK_SHINGLE, name);
         doc.addField(WorkIndexField.WORK_ACCENT, name);
+        doc.addDocValuesField(ProjectionIndexField.NAME, name);
+        SuggestHelper.addSuggestion(doc, name);
         work.setTitle(name);
 
         String type = rs.getString("type");
@@ -226,6 +238,7 @@ public class WorkIndex extends DatabaseIndex {
 
         String comment = rs.getString("comment");
         doc.addFieldOrNoValue(WorkIndexField.COMMENT, comment);
+        doc.addDocValuesField(ProjectionIndexField.DISAMBIGUATION, comment);
         if (!Strings.isNullOrEmpty(comment)) {
             work.setDisambiguation(comment);
         }
@@ -290,9 +303,10 @@ public class WorkIndex extends DatabaseIndex {
         {
             work.setTagList(TagHelper.addTagsToDocAndConstructTagList(of, doc, tags, id, WorkIndexField.TAG));
         }
+        SuggestHelper.addSuggestions(doc, work.getAliasList());
+        SuggestHelper.setWeight(doc, tags.get(id), 0, 1.0f);
 
-        String store = MMDSerializer.serialize(work);
-        doc.addField(WorkIndexField.WORK_STORE, store);
+        doc.addStoreField(WorkIndexField.WORK_STORE, work);
 
         return doc.getLuceneDocument();
     }
@@ -7,6 +7,8 @@ import org.apache.lucene.document.FieldType;
 import org.musicbrainz.search.analysis.CaseInsensitiveKeywordAnalyzer;
 import org.musicbrainz.search.analysis.MusicbrainzKeepAccentsAnalyzer;
 import org.musicbrainz.search.analysis.MusicbrainzWithPosGapAnalyzer;
+import org.musicbrainz.search.analysis.PrefixAnalyzer;
+import org.musicbrainz.search.analysis.ShingleAnalyzer;
 import org.musicbrainz.search.analysis.TitleAnalyzer;
 
 /**
@@ -27,6 +29,8 @@ public enum WorkIndexField implements IndexField {
     TAG		            ("tag",		        MusicBrainzFieldTypes.TEXT_STORED_ANALYZED, new MusicbrainzWithPosGapAnalyzer()),
     WORK			    ("work",		    MusicBrainzFieldTypes.TEXT_STORED_ANALYZED, new TitleAnalyzer()),
     WORK_ACCENT         ("workaccent",      MusicBrainzFieldTypes.TEXT_NOT_STORED_ANALYZED, new MusicbrainzKeepAccentsAnalyzer()),
+    WORK_PREFIX         ("workprefix",      MusicBrainzFieldTypes.TEXT_NOT_STORED_ANALYZED_NO_NORMS, new PrefixAnalyzer(new TitleAnalyzer())),
+    WORK_SHINGLE        ("workshingle",     MusicBrainzFieldTypes.TEXT_NOT_STORED_ANALYZED, new ShingleAnalyzer(new TitleAnalyzer())),
     WORK_ID		        ("wid",		        MusicBrainzFieldTypes.TEXT_STORED_NOT_ANALYZED_NO_NORMS, new KeywordAnalyzer()),
     WORK_STORE		    ("workstore",       MusicBrainzFieldTypes.TEXT_STORED_NOT_INDEXED),
     ;
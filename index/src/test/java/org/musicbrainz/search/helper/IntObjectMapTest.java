@@ -0,0 +1,51 @@
+package org.musicbrainz.search.helper;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class IntObjectMapTest {
+
+    @Test
+    public void testPutAndGetAcrossRehash() throws Exception {
+        IntObjectMap<String> map = new IntObjectMap<String>();
+        for (int i = 0; i < 10000; i++) {
+            assertNull(map.put(i * 7, "value" + i));
+        }
+        assertEquals(10000, map.size());
+        for (int i = 0; i < 10000; i++) {
+            assertEquals("value" + i, map.get(i * 7));
+        }
+        assertFalse(map.containsKey(1));
+        assertNull(map.get(-7));
+        assertEquals(10000, map.keys().length);
+        assertEquals(10000, map.values().size());
+    }
+
+    @Test
+    public void testReplaceValue() throws Exception {
+        IntObjectMap<String> map = new IntObjectMap<String>();
+        map.put(0, "first");
+        assertEquals("first", map.put(0, "second"));
+        assertEquals("second", map.get(0));
+        assertEquals(1, map.size());
+    }
+
+    @Test
+    public void testMultimapKeepsOrderOfValues() throws Exception {
+        IntListMultimap<String> multimap = new IntListMultimap<String>();
+        multimap.put(5, "a");
+        multimap.put(3, "b");
+        multimap.put(5, "c");
+        assertEquals(Arrays.asList("a", "c"), multimap.get(5));
+        assertEquals(Arrays.asList("b"), multimap.get(3));
+        assertTrue(multimap.containsKey(3));
+        assertNull(multimap.get(4));
+        assertEquals(2, multimap.keyCount());
+    }
+}
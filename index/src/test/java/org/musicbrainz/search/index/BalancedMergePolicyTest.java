@@ -0,0 +1,44 @@
+package org.musicbrainz.search.index;
+
+import org.apache.lucene.index.AtomicReaderContext;
+import org.apache.lucene.index.DirectoryReader;
+import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.index.IndexWriterConfig;
+import org.apache.lucene.store.RAMDirectory;
+import org.junit.Test;
+import org.musicbrainz.search.LuceneVersion;
+import org.musicbrainz.search.MbDocument;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class BalancedMergePolicyTest {
+
+    @Test
+    public void testForceMergeIntoBalancedSegments() throws Exception {
+        RAMDirectory ramDir = new RAMDirectory();
+        IndexWriterConfig config = new IndexWriterConfig(LuceneVersion.LUCENE_VERSION,
+                DatabaseIndex.getAnalyzer(ArtistIndexField.class));
+        config.setOpenMode(IndexWriterConfig.OpenMode.CREATE);
+        config.setMaxBufferedDocs(10);
+        config.setMergePolicy(new BalancedMergePolicy());
+        IndexWriter writer = new IndexWriter(ramDir, config);
+        for (int i = 0; i < 200; i++) {
+            MbDocument doc = new MbDocument();
+            doc.addField(ArtistIndexField.ARTIST_ID, Integer.toString(i));
+            doc.addField(ArtistIndexField.ARTIST, "Farming Incident");
+            writer.addDocument(doc.getLuceneDocument());
+        }
+        writer.forceMerge(2);
+        writer.close();
+
+        DirectoryReader ir = DirectoryReader.open(ramDir);
+        assertEquals(200, ir.numDocs());
+        assertEquals(2, ir.leaves().size());
+        for (AtomicReaderContext leaf : ir.leaves()) {
+            assertTrue(leaf.reader().maxDoc() >= 60);
+            assertTrue(leaf.reader().maxDoc() <= 140);
+        }
+        ir.close();
+    }
+}
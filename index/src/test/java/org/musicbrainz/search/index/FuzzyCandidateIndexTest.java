@@ -0,0 +1,130 @@
+package org.musicbrainz.search.index;
+
+import org.apache.lucene.index.DirectoryReader;
+import org.apache.lucene.index.IndexReader;
+import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.index.IndexWriterConfig;
+import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.store.RAMDirectory;
+import org.junit.Test;
+import org.musicbrainz.search.LuceneVersion;
+import org.musicbrainz.search.MbDocument;
+
+import java.io.File;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class FuzzyCandidateIndexTest extends AbstractIndexTest {
+
+    private void addArtist(IndexWriter writer, String name) throws Exception {
+        MbDocument doc = new MbDocument();
+        doc.addField(ArtistIndexField.ARTIST, name);
+        writer.addDocument(doc.getLuceneDocument());
+    }
+
+    private File createTempDir() throws Exception {
+        File dir = File.createTempFile("fuzzy", "");
+        dir.delete();
+        return dir;
+    }
+
+    @Test
+    public void testBuildAndFindCandidates() throws Exception {
+
+        RAMDirectory ramDir = new RAMDirectory();
+        IndexWriter writer = createIndexWriter(ramDir, ArtistIndexField.class);
+        addArtist(writer, "Farming Incident");
+        addArtist(writer, "Farmer");
+        addArtist(writer, "Fairport Convention");
+        writer.close();
+
+        File dir = createTempDir();
+        IndexReader ir = DirectoryReader.open(ramDir);
+        assertTrue(FuzzyCandidateIndex.build(ir, new IndexField[] { ArtistIndexField.ARTIST }, dir));
+        ir.close();
+
+        DirectoryReader candidateReader = FuzzyCandidateIndex.open(dir);
+        try {
+            IndexSearcher searcher = new IndexSearcher(candidateReader);
+            Map<String, Integer> candidates = FuzzyCandidateIndex.findCandidates(searcher,
+                    ArtistIndexField.ARTIST.getName(), "farmin", 4, 2);
+            assertEquals(2, candidates.size());
+            assertEquals(1, candidates.get("farming").intValue());
+            assertEquals(2, candidates.get("farmer").intValue());
+
+            candidates = FuzzyCandidateIndex.findCandidates(searcher, ArtistIndexField.ARTIST.getName(), "farmin", 4, 1);
+            assertEquals(1, candidates.size());
+            assertTrue(candidates.containsKey("farming"));
+
+            candidates = FuzzyCandidateIndex.findCandidates(searcher, ArtistIndexField.SORTNAME.getName(), "farmin", 4, 2);
+            assertTrue(candidates.isEmpty());
+        }
+        finally {
+            candidateReader.close();
+            FuzzyCandidateIndex.delete(dir);
+        }
+    }
+
+    @Test
+    public void testUpdateAddsTermsOfNewSegments() throws Exception {
+
+        RAMDirectory ramDir = new RAMDirectory();
+        IndexWriter writer = createIndexWriter(ramDir, ArtistIndexField.class);
+        addArtist(writer, "Farming Incident");
+        writer.close();
+
+        File dir = createTempDir();
+        IndexReader ir = DirectoryReader.open(ramDir);
+        assertTrue(FuzzyCandidateIndex.build(ir, new IndexField[] { ArtistIndexField.ARTIST }, dir));
+        assertEquals(0, FuzzyCandidateIndex.update(ir, new IndexField[] { ArtistIndexField.ARTIST }, dir));
+        ir.close();
+
+        IndexWriterConfig config = new IndexWriterConfig(LuceneVersion.LUCENE_VERSION, DatabaseIndex.getAnalyzer(ArtistIndexField.class));
+        writer = new IndexWriter(ramDir, config);
+        addArtist(writer, "Farmer Incident");
+        writer.close();
+
+        ir = DirectoryReader.open(ramDir);
+        assertEquals(1, FuzzyCandidateIndex.update(ir, new IndexField[] { ArtistIndexField.ARTIST }, dir));
+        ir.close();
+
+        DirectoryReader candidateReader = FuzzyCandidateIndex.open(dir);
+        try {
+            Map<String, Integer> candidates = FuzzyCandidateIndex.findCandidates(new IndexSearcher(candidateReader),
+                    ArtistIndexField.ARTIST.getName(), "farmin", 4, 2);
+            assertEquals(2, candidates.size());
+            assertEquals(2, candidates.get("farmer").intValue());
+        }
+        finally {
+            candidateReader.close();
+            FuzzyCandidateIndex.delete(dir);
+        }
+    }
+
+    @Test
+    public void testNoFuzzyFields() throws Exception {
+
+        RAMDirectory ramDir = new RAMDirectory();
+        IndexWriter writer = createIndexWriter(ramDir, ArtistIndexField.class);
+        MbDocument doc = new MbDocument();
+        doc.addField(MetaIndexField.META, MetaIndexField.META_VALUE);
+        writer.addDocument(doc.getLuceneDocument());
+        writer.close();
+
+        File dir = createTempDir();
+        IndexReader ir = DirectoryReader.open(ramDir);
+        assertFalse(FuzzyCandidateIndex.build(ir, new IndexField[] { ArtistIndexField.ARTIST }, dir));
+        ir.close();
+        assertNull(FuzzyCandidateIndex.open(dir));
+    }
+
+    @Test
+    public void testDistanceCountsTranspositionAsOneEdit() throws Exception {
+        assertEquals(1, FuzzyCandidateIndex.distance(new int[] { 'a', 'b', 'c' }, new int[] { 'a', 'c', 'b' }));
+        assertEquals(2, FuzzyCandidateIndex.distance(new int[] { 'a', 'b', 'c' }, new int[] { 'a' }));
+    }
+}
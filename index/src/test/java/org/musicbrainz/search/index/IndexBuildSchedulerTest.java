@@ -0,0 +1,31 @@
+package org.musicbrainz.search.index;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+
+public class IndexBuildSchedulerTest {
+
+    @Test
+    public void testReleaseGroupBuiltAfterReleaseOnSameLane() throws Exception {
+        List<List<String>> lanes = IndexBuildScheduler.createLanes(
+                Arrays.asList("recording", "release", "artist", "releasegroup", "area", "tag"));
+        assertEquals(5, lanes.size());
+        assertEquals(Arrays.asList("recording"), lanes.get(0));
+        assertEquals(Arrays.asList("release", "releasegroup"), lanes.get(1));
+        assertEquals(Arrays.asList("artist"), lanes.get(2));
+        assertEquals(Arrays.asList("area"), lanes.get(3));
+        assertEquals(Arrays.asList("tag"), lanes.get(4));
+    }
+
+    @Test
+    public void testReleaseGroupOnOwnLaneWithoutRelease() throws Exception {
+        List<List<String>> lanes = IndexBuildScheduler.createLanes(
+                Arrays.asList("recording", "releasegroup", "url"));
+        assertEquals(3, lanes.size());
+        assertEquals(Arrays.asList("releasegroup"), lanes.get(1));
+    }
+}
@@ -0,0 +1,82 @@
+package org.musicbrainz.search.index;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class KeyLookupTest extends AbstractIndexTest {
+
+    @Before
+    public void setUp() throws Exception {
+        createConnection();
+        Statement stmt = conn.createStatement();
+        stmt.execute("CREATE TABLE release (id INTEGER, name VARCHAR(100))");
+        for (int i = 1; i <= 2000; i++) {
+            stmt.addBatch("INSERT INTO release (id, name) VALUES (" + i + ", 'Release " + i + "')");
+        }
+        stmt.executeBatch();
+        stmt.close();
+    }
+
+    @Test
+    public void testBatchSizes() throws Exception {
+        assertEquals(0, KeyLookup.batchSizeIndex(1));
+        assertEquals(1, KeyLookup.batchSizeIndex(2));
+        assertEquals(1, KeyLookup.batchSizeIndex(8));
+        assertEquals(2, KeyLookup.batchSizeIndex(9));
+        assertEquals(KeyLookup.BATCH_SIZES.length - 1, KeyLookup.batchSizeIndex(100000));
+    }
+
+    @Test
+    public void testLookupAcrossBatches() throws Exception {
+        KeyLookup lookup = new KeyLookup(conn, "SELECT id, name FROM release WHERE id IN ");
+
+        // More keys than the largest batch, so the last batch is padded
+        List<Integer> keys = new ArrayList<Integer>();
+        for (int i = 1; i <= 1500; i++) {
+            keys.add(i);
+        }
+        keys.add(5000);
+
+        Set<Integer> found = new HashSet<Integer>();
+        KeyLookup.Batches batches = lookup.executeBatches(keys);
+        int noOfBatches = 0;
+        int noOfRows = 0;
+        ResultSet rs;
+        while ((rs = batches.next()) != null) {
+            noOfBatches++;
+            while (rs.next()) {
+                found.add(rs.getInt("id"));
+                noOfRows++;
+            }
+        }
+        batches.close();
+        assertEquals(2, noOfBatches);
+        assertEquals(1500, noOfRows);
+        assertEquals(1500, found.size());
+        assertTrue(found.contains(1500));
+
+        // Both batches used the largest statement, so only one more is prepared
+        batches = lookup.executeBatches(keys.subList(0, 3));
+        noOfRows = 0;
+        while ((rs = batches.next()) != null) {
+            while (rs.next()) {
+                noOfRows++;
+            }
+        }
+        batches.close();
+        assertEquals(3, noOfRows);
+        assertTrue(lookup.executeBatches(new ArrayList<Integer>()).next() == null);
+        assertTrue(lookup.getStats().contains("(2 statements)"));
+        lookup.close();
+    }
+}
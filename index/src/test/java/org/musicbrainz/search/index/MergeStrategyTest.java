@@ -0,0 +1,30 @@
+package org.musicbrainz.search.index;
+
+import org.junit.Test;
+import org.kohsuke.args4j.CmdLineParser;
+
+import static org.junit.Assert.assertEquals;
+
+public class MergeStrategyTest {
+
+    @Test
+    public void testDefaultStrategy() throws Exception {
+        IndexOptions options = new IndexOptions();
+        assertEquals(MergeStrategy.SINGLE, options.getMergeStrategy(RecordingIndex.INDEX_NAME));
+    }
+
+    @Test
+    public void testStrategyForEachIndex() throws Exception {
+        IndexOptions options = new IndexOptions();
+        new CmdLineParser(options).parseArgument(new String[] { "--mergestrategy", "balanced,recording=tiered" });
+        assertEquals(MergeStrategy.TIERED, options.getMergeStrategy(RecordingIndex.INDEX_NAME));
+        assertEquals(MergeStrategy.BALANCED, options.getMergeStrategy(ReleaseIndex.INDEX_NAME));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testUnknownStrategy() throws Exception {
+        IndexOptions options = new IndexOptions();
+        new CmdLineParser(options).parseArgument(new String[] { "--mergestrategy", "optimal" });
+        options.getMergeStrategy(RecordingIndex.INDEX_NAME);
+    }
+}
@@ -0,0 +1,90 @@
+package org.musicbrainz.search.index;
+
+import org.apache.lucene.index.DirectoryReader;
+import org.apache.lucene.index.IndexReader;
+import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.search.suggest.Lookup;
+import org.apache.lucene.store.RAMDirectory;
+import org.junit.Test;
+import org.musicbrainz.search.MbDocument;
+import org.musicbrainz.search.helper.SuggestHelper;
+
+import java.io.File;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+
+public class MusicBrainzSuggesterTest extends AbstractIndexTest {
+
+    private void addArtist(IndexWriter writer, String guid, String name, int count) throws Exception {
+        MbDocument doc = new MbDocument();
+        doc.addField(ArtistIndexField.ARTIST_ID, guid);
+        doc.addDocValuesField(ProjectionIndexField.MBID, guid);
+        SuggestHelper.addSuggestion(doc, name);
+        SuggestHelper.setWeight(doc, null, count, 1.0f);
+        writer.addDocument(doc.getLuceneDocument());
+    }
+
+    @Test
+    public void testBuildAndLookup() throws Exception {
+
+        RAMDirectory ramDir = new RAMDirectory();
+        IndexWriter writer = createIndexWriter(ramDir, ArtistIndexField.class);
+        addArtist(writer, "4302e264-1cf0-4d1f-aca7-2a6f89e34b36", "Björk", 10);
+        addArtist(writer, "ccd4879c-5e88-4385-b131-bf65296bf245", "Björn Again", 100);
+        addArtist(writer, "a16371b9-7d36-497a-a9d4-42b0a0440c5e", "Blur", 50);
+        writer.close();
+
+        File file = File.createTempFile("suggest", ".fst");
+        file.deleteOnExit();
+        IndexReader ir = DirectoryReader.open(ramDir);
+        MusicBrainzSuggester.build(ir, file);
+        ir.close();
+
+        Lookup lookup = MusicBrainzSuggester.load(file);
+        List<Lookup.LookupResult> results = lookup.lookup("bjo", false, 10);
+        assertEquals(2, results.size());
+        assertEquals("Björn Again", results.get(0).key.toString());
+        assertEquals("ccd4879c-5e88-4385-b131-bf65296bf245", results.get(0).payload.utf8ToString());
+        assertEquals("Björk", results.get(1).key.toString());
+    }
+
+    @Test
+    public void testOnlyMostPopularKeptOverLimit() throws Exception {
+
+        RAMDirectory ramDir = new RAMDirectory();
+        IndexWriter writer = createIndexWriter(ramDir, ArtistIndexField.class);
+        addArtist(writer, "4302e264-1cf0-4d1f-aca7-2a6f89e34b36", "Björk", 10);
+        addArtist(writer, "ccd4879c-5e88-4385-b131-bf65296bf245", "Björn Again", 100);
+        addArtist(writer, "a16371b9-7d36-497a-a9d4-42b0a0440c5e", "Blur", 50);
+        writer.close();
+
+        File file = File.createTempFile("suggest", ".fst");
+        file.deleteOnExit();
+        IndexReader ir = DirectoryReader.open(ramDir);
+        MusicBrainzSuggester.build(ir, file, 2);
+        ir.close();
+
+        Lookup lookup = MusicBrainzSuggester.load(file);
+        List<Lookup.LookupResult> results = lookup.lookup("b", false, 10);
+        assertEquals(2, results.size());
+        assertEquals("Björn Again", results.get(0).key.toString());
+        assertEquals("Blur", results.get(1).key.toString());
+    }
+
+    @Test
+    public void testNoSuggestFields() throws Exception {
+
+        RAMDirectory ramDir = new RAMDirectory();
+        IndexWriter writer = createIndexWriter(ramDir, ArtistIndexField.class);
+        MbDocument doc = new MbDocument();
+        doc.addField(MetaIndexField.META, MetaIndexField.META_VALUE);
+        writer.addDocument(doc.getLuceneDocument());
+        writer.close();
+
+        IndexReader ir = DirectoryReader.open(ramDir);
+        assertFalse(MusicBrainzSuggester.build(ir, new File("nonexistent.fst")));
+        ir.close();
+    }
+}
@@ -33,6 +33,18 @@ public class RecordingIndexTest extends AbstractIndexTest {
         writer.close();
     }
 
+    private void createStreamingIndex(RAMDirectory ramDir, int windowSize) throws Exception {
+        IndexWriter writer = createIndexWriter(ramDir, RecordingIndexField.class);
+        RecordingIndex ri = new RecordingIndex(conn);
+        CommonTables ct = new CommonTables(conn, ri.getName());
+        ct.createTemporaryTables(false);
+        ri.init(writer, false);
+        ri.addMetaInformation(writer);
+        ri.indexDataStreaming(writer, ri.getMaxId(), windowSize);
+        ri.destroy();
+        writer.close();
+    }
+
 
     /**
      * All Basic Fields Plus Release Events
@@ -271,6 +283,34 @@ public class RecordingIndexTest extends AbstractIndexTest {
         ir.close();
     }
     
+    /**
+     * Same fields when every query is read through a streaming cursor, a window of one id at a time
+     *
+     * @throws Exception exception
+     */
+    @Test
+    public void testIndexRecordingStreaming() throws Exception {
+
+        addTrackOne();
+        RAMDirectory ramDir = new RAMDirectory();
+        createStreamingIndex(ramDir, 1);
+
+        IndexReader ir = DirectoryReader.open(ramDir);
+        assertEquals(2, ir.numDocs());
+        {
+            checkTerm(ir, RecordingIndexField.RECORDING_ID, "2f250ed2-6285-40f1-aa2a-14f1c05e9765");
+            checkTerm(ir, RecordingIndexField.RELEASE_TYPE, "compilation");
+            checkTerm(ir, RecordingIndexField.RELEASE_STATUS, "official");
+            checkTerm(ir, RecordingIndexField.ISRC, "fraaa9000038");
+            checkTerm(ir, RecordingIndexField.RELEASE, "bonus");
+            checkTerm(ir, RecordingIndexField.RELEASE_ID, "c3b8dbc9-c1ff-4743-9015-8d762819134e");
+            checkTerm(ir, RecordingIndexField.POSITION, "1");
+            checkTerm(ir, RecordingIndexField.NUM_TRACKS_RELEASE, 2);
+            checkTerm(ir, RecordingIndexField.TRACKNUM, 4);
+        }
+        ir.close();
+    }
+
     /**
      * Basic test of all fields
      *
@@ -0,0 +1,44 @@
+package org.musicbrainz.search.index;
+
+import org.junit.Test;
+import org.musicbrainz.mmd2.Release;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+public class ReleaseCacheTest {
+
+    private Release createRelease(String title) {
+        Release release = new Release();
+        release.setId("1d9e8ed6-3893-4d3b-aa7d-6cd79609e386");
+        release.setTitle(title);
+        return release;
+    }
+
+    @Test
+    public void testHitAndMiss() throws Exception {
+        ReleaseCache cache = new ReleaseCache(1024 * 1024);
+        Release release = createRelease("Crocodiles");
+        assertNull(cache.get(1));
+        cache.put(1, release, null);
+        assertNotNull(cache.get(1));
+        assertSame(release, cache.get(1).getRelease());
+        assertEquals("hits=2 misses=1 evictions=0 releases=1 size=0MB", cache.getStats());
+    }
+
+    @Test
+    public void testLeastRecentlyUsedEvicted() throws Exception {
+        long releaseSize = ReleaseCache.estimateSize(createRelease("Crocodiles"), null);
+        ReleaseCache cache = new ReleaseCache(releaseSize * 2);
+        cache.put(1, createRelease("Crocodiles"), null);
+        cache.put(2, createRelease("Crocodiles"), null);
+        cache.get(1);
+        cache.put(3, createRelease("Crocodiles"), null);
+        assertNotNull(cache.get(1));
+        assertNull(cache.get(2));
+        assertNotNull(cache.get(3));
+        assertEquals("hits=3 misses=1 evictions=1 releases=2 size=0MB", cache.getStats());
+    }
+}
@@ -0,0 +1,47 @@
+package org.musicbrainz.search.index;
+
+import org.junit.Test;
+import org.musicbrainz.mmd2.Release;
+import org.musicbrainz.search.MbDocument;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class StoreFieldTest {
+
+    private Release createRelease() {
+        Release release = new Release();
+        release.setId("1d9e8ed6-3893-4d3b-aa7d-6cd79609e386");
+        release.setTitle("Crocodiles");
+        return release;
+    }
+
+    @Test
+    public void testSerializedWhenRead() throws Exception {
+        AtomicLong serializeTime = new AtomicLong();
+        MbDocument doc = new MbDocument();
+        doc.addStoreField(ReleaseIndexField.RELEASE_STORE, createRelease(), serializeTime);
+        assertEquals(0, serializeTime.get());
+
+        String store = doc.get(ReleaseIndexField.RELEASE_STORE);
+        assertEquals(MMDSerializer.serialize(createRelease()), store);
+        assertTrue(serializeTime.get() > 0);
+
+        // Only serialized once
+        long time = serializeTime.get();
+        assertEquals(store, doc.get(ReleaseIndexField.RELEASE_STORE));
+        assertEquals(time, serializeTime.get());
+    }
+
+    @Test
+    public void testSerializerReusedForLargerAndSmallerDocuments() throws Exception {
+        Release release = createRelease();
+        String first = MMDSerializer.serialize(release);
+        Release longer = createRelease();
+        longer.setTitle("Crocodiles (Deluxe Edition)");
+        assertTrue(MMDSerializer.serialize(longer).contains("Deluxe"));
+        assertEquals(first, MMDSerializer.serialize(release));
+    }
+}
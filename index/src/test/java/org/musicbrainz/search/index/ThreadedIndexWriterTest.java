@@ -0,0 +1,142 @@
+package org.musicbrainz.search.index;
+
+import org.apache.lucene.analysis.TokenStream;
+import org.apache.lucene.document.Document;
+import org.apache.lucene.document.TextField;
+import org.apache.lucene.index.DirectoryReader;
+import org.apache.lucene.index.IndexReader;
+import org.apache.lucene.index.IndexWriterConfig;
+import org.apache.lucene.index.Term;
+import org.apache.lucene.store.RAMDirectory;
+import org.junit.Test;
+import org.musicbrainz.search.LuceneVersion;
+import org.musicbrainz.search.MbDocument;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class ThreadedIndexWriterTest {
+
+    private ThreadedIndexWriter createWriter(RAMDirectory ramDir, int numThreads, int maxQueuedDocuments) throws Exception {
+        IndexWriterConfig config = new IndexWriterConfig(LuceneVersion.LUCENE_VERSION,
+                DatabaseIndex.getAnalyzer(ArtistIndexField.class));
+        config.setOpenMode(IndexWriterConfig.OpenMode.CREATE);
+        return new ThreadedIndexWriter(ramDir, config, numThreads, maxQueuedDocuments);
+    }
+
+    private Document createArtist(int id, String name) {
+        MbDocument doc = new MbDocument();
+        doc.addField(ArtistIndexField.ARTIST_ID, Integer.toString(id));
+        doc.addField(ArtistIndexField.ARTIST, name);
+        return doc.getLuceneDocument();
+    }
+
+    @Test
+    public void testAddDocumentsAndBatches() throws Exception {
+        RAMDirectory ramDir = new RAMDirectory();
+        ThreadedIndexWriter writer = createWriter(ramDir, 2, 4);
+        for (int i = 0; i < 50; i++) {
+            writer.addDocument(createArtist(i, "Farming Incident"));
+        }
+        List<Document> batch = new ArrayList<Document>();
+        for (int i = 50; i < 100; i++) {
+            batch.add(createArtist(i, "Echo & The Bunnymen"));
+            if (batch.size() == 10) {
+                writer.addDocuments(batch);
+                batch = new ArrayList<Document>();
+            }
+        }
+        writer.close();
+        assertTrue(writer.getStats().startsWith("Analysed 100 docs"));
+
+        IndexReader ir = DirectoryReader.open(ramDir);
+        assertEquals(100, ir.numDocs());
+        ir.close();
+    }
+
+    @Test
+    public void testWritersSharingThreadPool() throws Exception {
+        ExecutorService analysisPool = Executors.newFixedThreadPool(2);
+        try {
+            RAMDirectory ramDir1 = new RAMDirectory();
+            RAMDirectory ramDir2 = new RAMDirectory();
+            IndexWriterConfig config1 = new IndexWriterConfig(LuceneVersion.LUCENE_VERSION,
+                    DatabaseIndex.getAnalyzer(ArtistIndexField.class));
+            IndexWriterConfig config2 = new IndexWriterConfig(LuceneVersion.LUCENE_VERSION,
+                    DatabaseIndex.getAnalyzer(ArtistIndexField.class));
+            ThreadedIndexWriter writer1 = new ThreadedIndexWriter(ramDir1, config1, analysisPool, 2, 4);
+            ThreadedIndexWriter writer2 = new ThreadedIndexWriter(ramDir2, config2, analysisPool, 2, 4);
+            for (int i = 0; i < 50; i++) {
+                writer1.addDocument(createArtist(i, "Farming Incident"));
+                writer2.addDocument(createArtist(i, "Echo & The Bunnymen"));
+            }
+            writer1.close();
+            assertTrue(writer1.getStats().startsWith("Analysed 50 docs"));
+
+            // Closing the first writer leaves the pool to the second
+            assertTrue(!analysisPool.isShutdown());
+            for (int i = 50; i < 100; i++) {
+                writer2.addDocument(createArtist(i, "Echo & The Bunnymen"));
+            }
+            writer2.close();
+
+            IndexReader ir = DirectoryReader.open(ramDir1);
+            assertEquals(50, ir.numDocs());
+            ir.close();
+            ir = DirectoryReader.open(ramDir2);
+            assertEquals(100, ir.numDocs());
+            ir.close();
+        } finally {
+            analysisPool.shutdown();
+        }
+    }
+
+    @Test
+    public void testUpdateDocument() throws Exception {
+        RAMDirectory ramDir = new RAMDirectory();
+        ThreadedIndexWriter writer = createWriter(ramDir, 2, 10);
+        writer.addDocument(createArtist(1, "Farming Incident"));
+        writer.addDocument(createArtist(2, "Farmer"));
+        writer.waitForQueuedDocuments();
+        writer.updateDocument(new Term(ArtistIndexField.ARTIST_ID.getName(), "1"), createArtist(1, "Farming Accident"));
+        writer.close();
+
+        IndexReader ir = DirectoryReader.open(ramDir);
+        assertEquals(2, ir.numDocs());
+        ir.close();
+    }
+
+    @Test
+    public void testFailureThrownToProducer() throws Exception {
+        RAMDirectory ramDir = new RAMDirectory();
+        ThreadedIndexWriter writer = createWriter(ramDir, 2, 10);
+        Document doc = createArtist(1, "Farming Incident");
+        doc.add(new TextField(ArtistIndexField.ARTIST.getName(), new TokenStream() {
+            @Override
+            public boolean incrementToken() throws IOException {
+                throw new IOException("Analysis failed");
+            }
+        }));
+        writer.addDocument(doc);
+        try {
+            writer.waitForQueuedDocuments();
+            fail("Failure not thrown");
+        } catch (IOException ioe) {
+            assertEquals("Analysis failed", ioe.getCause().getMessage());
+        }
+        try {
+            writer.addDocument(createArtist(2, "Farmer"));
+            fail("Failure not thrown");
+        } catch (IOException ioe) {
+            assertEquals("Analysis failed", ioe.getCause().getMessage());
+        }
+        writer.rollback();
+    }
+}
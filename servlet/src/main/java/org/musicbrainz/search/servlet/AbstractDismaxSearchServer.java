@@ -1,17 +1,56 @@
 package org.musicbrainz.search.servlet;
 
 import java.io.IOException;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
 
 import org.apache.lucene.analysis.Analyzer;
 import org.apache.lucene.index.CorruptIndexException;
 import org.apache.lucene.queryparser.classic.ParseException;
+import org.apache.lucene.search.IndexSearcher;
 import org.apache.lucene.search.Query;
+import org.apache.lucene.search.QueryRescorer;
 import org.apache.lucene.search.SearcherManager;
+import org.apache.lucene.search.TopDocs;
+import org.musicbrainz.search.index.FacetIndexField;
+import org.musicbrainz.search.index.ProjectionIndexField;
 
-public abstract class AbstractDismaxSearchServer implements SearchServer {
+public abstract class AbstractDismaxSearchServer implements SearchServer, DismaxPhaseMetricsMBean {
+
+  public static final int DEFAULT_PHRASE_RESCORE_WINDOW = 100;
+
+  public static final int DEFAULT_MIN_EXACT_HITS = 1;
+
+  // Queries are first run without fuzzy and prefix matches, the expanded query is only run if the exact query
+  // matches too few documents
+  private static volatile boolean isTwoPhaseEnabled = true;
+
+  // Documents are matched by the term query alone and only this many of the best are rescored with the phrase query,
+  // 0 to match with the full query. The window is the same for every page so pages don't overlap or skip documents,
+  // pages reaching past it are matched with the full query.
+  private static volatile int phraseRescoreWindow = DEFAULT_PHRASE_RESCORE_WINDOW;
+
+  private static final String QUERY_KIND = "dismax";
+  private static final String EXACT_QUERY_KIND = "exact";
+  private static final String TERMS_QUERY_KIND = "terms";
+  private static final String EXACT_TERMS_QUERY_KIND = "exactterms";
 
   protected DismaxSearcher dismaxSearcher;
   protected AbstractSearchServer realSearchServer;
+  protected final ParsedQueryCache queryCache = new ParsedQueryCache();
+
+  // Run the expanded query when the exact query matches fewer documents than this, whichever page is asked for so
+  // every page of a search comes from the same query
+  private volatile int minExactHits = DEFAULT_MIN_EXACT_HITS;
+
+  // Optionally also run the expanded query when the best exact match scores less than this. Scores are raw Lucene
+  // scores so depend on the index and its statistics, there is no default and each index must be tuned separately.
+  private volatile float minExactScore = 0;
+
+  private final AtomicLong exactCount = new AtomicLong(0);
+  private final AtomicLong expandedCount = new AtomicLong(0);
+  private final AtomicLong singlePhaseCount = new AtomicLong(0);
 
   protected AbstractDismaxSearchServer(AbstractSearchServer mainSearchServer) {
     this.realSearchServer = mainSearchServer;
@@ -20,22 +59,248 @@ public abstract class AbstractDismaxSearchServer implements SearchServer {
 
   abstract protected DismaxSearcher initDismaxSearcher();
 
-  // Default parseQuery implemention
+  // Default parseQuery implemention, queries recently parsed are returned from the cache so must not be modified
   protected Query parseQuery(String query) throws ParseException
   {
-    return dismaxSearcher.parseQuery(query, realSearchServer.getAnalyzer());
+    Query parsed = queryCache.get(QUERY_KIND, query);
+    if (parsed == null) {
+      parsed = dismaxSearcher.parseQuery(query, realSearchServer.getAnalyzer());
+      queryCache.put(QUERY_KIND, query, parsed);
+    }
+    return parsed;
+  }
+
+  /**
+   * Parse query without fuzzy and prefix expansion
+   *
+   * @param query
+   * @return null if this search server does not expand queries
+   * @throws ParseException
+   */
+  protected Query parseExactQuery(String query) throws ParseException
+  {
+    if (dismaxSearcher == null) {
+      return null;
+    }
+    Query parsed = queryCache.get(EXACT_QUERY_KIND, query);
+    if (parsed == null) {
+      parsed = dismaxSearcher.parseQuery(query, realSearchServer.getAnalyzer(), false);
+      queryCache.put(EXACT_QUERY_KIND, query, parsed);
+    }
+    return parsed;
+  }
+
+  /**
+   * Parse query without the phrase query
+   *
+   * @param query
+   * @param isExpanded
+   * @return null if the phrase query should not be left until rescoring
+   * @throws ParseException
+   */
+  protected Query parseTermsQuery(String query, boolean isExpanded) throws ParseException
+  {
+    if (dismaxSearcher == null || phraseRescoreWindow <= 0) {
+      return null;
+    }
+    String kind = isExpanded ? TERMS_QUERY_KIND : EXACT_TERMS_QUERY_KIND;
+    Query parsed = queryCache.get(kind, query);
+    if (parsed == null) {
+      parsed = dismaxSearcher.parseTermsQuery(query, realSearchServer.getAnalyzer(), isExpanded);
+      queryCache.put(kind, query, parsed);
+    }
+    return parsed;
+  }
+
+  public static void setPhraseRescoreWindow(int window) {
+    phraseRescoreWindow = window;
+  }
+
+  public static void setTwoPhaseEnabled(boolean isEnabled) {
+    isTwoPhaseEnabled = isEnabled;
+  }
+
+  /**
+   * Set how many documents the exact query must match for its results to be used. This doesn't depend on the page
+   * asked for, so a rare name spelt correctly is answered by the exact query on every page.
+   *
+   * @param hits
+   */
+  public void setMinExactHits(int hits) {
+    minExactHits = Math.max(hits, 1);
+  }
+
+  /**
+   * Set the score the best match of the exact query must reach for its results to be used, 0 to only require the
+   * exact query to match enough documents.
+   *
+   * This is the raw score before results are normalized so is only comparable within one index. To tune, take the
+   * score shown for the top hit by explain for misspelt queries of this index that the exact query matches poorly and
+   * set the threshold just above it, checking well spelt queries still score above it.
+   *
+   * @param score
+   */
+  public void setMinExactScore(float score) {
+    minExactScore = score;
+  }
+
+  /**
+   * Run the exact query and only if its results are not good enough run the full query with fuzzy and prefix matches,
+   * most queries are for names spelt correctly so this avoids expanding terms into many fuzzy and prefix matches
+   *
+   * @param searcher
+   * @param userQuery
+   * @param offset
+   * @param limit
+   * @return
+   * @throws IOException
+   * @throws ParseException
+   */
+  protected TopDocs collect(IndexSearcher searcher, String userQuery, int offset, int limit) throws IOException, ParseException {
+    return collect(searcher, userQuery, offset, limit, null);
+  }
+
+  /**
+   * As above also counting the facets of the matches of whichever query the hits are returned from
+   *
+   * @param searcher
+   * @param userQuery
+   * @param offset
+   * @param limit
+   * @param facets may be null
+   * @return
+   * @throws IOException
+   * @throws ParseException
+   */
+  protected TopDocs collect(IndexSearcher searcher, String userQuery, int offset, int limit, FacetCollector facets) throws IOException, ParseException {
+    Query query = parseQuery(userQuery);
+    Query exactQuery = isTwoPhaseEnabled ? parseExactQuery(userQuery) : null;
+    if (exactQuery == null || exactQuery.equals(query)) {
+      singlePhaseCount.incrementAndGet();
+      return collect(searcher, query, parseTermsQuery(userQuery, true), offset, limit, facets);
+    }
+
+    TopDocs topDocs = collect(searcher, exactQuery, parseTermsQuery(userQuery, false), offset, limit, facets);
+    if (topDocs.totalHits >= minExactHits && topDocs.scoreDocs.length > 0
+        && (minExactScore <= 0 || topDocs.scoreDocs[0].score >= minExactScore)) {
+      exactCount.incrementAndGet();
+      return topDocs;
+    }
+    expandedCount.incrementAndGet();
+    if (facets != null) {
+      facets.clear();
+    }
+    return collect(searcher, query, parseTermsQuery(userQuery, true), offset, limit, facets);
+  }
+
+  /**
+   * Match documents with the terms query, then rescore the best candidates with the full query so the phrase query is
+   * only run against those candidates rather than every document matching the terms. The rescored documents get
+   * exactly the score the full query would have given them.
+   *
+   * The number of candidates is fixed rather than depending on the page, which would rescore a different set of
+   * documents for each page so a document could appear on two pages or on none. A page reaching past the candidates
+   * is matched with the full query instead.
+   *
+   * @param searcher
+   * @param query full query
+   * @param termsQuery full query without the phrase query, or null to just run the full query
+   * @param offset
+   * @param limit
+   * @param facets counted over every match of the terms query, which matches the same documents as the full query
+   * @return
+   * @throws IOException
+   */
+  private TopDocs collect(IndexSearcher searcher, Query query, Query termsQuery, int offset, int limit, FacetCollector facets) throws IOException {
+    int window = phraseRescoreWindow;
+    if (termsQuery == null || termsQuery.equals(query) || offset + limit > window) {
+      return realSearchServer.collect(searcher, query, offset, limit, facets);
+    }
+
+    TopDocs candidates = realSearchServer.collect(searcher, termsQuery, 0, window, facets);
+    if (candidates.scoreDocs.length == 0) {
+      return candidates;
+    }
+    TopDocs topDocs = new QueryRescorer(query) {
+      @Override
+      protected float combine(float firstPassScore, boolean secondPassMatches, float secondPassScore) {
+        return secondPassMatches ? secondPassScore : firstPassScore;
+      }
+    }.rescore(searcher, candidates, offset + limit);
+    // Results are scored relative to the best match so max score must be the rescored one
+    return new TopDocs(topDocs.totalHits, topDocs.scoreDocs, topDocs.scoreDocs[0].score);
+  }
+
+  @Override
+  public long getExactCount() {
+    return exactCount.get();
+  }
+
+  @Override
+  public long getExpandedCount() {
+    return expandedCount.get();
   }
 
   @Override
+  public long getSinglePhaseCount() {
+    return singlePhaseCount.get();
+  }
+
+  /**
+   * @return how many searches were answered by the exact query, needed the expanded query, or had nothing to expand
+   */
+  public String getPhaseStats() {
+    return "exact=" + getExactCount() + ",expanded=" + getExpandedCount() + ",singlephase=" + getSinglePhaseCount();
+  }
+
+  /**
+   * @return hits and misses of the parsed query cache
+   */
+  public String getQueryCacheStats() {
+    return queryCache.getStats();
+  }
+
+  /**
+   * Search without projection or facets, acquiring a searcher
+   */
   public Results search(String userQuery, int offset, int limit) throws IOException, ParseException {
-    // Parse query with the dismaxSearcher, then delegate the search to the backend search server
-    Query query = parseQuery(userQuery);
-    return realSearchServer.search(query, offset, limit);
+    return search(null, userQuery, offset, limit, null, null);
+  }
+
+  @Override
+  public Results search(IndexSearcher searcher, String userQuery, int offset, int limit,
+                        Set<ProjectionIndexField> projection, Set<FacetIndexField> facets)
+      throws IOException, ParseException {
+    if (searcher == null) {
+      IndexSearcher acquired = getSearcherManager().acquire();
+      try {
+        return search(acquired, userQuery, offset, limit, projection, facets);
+      } finally {
+        getSearcherManager().release(acquired);
+      }
+    }
+
+    FacetCollector facetCollector = facets == null || facets.isEmpty() ? null : new FacetCollector(facets);
+    Results results = realSearchServer.processResults(searcher, collect(searcher, userQuery, offset, limit, facetCollector), offset, projection);
+    if (facetCollector != null) {
+      results.setFacets(facetCollector.getCounts());
+    }
+    return results;
+  }
+
+  @Override
+  public Results lookup(String field, List<String> values, int offset, int limit) throws IOException {
+    return realSearchServer.lookup(field, values, offset, limit);
+  }
+
+  @Override
+  public Set<String> getIdentifierFields() {
+    return realSearchServer.getIdentifierFields();
   }
 
   @Override
-  public Results search(Query query, int offset, int limit) throws IOException, ParseException {
-    throw new UnsupportedOperationException();
+  public Set<FacetIndexField> getFacetFields() {
+    return realSearchServer.getFacetFields();
   }
 
   @Override
@@ -65,6 +330,11 @@ public abstract class AbstractDismaxSearchServer implements SearchServer {
     return realSearchServer.getCount();
   }
 
+  @Override
+  public long getIndexVersion(IndexSearcher searcher) {
+    return realSearchServer.getIndexVersion(searcher);
+  }
+
   @Override
   public ResultsWriter getWriter(String version) {
     return realSearchServer.getWriter(version);
@@ -30,19 +30,38 @@ package org.musicbrainz.search.servlet;
 
 import java.io.IOException;
 import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.Date;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Locale;
+import java.util.Set;
 import java.util.TimeZone;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
 
 import org.apache.lucene.analysis.Analyzer;
+import org.apache.lucene.analysis.TokenStream;
+import org.apache.lucene.analysis.tokenattributes.TermToBytesRefAttribute;
 import org.apache.lucene.document.Document;
+import org.apache.lucene.document.StoredField;
+import org.apache.lucene.index.AtomicReaderContext;
+import org.apache.lucene.index.BinaryDocValues;
 import org.apache.lucene.index.CorruptIndexException;
+import org.apache.lucene.index.DirectoryReader;
+import org.apache.lucene.index.DocsEnum;
+import org.apache.lucene.index.ReaderUtil;
 import org.apache.lucene.index.Term;
+import org.apache.lucene.index.Terms;
+import org.apache.lucene.index.TermsEnum;
 import org.apache.lucene.queryparser.classic.ParseException;
 import org.apache.lucene.queryparser.classic.QueryParser;
+import org.apache.lucene.search.DocIdSetIterator;
+import org.apache.lucene.search.Collector;
 import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.search.MultiCollector;
 import org.apache.lucene.search.Query;
 import org.apache.lucene.search.ScoreDoc;
 import org.apache.lucene.search.SearcherManager;
@@ -52,15 +71,23 @@ import org.apache.lucene.search.TopDocsCollector;
 import org.apache.lucene.search.TopScoreDocCollector;
 import org.apache.lucene.search.TimeLimitingCollector;
 import org.apache.lucene.search.TimeLimitingCollector.TimeExceededException;
+import org.apache.lucene.util.Bits;
 import org.apache.lucene.util.BytesRef;
+import org.apache.lucene.util.FixedBitSet;
 import org.apache.lucene.util.NumericUtils;
 import org.musicbrainz.search.MbDocument;
+import org.musicbrainz.search.index.FacetIndexField;
+import org.musicbrainz.search.index.IndexField;
 import org.musicbrainz.search.index.MetaIndexField;
+import org.musicbrainz.search.index.ProjectionIndexField;
 import org.musicbrainz.search.servlet.mmd1.Mmd1XmlWriter;
 import org.musicbrainz.search.servlet.mmd2.ResultsWriter;
 
 public abstract class AbstractSearchServer implements SearchServer {
 
+  // A single field:value or field:"value" where the value contains no query syntax
+  private static final Pattern IDENTIFIER_QUERY = Pattern.compile("^\\s*(\\w+):(\"?)([^\\s\"()\\[\\]{}*?~^:\\\\/&|+!-][^\\s\"()\\[\\]{}*?~^:\\\\/&|]*)\\2\\s*$");
+
   protected String query;
   protected int offset;
   protected int limit;
@@ -73,10 +100,40 @@ public abstract class AbstractSearchServer implements SearchServer {
   protected Date serverLastUpdatedDate;
   protected SimpleDateFormat dateFormat = new SimpleDateFormat("yyyy-MM-dd HH:mm zz", Locale.US);
   protected AtomicInteger searchCount = new AtomicInteger();
+  // Fields holding identifiers such as mbids, that can be looked up directly (see lookup())
+  protected Set<String> identifierFields = Collections.emptySet();
+  // Identifier fields holding a value of at most one document, such as the entity's own mbid. A search on just one of
+  // these is answered by looking up the term directly as its match would be the only hit. Identifiers of other entities,
+  // such as the artist of a recording, match many documents that are scored as normal.
+  protected Set<String> uniqueIdentifierFields = Collections.emptySet();
+  // Fields such as status or type that only constrain which documents match, required clauses on these are matched
+  // by cached filters rather than scored
+  protected Set<String> filterFields = Collections.emptySet();
+  // Fields whose values can be counted over the matching documents
+  protected Set<FacetIndexField> facetFields = Collections.emptySet();
+
+  private static final String QUERY_KIND = "query";
+  protected final ParsedQueryCache queryCache = new ParsedQueryCache();
+
+  // QueryParser is not thread safe so each thread reuses its own parser
+  private final ThreadLocal<QueryParser> parsers = new ThreadLocal<QueryParser>() {
+    @Override
+    protected QueryParser initialValue() {
+      return getParser();
+    }
+  };
 
   protected AbstractSearchServer() {
   }
 
+  protected static Set<String> fieldNames(IndexField... fields) {
+    Set<String> names = new HashSet<String>();
+    for (IndexField field : fields) {
+      names.add(field.getName());
+    }
+    return Collections.unmodifiableSet(names);
+  }
+
   /**
    * Set the last updated date by getting the value from the index, then for efficiency convert to a format suitable for
    * use in output html
@@ -177,43 +234,329 @@ public abstract class AbstractSearchServer implements SearchServer {
    * @throws IOException
    * @throws ParseException if the query was invalid
    */
-  @Override
   public Results search(String query, int offset, int limit) throws IOException, ParseException {
-    return this.search(parseQuery(query), offset, limit);
+    return search(null, query, offset, limit, null, null);
   }
 
   /**
-   * Parse and search lucene query, returning between results from offset up to limit
+   * Search lucene query, returning between results from offset up to limit
    *
    * @param query
    * @param offset
    * @param limit
    * @return
    * @throws IOException
+   * @throws TimeExceededException
+   */
+  public Results search(Query query, int offset, int limit) throws IOException, TimeExceededException {
+    IndexSearcher searcher = searcherManager.acquire();
+    try {
+      return processResults(searcher, collect(searcher, query, offset, limit), offset, null);
+    } finally {
+      searcherManager.release(searcher);
+    }
+  }
+
+  /**
+   * Parse and search lucene query, reading only the projection fields for each hit if given and counting the values
+   * of the facet fields over every match while collecting the hits if given
+   *
+   * @param searcher acquired by the caller, who is responsible for releasing it, or null to acquire one
+   * @param query
+   * @param offset
+   * @param limit
+   * @param projection may be null
+   * @param facets may be null
+   * @return
+   * @throws IOException
    * @throws ParseException if the query was invalid
    */
   @Override
-  public Results search(Query query, int offset, int limit) throws IOException, ParseException, TimeExceededException {
+  public Results search(IndexSearcher searcher, String query, int offset, int limit,
+                        Set<ProjectionIndexField> projection, Set<FacetIndexField> facets)
+      throws IOException, ParseException {
+    if (searcher == null) {
+      IndexSearcher acquired = searcherManager.acquire();
+      try {
+        return search(acquired, query, offset, limit, projection, facets);
+      } finally {
+        searcherManager.release(acquired);
+      }
+    }
+
+    FacetCollector facetCollector = facets == null || facets.isEmpty() ? null : new FacetCollector(facets);
+    Results results = processResults(searcher, collect(searcher, query, offset, limit, facetCollector), offset, projection);
+    if (facetCollector != null) {
+      results.setFacets(facetCollector.getCounts());
+    }
+    return results;
+  }
+
+  /**
+   * Find documents with any of the given values in an identifier field, the values are analyzed in the same way as
+   * when searching on the field but there is no query parsing or scoring so all matches have the same score.
+   *
+   * @param field
+   * @param values
+   * @param offset
+   * @param limit
+   * @return
+   * @throws IOException
+   * @throws IllegalArgumentException if field is not an identifier field
+   */
+  @Override
+  public Results lookup(String field, List<String> values, int offset, int limit) throws IOException {
+    if (!identifierFields.contains(field)) {
+      throw new IllegalArgumentException(field);
+    }
+
+    List<BytesRef> terms = new ArrayList<BytesRef>(values.size());
+    for (String value : values) {
+      BytesRef term = analyzeIdentifier(field, value);
+      if (term != null) {
+        terms.add(term);
+      }
+    }
 
     IndexSearcher searcher = searcherManager.acquire();
     try {
-      TopDocsCollector<?> collector = TopScoreDocCollector.create(offset + limit, true);
-      TimeLimitingCollector tCollector = new TimeLimitingCollector(collector, TimeLimitingCollector.getGlobalCounter(), 1000);
-      searcher.search(query, tCollector);
-      searchCount.incrementAndGet();
-      TopDocs topDocs = collector.topDocs();
-      if (topDocs == null)
-      {
-          return new Results();
-      }
-      return processResults(searcher, topDocs, offset);
+      return processResults(searcher, lookup(searcher, field, terms, offset, limit), offset, null);
     } finally {
       searcherManager.release(searcher);
     }
   }
 
   /**
-   * Parse the query
+   * @return fields that can be used with lookup()
+   */
+  @Override
+  public Set<String> getIdentifierFields() {
+    return identifierFields;
+  }
+
+  /**
+   * @return fields that can be counted by search()
+   */
+  @Override
+  public Set<FacetIndexField> getFacetFields() {
+    return facetFields;
+  }
+
+  /**
+   * Process results, reading only the projection fields if a projection is given
+   *
+   * @param searcher
+   * @param topDocs
+   * @param offset
+   * @param projection may be null
+   * @return
+   * @throws IOException
+   */
+  protected Results processResults(IndexSearcher searcher, TopDocs topDocs, int offset, Set<ProjectionIndexField> projection) throws IOException {
+    if (topDocs == null)
+    {
+        return new Results();
+    }
+    if (projection != null)
+    {
+        Results results = processProjectedResults(searcher, topDocs, offset, projection);
+        if (results != null)
+        {
+            return results;
+        }
+        // Index was built without projection fields
+    }
+    return processResults(searcher, topDocs, offset);
+  }
+
+  /**
+   * Run the query collecting the top hits up to offset + limit, a query on just an identifier is looked up directly
+   * rather than parsed and scored
+   *
+   * @param searcher
+   * @param query
+   * @param offset
+   * @param limit
+   * @return
+   * @throws IOException
+   * @throws ParseException
+   */
+  protected TopDocs collect(IndexSearcher searcher, String query, int offset, int limit) throws IOException, ParseException {
+    return collect(searcher, query, offset, limit, null);
+  }
+
+  /**
+   * Run the query collecting the top hits up to offset + limit and the facet counts, a query on just a unique
+   * identifier is only looked up directly when no facets are counted
+   *
+   * @param searcher
+   * @param query
+   * @param offset
+   * @param limit
+   * @param facets may be null
+   * @return
+   * @throws IOException
+   * @throws ParseException
+   */
+  protected TopDocs collect(IndexSearcher searcher, String query, int offset, int limit, FacetCollector facets) throws IOException, ParseException {
+    if (facets == null) {
+      Term identifier = getIdentifierTerm(query);
+      if (identifier != null) {
+        return lookup(searcher, identifier.field(), Collections.singletonList(identifier.bytes()), offset, limit);
+      }
+    }
+    return collect(searcher, parseQuery(query), offset, limit, facets);
+  }
+
+  /**
+   * Run the query collecting the top hits up to offset + limit, within the search time limit
+   *
+   * @param searcher
+   * @param query
+   * @param offset
+   * @param limit
+   * @return
+   * @throws IOException
+   * @throws TimeExceededException
+   */
+  protected TopDocs collect(IndexSearcher searcher, Query query, int offset, int limit) throws IOException, TimeExceededException {
+    return collect(searcher, query, offset, limit, null);
+  }
+
+  /**
+   * Run the query collecting the top hits up to offset + limit, within the search time limit, and counting the facets
+   * of every match in the same pass. The cost of the query is estimated first (see QueryGuard), an expensive query may
+   * be run without fuzzy matching, only once fewer expensive queries are running, or not at all.
+   *
+   * @param searcher
+   * @param query
+   * @param offset
+   * @param limit
+   * @param facets may be null
+   * @return
+   * @throws IOException
+   * @throws TimeExceededException
+   * @throws QueryGuard.QueryTooExpensiveException
+   */
+  protected TopDocs collect(IndexSearcher searcher, Query query, int offset, int limit, FacetCollector facets) throws IOException, TimeExceededException {
+    TopDocsCollector<?> collector = TopScoreDocCollector.create(offset + limit, true);
+    Collector allCollectors = facets == null ? collector : MultiCollector.wrap(collector, facets);
+    TimeLimitingCollector tCollector = new TimeLimitingCollector(allCollectors, TimeLimitingCollector.getGlobalCounter(), 1000);
+    QueryGuard.Admission admission = QueryGuard.admit(searcher.getIndexReader(), query);
+    try {
+      searcher.search(admission.getQuery(), tCollector);
+    } finally {
+      admission.finish(collector.getTotalHits());
+    }
+    searchCount.incrementAndGet();
+    return collector.topDocs();
+  }
+
+  /**
+   * Collect the documents containing any of the terms, up to offset + limit in index order. The terms are sought in
+   * sorted order so each segment's terms dictionary is walked forwards once.
+   *
+   * @param searcher
+   * @param field
+   * @param terms
+   * @param offset
+   * @param limit
+   * @return
+   * @throws IOException
+   */
+  protected TopDocs lookup(IndexSearcher searcher, String field, List<BytesRef> terms, int offset, int limit) throws IOException {
+    List<BytesRef> sortedTerms = new ArrayList<BytesRef>(terms);
+    Collections.sort(sortedTerms);
+
+    List<ScoreDoc> hits = new ArrayList<ScoreDoc>();
+    int totalHits = 0;
+    for (AtomicReaderContext leaf : searcher.getIndexReader().leaves()) {
+      Terms fieldTerms = leaf.reader().terms(field);
+      if (fieldTerms == null) {
+        continue;
+      }
+
+      // Same document may match more than one term (e.g. a recording with two of the isrcs)
+      FixedBitSet matches = null;
+      TermsEnum termsEnum = fieldTerms.iterator(null);
+      Bits liveDocs = leaf.reader().getLiveDocs();
+      DocsEnum docsEnum = null;
+      for (BytesRef term : sortedTerms) {
+        if (!termsEnum.seekExact(term)) {
+          continue;
+        }
+        docsEnum = termsEnum.docs(liveDocs, docsEnum, DocsEnum.FLAG_NONE);
+        int doc;
+        while ((doc = docsEnum.nextDoc()) != DocIdSetIterator.NO_MORE_DOCS) {
+          if (matches == null) {
+            matches = new FixedBitSet(leaf.reader().maxDoc());
+          }
+          matches.set(doc);
+        }
+      }
+
+      if (matches != null) {
+        DocIdSetIterator iterator = matches.iterator();
+        int doc;
+        while ((doc = iterator.nextDoc()) != DocIdSetIterator.NO_MORE_DOCS) {
+          if (hits.size() < offset + limit) {
+            hits.add(new ScoreDoc(leaf.docBase + doc, 1.0f));
+          }
+          totalHits++;
+        }
+      }
+    }
+    searchCount.incrementAndGet();
+    return new TopDocs(totalHits, hits.toArray(new ScoreDoc[hits.size()]), hits.isEmpty() ? Float.NaN : 1.0f);
+  }
+
+  /**
+   * @param query
+   * @return term if the query is just a search for a single value of a unique identifier field, otherwise null
+   * @throws IOException
+   */
+  protected Term getIdentifierTerm(String query) throws IOException {
+    if (uniqueIdentifierFields.isEmpty()) {
+      return null;
+    }
+    Matcher matcher = IDENTIFIER_QUERY.matcher(query);
+    if (!matcher.matches() || !uniqueIdentifierFields.contains(matcher.group(1))) {
+      return null;
+    }
+    BytesRef term = analyzeIdentifier(matcher.group(1), matcher.group(3));
+    return term != null ? new Term(matcher.group(1), term) : null;
+  }
+
+  /**
+   * Analyze identifier as the query parser would
+   *
+   * @param field
+   * @param value
+   * @return the term, or null if the value does not analyze to exactly one term
+   * @throws IOException
+   */
+  protected BytesRef analyzeIdentifier(String field, String value) throws IOException {
+    TokenStream tokenStream = analyzer.tokenStream(field, value);
+    try {
+      TermToBytesRefAttribute termAtt = tokenStream.addAttribute(TermToBytesRefAttribute.class);
+      tokenStream.reset();
+      BytesRef term = null;
+      if (tokenStream.incrementToken()) {
+        termAtt.fillBytesRef();
+        term = BytesRef.deepCopyOf(termAtt.getBytesRef());
+        if (tokenStream.incrementToken()) {
+          term = null;
+        }
+      }
+      tokenStream.end();
+      return term;
+    } finally {
+      tokenStream.close();
+    }
+  }
+
+  /**
+   * Parse the query, queries recently parsed are returned from the cache so must not be modified
    *
    * @param query
    * @return
@@ -221,8 +564,19 @@ public abstract class AbstractSearchServer implements SearchServer {
    */
   protected Query parseQuery(String query) throws ParseException
   {
-    QueryParser parser = getParser();
-    return parser.parse(query);
+    Query parsed = queryCache.get(QUERY_KIND, query);
+    if (parsed == null) {
+      parsed = CachedTermFilter.replaceConstraints(parsers.get().parse(query), filterFields);
+      queryCache.put(QUERY_KIND, query, parsed);
+    }
+    return parsed;
+  }
+
+  /**
+   * @return hits and misses of the parsed query cache
+   */
+  public String getQueryCacheStats() {
+    return queryCache.getStats();
   }
 
   /**
@@ -233,9 +587,18 @@ public abstract class AbstractSearchServer implements SearchServer {
     return searchCount.toString();
   }
 
+  /**
+   * @param searcher searcher acquired from this server's SearcherManager
+   * @return version of the index held by the searcher, changes whenever a reload picks up new content
+   */
+  @Override
+  public long getIndexVersion(IndexSearcher searcher) {
+    return ((DirectoryReader) searcher.getIndexReader()).getVersion();
+  }
+
   /**
    * Get Query Parser for parsing queries for this resourceType , QueryParser is not thread safe so always get a new
-   * instance;
+   * instance, parseQuery() keeps one instance per thread;
    *
    * @return
    */
@@ -265,6 +628,59 @@ public abstract class AbstractSearchServer implements SearchServer {
     return results;
   }
 
+  /**
+   * Process results of search reading the projection fields from DocValues rather than loading the stored documents
+   *
+   * @param searcher
+   * @param topDocs
+   * @param offset
+   * @param projection
+   * @return results, or null if the index does not contain the projection fields
+   * @throws IOException
+   */
+  protected Results processProjectedResults(IndexSearcher searcher, TopDocs topDocs, int offset, Set<ProjectionIndexField> projection) throws IOException {
+    Results results = new Results();
+    results.setOffset(offset);
+    results.setTotalHits(topDocs.totalHits);
+    results.setProjection(projection);
+    ScoreDoc docs[] = topDocs.scoreDocs;
+    results.setMaxScore(topDocs.getMaxScore());
+
+    List<AtomicReaderContext> leaves = searcher.getIndexReader().leaves();
+    ProjectionIndexField[] fields = projection.toArray(new ProjectionIndexField[projection.size()]);
+    // DocValues for each field, loaded lazily for each segment that contains a hit
+    BinaryDocValues[][] values = new BinaryDocValues[leaves.size()][];
+    for (int i = offset; i < docs.length; i++) {
+      int leafIndex = ReaderUtil.subIndex(docs[i].doc, leaves);
+      AtomicReaderContext leaf = leaves.get(leafIndex);
+      if (values[leafIndex] == null) {
+        values[leafIndex] = new BinaryDocValues[fields.length];
+        for (int j = 0; j < fields.length; j++) {
+          values[leafIndex][j] = leaf.reader().getBinaryDocValues(fields[j].getName());
+          if (values[leafIndex][j] == null && fields[j] == ProjectionIndexField.MBID) {
+            return null;
+          }
+        }
+      }
+
+      Document document = new Document();
+      for (int j = 0; j < fields.length; j++) {
+        if (values[leafIndex][j] == null) {
+          continue;
+        }
+        BytesRef value = values[leafIndex][j].get(docs[i].doc - leaf.docBase);
+        if (value.length > 0) {
+          document.add(new StoredField(fields[j].getName(), value.utf8ToString()));
+        }
+      }
+      Result result = new Result();
+      result.setScore(docs[i].score);
+      result.setDoc(new MbDocument(document));
+      results.results.add(result);
+    }
+    return results;
+  }
+
   public String explain(String userQuery, int offset, int limit) throws IOException, ParseException {
     Query parsedQuery = parseQuery(userQuery);
     return explain(parsedQuery, offset, limit);
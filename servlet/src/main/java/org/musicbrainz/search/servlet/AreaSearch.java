@@ -25,6 +25,8 @@ public class AreaSearch extends AbstractSearchServer {
   public AreaSearch() throws Exception {
     resultsWriter = new AreaWriter();
     setupDefaultFields();
+    identifierFields = fieldNames(AreaIndexField.AREA_ID);
+    uniqueIdentifierFields = fieldNames(AreaIndexField.AREA_ID);
     analyzer = DatabaseIndex.getAnalyzer(AreaIndexField.class);
   }
 
@@ -2,12 +2,18 @@ package org.musicbrainz.search.servlet;
 
 import org.apache.lucene.index.Term;
 import org.apache.lucene.queryparser.classic.MultiFieldQueryParser;
+import org.apache.lucene.queryparser.classic.ParseException;
+import org.apache.lucene.search.BooleanClause;
 import org.apache.lucene.search.Query;
 import org.apache.lucene.search.TermQuery;
 import org.musicbrainz.search.LuceneVersion;
 import org.musicbrainz.search.index.ArtistIndexField;
 import org.musicbrainz.search.index.ArtistType;
 
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
 
 /**
  * Subclasses MultiFieldQueryParser to handle numeric fields that we might want wish to do range queries for and handle type
@@ -15,10 +21,26 @@ import org.musicbrainz.search.index.ArtistType;
  */
 public class ArtistQueryParser extends MultiFieldQueryParser {
 
+    // Two word phrases on these fields are looked up in their shingle field
+    private static final Map<String, String> SHINGLE_FIELDS
+            = Collections.singletonMap(ArtistIndexField.ARTIST.getName(), ArtistIndexField.ARTIST_SHINGLE.getName());
+
     public ArtistQueryParser(java.lang.String[] strings, org.apache.lucene.analysis.Analyzer analyzer) {
         super(LuceneVersion.LUCENE_VERSION, strings, analyzer);
     }
 
+    @Override
+    protected Query getFieldQuery(String field, String queryText, int slop) throws ParseException {
+        return ShingleFieldQuery.replacePhrases(super.getFieldQuery(field, queryText, slop), SHINGLE_FIELDS);
+    }
+
+    @Override
+    protected Query getBooleanQuery(List<BooleanClause> clauses, boolean disableCoord) throws ParseException {
+        Query query = super.getBooleanQuery(clauses, disableCoord);
+        // Only the queries of words entered by the user, not expansion over multiple fields
+        return disableCoord ? query : CommonTermsBooleanQuery.wrap(query);
+    }
+
     protected Query newTermQuery(Term term) {
         if (term.field().equals(ArtistIndexField.TYPE.getName())) {
             try {
@@ -2,6 +2,7 @@ package org.musicbrainz.search.servlet;
 
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.EnumSet;
 
 import org.apache.lucene.document.Document;
 import org.apache.lucene.queryparser.classic.ParseException;
@@ -11,6 +12,7 @@ import org.apache.lucene.search.SearcherManager;
 import org.apache.lucene.search.TopDocs;
 import org.musicbrainz.search.index.ArtistIndexField;
 import org.musicbrainz.search.index.DatabaseIndex;
+import org.musicbrainz.search.index.FacetIndexField;
 import org.musicbrainz.search.servlet.mmd1.ArtistMmd1XmlWriter;
 import org.musicbrainz.search.servlet.mmd2.ArtistWriter;
 
@@ -32,6 +34,10 @@ public class ArtistSearch extends AbstractSearchServer
         resultsWriter = new ArtistWriter();
         mmd1Writer = new ArtistMmd1XmlWriter();
         setupDefaultFields();
+        identifierFields = fieldNames(ArtistIndexField.ARTIST_ID, ArtistIndexField.IPI, ArtistIndexField.ISNI);
+        uniqueIdentifierFields = fieldNames(ArtistIndexField.ARTIST_ID);
+        filterFields = fieldNames(ArtistIndexField.TYPE, ArtistIndexField.COUNTRY, ArtistIndexField.GENDER);
+        facetFields = EnumSet.of(FacetIndexField.TYPE, FacetIndexField.COUNTRY, FacetIndexField.GENDER, FacetIndexField.TAG);
         analyzer = DatabaseIndex.getAnalyzer(ArtistIndexField.class);
     }
 
@@ -0,0 +1,192 @@
+package org.musicbrainz.search.servlet;
+
+import org.eclipse.persistence.jaxb.JAXBContextFactory;
+import org.eclipse.persistence.jaxb.JAXBContextProperties;
+
+import javax.xml.bind.JAXBContext;
+import javax.xml.bind.JAXBException;
+import javax.xml.bind.Unmarshaller;
+import javax.xml.bind.annotation.XmlAccessType;
+import javax.xml.bind.annotation.XmlAccessorType;
+import javax.xml.bind.annotation.XmlAttribute;
+import javax.xml.bind.annotation.XmlElement;
+import javax.xml.bind.annotation.XmlRootElement;
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import javax.xml.transform.stream.StreamSource;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Body of a batch search request, in Xml
+ *
+ * <pre>
+ * &lt;batch&gt;
+ *   &lt;search id="1" type="recording" dismax="true" limit="5"&gt;
+ *     &lt;query&gt;Blue Monday&lt;/query&gt;
+ *   &lt;/search&gt;
+ * &lt;/batch&gt;
+ * </pre>
+ *
+ * or in Json
+ *
+ * <pre>
+ * {"search":[{"id":"1","type":"recording","dismax":true,"limit":5,"query":"Blue Monday"}]}
+ * </pre>
+ */
+@XmlRootElement(name = "batch")
+@XmlAccessorType(XmlAccessType.FIELD)
+public class BatchRequest
+{
+    private static final JAXBContext context = initContext();
+    private static final JAXBContext jsonContext = initJsonContext();
+    private static final XMLInputFactory xmlInputFactory = initXmlInputFactory();
+
+    @XmlElement(name = "search")
+    private List<Search> searches = new ArrayList<Search>();
+
+    public List<Search> getSearches()
+    {
+        return searches;
+    }
+
+    private static JAXBContext initContext()
+    {
+        try
+        {
+            return JAXBContext.newInstance(BatchRequest.class);
+        }
+        catch (JAXBException ex)
+        {
+            //Unable to initilize jaxb context, should never happen
+            throw new RuntimeException(ex);
+        }
+    }
+
+    private static JAXBContext initJsonContext()
+    {
+        try
+        {
+            Map<String, Object> properties = new HashMap<String, Object>(2);
+            properties.put(JAXBContextProperties.MEDIA_TYPE, "application/json");
+            properties.put(JAXBContextProperties.JSON_INCLUDE_ROOT, false);
+            return JAXBContextFactory.createContext(new Class[]{BatchRequest.class}, properties);
+        }
+        catch (JAXBException ex)
+        {
+            //Unable to initilize jaxb context, should never happen
+            throw new RuntimeException(ex);
+        }
+    }
+
+    // Request body comes from the client so never resolve DTDs or external entities
+    private static XMLInputFactory initXmlInputFactory()
+    {
+        XMLInputFactory factory = XMLInputFactory.newInstance();
+        factory.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+        factory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false);
+        return factory;
+    }
+
+    /**
+     * Parse batch request
+     *
+     * @param reader
+     * @param isJson
+     * @return
+     * @throws JAXBException
+     * @throws XMLStreamException
+     */
+    public static BatchRequest parse(Reader reader, boolean isJson) throws JAXBException, XMLStreamException
+    {
+        if (isJson)
+        {
+            Unmarshaller u = jsonContext.createUnmarshaller();
+            return u.unmarshal(new StreamSource(reader), BatchRequest.class).getValue();
+        }
+        else
+        {
+            XMLStreamReader xsr = xmlInputFactory.createXMLStreamReader(reader);
+            try
+            {
+                Unmarshaller u = context.createUnmarshaller();
+                return u.unmarshal(xsr, BatchRequest.class).getValue();
+            }
+            finally
+            {
+                xsr.close();
+            }
+        }
+    }
+
+    /**
+     * A single search within the batch, all but the query are optional. The id is not used by the server, it is just
+     * returned with the results so that the client can match them up.
+     */
+    @XmlAccessorType(XmlAccessType.FIELD)
+    public static class Search
+    {
+        @XmlAttribute
+        private String id;
+
+        @XmlAttribute
+        private String type;
+
+        @XmlAttribute
+        private Boolean dismax;
+
+        @XmlAttribute
+        private Integer limit;
+
+        @XmlAttribute
+        private Integer offset;
+
+        @XmlElement
+        private String query;
+
+        public Search()
+        {
+        }
+
+        public Search(String id, String type, String query)
+        {
+            this.id = id;
+            this.type = type;
+            this.query = query;
+        }
+
+        public String getId()
+        {
+            return id;
+        }
+
+        public String getType()
+        {
+            return type;
+        }
+
+        public boolean isDismax()
+        {
+            return dismax != null && dismax;
+        }
+
+        public Integer getLimit()
+        {
+            return limit;
+        }
+
+        public Integer getOffset()
+        {
+            return offset;
+        }
+
+        public String getQuery()
+        {
+            return query;
+        }
+    }
+}
@@ -0,0 +1,72 @@
+package org.musicbrainz.search.servlet;
+
+import org.musicbrainz.search.servlet.mmd2.ResultsWriter;
+
+import javax.servlet.http.HttpServletResponse;
+
+/**
+ * Outcome of a single search within a batch, either the results and the writer to output them with or an error,
+ * errors use the same status codes and messages a single search would have returned.
+ */
+public class BatchResult
+{
+    private final BatchRequest.Search search;
+    private final Results results;
+    private final ResultsWriter writer;
+    private final int status;
+    private final String error;
+
+    private BatchResult(BatchRequest.Search search, Results results, ResultsWriter writer, int status, String error)
+    {
+        this.search = search;
+        this.results = results;
+        this.writer = writer;
+        this.status = status;
+        this.error = error;
+    }
+
+    public static BatchResult success(BatchRequest.Search search, Results results, ResultsWriter writer)
+    {
+        return new BatchResult(search, results, writer, HttpServletResponse.SC_OK, null);
+    }
+
+    public static BatchResult error(BatchRequest.Search search, int status, String error)
+    {
+        return new BatchResult(search, null, null, status, error);
+    }
+
+    public String getId()
+    {
+        return search.getId();
+    }
+
+    public String getType()
+    {
+        return search.getType();
+    }
+
+    public Results getResults()
+    {
+        return results;
+    }
+
+    public ResultsWriter getWriter()
+    {
+        return writer;
+    }
+
+    public int getStatus()
+    {
+        return status;
+    }
+
+    public String getError()
+    {
+        return error;
+    }
+
+    public boolean isError()
+    {
+        return error != null;
+    }
+}
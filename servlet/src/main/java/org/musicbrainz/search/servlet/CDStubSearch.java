@@ -28,6 +28,8 @@ public class CDStubSearch extends AbstractSearchServer {
     resultsWriter = new CDStubWriter();
     mmd1Writer = null;
     setupDefaultFields();
+    identifierFields = fieldNames(CDStubIndexField.DISCID, CDStubIndexField.BARCODE);
+    uniqueIdentifierFields = fieldNames(CDStubIndexField.DISCID, CDStubIndexField.BARCODE);
     analyzer = DatabaseIndex.getAnalyzer(CDStubIndexField.class);
     this.searcherManager = searcherManager;
     setLastServerUpdatedDate();
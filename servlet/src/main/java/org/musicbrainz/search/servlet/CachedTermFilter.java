@@ -0,0 +1,84 @@
+package org.musicbrainz.search.servlet;
+
+import org.apache.lucene.index.AtomicReaderContext;
+import org.apache.lucene.index.Term;
+import org.apache.lucene.search.BitsFilteredDocIdSet;
+import org.apache.lucene.search.BooleanClause;
+import org.apache.lucene.search.BooleanQuery;
+import org.apache.lucene.search.DocIdSet;
+import org.apache.lucene.search.Filter;
+import org.apache.lucene.search.Query;
+import org.apache.lucene.search.TermQuery;
+import org.apache.lucene.util.Bits;
+import org.apache.lucene.util.FixedBitSet;
+
+import java.io.IOException;
+import java.util.Set;
+
+/**
+ * Filter on a single term whose documents are cached for each segment (see FilterBitSetCache).
+ *
+ * Used for the required clauses of a query on fields such as status, type or country which only constrain which
+ * documents match. The same few values are searched over and over, so rather than reading the postings of the term
+ * for each request the cached documents are matched by a CachedTermQuery, which scores them as the TermQuery did.
+ */
+public class CachedTermFilter extends Filter {
+
+    private final Term term;
+
+    public CachedTermFilter(Term term) {
+        this.term = term;
+    }
+
+    /**
+     * @param query
+     * @param filterFields fields that only constrain which documents match
+     * @return the query with required and prohibited term clauses on filter fields replaced by cached term queries,
+     * boolean queries are changed in place
+     */
+    public static Query replaceConstraints(Query query, Set<String> filterFields) {
+        if (filterFields.isEmpty() || !(query instanceof BooleanQuery)) {
+            return query;
+        }
+        for (BooleanClause clause : ((BooleanQuery) query).clauses()) {
+            Query subQuery = clause.getQuery();
+            if (subQuery instanceof BooleanQuery) {
+                replaceConstraints(subQuery, filterFields);
+            } else if (clause.getOccur() != BooleanClause.Occur.SHOULD
+                    && subQuery instanceof TermQuery
+                    && filterFields.contains(((TermQuery) subQuery).getTerm().field())) {
+                Query filtered = new CachedTermQuery(((TermQuery) subQuery).getTerm());
+                filtered.setBoost(subQuery.getBoost());
+                clause.setQuery(filtered);
+            }
+        }
+        return query;
+    }
+
+    @Override
+    public DocIdSet getDocIdSet(AtomicReaderContext context, Bits acceptDocs) throws IOException {
+        FixedBitSet bits = FilterBitSetCache.get(context.reader(), term);
+        if (bits == null) {
+            return null;
+        }
+        return BitsFilteredDocIdSet.wrap(bits, acceptDocs);
+    }
+
+    @Override
+    public String toString() {
+        return "filter(" + term + ")";
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (!(o instanceof CachedTermFilter)) {
+            return false;
+        }
+        return term.equals(((CachedTermFilter) o).term);
+    }
+
+    @Override
+    public int hashCode() {
+        return term.hashCode();
+    }
+}
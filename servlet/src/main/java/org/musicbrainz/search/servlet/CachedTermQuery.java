@@ -0,0 +1,198 @@
+package org.musicbrainz.search.servlet;
+
+import org.apache.lucene.index.AtomicReaderContext;
+import org.apache.lucene.index.DocsEnum;
+import org.apache.lucene.index.Term;
+import org.apache.lucene.index.TermContext;
+import org.apache.lucene.index.TermState;
+import org.apache.lucene.index.Terms;
+import org.apache.lucene.index.TermsEnum;
+import org.apache.lucene.search.ComplexExplanation;
+import org.apache.lucene.search.DocIdSet;
+import org.apache.lucene.search.DocIdSetIterator;
+import org.apache.lucene.search.Explanation;
+import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.search.Query;
+import org.apache.lucene.search.Scorer;
+import org.apache.lucene.search.Weight;
+import org.apache.lucene.search.similarities.Similarity;
+import org.apache.lucene.util.Bits;
+import org.apache.lucene.util.ToStringUtils;
+
+import java.io.IOException;
+import java.util.Set;
+
+/**
+ * Matches the documents of a single term from the cache of CachedTermFilter, but scores them as the TermQuery on the
+ * term would, so replacing a required TermQuery by this does not change the score or order of the results.
+ *
+ * The cached bits only decide which documents match. The fields it is used for can hold the same value more than once
+ * (a recording on two official releases has status official twice), so when the term occurs more often than it has
+ * documents in a segment the frequency of each match is read from the postings, otherwise it is one.
+ */
+public class CachedTermQuery extends Query {
+
+    private final Term term;
+
+    public CachedTermQuery(Term term) {
+        this.term = term;
+    }
+
+    public Term getTerm() {
+        return term;
+    }
+
+    @Override
+    public Weight createWeight(IndexSearcher searcher) throws IOException {
+        return new CachedTermWeight(searcher);
+    }
+
+    @Override
+    public void extractTerms(Set<Term> terms) {
+        terms.add(term);
+    }
+
+    @Override
+    public String toString(String field) {
+        return "cached(" + (term.field().equals(field) ? term.text() : term.toString()) + ")" + ToStringUtils.boost(getBoost());
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (!(o instanceof CachedTermQuery)) {
+            return false;
+        }
+        CachedTermQuery other = (CachedTermQuery) o;
+        return getBoost() == other.getBoost() && term.equals(other.term);
+    }
+
+    @Override
+    public int hashCode() {
+        return Float.floatToIntBits(getBoost()) ^ term.hashCode();
+    }
+
+    /**
+     * Weighted with the statistics of the term exactly as TermQuery is
+     */
+    private class CachedTermWeight extends Weight {
+
+        private final Similarity similarity;
+        private final Similarity.SimWeight stats;
+        private final TermContext states;
+        private final CachedTermFilter filter = new CachedTermFilter(term);
+
+        CachedTermWeight(IndexSearcher searcher) throws IOException {
+            this.similarity = searcher.getSimilarity();
+            this.states = TermContext.build(searcher.getTopReaderContext(), term);
+            this.stats = similarity.computeWeight(getBoost(), searcher.collectionStatistics(term.field()),
+                    searcher.termStatistics(term, states));
+        }
+
+        @Override
+        public Query getQuery() {
+            return CachedTermQuery.this;
+        }
+
+        @Override
+        public float getValueForNormalization() {
+            return stats.getValueForNormalization();
+        }
+
+        @Override
+        public void normalize(float queryNorm, float topLevelBoost) {
+            stats.normalize(queryNorm, topLevelBoost);
+        }
+
+        @Override
+        public Scorer scorer(AtomicReaderContext context, Bits acceptDocs) throws IOException {
+            DocIdSet docs = filter.getDocIdSet(context, acceptDocs);
+            DocIdSetIterator iterator = docs != null ? docs.iterator() : null;
+            if (iterator == null) {
+                return null;
+            }
+            return new CachedTermScorer(this, iterator, getFreqs(context), similarity.simScorer(stats, context));
+        }
+
+        /**
+         * The postings of the term with frequencies, or null when no document of the segment has it more than once
+         */
+        private DocsEnum getFreqs(AtomicReaderContext context) throws IOException {
+            TermState state = states.get(context.ord);
+            Terms terms = context.reader().terms(term.field());
+            if (state == null || terms == null) {
+                return null;
+            }
+            TermsEnum termsEnum = terms.iterator(null);
+            termsEnum.seekExact(term.bytes(), state);
+            if (termsEnum.totalTermFreq() <= termsEnum.docFreq()) {
+                return null;
+            }
+            return termsEnum.docs(null, null, DocsEnum.FLAG_FREQS);
+        }
+
+        @Override
+        public Explanation explain(AtomicReaderContext context, int doc) throws IOException {
+            Scorer scorer = scorer(context, context.reader().getLiveDocs());
+            if (scorer != null && scorer.advance(doc) == doc) {
+                ComplexExplanation result = new ComplexExplanation(true, scorer.score(), "weight(" + getQuery() + " in "
+                        + doc + ") [" + similarity.getClass().getSimpleName() + "], result of:");
+                int freq = scorer.freq();
+                result.addDetail(similarity.simScorer(stats, context).explain(doc,
+                        new Explanation(freq, "termFreq=" + freq)));
+                return result;
+            }
+            return new ComplexExplanation(false, 0f, "no matching term");
+        }
+    }
+
+    private static class CachedTermScorer extends Scorer {
+
+        private final DocIdSetIterator iterator;
+        private final DocsEnum freqs;
+        private final Similarity.SimScorer docScorer;
+
+        CachedTermScorer(Weight weight, DocIdSetIterator iterator, DocsEnum freqs, Similarity.SimScorer docScorer) {
+            super(weight);
+            this.iterator = iterator;
+            this.freqs = freqs;
+            this.docScorer = docScorer;
+        }
+
+        @Override
+        public float score() throws IOException {
+            return docScorer.score(iterator.docID(), freq());
+        }
+
+        @Override
+        public int freq() throws IOException {
+            if (freqs == null) {
+                return 1;
+            }
+            int doc = iterator.docID();
+            if (freqs.docID() < doc) {
+                freqs.advance(doc);
+            }
+            return freqs.docID() == doc ? freqs.freq() : 1;
+        }
+
+        @Override
+        public int docID() {
+            return iterator.docID();
+        }
+
+        @Override
+        public int nextDoc() throws IOException {
+            return iterator.nextDoc();
+        }
+
+        @Override
+        public int advance(int target) throws IOException {
+            return iterator.advance(target);
+        }
+
+        @Override
+        public long cost() {
+            return iterator.cost();
+        }
+    }
+}
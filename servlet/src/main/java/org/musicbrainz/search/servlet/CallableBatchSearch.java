@@ -0,0 +1,60 @@
+package org.musicbrainz.search.servlet;
+
+import org.apache.lucene.queryparser.classic.ParseException;
+import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.search.TimeLimitingCollector.TimeExceededException;
+import org.musicbrainz.search.servlet.mmd2.ResultsWriter;
+
+import javax.servlet.http.HttpServletResponse;
+import java.util.concurrent.Callable;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+// Used by doBatchSearch(), never throws so one bad search cannot fail the whole batch
+class CallableBatchSearch implements Callable<BatchResult>
+{
+    private static final Logger log = Logger.getLogger(CallableBatchSearch.class.getName());
+
+    private final SearchServer searchServer;
+    private final IndexSearcher searcher;
+    private final BatchRequest.Search search;
+    private final Integer offset;
+    private final Integer limit;
+
+    public CallableBatchSearch(SearchServer searchServer, IndexSearcher searcher, BatchRequest.Search search, Integer offset, Integer limit)
+    {
+        this.searchServer = searchServer;
+        this.searcher = searcher;
+        this.search = search;
+        this.offset = offset;
+        this.limit = limit;
+    }
+
+    @Override
+    public BatchResult call()
+    {
+        try
+        {
+            Results results = searchServer.search(searcher, search.getQuery(), offset, limit, null, null);
+            return BatchResult.success(search, results, (ResultsWriter) searchServer.getWriter(SearchServerServlet.WS_VERSION_2));
+        }
+        catch (ParseException pe)
+        {
+            return BatchResult.error(search, HttpServletResponse.SC_BAD_REQUEST, ErrorMessage.UNABLE_TO_PARSE_SEARCH.getMsg(search.getQuery()));
+        }
+        catch (TimeExceededException tee)
+        {
+            log.info("Query timeout: " + search.getQuery());
+            return BatchResult.error(search, HttpServletResponse.SC_REQUEST_TIMEOUT, ErrorMessage.REQUEST_TIMEOUT_EXCEEDED.getMsg());
+        }
+        catch (QueryGuard.QueryTooExpensiveException qte)
+        {
+            return BatchResult.error(search, HttpServletResponse.SC_SERVICE_UNAVAILABLE, ErrorMessage.QUERY_TOO_EXPENSIVE.getMsg(search.getQuery()));
+        }
+        catch (Throwable t)
+        {
+            log.log(Level.WARNING, search.getQuery() + ":" + t.getMessage(), t);
+            return BatchResult.error(search, HttpServletResponse.SC_BAD_REQUEST, String.valueOf(t.getMessage()));
+        }
+    }
+}
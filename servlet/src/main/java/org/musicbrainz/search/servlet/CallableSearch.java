@@ -22,7 +22,7 @@ class CallableSearch implements Callable<Results>
     @Override
     public Results call() throws Exception
     {
-        return searchServer.search(query, offset, limit);
+        return searchServer.search(null, query, offset, limit, null, null);
     }
 
 }
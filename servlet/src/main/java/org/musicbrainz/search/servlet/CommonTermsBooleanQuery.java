@@ -0,0 +1,186 @@
+package org.musicbrainz.search.servlet;
+
+import org.apache.lucene.index.IndexReader;
+import org.apache.lucene.index.MultiFields;
+import org.apache.lucene.index.Term;
+import org.apache.lucene.index.Terms;
+import org.apache.lucene.search.BooleanClause;
+import org.apache.lucene.search.BooleanQuery;
+import org.apache.lucene.search.DisjunctionMaxQuery;
+import org.apache.lucene.search.Query;
+import org.apache.lucene.search.TermQuery;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.WeakHashMap;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Words such as 'the', 'love' or 'live' occur in a large part of the recording and release titles, we keep them
+ * indexed (see StopWordsTest) but in a query of optional words a doc matching just those words is of little interest
+ * whilst scoring every such doc is expensive.
+ *
+ * So when rewritten the optional clauses are split into rare and common clauses, a clause is common if every term it
+ * searches occurs in more documents than the cutoff for the field. The rare clauses are then required (at least one
+ * must match) and the common clauses are only optional so are only scored for documents matching a rare clause. If
+ * every clause is common the query is left alone.
+ *
+ * The cutoff is a fraction of the documents containing the field, with a minimum so that it never applies to small
+ * indexes, it is calculated once for each field of each reader so when the index is reloaded the cutoffs are
+ * recalculated.
+ */
+public class CommonTermsBooleanQuery extends Query {
+
+    public static final float DEFAULT_MAX_DOC_FREQ = 0.01f;
+
+    // Never treat a term as common unless it occurs in at least this many documents
+    private static final int MIN_COMMON_DOC_FREQ = 1000;
+
+    private static volatile float maxDocFreq = DEFAULT_MAX_DOC_FREQ;
+
+    private static final Map<IndexReader, Map<String, Integer>> cutoffs
+            = Collections.synchronizedMap(new WeakHashMap<IndexReader, Map<String, Integer>>());
+
+    private final BooleanQuery query;
+
+    private CommonTermsBooleanQuery(BooleanQuery query) {
+        this.query = query;
+    }
+
+    /**
+     * @param maxDocFreq fraction of documents containing a field a term can occur in before it is common, 0 to disable
+     */
+    public static void setMaxDocFreq(float maxDocFreq) {
+        CommonTermsBooleanQuery.maxDocFreq = maxDocFreq;
+    }
+
+    /**
+     * @param query
+     * @return the query wrapped so common terms are handled separately if it is a query of two or more optional
+     * clauses, otherwise the query unchanged
+     */
+    public static Query wrap(Query query) {
+        if (maxDocFreq <= 0 || !(query instanceof BooleanQuery)) {
+            return query;
+        }
+        BooleanQuery bq = (BooleanQuery) query;
+        if (bq.clauses().size() < 2 || bq.getMinimumNumberShouldMatch() > 0) {
+            return query;
+        }
+        for (BooleanClause clause : bq.clauses()) {
+            if (clause.getOccur() != BooleanClause.Occur.SHOULD) {
+                return query;
+            }
+        }
+        return new CommonTermsBooleanQuery(bq);
+    }
+
+    /**
+     * @param reader
+     * @param field
+     * @return terms occurring in more than this many documents are common
+     */
+    static int getCutoff(IndexReader reader, String field) throws IOException {
+        Map<String, Integer> readerCutoffs;
+        synchronized (cutoffs) {
+            readerCutoffs = cutoffs.get(reader);
+            if (readerCutoffs == null) {
+                readerCutoffs = new ConcurrentHashMap<String, Integer>();
+                cutoffs.put(reader, readerCutoffs);
+            }
+        }
+
+        Integer cutoff = readerCutoffs.get(field);
+        if (cutoff == null) {
+            Terms terms = MultiFields.getTerms(reader, field);
+            int docCount = terms != null && terms.getDocCount() >= 0 ? terms.getDocCount() : reader.maxDoc();
+            cutoff = Math.max(MIN_COMMON_DOC_FREQ, (int) Math.ceil(maxDocFreq * docCount));
+            readerCutoffs.put(field, cutoff);
+        }
+        return cutoff;
+    }
+
+    /**
+     * @param reader
+     * @param clause
+     * @return true if the clause just searches for terms and all of them are common
+     * @throws IOException
+     */
+    private boolean isCommon(IndexReader reader, Query clause) throws IOException {
+        List<Term> terms = new ArrayList<Term>();
+        if (clause instanceof TermQuery) {
+            terms.add(((TermQuery) clause).getTerm());
+        } else if (clause instanceof DisjunctionMaxQuery) {
+            for (Query disjunct : ((DisjunctionMaxQuery) clause).getDisjuncts()) {
+                if (disjunct instanceof TermQuery) {
+                    terms.add(((TermQuery) disjunct).getTerm());
+                }
+            }
+        }
+
+        if (terms.isEmpty()) {
+            return false;
+        }
+        for (Term term : terms) {
+            if (reader.docFreq(term) <= getCutoff(reader, term.field())) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public Query rewrite(IndexReader reader) throws IOException {
+        List<BooleanClause> rare = new ArrayList<BooleanClause>();
+        List<BooleanClause> common = new ArrayList<BooleanClause>();
+        for (BooleanClause clause : query.clauses()) {
+            if (isCommon(reader, clause.getQuery())) {
+                common.add(clause);
+            } else {
+                rare.add(clause);
+            }
+        }
+
+        if (rare.isEmpty() || common.isEmpty()) {
+            if (getBoost() == 1f) {
+                return query;
+            }
+            BooleanQuery unchanged = (BooleanQuery) query.clone();
+            unchanged.setBoost(query.getBoost() * getBoost());
+            return unchanged;
+        }
+
+        BooleanQuery rareQuery = new BooleanQuery(query.isCoordDisabled());
+        for (BooleanClause clause : rare) {
+            rareQuery.add(clause);
+        }
+        BooleanQuery result = new BooleanQuery(query.isCoordDisabled());
+        result.add(rareQuery, BooleanClause.Occur.MUST);
+        for (BooleanClause clause : common) {
+            result.add(clause);
+        }
+        result.setBoost(query.getBoost() * getBoost());
+        return result;
+    }
+
+    @Override
+    public String toString(String field) {
+        return "common(" + query.toString(field) + ")";
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (!super.equals(o)) {
+            return false;
+        }
+        return query.equals(((CommonTermsBooleanQuery) o).query);
+    }
+
+    @Override
+    public int hashCode() {
+        return 31 * super.hashCode() + query.hashCode();
+    }
+}
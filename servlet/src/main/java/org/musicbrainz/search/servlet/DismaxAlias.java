@@ -59,12 +59,26 @@ public class DismaxAlias {
     static class AliasField {
         private boolean isFuzzy;
         private float boost;
+        private String prefixField;
+        private String shingleField;
 
         public AliasField(boolean isFuzzy, float boost) {
             this.isFuzzy=isFuzzy;
             this.boost=boost;
         }
 
+        /**
+         * @param isFuzzy
+         * @param boost
+         * @param prefixField field indexed with the leading parts of each term of this field, used for prefix matches
+         * @param shingleField field indexed with each pair of adjacent terms of this field, used for phrase matches
+         */
+        public AliasField(boolean isFuzzy, float boost, String prefixField, String shingleField) {
+            this(isFuzzy, boost);
+            this.prefixField=prefixField;
+            this.shingleField=shingleField;
+        }
+
         public boolean isFuzzy() {
             return isFuzzy;
         }
@@ -73,6 +87,14 @@ public class DismaxAlias {
             isFuzzy = fuzzy;
         }
 
+        public String getPrefixField() {
+            return prefixField;
+        }
+
+        public String getShingleField() {
+            return shingleField;
+        }
+
         public float getBoost() {
             return boost;
         }
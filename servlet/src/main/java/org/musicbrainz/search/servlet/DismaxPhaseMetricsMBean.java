@@ -0,0 +1,23 @@
+package org.musicbrainz.search.servlet;
+
+/**
+ * Counts of how dismax searches of one index were answered, registered with JMX for each index by the
+ * SearchServerServlet so they can be monitored and graphed rather than only read from the stats page.
+ */
+public interface DismaxPhaseMetricsMBean {
+
+    /**
+     * @return searches answered by the exact query alone
+     */
+    long getExactCount();
+
+    /**
+     * @return searches where the exact query was not good enough and the expanded query was also run
+     */
+    long getExpandedCount();
+
+    /**
+     * @return searches with nothing to expand, run once
+     */
+    long getSinglePhaseCount();
+}
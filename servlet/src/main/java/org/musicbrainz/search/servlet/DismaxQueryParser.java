@@ -30,6 +30,7 @@
 package org.musicbrainz.search.servlet;
 
 import org.apache.lucene.index.IndexReader;
+import org.apache.lucene.index.MultiFields;
 import org.apache.lucene.index.Term;
 import org.apache.lucene.index.TermContext;
 import org.apache.lucene.queryparser.classic.ParseException;
@@ -37,11 +38,18 @@ import org.apache.lucene.queryparser.classic.QueryParser;
 import org.apache.lucene.search.*;
 import org.apache.lucene.search.similarities.DefaultSimilarity;
 import org.apache.lucene.search.similarities.TFIDFSimilarity;
+import org.apache.lucene.util.ToStringUtils;
 import org.musicbrainz.search.LuceneVersion;
+import org.musicbrainz.search.analysis.PrefixAnalyzer;
+import org.musicbrainz.search.index.FuzzyCandidateIndex;
 
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
 import java.util.HashMap;
 import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
 
 public class DismaxQueryParser {
@@ -71,6 +79,27 @@ public class DismaxQueryParser {
         return buildTopQuery(term, phrase);
     }
 
+    /**
+     * Create just the term query part of the query built by parse(), so that documents can be matched without
+     * positional matching and only the best candidates rescored with the full query
+     *
+     * @param query
+     * @return null if the phrase query may match documents the term query does not
+     */
+    public Query parseTerms(String query) throws org.apache.lucene.queryparser.classic.ParseException {
+        if (!isPhraseRescorable()) {
+            return null;
+        }
+        return dqp.parse(DismaxQueryParser.IMPOSSIBLE_FIELD_NAME + ":(" + query + ")");
+    }
+
+    /**
+     * @return true if every document matched by the query built by parse() is matched by its term query
+     */
+    protected boolean isPhraseRescorable() {
+        return true;
+    }
+
     /**
      * If a phrase query was built then we create a boolean query that requires something to match in
      * the term query, under normal circumstances if nothing matches the term query nothing will match the phrase
@@ -96,12 +125,26 @@ public class DismaxQueryParser {
         dqp.addAlias(field, dismaxAlias);
     }
 
+    public org.apache.lucene.analysis.Analyzer getAnalyzer() {
+        return dqp.getAnalyzer();
+    }
+
+    /**
+     * @param isExpanded if false only exact terms and phrases are searched, without fuzzy and prefix matches
+     */
+    public void setExpanded(boolean isExpanded) {
+        dqp.setExpanded(isExpanded);
+    }
+
     static class DisjunctionQueryParser extends QueryParser {
 
         //Only make search terms that are this length fuzzy searchable and only match to terms that are also this length
         protected static final int MIN_FIELD_LENGTH_TO_MAKE_FUZZY = 4;
         protected static final float FUZZY_SIMILARITY = 0.5f;
 
+        //Terms shorter than this only match terms one edit away, two edits would match too many unrelated words
+        protected static final int MIN_FIELD_LENGTH_FOR_TWO_EDITS = 6;
+
         //Reduce boost of wildcard/fuzzy matches compared to exact matches
         protected static final float WILDCARD_BOOST_REDUCER = 0.8f;
 
@@ -116,14 +159,27 @@ public class DismaxQueryParser {
 
         protected Map<String, DismaxAlias> aliases = new HashMap<String, DismaxAlias>(3);
 
+        protected boolean isExpanded = true;
+
+        public void setExpanded(boolean isExpanded) {
+            this.isExpanded = isExpanded;
+        }
+
         //Field to DismaxAlias
         public void addAlias(String field, DismaxAlias dismaxAlias) {
             aliases.put(field, dismaxAlias);
         }
 
+        //Words that are common in every field they are searched in are only used for scoring
+        @Override
+        protected Query getBooleanQuery(List<BooleanClause> clauses, boolean disableCoord) throws ParseException {
+            Query query = super.getBooleanQuery(clauses, disableCoord);
+            return disableCoord ? query : CommonTermsBooleanQuery.wrap(query);
+        }
+
         // Rewrite Method used by Prefix Search and Fuzzy Search, use idf of the original term
         MultiTermQuery.RewriteMethod prefixRewrite = new PrefixTermRewrite(200);
-        MultiTermQuery.RewriteMethod fuzzyRewrite = new FuzzyTermRewrite(200);
+        MultiTermQuery.RewriteMethod fuzzyRewrite = new CachedFuzzyTermRewrite(200);
 
 
         protected boolean checkQuery(DisjunctionMaxQuery q, Query querySub, boolean quoted, DismaxAlias a, String f) {
@@ -132,6 +188,7 @@ public class DismaxQueryParser {
                 if ((!quoted) || (querySub instanceof PhraseQuery)) {
                     //Reduce phrase because will have matched both parts giving far too much score differential
                     if (quoted) {
+                        querySub = ShingleFieldQuery.replacePhrase((PhraseQuery) querySub, a.getFields().get(f).getShingleField());
                         querySub.setBoost(PHRASE_BOOST_REDUCER);
                     } else {
                         querySub.setBoost(a.getFields().get(f).getBoost());
@@ -147,11 +204,19 @@ public class DismaxQueryParser {
         //TODO FIXME was using a FLOAT similarity value of 0.5 but now changed to integral
         protected Query getFuzzyQuery(String field, String termStr, float minSimilarity) {
             Term t = new Term(field, termStr);
-            FuzzyQuery fq = new FuzzyQuery(t,  2, MIN_FIELD_LENGTH_TO_MAKE_FUZZY);
+            FuzzyQuery fq = new FuzzyQuery(t,  getMaxEdits(termStr), MIN_FIELD_LENGTH_TO_MAKE_FUZZY);
             fq.setRewriteMethod(fuzzyRewrite);
             return fq;
         }
 
+        /**
+         * @param termStr
+         * @return number of edits a fuzzy match to the term may have
+         */
+        protected static int getMaxEdits(String termStr) {
+            return termStr.codePointCount(0, termStr.length()) < MIN_FIELD_LENGTH_FOR_TWO_EDITS ? 1 : 2;
+        }
+
         @Override
         protected Query getFieldQuery(String field, String queryText, boolean quoted)
                 throws ParseException
@@ -181,9 +246,9 @@ public class DismaxQueryParser {
                         querySub = getFieldQuery(f, queryText, quoted);
                         if (querySub instanceof TermQuery) {
 
-                            if (af.isFuzzy()) {
+                            if (af.isFuzzy() && isExpanded) {
                                 Term t = ((TermQuery) querySub).getTerm();
-                                queryWildcard = newPrefixQuery(new Term(t.field(), t.text()));
+                                queryWildcard = newPrefixQuery(new Term(t.field(), t.text()), af.getPrefixField());
                                 queryFuzzy = getFuzzyQuery(t.field(), t.text(), FUZZY_SIMILARITY);
                                 queryFuzzy.setBoost(af.getBoost() * WILDCARD_BOOST_REDUCER);
                                 q.add(queryFuzzy);
@@ -222,6 +287,19 @@ public class DismaxQueryParser {
             query.setRewriteMethod(prefixRewrite);
             return query;
         }
+
+        /**
+         * Builds a prefix query against the prefix field if the field has one
+         * @param prefix Prefix term
+         * @param prefixField field holding the leading parts of the terms of the prefix term field, may be null
+         * @return new prefix query
+         */
+        protected Query newPrefixQuery(Term prefix, String prefixField){
+            if (prefixField == null) {
+                return newPrefixQuery(prefix);
+            }
+            return new PrefixFieldQuery(prefix, prefixField, prefixRewrite);
+        }
     }
 
     /**
@@ -258,6 +336,110 @@ public class DismaxQueryParser {
         }
     }
 
+    /**
+     * Fuzzy rewrite that keeps the rewrites of each reader (see FuzzyTermCache) so a repeated fuzzy term does not
+     * need to be matched against the term dictionary again, and if a fuzzy candidate index was built alongside the
+     * index finds the matching terms from that rather than intersecting an automaton with the term dictionary.
+     *
+     * Matches from the candidate index are scored as FuzzyTermRewrite scores them, 1 - edits / length of the shorter
+     * term, keeping the best size terms.
+     */
+    public static class CachedFuzzyTermRewrite extends MultiTermQuery.RewriteMethod {
+
+        private final int size;
+        private final FuzzyTermRewrite rewrite;
+
+        public CachedFuzzyTermRewrite(int size) {
+            this.size = size;
+            this.rewrite = new FuzzyTermRewrite(size);
+        }
+
+        /**
+         * @param reader
+         * @param query
+         * @return rewrite of the query without its boost, from the cache of the reader if it has already been
+         * rewritten, otherwise rewritten and cached. Must not be changed.
+         * @throws IOException
+         */
+        public Query getCachedRewrite(final IndexReader reader, final FuzzyQuery query) throws IOException {
+            Term term = query.getTerm();
+            String key = query.getMaxEdits() + ":" + query.getPrefixLength() + ":" + term.field() + ":" + term.text();
+
+            // Cached without the boost of the query so can be shared by queries with different boosts
+            FuzzyTermCache cache = FuzzyTermCache.get(reader);
+            Query rewritten = cache.getRewrite(key);
+            if (rewritten == null) {
+                if (cache.getCandidateSearcher() != null) {
+                    rewritten = rewriteCandidates(reader, cache.getCandidateSearcher(), query);
+                }
+                if (rewritten == null) {
+                    FuzzyQuery unboosted = (FuzzyQuery) query.clone();
+                    unboosted.setBoost(1f);
+                    rewritten = rewrite.rewrite(reader, unboosted);
+                }
+                cache.putRewrite(key, rewritten);
+            }
+            return rewritten;
+        }
+
+        @Override
+        public Query rewrite(final IndexReader reader, final MultiTermQuery query) throws IOException {
+            Query result = getCachedRewrite(reader, (FuzzyQuery) query).clone();
+            result.setBoost(query.getBoost());
+            return result;
+        }
+
+        /**
+         * @param reader
+         * @param candidateSearcher
+         * @param query
+         * @return rewrite of the query to the matching terms found in the candidate index, null if they cannot be
+         * found from the candidate index
+         * @throws IOException
+         */
+        private Query rewriteCandidates(final IndexReader reader, final IndexSearcher candidateSearcher,
+                                        final FuzzyQuery query) throws IOException {
+            Term term = query.getTerm();
+            Map<String, Integer> candidates = FuzzyCandidateIndex.findCandidates(candidateSearcher, term.field(),
+                    term.text(), query.getPrefixLength(), query.getMaxEdits());
+            if (candidates == null) {
+                return null;
+            }
+
+            int termLength = term.text().codePointCount(0, term.text().length());
+            final Map<String, Float> boosts = new HashMap<String, Float>();
+            for (Map.Entry<String, Integer> candidate : candidates.entrySet()) {
+                String text = candidate.getKey();
+                float similarity = 1f - ((float) candidate.getValue() / Math.min(text.codePointCount(0, text.length()), termLength));
+                if (similarity > 0f) {
+                    boosts.put(text, similarity);
+                }
+            }
+            List<String> texts = new ArrayList<String>(boosts.keySet());
+            Collections.sort(texts, new Comparator<String>() {
+                public int compare(String a, String b) {
+                    int cmp = Float.compare(boosts.get(b), boosts.get(a));
+                    return cmp != 0 ? cmp : a.compareTo(b);
+                }
+            });
+
+            DisjunctionMaxQuery dmq = rewrite.getTopLevelQuery();
+            int count = 0;
+            for (String text : texts) {
+                if (count >= size) {
+                    break;
+                }
+                Term candidate = new Term(term.field(), text);
+                TermContext states = TermContext.build(reader.getContext(), candidate);
+                if (states.docFreq() > 0) {
+                    rewrite.addClause(dmq, candidate, states.docFreq(), boosts.get(text), states);
+                    count++;
+                }
+            }
+            return dmq;
+        }
+    }
+
     /**
      *
      * Prefix matches are rewritten to a DisjunctionMaxQuery instead of the more usual BooleanQuery so that
@@ -281,10 +463,15 @@ public class DismaxQueryParser {
 
         protected float getQueryBoost(final IndexReader reader, final MultiTermQuery query)
                 throws IOException {
+            PrefixQuery fq = (PrefixQuery) query;
+            return getQueryBoost(similarity, reader, fq.getPrefix());
+        }
+
+        protected static float getQueryBoost(final TFIDFSimilarity similarity, final IndexReader reader, final Term prefix)
+                throws IOException {
             float idf = 1f;
             float df;
-            PrefixQuery fq = (PrefixQuery) query;
-            df = reader.docFreq(fq.getPrefix());
+            df = reader.docFreq(prefix);
             if(df>=1)
             {
                 //Same as idf value for search term, 0.5 acts as length norm
@@ -308,5 +495,58 @@ public class DismaxQueryParser {
         }
     }
 
+    /**
+     * Prefix match against a field indexed with the leading parts of every term of the prefixed field (see
+     * PrefixAnalyzer), so rather than enumerating every term starting with the prefix it is just a single term lookup.
+     * Scored like PrefixTermRewrite, a constant score using the idf of the prefix as an exact term of the prefixed field.
+     *
+     * If the index was built without the prefix field, or the prefix is too long to have been indexed, it is rewritten
+     * to a PrefixQuery on the prefixed field instead.
+     */
+    public static class PrefixFieldQuery extends Query {
+
+        private static final TFIDFSimilarity similarity = new DefaultSimilarity();
+
+        private final Term prefix;
+        private final String prefixField;
+        private final MultiTermQuery.RewriteMethod fallbackRewrite;
 
-}
\ No newline at end of file
+        public PrefixFieldQuery(Term prefix, String prefixField, MultiTermQuery.RewriteMethod fallbackRewrite) {
+            this.prefix = prefix;
+            this.prefixField = prefixField;
+            this.fallbackRewrite = fallbackRewrite;
+        }
+
+        @Override
+        public Query rewrite(IndexReader reader) throws IOException {
+            if (prefix.text().length() > PrefixAnalyzer.MAX_PREFIX_LENGTH || MultiFields.getTerms(reader, prefixField) == null) {
+                PrefixQuery query = new PrefixQuery(prefix);
+                query.setRewriteMethod(fallbackRewrite);
+                query.setBoost(getBoost());
+                return query;
+            }
+            Query query = new ConstantScoreQuery(new TermQuery(new Term(prefixField, prefix.text())));
+            query.setBoost(getBoost() * PrefixTermRewrite.getQueryBoost(similarity, reader, prefix));
+            return query;
+        }
+
+        @Override
+        public String toString(String field) {
+            return prefixField + ":" + prefix.text() + "*" + ToStringUtils.boost(getBoost());
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!super.equals(o)) {
+                return false;
+            }
+            PrefixFieldQuery that = (PrefixFieldQuery) o;
+            return prefix.equals(that.prefix) && prefixField.equals(that.prefixField);
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * (31 * super.hashCode() + prefix.hashCode()) + prefixField.hashCode();
+        }
+    }
+}
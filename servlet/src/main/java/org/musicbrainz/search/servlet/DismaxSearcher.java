@@ -38,6 +38,9 @@ public class DismaxSearcher {
 
     private DismaxAlias dismaxAlias;
 
+    // DismaxQueryParser is not thread safe so each thread reuses its own parser
+    private final ThreadLocal<DismaxQueryParser> parsers = new ThreadLocal<DismaxQueryParser>();
+
     public DismaxSearcher(DismaxAlias dismaxAlias)
     {
         this.dismaxAlias = dismaxAlias;
@@ -45,14 +48,50 @@ public class DismaxSearcher {
 
     public Query parseQuery(String query, Analyzer analyzer) throws ParseException
     {
-        query= QueryParser.escape(query);
-        DismaxQueryParser queryParser = getParser(analyzer);
+        return parseQuery(query, analyzer, true);
+    }
 
-        queryParser.addAlias(DismaxQueryParser.IMPOSSIBLE_FIELD_NAME, dismaxAlias);
+    /**
+     * @param query
+     * @param analyzer
+     * @param isExpanded if false fuzzy and prefix matches are not added for fuzzy fields
+     * @return
+     * @throws ParseException
+     */
+    public Query parseQuery(String query, Analyzer analyzer, boolean isExpanded) throws ParseException
+    {
+        query= QueryParser.escape(query);
+        DismaxQueryParser queryParser = getParser(analyzer, isExpanded);
         Query q = queryParser.parse(query);
         return q;
     }
 
+    /**
+     * @param query
+     * @param analyzer
+     * @param isExpanded if false fuzzy and prefix matches are not added for fuzzy fields
+     * @return the query without phrase matching, or null if the phrase matching cannot be left until rescoring
+     * @throws ParseException
+     */
+    public Query parseTermsQuery(String query, Analyzer analyzer, boolean isExpanded) throws ParseException
+    {
+        query= QueryParser.escape(query);
+        DismaxQueryParser queryParser = getParser(analyzer, isExpanded);
+        Query q = queryParser.parseTerms(query);
+        return q;
+    }
+
+    private DismaxQueryParser getParser(Analyzer analyzer, boolean isExpanded)  {
+        DismaxQueryParser queryParser = parsers.get();
+        if (queryParser == null || queryParser.getAnalyzer() != analyzer) {
+            queryParser = getParser(analyzer);
+            queryParser.addAlias(DismaxQueryParser.IMPOSSIBLE_FIELD_NAME, dismaxAlias);
+            parsers.set(queryParser);
+        }
+        queryParser.setExpanded(isExpanded);
+        return queryParser;
+    }
+
     protected DismaxQueryParser getParser(Analyzer analyzer)  {
         return new DismaxQueryParser(analyzer);
     }
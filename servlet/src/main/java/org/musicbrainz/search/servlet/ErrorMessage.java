@@ -34,7 +34,19 @@ public enum ErrorMessage {
     NO_MATCHES ("zero search hits"),    //Formatting as is because depended on by mb_server
     UNKNOWN_COUNT_TYPE ("Count parameter {0} not valid, should be a type "),
     UNABLE_TO_PARSE_SEARCH_SLASHES_ARE_REGEXP ("Unable to parse search, forward slash is used for regex unless escaped:{0}"),
-    REQUEST_TIMEOUT_EXCEEDED ("Search request timed out -- please wait a moment and try again")
+    REQUEST_TIMEOUT_EXCEEDED ("Search request timed out -- please wait a moment and try again"),
+    QUERY_TOO_EXPENSIVE ("Search is too expensive to run, try a more specific search:{0}"),
+    UNABLE_TO_PARSE_BATCH ("Unable to parse batch request:{0}"),
+    NO_SEARCHES_IN_BATCH ("No searches supplied in batch request"),
+    TOO_MANY_SEARCHES_IN_BATCH ("Batch request contains {0} searches, maximum allowed is {1}"),
+    UNKNOWN_FIELD ("Unknown field {0} in fl parameter"),
+    FIELDS_NOT_SUPPORTED_FOR_TYPE ("fl parameter is not supported for resource type {0}"),
+    UNKNOWN_FACET ("Facet {0} is not available for resource type {1}"),
+    FACETS_NOT_SUPPORTED_FOR_TYPE ("facets parameter is not supported for resource type {0}"),
+    SUGGEST_NOT_AVAILABLE_FOR_TYPE ("Suggestions are not available for resource type {0}"),
+    NOT_AN_IDENTIFIER_FIELD ("{0} is not an identifier field that can be looked up for resource type {1}"),
+    NO_IDS_IN_LOOKUP ("No ids supplied in lookup request"),
+    TOO_MANY_IDS_IN_LOOKUP ("Lookup request contains {0} ids, maximum allowed is {1}")
     ;
 
     String msg;
@@ -25,6 +25,8 @@ public class EventSearch extends AbstractSearchServer {
   public EventSearch() throws Exception {
     resultsWriter = new EventWriter();
     setupDefaultFields();
+    identifierFields = fieldNames(EventIndexField.EVENT_ID, EventIndexField.ARTIST_ID, EventIndexField.PLACE_ID, EventIndexField.AREA_ID);
+    uniqueIdentifierFields = fieldNames(EventIndexField.EVENT_ID);
     analyzer = DatabaseIndex.getAnalyzer(EventIndexField.class);
   }
 
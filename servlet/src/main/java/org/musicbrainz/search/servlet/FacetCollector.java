@@ -0,0 +1,141 @@
+package org.musicbrainz.search.servlet;
+
+import org.apache.lucene.index.AtomicReaderContext;
+import org.apache.lucene.index.SortedSetDocValues;
+import org.apache.lucene.search.Collector;
+import org.apache.lucene.search.Scorer;
+import org.musicbrainz.search.index.FacetIndexField;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Count how many matching documents have each value of the requested facet fields, collected alongside the top hits
+ * (see MultiCollector) so the counts need no extra search.
+ *
+ * Matches are counted by ordinal for each segment, and only values that were matched are looked up when moving on to
+ * the next segment, so the cost for each hit is a few array increments.
+ */
+public class FacetCollector extends Collector {
+
+  // Most values returned for each facet, the values with the most matches are kept
+  public static final int MAX_VALUES = 100;
+
+  private final FacetIndexField[] fields;
+  private final Map<String, Integer>[] counts;
+
+  private SortedSetDocValues[] values;
+  private int[][] segmentCounts;
+
+  @SuppressWarnings("unchecked")
+  public FacetCollector(Set<FacetIndexField> facets) {
+    this.fields = facets.toArray(new FacetIndexField[facets.size()]);
+    this.counts = new Map[fields.length];
+    for (int i = 0; i < fields.length; i++) {
+      counts[i] = new HashMap<String, Integer>();
+    }
+  }
+
+  @Override
+  public void setScorer(Scorer scorer) throws IOException {
+  }
+
+  @Override
+  public void setNextReader(AtomicReaderContext context) throws IOException {
+    flushSegment();
+    values = new SortedSetDocValues[fields.length];
+    segmentCounts = new int[fields.length][];
+    for (int i = 0; i < fields.length; i++) {
+      values[i] = context.reader().getSortedSetDocValues(fields[i].getName());
+      if (values[i] != null) {
+        segmentCounts[i] = new int[(int) values[i].getValueCount()];
+      }
+    }
+  }
+
+  @Override
+  public void collect(int doc) throws IOException {
+    for (int i = 0; i < fields.length; i++) {
+      if (values[i] == null) {
+        continue;
+      }
+      values[i].setDocument(doc);
+      long ord;
+      while ((ord = values[i].nextOrd()) != SortedSetDocValues.NO_MORE_ORDS) {
+        segmentCounts[i][(int) ord]++;
+      }
+    }
+  }
+
+  @Override
+  public boolean acceptsDocsOutOfOrder() {
+    return true;
+  }
+
+  /**
+   * Add the counts of the current segment to the totals by value
+   */
+  private void flushSegment() {
+    if (values == null) {
+      return;
+    }
+    for (int i = 0; i < fields.length; i++) {
+      if (values[i] == null) {
+        continue;
+      }
+      for (int ord = 0; ord < segmentCounts[i].length; ord++) {
+        if (segmentCounts[i][ord] > 0) {
+          String value = values[i].lookupOrd(ord).utf8ToString();
+          Integer count = counts[i].get(value);
+          counts[i].put(value, count == null ? segmentCounts[i][ord] : count + segmentCounts[i][ord]);
+        }
+      }
+    }
+    values = null;
+    segmentCounts = null;
+  }
+
+  /**
+   * Forget everything counted so far, used when the hits collected are discarded and the search is run again
+   */
+  public void clear() {
+    values = null;
+    segmentCounts = null;
+    for (Map<String, Integer> next : counts) {
+      next.clear();
+    }
+  }
+
+  /**
+   * @return for each requested facet its values ordered by number of matching documents, most first
+   */
+  public Map<FacetIndexField, Map<String, Integer>> getCounts() {
+    flushSegment();
+    Map<FacetIndexField, Map<String, Integer>> facets = new LinkedHashMap<FacetIndexField, Map<String, Integer>>();
+    for (int i = 0; i < fields.length; i++) {
+      List<Map.Entry<String, Integer>> entries = new ArrayList<Map.Entry<String, Integer>>(counts[i].entrySet());
+      Collections.sort(entries, BY_COUNT);
+      Map<String, Integer> sorted = new LinkedHashMap<String, Integer>();
+      for (Map.Entry<String, Integer> entry : entries.subList(0, Math.min(MAX_VALUES, entries.size()))) {
+        sorted.put(entry.getKey(), entry.getValue());
+      }
+      facets.put(fields[i], sorted);
+    }
+    return facets;
+  }
+
+  private static final Comparator<Map.Entry<String, Integer>> BY_COUNT = new Comparator<Map.Entry<String, Integer>>() {
+    @Override
+    public int compare(Map.Entry<String, Integer> o1, Map.Entry<String, Integer> o2) {
+      int result = o2.getValue().compareTo(o1.getValue());
+      return result != 0 ? result : o1.getKey().compareTo(o2.getKey());
+    }
+  };
+}
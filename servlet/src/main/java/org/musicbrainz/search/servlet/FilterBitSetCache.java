@@ -0,0 +1,187 @@
+package org.musicbrainz.search.servlet;
+
+import org.apache.lucene.index.AtomicReader;
+import org.apache.lucene.index.DocsEnum;
+import org.apache.lucene.index.IndexReader;
+import org.apache.lucene.index.SegmentReader;
+import org.apache.lucene.index.Term;
+import org.apache.lucene.index.Terms;
+import org.apache.lucene.index.TermsEnum;
+import org.apache.lucene.search.DocIdSetIterator;
+import org.apache.lucene.util.FixedBitSet;
+import org.apache.lucene.util.RamUsageEstimator;
+
+import java.io.IOException;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Documents of each index segment matching a constraint term (see CachedTermFilter), shared by every search server.
+ *
+ * Bitsets are kept for the segment core so ignore deletions, which are applied when the filter is used. So when the
+ * index is reopened after an update only new and merged segments need their bitsets built, a segment is dropped from
+ * the cache once its core is closed. The least recently used bitsets are dropped when the cache uses more than
+ * maxBytes.
+ */
+public class FilterBitSetCache {
+
+  public static final long DEFAULT_MAX_BYTES = 64L * 1024 * 1024;
+
+  private static volatile long maxBytes = DEFAULT_MAX_BYTES;
+
+  private static final Map<Key, FixedBitSet> bitSets = new LinkedHashMap<Key, FixedBitSet>(16, 0.75f, true);
+  private static final Set<Object> cores = new HashSet<Object>();
+  private static long bytes;
+
+  private static final AtomicLong hitCount = new AtomicLong(0);
+  private static final AtomicLong missCount = new AtomicLong(0);
+  private static final AtomicLong evictionCount = new AtomicLong(0);
+
+  private static final SegmentReader.CoreClosedListener purgeCore = new SegmentReader.CoreClosedListener() {
+    @Override
+    public void onClose(Object ownerCoreCacheKey) {
+      purge(ownerCoreCacheKey);
+    }
+  };
+
+  private static final IndexReader.ReaderClosedListener purgeReader = new IndexReader.ReaderClosedListener() {
+    @Override
+    public void onClose(IndexReader reader) {
+      purge(reader.getCoreCacheKey());
+    }
+  };
+
+  /**
+   * @param maxBytes memory the cached bitsets may use, 0 to disable
+   */
+  public static void setMaxBytes(long maxBytes) {
+    FilterBitSetCache.maxBytes = maxBytes;
+  }
+
+  /**
+   * @param reader segment reader
+   * @param term
+   * @return documents of the segment containing the term, including deleted documents, or null if none do
+   * @throws IOException
+   */
+  public static FixedBitSet get(AtomicReader reader, Term term) throws IOException {
+    Key key = new Key(reader.getCoreCacheKey(), term);
+    FixedBitSet bits;
+    synchronized (bitSets) {
+      bits = bitSets.get(key);
+    }
+    if (bits != null) {
+      hitCount.incrementAndGet();
+      return bits;
+    }
+
+    missCount.incrementAndGet();
+    bits = build(reader, term);
+    if (bits != null) {
+      put(reader, key, bits);
+    }
+    return bits;
+  }
+
+  private static FixedBitSet build(AtomicReader reader, Term term) throws IOException {
+    Terms terms = reader.terms(term.field());
+    if (terms == null) {
+      return null;
+    }
+    TermsEnum termsEnum = terms.iterator(null);
+    if (!termsEnum.seekExact(term.bytes())) {
+      return null;
+    }
+    FixedBitSet bits = new FixedBitSet(reader.maxDoc());
+    DocsEnum docs = termsEnum.docs(null, null, DocsEnum.FLAG_NONE);
+    int doc;
+    while ((doc = docs.nextDoc()) != DocIdSetIterator.NO_MORE_DOCS) {
+      bits.set(doc);
+    }
+    return bits;
+  }
+
+  private static void put(AtomicReader reader, Key key, FixedBitSet bits) {
+    long size = RamUsageEstimator.sizeOf(bits.getBits());
+    boolean isNewCore;
+    synchronized (bitSets) {
+      if (size > maxBytes) {
+        return;
+      }
+      FixedBitSet previous = bitSets.put(key, bits);
+      if (previous != null) {
+        bytes -= RamUsageEstimator.sizeOf(previous.getBits());
+      }
+      bytes += size;
+      Iterator<FixedBitSet> eldest = bitSets.values().iterator();
+      while (bytes > maxBytes && eldest.hasNext()) {
+        bytes -= RamUsageEstimator.sizeOf(eldest.next().getBits());
+        eldest.remove();
+        evictionCount.incrementAndGet();
+      }
+      isNewCore = cores.add(key.coreKey);
+    }
+
+    // Register outside the lock, a listener may be called straight away if the reader is already closed
+    if (isNewCore) {
+      if (reader instanceof SegmentReader) {
+        ((SegmentReader) reader).addCoreClosedListener(purgeCore);
+      } else {
+        reader.addReaderClosedListener(purgeReader);
+      }
+    }
+  }
+
+  private static void purge(Object coreKey) {
+    synchronized (bitSets) {
+      Iterator<Map.Entry<Key, FixedBitSet>> entries = bitSets.entrySet().iterator();
+      while (entries.hasNext()) {
+        Map.Entry<Key, FixedBitSet> entry = entries.next();
+        if (entry.getKey().coreKey == coreKey) {
+          bytes -= RamUsageEstimator.sizeOf(entry.getValue().getBits());
+          entries.remove();
+        }
+      }
+      cores.remove(coreKey);
+    }
+  }
+
+  /**
+   * @return size and hit rate of the cache
+   */
+  public static String getStats() {
+    synchronized (bitSets) {
+      return "entries=" + bitSets.size() + ",bytes=" + bytes + ",maxbytes=" + maxBytes
+          + ",hits=" + hitCount.get() + ",misses=" + missCount.get() + ",evictions=" + evictionCount.get();
+    }
+  }
+
+  private static class Key {
+
+    private final Object coreKey;
+    private final Term term;
+
+    Key(Object coreKey, Term term) {
+      this.coreKey = coreKey;
+      this.term = term;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      if (!(o instanceof Key)) {
+        return false;
+      }
+      Key that = (Key) o;
+      return coreKey == that.coreKey && term.equals(that.term);
+    }
+
+    @Override
+    public int hashCode() {
+      return 31 * System.identityHashCode(coreKey) + term.hashCode();
+    }
+  }
+}
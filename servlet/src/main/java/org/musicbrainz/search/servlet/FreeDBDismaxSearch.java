@@ -50,8 +50,7 @@ public class FreeDBDismaxSearch extends AbstractDismaxSearchServer {
   {
     //Treat all as text
     query=QueryParser.escape(query);
-    QueryParser parser = realSearchServer.getParser();
-    return parser.parse(query);
+    return realSearchServer.parseQuery(query);
   }
 
   @Override
@@ -28,6 +28,8 @@ public class FreeDBSearch extends AbstractSearchServer {
     resultsWriter = new FreeDBWriter();
     mmd1Writer = null;
     setupDefaultFields();
+    identifierFields = fieldNames(FreeDBIndexField.DISCID);
+    uniqueIdentifierFields = fieldNames(FreeDBIndexField.DISCID);
     analyzer = DatabaseIndex.getAnalyzer(FreeDBIndexField.class);
   }
 
@@ -0,0 +1,138 @@
+package org.musicbrainz.search.servlet;
+
+import org.apache.lucene.index.DirectoryReader;
+import org.apache.lucene.index.IndexReader;
+import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.search.Query;
+import org.musicbrainz.search.index.FuzzyCandidateIndex;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Fuzzy matching state of an index reader, the fuzzy candidate index built alongside the index (if any) and the most
+ * recently used fuzzy rewrites. Rewrites hold the term states of the reader so are only valid for that reader, and
+ * the same misspelt name tends to be searched many times between index updates.
+ *
+ * The state is discarded when the reader is closed, a WeakHashMap cannot be used because the cached rewrites refer
+ * back to the reader.
+ */
+public class FuzzyTermCache {
+
+  public static final int DEFAULT_MAX_SIZE = 10000;
+
+  private static volatile int maxSize = DEFAULT_MAX_SIZE;
+
+  private static final Map<IndexReader, FuzzyTermCache> caches
+      = Collections.synchronizedMap(new HashMap<IndexReader, FuzzyTermCache>());
+
+  private final Map<String, Query> rewrites;
+  private final DirectoryReader candidateReader;
+  private final IndexSearcher candidateSearcher;
+
+  private FuzzyTermCache(final int size, DirectoryReader candidateReader) {
+    this.rewrites = new LinkedHashMap<String, Query>(16, 0.75f, true) {
+      @Override
+      protected boolean removeEldestEntry(Map.Entry<String, Query> eldest) {
+        return size() > size;
+      }
+    };
+    this.candidateReader = candidateReader;
+    this.candidateSearcher = candidateReader != null ? new IndexSearcher(candidateReader) : null;
+  }
+
+  /**
+   * @param maxSize number of fuzzy rewrites cached for each reader, 0 to disable
+   */
+  public static void setMaxSize(int maxSize) {
+    FuzzyTermCache.maxSize = maxSize;
+  }
+
+  /**
+   * Load the fuzzy candidate index of a newly opened reader of an index. The updater adds new terms to the candidate
+   * index just after committing the index, so a reader opened in between only finds them once it is next reopened.
+   *
+   * @param reader
+   * @param indexDir directory of the index the reader was opened on
+   * @throws IOException
+   */
+  public static void register(IndexReader reader, File indexDir) throws IOException {
+    DirectoryReader candidateReader = FuzzyCandidateIndex.open(new File(indexDir, FuzzyCandidateIndex.FUZZY_DIR));
+    if (candidateReader != null) {
+      add(reader, new FuzzyTermCache(maxSize, candidateReader));
+    }
+  }
+
+  /**
+   * @param reader
+   * @return fuzzy matching state of the reader
+   */
+  public static FuzzyTermCache get(IndexReader reader) {
+    FuzzyTermCache cache = caches.get(reader);
+    if (cache == null) {
+      synchronized (caches) {
+        cache = caches.get(reader);
+        if (cache == null) {
+          cache = add(reader, new FuzzyTermCache(maxSize, null));
+        }
+      }
+    }
+    return cache;
+  }
+
+  private static FuzzyTermCache add(final IndexReader reader, final FuzzyTermCache cache) {
+    caches.put(reader, cache);
+    reader.addReaderClosedListener(new IndexReader.ReaderClosedListener() {
+      @Override
+      public void onClose(IndexReader closed) {
+        caches.remove(reader);
+        cache.close();
+      }
+    });
+    return cache;
+  }
+
+  private void close() {
+    synchronized (rewrites) {
+      rewrites.clear();
+    }
+    if (candidateReader != null) {
+      try {
+        candidateReader.close();
+        candidateReader.directory().close();
+      } catch (IOException e) {
+        // Nothing more can be done, it is no longer used
+      }
+    }
+  }
+
+  /**
+   * @return searcher of the fuzzy candidate index, null if the index was built without one
+   */
+  public IndexSearcher getCandidateSearcher() {
+    return candidateSearcher;
+  }
+
+  /**
+   * @param key
+   * @return cached rewrite, callers must clone it before changing it
+   */
+  public Query getRewrite(String key) {
+    synchronized (rewrites) {
+      return rewrites.get(key);
+    }
+  }
+
+  public void putRewrite(String key, Query rewrite) {
+    if (maxSize <= 0) {
+      return;
+    }
+    synchronized (rewrites) {
+      rewrites.put(key, rewrite);
+    }
+  }
+}
@@ -24,6 +24,8 @@ public class InstrumentSearch extends AbstractSearchServer {
   public InstrumentSearch() throws Exception {
     resultsWriter = new InstrumentWriter();
     setupDefaultFields();
+    identifierFields = fieldNames(InstrumentIndexField.INSTRUMENT_ID);
+    uniqueIdentifierFields = fieldNames(InstrumentIndexField.INSTRUMENT_ID);
     analyzer = DatabaseIndex.getAnalyzer(InstrumentIndexField.class);
   }
 
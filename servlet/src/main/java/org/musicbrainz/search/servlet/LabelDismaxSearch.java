@@ -40,7 +40,8 @@ public class LabelDismaxSearch extends AbstractDismaxSearchServer {
   protected DismaxSearcher initDismaxSearcher() {
     Map<String, DismaxAlias.AliasField> fieldBoosts = new HashMap<String, DismaxAlias.AliasField>(3);
     fieldBoosts.put(LabelIndexField.LABEL_ACCENT.getName(), new DismaxAlias.AliasField(false, 1.4f));
-    fieldBoosts.put(LabelIndexField.LABEL.getName(), new DismaxAlias.AliasField(true, 1.3f));
+    fieldBoosts.put(LabelIndexField.LABEL.getName(), new DismaxAlias.AliasField(true, 1.3f, LabelIndexField.LABEL_PREFIX.getName(),
+            LabelIndexField.LABEL_SHINGLE.getName()));
     fieldBoosts.put(LabelIndexField.CODE.getName(), new DismaxAlias.AliasField(true, 1.3f));
     fieldBoosts.put(LabelIndexField.SORTNAME.getName(), new DismaxAlias.AliasField(true, 1.1f));
     fieldBoosts.put(LabelIndexField.ALIAS.getName(), new DismaxAlias.AliasField(true, 0.9f));
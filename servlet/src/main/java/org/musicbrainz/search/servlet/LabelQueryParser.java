@@ -2,6 +2,8 @@ package org.musicbrainz.search.servlet;
 
 import org.apache.lucene.index.Term;
 import org.apache.lucene.queryparser.classic.MultiFieldQueryParser;
+import org.apache.lucene.queryparser.classic.ParseException;
+import org.apache.lucene.search.BooleanClause;
 import org.apache.lucene.search.Query;
 import org.apache.lucene.search.TermQuery;
 import org.apache.lucene.search.TermRangeQuery;
@@ -11,14 +13,36 @@ import org.musicbrainz.search.LuceneVersion;
 import org.musicbrainz.search.index.LabelIndexField;
 import org.musicbrainz.search.servlet.mmd1.LabelType;
 
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
 public class LabelQueryParser extends MultiFieldQueryParser
 {
 
+    // Two word phrases on these fields are looked up in their shingle field
+    private static final Map<String, String> SHINGLE_FIELDS
+            = Collections.singletonMap(LabelIndexField.LABEL.getName(), LabelIndexField.LABEL_SHINGLE.getName());
+
     public LabelQueryParser(java.lang.String[] strings, org.apache.lucene.analysis.Analyzer analyzer)
     {
         super(LuceneVersion.LUCENE_VERSION, strings, analyzer);
     }
 
+    @Override
+    protected Query getFieldQuery(String field, String queryText, int slop) throws ParseException
+    {
+        return ShingleFieldQuery.replacePhrases(super.getFieldQuery(field, queryText, slop), SHINGLE_FIELDS);
+    }
+
+    @Override
+    protected Query getBooleanQuery(List<BooleanClause> clauses, boolean disableCoord) throws ParseException
+    {
+        Query query = super.getBooleanQuery(clauses, disableCoord);
+        // Only the queries of words entered by the user, not expansion over multiple fields
+        return disableCoord ? query : CommonTermsBooleanQuery.wrap(query);
+    }
+
     @Override
     protected Query newTermQuery(Term term)
     {
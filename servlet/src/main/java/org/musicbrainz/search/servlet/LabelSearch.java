@@ -27,6 +27,9 @@ public class LabelSearch extends AbstractSearchServer {
     resultsWriter = new LabelWriter();
     mmd1Writer = new LabelMmd1XmlWriter();
     setupDefaultFields();
+    identifierFields = fieldNames(LabelIndexField.LABEL_ID, LabelIndexField.IPI);
+    uniqueIdentifierFields = fieldNames(LabelIndexField.LABEL_ID);
+    filterFields = fieldNames(LabelIndexField.TYPE, LabelIndexField.COUNTRY);
     analyzer = DatabaseIndex.getAnalyzer(LabelIndexField.class);
   }
 
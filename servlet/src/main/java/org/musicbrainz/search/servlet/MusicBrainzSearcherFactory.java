@@ -1,5 +1,6 @@
 package org.musicbrainz.search.servlet;
 
+import java.io.File;
 import java.io.IOException;
 
 import org.apache.lucene.index.IndexReader;
@@ -10,9 +11,19 @@ import org.apache.lucene.search.similarities.Similarity;
 public class MusicBrainzSearcherFactory extends SearcherFactory {
 
   private final ResourceType resourceType;
+  private final File indexDir;
 
   public MusicBrainzSearcherFactory(ResourceType resourceType) {
+    this(resourceType, null);
+  }
+
+  /**
+   * @param resourceType
+   * @param indexDir directory of the index, so that files built alongside the index can be loaded for each reader
+   */
+  public MusicBrainzSearcherFactory(ResourceType resourceType, File indexDir) {
     this.resourceType = resourceType;
+    this.indexDir = indexDir;
   }
 
   @Override
@@ -32,6 +43,11 @@ public class MusicBrainzSearcherFactory extends SearcherFactory {
       }
     }
 
+    // Fuzzy candidate index is optional, only available if built with the index
+    if (indexDir != null) {
+      FuzzyTermCache.register(reader, indexDir);
+    }
+
     return searcher;
   }
 
@@ -0,0 +1,78 @@
+package org.musicbrainz.search.servlet;
+
+import org.apache.lucene.search.Query;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Most recently parsed queries of a search server, keyed by the way the query was parsed and the query string. The
+ * same query strings are searched again and again, and parsing analyzes every term of the query which is a noticeable
+ * part of the cost of a short query.
+ *
+ * Parsed queries only depend on the parser and analyzer of the search server, not the index, so remain valid when the
+ * index is reloaded. They are shared by every request that searches the same string so must not be modified, clone
+ * the query first.
+ */
+public class ParsedQueryCache {
+
+  public static final int DEFAULT_MAX_SIZE = 1000;
+
+  private static volatile int maxSize = DEFAULT_MAX_SIZE;
+
+  private final Map<String, Query> queries = new LinkedHashMap<String, Query>(16, 0.75f, true) {
+    @Override
+    protected boolean removeEldestEntry(Map.Entry<String, Query> eldest) {
+      return size() > maxSize;
+    }
+  };
+
+  private final AtomicLong hitCount = new AtomicLong(0);
+  private final AtomicLong missCount = new AtomicLong(0);
+
+  /**
+   * @param maxSize number of parsed queries cached by each search server, 0 to disable
+   */
+  public static void setMaxSize(int maxSize) {
+    ParsedQueryCache.maxSize = maxSize;
+  }
+
+  private static String key(String kind, String query) {
+    return kind + ':' + query;
+  }
+
+  /**
+   * @param kind how the query was parsed
+   * @param query query string
+   * @return the parsed query or null if not cached
+   */
+  public Query get(String kind, String query) {
+    Query parsed;
+    synchronized (queries) {
+      parsed = queries.get(key(kind, query));
+    }
+    if (parsed != null) {
+      hitCount.incrementAndGet();
+    } else {
+      missCount.incrementAndGet();
+    }
+    return parsed;
+  }
+
+  public void put(String kind, String query, Query parsed) {
+    if (maxSize <= 0 || parsed == null) {
+      return;
+    }
+    synchronized (queries) {
+      queries.put(key(kind, query), parsed);
+    }
+  }
+
+  /**
+   * @return hits and misses since the servlet started
+   */
+  public String getStats() {
+    return "hits=" + hitCount.get() + ",misses=" + missCount.get();
+  }
+}
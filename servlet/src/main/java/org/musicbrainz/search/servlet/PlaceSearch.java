@@ -26,6 +26,8 @@ public class PlaceSearch extends AbstractSearchServer {
   public PlaceSearch() throws Exception {
     resultsWriter = new PlaceWriter();
     setupDefaultFields();
+    identifierFields = fieldNames(PlaceIndexField.PLACE_ID);
+    uniqueIdentifierFields = fieldNames(PlaceIndexField.PLACE_ID);
     analyzer = DatabaseIndex.getAnalyzer(PlaceIndexField.class);
   }
 
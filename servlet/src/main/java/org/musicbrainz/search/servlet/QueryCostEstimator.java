@@ -0,0 +1,235 @@
+package org.musicbrainz.search.servlet;
+
+import org.apache.lucene.index.AtomicReaderContext;
+import org.apache.lucene.index.IndexReader;
+import org.apache.lucene.index.Term;
+import org.apache.lucene.index.Terms;
+import org.apache.lucene.index.TermsEnum;
+import org.apache.lucene.search.BooleanClause;
+import org.apache.lucene.search.BooleanQuery;
+import org.apache.lucene.search.ConstantScoreQuery;
+import org.apache.lucene.search.DisjunctionMaxQuery;
+import org.apache.lucene.search.FuzzyQuery;
+import org.apache.lucene.search.MatchAllDocsQuery;
+import org.apache.lucene.search.MultiPhraseQuery;
+import org.apache.lucene.search.MultiTermQuery;
+import org.apache.lucene.search.PhraseQuery;
+import org.apache.lucene.search.PrefixQuery;
+import org.apache.lucene.search.Query;
+import org.apache.lucene.search.TermQuery;
+import org.apache.lucene.search.WildcardQuery;
+import org.apache.lucene.util.AttributeSource;
+
+import java.io.IOException;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * Estimate how much work a parsed query will do before it is run, from the term statistics of the index rather than
+ * by running it.
+ *
+ * The cost is the number of postings that will be read, the doc freq of each term searched. Multi term queries such
+ * as prefix and fuzzy queries have their terms enumerated to find which terms they expand to, but only up to a limit
+ * because enumerating a huge expansion is itself expensive. Dismax fuzzy queries are instead charged for the terms of
+ * their cached rewrite (see CachedFuzzyTermRewrite), rewriting them here if not yet cached so the search then reuses
+ * the rewrite rather than enumerating the terms a second time. A wildcard with a leading wildcard has to scan every term
+ * of the field, so is charged the number of terms in the field without enumerating them.
+ *
+ * Filters are charged nothing because they are cached (see CachedTermFilter), queries that are not recognised are
+ * rewritten and the rewritten query estimated instead.
+ */
+public class QueryCostEstimator {
+
+    // Custom queries are rewritten at most this many times to find a query that can be estimated
+    private static final int MAX_REWRITES = 4;
+
+    /**
+     * Estimated cost of a query
+     */
+    public static class Cost {
+
+        private long postings;
+        private long expandedTerms;
+        private long fuzzyTerms;
+        private boolean isTruncated;
+
+        /**
+         * @return number of postings the query is expected to read
+         */
+        public long getPostings() {
+            return postings;
+        }
+
+        /**
+         * @return number of terms multi term queries expand to
+         */
+        public long getExpandedTerms() {
+            return expandedTerms;
+        }
+
+        /**
+         * @return number of terms fuzzy queries expand to
+         */
+        public long getFuzzyTerms() {
+            return fuzzyTerms;
+        }
+
+        /**
+         * @return true if a multi term query expanded to more terms than were enumerated, so the cost is a lower bound
+         */
+        public boolean isTruncated() {
+            return isTruncated;
+        }
+
+        @Override
+        public String toString() {
+            return "postings=" + postings + ",terms=" + expandedTerms + ",fuzzyterms=" + fuzzyTerms
+                    + (isTruncated ? ",truncated" : "");
+        }
+    }
+
+    private final IndexReader reader;
+    private final int maxTerms;
+    private final Cost cost = new Cost();
+
+    private QueryCostEstimator(IndexReader reader, int maxTerms) {
+        this.reader = reader;
+        this.maxTerms = maxTerms;
+    }
+
+    /**
+     * @param reader top level reader the query will be run against
+     * @param query parsed query
+     * @param maxTerms most terms enumerated for each multi term query
+     * @return estimated cost of running the query
+     * @throws IOException
+     */
+    public static Cost estimate(IndexReader reader, Query query, int maxTerms) throws IOException {
+        QueryCostEstimator estimator = new QueryCostEstimator(reader, maxTerms);
+        estimator.add(query, 0);
+        return estimator.cost;
+    }
+
+    private void add(Query query, int rewrites) throws IOException {
+        if (query instanceof TermQuery) {
+            cost.postings += reader.docFreq(((TermQuery) query).getTerm());
+        } else if (query instanceof BooleanQuery) {
+            for (BooleanClause clause : ((BooleanQuery) query).clauses()) {
+                add(clause.getQuery(), rewrites);
+            }
+        } else if (query instanceof DisjunctionMaxQuery) {
+            for (Query disjunct : ((DisjunctionMaxQuery) query).getDisjuncts()) {
+                add(disjunct, rewrites);
+            }
+        } else if (query instanceof PhraseQuery) {
+            for (Term term : ((PhraseQuery) query).getTerms()) {
+                cost.postings += reader.docFreq(term);
+            }
+        } else if (query instanceof MultiPhraseQuery) {
+            for (Term[] terms : ((MultiPhraseQuery) query).getTermArrays()) {
+                for (Term term : terms) {
+                    cost.postings += reader.docFreq(term);
+                }
+            }
+        } else if (query instanceof ConstantScoreQuery) {
+            Query inner = ((ConstantScoreQuery) query).getQuery();
+            if (inner != null) {
+                add(inner, rewrites);
+            }
+        } else if (query instanceof CachedTermQuery) {
+            // Documents are cached, nothing is read from the index
+        } else if (query instanceof MatchAllDocsQuery) {
+            cost.postings += reader.maxDoc();
+        } else if (query instanceof FuzzyQuery
+                && ((FuzzyQuery) query).getRewriteMethod() instanceof DismaxQueryParser.CachedFuzzyTermRewrite) {
+            Query rewritten = ((DismaxQueryParser.CachedFuzzyTermRewrite) ((FuzzyQuery) query).getRewriteMethod())
+                    .getCachedRewrite(reader, (FuzzyQuery) query);
+            Set<Term> terms = new HashSet<Term>();
+            rewritten.extractTerms(terms);
+            cost.expandedTerms += terms.size();
+            cost.fuzzyTerms += terms.size();
+            add(rewritten, rewrites);
+        } else if (query instanceof MultiTermQuery) {
+            new CountingRewrite().rewrite(reader, (MultiTermQuery) query);
+        } else if (rewrites < MAX_REWRITES) {
+            Query rewritten = query.rewrite(reader);
+            if (rewritten != query) {
+                add(rewritten, rewrites + 1);
+            } else {
+                addTerms(query);
+            }
+        }
+    }
+
+    /**
+     * Charge an unrecognised query for every term it searches
+     */
+    private void addTerms(Query query) throws IOException {
+        Set<Term> terms = new HashSet<Term>();
+        try {
+            query.extractTerms(terms);
+        } catch (UnsupportedOperationException e) {
+            return;
+        }
+        for (Term term : terms) {
+            cost.postings += reader.docFreq(term);
+        }
+    }
+
+    /**
+     * @param query
+     * @return true if the query has to scan every term of the field because it has no fixed leading text
+     */
+    static boolean isLeadingWildcard(MultiTermQuery query) {
+        if (query instanceof WildcardQuery) {
+            String text = ((WildcardQuery) query).getTerm().text();
+            return text.length() > 0
+                    && (text.charAt(0) == WildcardQuery.WILDCARD_STRING || text.charAt(0) == WildcardQuery.WILDCARD_CHAR);
+        }
+        if (query instanceof PrefixQuery) {
+            return ((PrefixQuery) query).getPrefix().text().length() == 0;
+        }
+        return false;
+    }
+
+    /**
+     * Only used to get at the terms enum of a multi term query, enumerates the terms the query expands to adding their
+     * doc freqs to the cost, the query is never actually rewritten
+     */
+    private class CountingRewrite extends MultiTermQuery.RewriteMethod {
+
+        @Override
+        public Query rewrite(IndexReader reader, MultiTermQuery query) throws IOException {
+            boolean isLeadingWildcard = isLeadingWildcard(query);
+            long count = 0;
+            for (AtomicReaderContext context : reader.leaves()) {
+                Terms terms = context.reader().terms(query.getField());
+                if (terms == null) {
+                    continue;
+                }
+                if (isLeadingWildcard) {
+                    // Every term is read so charge for the scan, too expensive to enumerate just to estimate it
+                    cost.postings += Math.max(terms.size(), 0);
+                    cost.isTruncated = true;
+                    continue;
+                }
+                TermsEnum termsEnum = getTermsEnum(query, terms, new AttributeSource());
+                while (termsEnum.next() != null) {
+                    cost.postings += termsEnum.docFreq();
+                    if (++count > maxTerms) {
+                        cost.isTruncated = true;
+                        break;
+                    }
+                }
+                if (count > maxTerms) {
+                    break;
+                }
+            }
+            cost.expandedTerms += count;
+            if (query instanceof FuzzyQuery) {
+                cost.fuzzyTerms += count;
+            }
+            return query;
+        }
+    }
+}
@@ -0,0 +1,255 @@
+package org.musicbrainz.search.servlet;
+
+import org.apache.lucene.index.IndexReader;
+import org.apache.lucene.search.BooleanClause;
+import org.apache.lucene.search.BooleanQuery;
+import org.apache.lucene.search.DisjunctionMaxQuery;
+import org.apache.lucene.search.FuzzyQuery;
+import org.apache.lucene.search.MultiTermQuery;
+import org.apache.lucene.search.Query;
+import org.apache.lucene.search.TermQuery;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Logger;
+
+/**
+ * Checks the estimated cost of a query (see QueryCostEstimator) before it is run, so that a few pathological queries
+ * such as leading wildcards or fuzzy matches of short words cannot hold up every other search until they time out.
+ *
+ * <ul>
+ * <li>If fuzzy matching expands to more than maxFuzzyTerms terms, or the query is expensive and has fuzzy matches,
+ * the fuzzy queries are replaced by exact term queries</li>
+ * <li>If the query would still read more than maxPostings postings it is rejected</li>
+ * <li>If it would read more than expensivePostings postings only a few such queries can run at once, it is rejected
+ * if it cannot start within a second</li>
+ * </ul>
+ *
+ * Estimates of expensive or slow queries are logged with the actual hits and time taken so the limits can be tuned.
+ */
+public class QueryGuard {
+
+    private static final Logger log = Logger.getLogger(QueryGuard.class.getName());
+
+    public static final long DEFAULT_MAX_POSTINGS = 50000000L;
+    public static final long DEFAULT_EXPENSIVE_POSTINGS = 5000000L;
+    public static final int DEFAULT_MAX_FUZZY_TERMS = 1000;
+    public static final int DEFAULT_EXPENSIVE_PERMITS = 2;
+
+    // How long an expensive query waits to start before it is rejected
+    private static final long EXPENSIVE_WAIT_MS = 1000;
+
+    // Queries taking longer than this are logged
+    private static final long SLOW_QUERY_MS = 250;
+
+    private static volatile long maxPostings = DEFAULT_MAX_POSTINGS;
+    private static volatile long expensivePostings = DEFAULT_EXPENSIVE_POSTINGS;
+    private static volatile int maxFuzzyTerms = DEFAULT_MAX_FUZZY_TERMS;
+    private static volatile Semaphore expensivePermits = new Semaphore(DEFAULT_EXPENSIVE_PERMITS);
+
+    private static final AtomicLong downgradedCount = new AtomicLong(0);
+    private static final AtomicLong expensiveCount = new AtomicLong(0);
+    private static final AtomicLong rejectedCount = new AtomicLong(0);
+
+    /**
+     * Thrown instead of running a query that is estimated to be too expensive
+     */
+    public static class QueryTooExpensiveException extends RuntimeException {
+
+        public QueryTooExpensiveException(QueryCostEstimator.Cost cost) {
+            super("Query too expensive: " + cost);
+        }
+    }
+
+    /**
+     * @param maxPostings queries estimated to read more postings are rejected, 0 to disable
+     */
+    public static void setMaxPostings(long maxPostings) {
+        QueryGuard.maxPostings = maxPostings;
+    }
+
+    /**
+     * @param expensivePostings queries estimated to read more postings share a few permits to run, 0 to disable
+     */
+    public static void setExpensivePostings(long expensivePostings) {
+        QueryGuard.expensivePostings = expensivePostings;
+    }
+
+    /**
+     * @param maxFuzzyTerms fuzzy queries expanding to more terms are searched exactly, 0 to disable
+     */
+    public static void setMaxFuzzyTerms(int maxFuzzyTerms) {
+        QueryGuard.maxFuzzyTerms = maxFuzzyTerms;
+    }
+
+    /**
+     * @param permits number of expensive queries that can run at once
+     */
+    public static void setExpensivePermits(int permits) {
+        QueryGuard.expensivePermits = new Semaphore(permits);
+    }
+
+    private static boolean isEnabled() {
+        return maxPostings > 0 || expensivePostings > 0 || maxFuzzyTerms > 0;
+    }
+
+    /**
+     * A query allowed to run, call finish() once it has run
+     */
+    public static class Admission {
+
+        private final Query query;
+        private final QueryCostEstimator.Cost cost;
+        private final Semaphore permit;
+        private final long start = System.currentTimeMillis();
+
+        private Admission(Query query, QueryCostEstimator.Cost cost, Semaphore permit) {
+            this.query = query;
+            this.cost = cost;
+            this.permit = permit;
+        }
+
+        /**
+         * @return query to run, without fuzzy matching if it was downgraded
+         */
+        public Query getQuery() {
+            return query;
+        }
+
+        /**
+         * @param totalHits number of matches found
+         */
+        public void finish(int totalHits) {
+            if (permit != null) {
+                permit.release();
+            }
+            long elapsed = System.currentTimeMillis() - start;
+            if (cost != null && (permit != null || elapsed >= SLOW_QUERY_MS)) {
+                log.info("Query cost estimated " + cost + " actual hits=" + totalHits + ",ms=" + elapsed + " query " + query);
+            }
+        }
+    }
+
+    /**
+     * Estimate the cost of the query and decide whether and how it can be run
+     *
+     * @param reader reader the query will be run against
+     * @param query
+     * @return the admitted query, which the caller must finish()
+     * @throws IOException
+     * @throws QueryTooExpensiveException if the query must not be run
+     */
+    public static Admission admit(IndexReader reader, Query query) throws IOException {
+        if (!isEnabled()) {
+            return new Admission(query, null, null);
+        }
+
+        int maxTerms = maxFuzzyTerms > 0 ? maxFuzzyTerms : DEFAULT_MAX_FUZZY_TERMS;
+        QueryCostEstimator.Cost cost = QueryCostEstimator.estimate(reader, query, maxTerms);
+        if (cost.getFuzzyTerms() > 0
+                && ((maxFuzzyTerms > 0 && cost.getFuzzyTerms() > maxFuzzyTerms)
+                || (expensivePostings > 0 && cost.getPostings() > expensivePostings))) {
+            Query exact = withoutFuzzy(reader, query);
+            if (exact != query) {
+                downgradedCount.incrementAndGet();
+                log.info("Query fuzzy matching disabled, estimated " + cost + " query " + query);
+                query = exact;
+                cost = QueryCostEstimator.estimate(reader, query, maxTerms);
+            }
+        }
+
+        if (maxPostings > 0 && cost.getPostings() > maxPostings) {
+            rejectedCount.incrementAndGet();
+            log.info("Query rejected, estimated " + cost + " query " + query);
+            throw new QueryTooExpensiveException(cost);
+        }
+
+        Semaphore permit = null;
+        if (expensivePostings > 0 && cost.getPostings() > expensivePostings) {
+            expensiveCount.incrementAndGet();
+            permit = expensivePermits;
+            boolean isAcquired;
+            try {
+                isAcquired = permit.tryAcquire(EXPENSIVE_WAIT_MS, TimeUnit.MILLISECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                isAcquired = false;
+            }
+            if (!isAcquired) {
+                rejectedCount.incrementAndGet();
+                log.info("Query rejected, too many expensive queries running, estimated " + cost + " query " + query);
+                throw new QueryTooExpensiveException(cost);
+            }
+        }
+        return new Admission(query, cost, permit);
+    }
+
+    /**
+     * @param reader
+     * @param query
+     * @return the query with every fuzzy query replaced by a query on the exact term, or the same query if it has no
+     * fuzzy queries. Parsed queries are shared so the query is copied rather than changed.
+     * @throws IOException
+     */
+    static Query withoutFuzzy(IndexReader reader, Query query) throws IOException {
+        if (query instanceof FuzzyQuery) {
+            Query exact = new TermQuery(((FuzzyQuery) query).getTerm());
+            exact.setBoost(query.getBoost());
+            return exact;
+        } else if (query instanceof BooleanQuery) {
+            BooleanQuery bq = (BooleanQuery) query;
+            List<Query> subQueries = new ArrayList<Query>();
+            boolean isChanged = false;
+            for (BooleanClause clause : bq.clauses()) {
+                Query subQuery = withoutFuzzy(reader, clause.getQuery());
+                isChanged |= subQuery != clause.getQuery();
+                subQueries.add(subQuery);
+            }
+            if (!isChanged) {
+                return query;
+            }
+            BooleanQuery result = new BooleanQuery(bq.isCoordDisabled());
+            for (int i = 0; i < subQueries.size(); i++) {
+                result.add(subQueries.get(i), bq.clauses().get(i).getOccur());
+            }
+            result.setMinimumNumberShouldMatch(bq.getMinimumNumberShouldMatch());
+            result.setBoost(bq.getBoost());
+            return result;
+        } else if (query instanceof DisjunctionMaxQuery) {
+            DisjunctionMaxQuery dmq = (DisjunctionMaxQuery) query;
+            List<Query> disjuncts = new ArrayList<Query>();
+            boolean isChanged = false;
+            for (Query disjunct : dmq.getDisjuncts()) {
+                Query subQuery = withoutFuzzy(reader, disjunct);
+                isChanged |= subQuery != disjunct;
+                disjuncts.add(subQuery);
+            }
+            if (!isChanged) {
+                return query;
+            }
+            DisjunctionMaxQuery result = new DisjunctionMaxQuery(disjuncts, dmq.getTieBreakerMultiplier());
+            result.setBoost(dmq.getBoost());
+            return result;
+        } else if (!(query instanceof MultiTermQuery) && !(query instanceof TermQuery)) {
+            // Custom queries such as CommonTermsBooleanQuery are cheap to rewrite and may contain fuzzy queries
+            Query rewritten = query.rewrite(reader);
+            if (rewritten != query) {
+                Query exact = withoutFuzzy(reader, rewritten);
+                return exact != rewritten ? exact : query;
+            }
+        }
+        return query;
+    }
+
+    /**
+     * @return number of queries downgraded, run as expensive and rejected since the servlet started
+     */
+    public static String getStats() {
+        return "downgraded=" + downgradedCount.get() + ",expensive=" + expensiveCount.get()
+                + ",rejected=" + rejectedCount.get();
+    }
+}
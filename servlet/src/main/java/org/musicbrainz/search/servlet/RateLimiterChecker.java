@@ -35,6 +35,8 @@ public class RateLimiterChecker {
     private static Integer      rateLimiterPort;
     private static boolean      rateLimiterConfigured =false;
     private static final String OVER_LIMIT_SEARCH_IP = " over_limit search ip=";
+    // Don't hold up searches if the rate limiter doesn't reply, the request is let through as for other errors
+    private static final int RATE_LIMITER_TIMEOUT_MS = 1000;
     private static AtomicInteger count = new AtomicInteger(0);
 
 
@@ -93,41 +95,26 @@ public class RateLimiterChecker {
     }
 
     /**
-     * Call Rate Limiter to see if query is allowed
+     * Call Rate Limiter to see if queries are allowed. The rate limiter counts one search per message, so a request
+     * making several searches sends one message per search over the same socket, stopping at the first one over the
+     * limit
      *
      * @param remoteIpAddress
+     * @param noOfSearches
      * @return
      */
-    private static RateLimiterResponse validateAgainstRateLimiter(String remoteIpAddress)
+    private static RateLimiterResponse validateAgainstRateLimiter(String remoteIpAddress, int noOfSearches)
     {
         DatagramSocket ds = null;
         try {
-
-            int requestId = count.incrementAndGet();
-            String requestIdAsString = String.valueOf(requestId);
-
-            //Send Request
-            String rateLimiter=requestId+OVER_LIMIT_SEARCH_IP+remoteIpAddress;
-            byte[] msg = rateLimiter.getBytes();
             ds = new DatagramSocket();
-            DatagramPacket dp = new DatagramPacket(msg,msg.length,rateLimiterHost,rateLimiterPort.intValue());
-            ds.send(dp);
-
-            //Get Response
-            byte[] receiveData = new byte[MAX_SIZE_OFRESPONSE_PACKET];
-            DatagramPacket dpReceive = new DatagramPacket(receiveData, receiveData.length);
-            ds.receive(dpReceive);
-
-            //Parse Response
-            String result = new String(dpReceive.getData(), dpReceive.getOffset(), dpReceive.getLength());
-            if(result.startsWith(requestIdAsString)) {
-                RateLimiterResponse rlr = new RateLimiterResponse(result.substring(requestIdAsString.length() + 1));
-                return rlr;
-            }
-            //RequestId not matching so just let through
-            else {
-                return ALWAYS_TRUE;
+            ds.setSoTimeout(RATE_LIMITER_TIMEOUT_MS);
+            RateLimiterResponse rlr = ALWAYS_TRUE;
+            for (int i = 0; i < noOfSearches && rlr.isValid(); i++)
+            {
+                rlr = validateAgainstRateLimiter(ds, remoteIpAddress);
             }
+            return rlr;
         }
         catch(UnknownHostException uhe) {
             log.log(Level.SEVERE, "ValidateAgainstRateLimiter:"+uhe.getMessage(),uhe);
@@ -150,11 +137,49 @@ public class RateLimiterChecker {
     }
 
     /**
+     * Send one search to the rate limiter and wait for its answer
      *
-     * @param request
+     * @param ds
+     * @param remoteIpAddress
      * @return
+     * @throws IOException
+     */
+    private static RateLimiterResponse validateAgainstRateLimiter(DatagramSocket ds, String remoteIpAddress) throws IOException
+    {
+        int requestId = count.incrementAndGet();
+        String requestIdAsString = String.valueOf(requestId);
+
+        //Send Request
+        String rateLimiter=requestId+OVER_LIMIT_SEARCH_IP+remoteIpAddress;
+        byte[] msg = rateLimiter.getBytes();
+        DatagramPacket dp = new DatagramPacket(msg,msg.length,rateLimiterHost,rateLimiterPort.intValue());
+        ds.send(dp);
+
+        //Get Response
+        byte[] receiveData = new byte[MAX_SIZE_OFRESPONSE_PACKET];
+        DatagramPacket dpReceive = new DatagramPacket(receiveData, receiveData.length);
+        ds.receive(dpReceive);
+
+        //Parse Response
+        String result = new String(dpReceive.getData(), dpReceive.getOffset(), dpReceive.getLength());
+        if(result.startsWith(requestIdAsString)) {
+            return new RateLimiterResponse(result.substring(requestIdAsString.length() + 1));
+        }
+        //RequestId not matching so just let through
+        else {
+            return ALWAYS_TRUE;
+        }
+    }
+
+    /**
+     * Check a request that makes a number of searches, such as a batch request, each search is counted
+     * against the rate limit
+     *
+     * @param request
+     * @param noOfSearches
+     * @return the first failing response, or valid if all searches are allowed
      */
-    public static RateLimiterResponse checkRateLimiter(HttpServletRequest request)
+    public static RateLimiterResponse checkRateLimiter(HttpServletRequest request, int noOfSearches)
     {
         if(!isRateLimiterConfigured())
         {
@@ -173,7 +198,7 @@ public class RateLimiterChecker {
         {
             return ALWAYS_TRUE;
         }
-        return validateAgainstRateLimiter(remoteIpAddress);
+        return validateAgainstRateLimiter(remoteIpAddress, noOfSearches);
     }
 
     /**
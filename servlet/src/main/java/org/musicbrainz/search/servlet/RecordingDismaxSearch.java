@@ -41,7 +41,8 @@ public class RecordingDismaxSearch extends AbstractDismaxSearchServer {
   protected DismaxSearcher initDismaxSearcher() {
     Map<String, DismaxAlias.AliasField> fieldBoosts = new HashMap<String, DismaxAlias.AliasField>(4);
     fieldBoosts.put(RecordingIndexField.RECORDING_ACCENT.getName(), new DismaxAlias.AliasField(false, 1.8f));
-    fieldBoosts.put(RecordingIndexField.RECORDING.getName(), new DismaxAlias.AliasField(true, 1.6f));
+    fieldBoosts.put(RecordingIndexField.RECORDING.getName(), new DismaxAlias.AliasField(true, 1.6f, RecordingIndexField.RECORDING_PREFIX.getName(),
+            RecordingIndexField.RECORDING_SHINGLE.getName()));
     fieldBoosts.put(RecordingIndexField.RELEASE.getName(), new DismaxAlias.AliasField(true, 1.2f));
     fieldBoosts.put(RecordingIndexField.ARTIST_NAMECREDIT.getName(), new DismaxAlias.AliasField(false, 0.8f));
     fieldBoosts.put(RecordingIndexField.ARTIST.getName(), new DismaxAlias.AliasField(true, 0.8f));
@@ -4,6 +4,7 @@ import org.apache.lucene.analysis.Analyzer;
 import org.apache.lucene.index.Term;
 import org.apache.lucene.queryparser.classic.MultiFieldQueryParser;
 import org.apache.lucene.queryparser.classic.ParseException;
+import org.apache.lucene.search.BooleanClause;
 import org.apache.lucene.search.Query;
 import org.apache.lucene.search.TermQuery;
 import org.apache.lucene.search.TermRangeQuery;
@@ -14,6 +15,10 @@ import org.musicbrainz.search.index.RecordingIndexField;
 import org.musicbrainz.search.servlet.mmd1.ReleaseGroupType;
 import org.musicbrainz.search.servlet.mmd1.V1TrackIndexField;
 
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
 
 /**
  * Subclasses QueryParser to handle numeric fields that we might want wish to do range queries for and handle type
@@ -21,6 +26,10 @@ import org.musicbrainz.search.servlet.mmd1.V1TrackIndexField;
  */
 public class RecordingQueryParser extends MultiFieldQueryParser {
 
+    // Two word phrases on these fields are looked up in their shingle field
+    private static final Map<String, String> SHINGLE_FIELDS
+            = Collections.singletonMap(RecordingIndexField.RECORDING.getName(), RecordingIndexField.RECORDING_SHINGLE.getName());
+
     public RecordingQueryParser(java.lang.String[] strings, Analyzer a) {
         super(LuceneVersion.LUCENE_VERSION, strings, a);
     }
@@ -92,7 +101,14 @@ public class RecordingQueryParser extends MultiFieldQueryParser {
                 field=RecordingIndexField.RECORDING_ID.getName();
             }
         }
-        return super.getFieldQuery(field,queryText, slop);
+        return ShingleFieldQuery.replacePhrases(super.getFieldQuery(field,queryText, slop), SHINGLE_FIELDS);
+    }
+
+    @Override
+    protected Query getBooleanQuery(List<BooleanClause> clauses, boolean disableCoord) throws ParseException {
+        Query query = super.getBooleanQuery(clauses, disableCoord);
+        // Only the queries of words entered by the user, not expansion over multiple fields
+        return disableCoord ? query : CommonTermsBooleanQuery.wrap(query);
     }
 
 
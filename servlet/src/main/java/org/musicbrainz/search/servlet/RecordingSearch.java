@@ -27,6 +27,9 @@ public class RecordingSearch extends AbstractSearchServer {
     resultsWriter = new RecordingWriter();
     mmd1Writer = new TrackMmd1XmlWriter();
     setupDefaultFields();
+    identifierFields = fieldNames(RecordingIndexField.RECORDING_ID, RecordingIndexField.ARTIST_ID, RecordingIndexField.RELEASE_ID, RecordingIndexField.RELEASEGROUP_ID, RecordingIndexField.TRACK_ID, RecordingIndexField.ISRC);
+    uniqueIdentifierFields = fieldNames(RecordingIndexField.RECORDING_ID, RecordingIndexField.ISRC);
+    filterFields = fieldNames(RecordingIndexField.RELEASE_STATUS, RecordingIndexField.RELEASE_PRIMARY_TYPE, RecordingIndexField.RELEASE_TYPE, RecordingIndexField.COUNTRY, RecordingIndexField.FORMAT, RecordingIndexField.VIDEO);
     analyzer = DatabaseIndex.getAnalyzer(RecordingIndexField.class);
   }
 
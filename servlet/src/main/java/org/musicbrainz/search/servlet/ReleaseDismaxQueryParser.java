@@ -59,6 +59,11 @@ public class ReleaseDismaxQueryParser extends DismaxQueryParser {
         }
     }
 
+    @Override
+    protected boolean isPhraseRescorable() {
+        return false;
+    }
+
     static class ReleaseDisjunctionQueryParser extends DisjunctionQueryParser {
 
         public ReleaseDisjunctionQueryParser(String defaultField, org.apache.lucene.analysis.Analyzer analyzer) {
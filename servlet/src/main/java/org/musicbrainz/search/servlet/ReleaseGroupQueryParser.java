@@ -32,6 +32,8 @@ package org.musicbrainz.search.servlet;
 import org.apache.lucene.analysis.Analyzer;
 import org.apache.lucene.index.Term;
 import org.apache.lucene.queryparser.classic.MultiFieldQueryParser;
+import org.apache.lucene.queryparser.classic.ParseException;
+import org.apache.lucene.search.BooleanClause;
 import org.apache.lucene.search.Query;
 import org.apache.lucene.search.TermQuery;
 import org.apache.lucene.search.TermRangeQuery;
@@ -42,6 +44,8 @@ import org.musicbrainz.search.index.RecordingIndexField;
 import org.musicbrainz.search.index.ReleaseGroupIndexField;
 import org.musicbrainz.search.servlet.mmd1.ReleaseGroupType;
 
+import java.util.List;
+
 
 /**
  * Subclasses QueryParser to handle numeric fields that we might want wish to do range queries for and handle type
@@ -53,6 +57,13 @@ public class ReleaseGroupQueryParser extends MultiFieldQueryParser {
         super(LuceneVersion.LUCENE_VERSION, strings, a);
     }
 
+    @Override
+    protected Query getBooleanQuery(List<BooleanClause> clauses, boolean disableCoord) throws ParseException {
+        Query query = super.getBooleanQuery(clauses, disableCoord);
+        // Only the queries of words entered by the user, not expansion over multiple fields
+        return disableCoord ? query : CommonTermsBooleanQuery.wrap(query);
+    }
+
     protected Query newTermQuery(Term term) {
         if (term.field().equals(ReleaseGroupIndexField.TYPE.getName())) {
             try {
@@ -2,6 +2,7 @@ package org.musicbrainz.search.servlet;
 
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.EnumSet;
 
 import org.apache.lucene.document.Document;
 import org.apache.lucene.queryparser.classic.ParseException;
@@ -10,6 +11,7 @@ import org.apache.lucene.search.IndexSearcher;
 import org.apache.lucene.search.SearcherManager;
 import org.apache.lucene.search.TopDocs;
 import org.musicbrainz.search.index.DatabaseIndex;
+import org.musicbrainz.search.index.FacetIndexField;
 import org.musicbrainz.search.index.ReleaseGroupIndexField;
 import org.musicbrainz.search.servlet.mmd1.ReleaseGroupMmd1XmlWriter;
 import org.musicbrainz.search.servlet.mmd2.ReleaseGroupWriter;
@@ -26,6 +28,10 @@ public class ReleaseGroupSearch extends AbstractSearchServer {
     resultsWriter = new ReleaseGroupWriter();
     mmd1Writer = new ReleaseGroupMmd1XmlWriter();
     setupDefaultFields();
+    identifierFields = fieldNames(ReleaseGroupIndexField.RELEASEGROUP_ID, ReleaseGroupIndexField.ARTIST_ID, ReleaseGroupIndexField.RELEASE_ID);
+    uniqueIdentifierFields = fieldNames(ReleaseGroupIndexField.RELEASEGROUP_ID);
+    filterFields = fieldNames(ReleaseGroupIndexField.PRIMARY_TYPE, ReleaseGroupIndexField.SECONDARY_TYPE, ReleaseGroupIndexField.TYPE, ReleaseGroupIndexField.RELEASESTATUS);
+    facetFields = EnumSet.of(FacetIndexField.TYPE, FacetIndexField.PRIMARY_TYPE, FacetIndexField.SECONDARY_TYPE, FacetIndexField.STATUS);
     analyzer = DatabaseIndex.getAnalyzer(ReleaseGroupIndexField.class);
   }
 
@@ -3,6 +3,8 @@ package org.musicbrainz.search.servlet;
 import org.apache.lucene.analysis.Analyzer;
 import org.apache.lucene.index.Term;
 import org.apache.lucene.queryparser.classic.MultiFieldQueryParser;
+import org.apache.lucene.queryparser.classic.ParseException;
+import org.apache.lucene.search.BooleanClause;
 import org.apache.lucene.search.Query;
 import org.apache.lucene.search.TermQuery;
 import org.apache.lucene.search.TermRangeQuery;
@@ -14,6 +16,10 @@ import org.musicbrainz.search.index.ReleaseIndexField;
 import org.musicbrainz.search.servlet.mmd1.ReleaseGroupType;
 import org.musicbrainz.search.servlet.mmd1.ReleaseStatus;
 
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
 
 /**
  * Subclasses QueryParser to handle numeric fields that we might want wish to do range queries for and handle type
@@ -21,10 +27,26 @@ import org.musicbrainz.search.servlet.mmd1.ReleaseStatus;
  */
 public class ReleaseQueryParser extends MultiFieldQueryParser {
 
+    // Two word phrases on these fields are looked up in their shingle field
+    private static final Map<String, String> SHINGLE_FIELDS
+            = Collections.singletonMap(ReleaseIndexField.RELEASE.getName(), ReleaseIndexField.RELEASE_SHINGLE.getName());
+
     public ReleaseQueryParser(java.lang.String[] strings, Analyzer a) {
         super(LuceneVersion.LUCENE_VERSION, strings, a);
     }
 
+    @Override
+    protected Query getFieldQuery(String field, String queryText, int slop) throws ParseException {
+        return ShingleFieldQuery.replacePhrases(super.getFieldQuery(field, queryText, slop), SHINGLE_FIELDS);
+    }
+
+    @Override
+    protected Query getBooleanQuery(List<BooleanClause> clauses, boolean disableCoord) throws ParseException {
+        Query query = super.getBooleanQuery(clauses, disableCoord);
+        // Only the queries of words entered by the user, not expansion over multiple fields
+        return disableCoord ? query : CommonTermsBooleanQuery.wrap(query);
+    }
+
     protected Query newTermQuery(Term term) {
         if (term.field().equals(ReleaseIndexField.TYPE.getName())) {
             try {
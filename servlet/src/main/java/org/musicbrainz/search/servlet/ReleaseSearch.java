@@ -2,6 +2,7 @@ package org.musicbrainz.search.servlet;
 
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.EnumSet;
 
 import org.apache.lucene.document.Document;
 import org.apache.lucene.queryparser.classic.ParseException;
@@ -10,6 +11,7 @@ import org.apache.lucene.search.IndexSearcher;
 import org.apache.lucene.search.SearcherManager;
 import org.apache.lucene.search.TopDocs;
 import org.musicbrainz.search.index.DatabaseIndex;
+import org.musicbrainz.search.index.FacetIndexField;
 import org.musicbrainz.search.index.ReleaseIndexField;
 import org.musicbrainz.search.servlet.mmd1.ReleaseMmd1XmlWriter;
 import org.musicbrainz.search.servlet.mmd2.ReleaseWriter;
@@ -26,6 +28,10 @@ public class ReleaseSearch extends AbstractSearchServer {
     resultsWriter = new ReleaseWriter();
     mmd1Writer = new ReleaseMmd1XmlWriter();
     setupDefaultFields();
+    identifierFields = fieldNames(ReleaseIndexField.RELEASE_ID, ReleaseIndexField.ARTIST_ID, ReleaseIndexField.RELEASEGROUP_ID, ReleaseIndexField.LABEL_ID, ReleaseIndexField.BARCODE, ReleaseIndexField.AMAZON_ID);
+    uniqueIdentifierFields = fieldNames(ReleaseIndexField.RELEASE_ID, ReleaseIndexField.BARCODE);
+    filterFields = fieldNames(ReleaseIndexField.STATUS, ReleaseIndexField.PRIMARY_TYPE, ReleaseIndexField.SECONDARY_TYPE, ReleaseIndexField.TYPE, ReleaseIndexField.COUNTRY, ReleaseIndexField.FORMAT, ReleaseIndexField.LANGUAGE);
+    facetFields = EnumSet.of(FacetIndexField.TYPE, FacetIndexField.PRIMARY_TYPE, FacetIndexField.SECONDARY_TYPE, FacetIndexField.STATUS, FacetIndexField.COUNTRY, FacetIndexField.FORMAT);
     analyzer = DatabaseIndex.getAnalyzer(ReleaseIndexField.class);
   }
 
@@ -41,11 +41,17 @@ public enum RequestParameter {
     DISMAX("dismax"),
     EXPLAIN("explain"),
     PRETTY("pretty"),
+    FIELDS("fl"),
+    FACETS("facets"),
+    SUGGEST("suggest"),
+    LOOKUP("lookup"),
+    IDS("ids"),
     // For admin only
     INIT ("init"),
     RELOAD_INDEXES ("reload"),
     RATE("rate"),
     GC("gc"),
+    STATS("stats"),
     ;
     
     private String name;
@@ -28,8 +28,13 @@
 
 package org.musicbrainz.search.servlet;
 
+import org.musicbrainz.search.index.FacetIndexField;
+import org.musicbrainz.search.index.ProjectionIndexField;
+
 import java.util.LinkedList;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 /**
  * Store the results of a search
@@ -40,6 +45,8 @@ public class Results implements Comparable<Results>{
     private int offset;
     private int totalHits;
     private ResourceType resourceType;
+    private Set<ProjectionIndexField> projection;
+    private Map<FacetIndexField, Map<String, Integer>> facets;
 
     public List<Result> results;
 
@@ -110,4 +117,30 @@ public class Results implements Comparable<Results>{
     {
         this.resourceType = resourceType;
     }
+
+    /**
+     * @return fields held by each result if only a projection was read, or null if each result holds the full document
+     */
+    public Set<ProjectionIndexField> getProjection()
+    {
+        return projection;
+    }
+
+    public void setProjection(Set<ProjectionIndexField> projection)
+    {
+        this.projection = projection;
+    }
+
+    /**
+     * @return number of matching documents with each value of the requested facets, or null if none were requested
+     */
+    public Map<FacetIndexField, Map<String, Integer>> getFacets()
+    {
+        return facets;
+    }
+
+    public void setFacets(Map<FacetIndexField, Map<String, Integer>> facets)
+    {
+        this.facets = facets;
+    }
 }
@@ -1,12 +1,17 @@
 package org.musicbrainz.search.servlet;
 
 import java.io.IOException;
+import java.util.List;
+import java.util.Set;
 
 import org.apache.lucene.analysis.Analyzer;
 import org.apache.lucene.index.CorruptIndexException;
 import org.apache.lucene.queryparser.classic.ParseException;
+import org.apache.lucene.search.IndexSearcher;
 import org.apache.lucene.search.Query;
 import org.apache.lucene.search.SearcherManager;
+import org.musicbrainz.search.index.FacetIndexField;
+import org.musicbrainz.search.index.ProjectionIndexField;
 
 public interface SearchServer {
 
@@ -14,27 +19,45 @@ public interface SearchServer {
 
   /**
    * Process query from Mbserver before sending to lucene searcher, returning between results from offset upto limit
-   * 
+   *
+   * @param searcher searcher already acquired from this server's SearcherManager, so that several searches can share
+   *                 one searcher, or null to acquire one for this search
    * @param query
    * @param offset
    * @param limit
+   * @param projection fields to read for each hit rather than the stored document, the mbid is always read, or null
+   * @param facets fields whose values are counted over all matching documents while collecting the hits, each one of
+   *               getFacetFields(), or null
    * @return
    * @throws IOException
    * @throws ParseException
    */
-  public abstract Results search(String query, int offset, int limit) throws IOException, ParseException;
+  public abstract Results search(IndexSearcher searcher, String query, int offset, int limit,
+                                 Set<ProjectionIndexField> projection, Set<FacetIndexField> facets)
+      throws IOException, ParseException;
 
   /**
-   * Process query from Mbserver before sending to lucene searcher, returning between results from offset upto limit
-   * 
-   * @param query
+   * Find documents by identifier (e.g. mbid or isrc) without parsing or scoring a query, all matches are returned
+   * in index order with the same score
+   *
+   * @param field one of getIdentifierFields()
+   * @param values
    * @param offset
    * @param limit
    * @return
    * @throws IOException
-   * @throws ParseException
    */
-  public abstract Results search(Query query, int offset, int limit) throws IOException, ParseException;
+  public abstract Results lookup(String field, List<String> values, int offset, int limit) throws IOException;
+
+  /**
+   * @return fields that can be used with lookup()
+   */
+  public abstract Set<String> getIdentifierFields();
+
+  /**
+   * @return fields whose values can be counted by search()
+   */
+  public abstract Set<FacetIndexField> getFacetFields();
 
   /**
    * Explain the results This method is for debugging and to allow end users to understand why their query is not
@@ -57,6 +80,14 @@ public interface SearchServer {
 
   public abstract String getCount();
 
+  /**
+   * Version of the index held by a searcher, changes whenever the index is reloaded with different content
+   *
+   * @param searcher searcher acquired from this server's SearcherManager
+   * @return
+   */
+  public abstract long getIndexVersion(IndexSearcher searcher);
+
   public abstract void close() throws IOException;
 
   public abstract void reloadIndex() throws CorruptIndexException, IOException;
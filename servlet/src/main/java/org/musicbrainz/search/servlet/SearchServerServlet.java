@@ -28,17 +28,34 @@
 
 package org.musicbrainz.search.servlet;
 
+import com.google.common.base.CharMatcher;
+import com.google.common.base.Charsets;
+import com.google.common.base.Splitter;
 import com.google.common.base.Strings;
+import com.google.common.hash.Hashing;
+import com.google.common.io.CharStreams;
+import com.google.common.util.concurrent.Futures;
 import org.apache.lucene.index.CorruptIndexException;
 import org.apache.lucene.queryparser.classic.ParseException;
+import org.apache.lucene.search.IndexSearcher;
 import org.apache.lucene.search.SearcherManager;
 import org.apache.lucene.search.TimeLimitingCollector.TimeExceededException;
+import org.apache.lucene.search.suggest.Lookup;
 import org.apache.lucene.store.Directory;
 import org.apache.lucene.store.MMapDirectory;
 import org.apache.lucene.store.NIOFSDirectory;
 import org.musicbrainz.search.servlet.mmd2.AllWriter;
+import org.musicbrainz.search.index.FacetIndexField;
+import org.musicbrainz.search.index.ProjectionIndexField;
+import org.musicbrainz.search.servlet.mmd2.BatchWriter;
+import org.musicbrainz.search.servlet.mmd2.ProjectionWriter;
 import org.musicbrainz.search.servlet.mmd2.ResultsWriter;
+import org.musicbrainz.search.servlet.mmd2.SuggestWriter;
 
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import javax.management.StandardMBean;
 import javax.servlet.ServletException;
 import javax.servlet.http.HttpServlet;
 import javax.servlet.http.HttpServletRequest;
@@ -62,6 +79,9 @@ public class SearchServerServlet extends HttpServlet
     final static int DEFAULT_OFFSET = 0;
     final static int DEFAULT_MATCHES_LIMIT = 25;
     final static int MAX_MATCHES_LIMIT = 100;
+    final static int MAX_BATCH_SEARCHES = 100;
+    final static int DEFAULT_SUGGEST_LIMIT = 10;
+    final static int MAX_LOOKUP_IDS = 500;
 
     public final static String RESPONSE_XML = "xml";
     public final static String RESPONSE_JSON = "json";
@@ -72,6 +92,11 @@ public class SearchServerServlet extends HttpServlet
 
     final static String CHARSET = "UTF-8";
 
+    final static String HEADER_ETAG = "ETag";
+    final static String HEADER_IF_NONE_MATCH = "If-None-Match";
+    final static String HEADER_IF_MODIFIED_SINCE = "If-Modified-Since";
+    final static String HEADER_LAST_MODIFIED = "Last-Modified";
+
     final static String TYPE_ALL = "all";
     final static String TYPE_TRACK = "track";
 
@@ -83,8 +108,13 @@ public class SearchServerServlet extends HttpServlet
     // When doing search over multiple indexes use this executorservice to run in parallel
     private final ExecutorService es = Executors.newCachedThreadPool();
 
+    // Batch searches run on a fixed number of threads so a burst of large batches queues rather than starting a
+    // thread per search
+    private final ExecutorService batchExecutor = Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors());
+
     private final EnumMap<ResourceType, SearchServer> searchers = new EnumMap<ResourceType, SearchServer>(ResourceType.class);
     private final EnumMap<ResourceType, SearchServer> dismaxSearchers = new EnumMap<ResourceType, SearchServer>(ResourceType.class);
+    private final EnumMap<ResourceType, SuggestServer> suggesters = new EnumMap<ResourceType, SuggestServer>(ResourceType.class);
 
     private final String initMessage = null;
     private static String searchWebPage = "";
@@ -121,6 +151,68 @@ public class SearchServerServlet extends HttpServlet
         String rateLimiterEnabled = getServletConfig().getInitParameter("ratelimitserver_enabled");
         initRateLimiter(rateLimiterEnabled);
 
+        String dismaxTwoPhase = getServletConfig().getInitParameter("dismax_twophase_enabled");
+        AbstractDismaxSearchServer.setTwoPhaseEnabled(dismaxTwoPhase == null || Boolean.parseBoolean(dismaxTwoPhase));
+
+        // Per index, e.g. artist=2.5,recording=1.8, see AbstractDismaxSearchServer.setMinExactScore()
+        Map<String, Float> dismaxMinExactScores = parseIndexSettings(getServletConfig().getInitParameter("dismax_min_exact_score"));
+        // Per index, e.g. artist=1,recording=3, see AbstractDismaxSearchServer.setMinExactHits()
+        Map<String, Float> dismaxMinExactHits = parseIndexSettings(getServletConfig().getInitParameter("dismax_min_exact_hits"));
+
+        String commonTermsMaxDocFreq = getServletConfig().getInitParameter("common_terms_max_doc_freq");
+        if (commonTermsMaxDocFreq != null)
+        {
+            CommonTermsBooleanQuery.setMaxDocFreq(Float.parseFloat(commonTermsMaxDocFreq));
+        }
+
+        String dismaxPhraseRescoreWindow = getServletConfig().getInitParameter("dismax_phrase_rescore_window");
+        if (dismaxPhraseRescoreWindow != null)
+        {
+            AbstractDismaxSearchServer.setPhraseRescoreWindow(Integer.parseInt(dismaxPhraseRescoreWindow));
+        }
+
+        String fuzzyRewriteCacheSize = getServletConfig().getInitParameter("fuzzy_rewrite_cache_size");
+        if (fuzzyRewriteCacheSize != null)
+        {
+            FuzzyTermCache.setMaxSize(Integer.parseInt(fuzzyRewriteCacheSize));
+        }
+
+        String parsedQueryCacheSize = getServletConfig().getInitParameter("parsed_query_cache_size");
+        if (parsedQueryCacheSize != null)
+        {
+            ParsedQueryCache.setMaxSize(Integer.parseInt(parsedQueryCacheSize));
+        }
+
+        String filterCacheMaxMb = getServletConfig().getInitParameter("filter_cache_max_mb");
+        if (filterCacheMaxMb != null)
+        {
+            FilterBitSetCache.setMaxBytes(Long.parseLong(filterCacheMaxMb) * 1024 * 1024);
+        }
+
+        String queryMaxPostings = getServletConfig().getInitParameter("query_max_postings");
+        if (queryMaxPostings != null)
+        {
+            QueryGuard.setMaxPostings(Long.parseLong(queryMaxPostings));
+        }
+
+        String queryExpensivePostings = getServletConfig().getInitParameter("query_expensive_postings");
+        if (queryExpensivePostings != null)
+        {
+            QueryGuard.setExpensivePostings(Long.parseLong(queryExpensivePostings));
+        }
+
+        String queryExpensivePermits = getServletConfig().getInitParameter("query_expensive_permits");
+        if (queryExpensivePermits != null)
+        {
+            QueryGuard.setExpensivePermits(Integer.parseInt(queryExpensivePermits));
+        }
+
+        String queryMaxFuzzyTerms = getServletConfig().getInitParameter("query_max_fuzzy_terms");
+        if (queryMaxFuzzyTerms != null)
+        {
+            QueryGuard.setMaxFuzzyTerms(Integer.parseInt(queryMaxFuzzyTerms));
+        }
+
         String indexDir = getServletConfig().getInitParameter("index_dir");
 
         if (useMMapDirectory)
@@ -144,9 +236,19 @@ public class SearchServerServlet extends HttpServlet
             try
             {
                 Directory directory = useMMapDirectory ? new MMapDirectory(indexFileDir) : new NIOFSDirectory(indexFileDir);
-                SearcherManager searcherManager = new SearcherManager(directory, new MusicBrainzSearcherFactory(resourceType));
+                SearcherManager searcherManager = new SearcherManager(directory, new MusicBrainzSearcherFactory(resourceType, indexFileDir));
                 searchServer = resourceType.getSearchServerClass().getConstructor(SearcherManager.class).newInstance(searcherManager);
                 dismaxSearchServer = resourceType.getDismaxSearchServerClass().getConstructor(AbstractSearchServer.class).newInstance(searchServer);
+                Float minExactScore = dismaxMinExactScores.get(resourceType.getName());
+                if (minExactScore != null)
+                {
+                    dismaxSearchServer.setMinExactScore(minExactScore);
+                }
+                Float minExactHits = dismaxMinExactHits.get(resourceType.getName());
+                if (minExactHits != null)
+                {
+                    dismaxSearchServer.setMinExactHits(minExactHits.intValue());
+                }
 
             }
             catch (CorruptIndexException e)
@@ -189,15 +291,78 @@ public class SearchServerServlet extends HttpServlet
             // Add in new search server and set last updated date
             searchers.put(resourceType, searchServer);
             dismaxSearchers.put(resourceType, dismaxSearchServer);
+            registerDismaxMetrics(resourceType, dismaxSearchServer);
+
+            // Suggester is optional, only available if built with the index
+            suggesters.remove(resourceType);
+            if (searchServer != null && SuggestServer.SUPPORTED_TYPES.contains(resourceType))
+            {
+                try
+                {
+                    suggesters.put(resourceType, new SuggestServer(indexFileDir));
+                }
+                catch (IOException e)
+                {
+                    log.warning("Could not load " + resourceType.getIndexName() + " suggester: " + e.getMessage());
+                }
+            }
 
         }
         isServletInitialized = true;
 
     }
 
+    /**
+     * Register the phase counts of a dismax search server with JMX, replacing those of the search server it replaces
+     *
+     * @param resourceType
+     * @param dismaxSearchServer null to only unregister
+     */
+    private void registerDismaxMetrics(ResourceType resourceType, AbstractDismaxSearchServer dismaxSearchServer)
+    {
+        try
+        {
+            MBeanServer mbeanServer = ManagementFactory.getPlatformMBeanServer();
+            ObjectName name = new ObjectName("org.musicbrainz.search:type=DismaxPhases,index=" + resourceType.getName());
+            if (mbeanServer.isRegistered(name))
+            {
+                mbeanServer.unregisterMBean(name);
+            }
+            if (dismaxSearchServer != null)
+            {
+                mbeanServer.registerMBean(new StandardMBean(dismaxSearchServer, DismaxPhaseMetricsMBean.class), name);
+            }
+        }
+        catch (JMException e)
+        {
+            log.warning("Could not register " + resourceType.getName() + " dismax metrics: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Parse a setting given per index
+     *
+     * @param value of the form name=value,name=value, may be null
+     * @return value keyed by resource type name
+     */
+    static Map<String, Float> parseIndexSettings(String value)
+    {
+        Map<String, Float> settings = new HashMap<String, Float>();
+        for (String next : Strings.nullToEmpty(value).split(","))
+        {
+            int separator = next.indexOf('=');
+            if (separator > 0)
+            {
+                settings.put(next.substring(0, separator).trim(), Float.parseFloat(next.substring(separator + 1).trim()));
+            }
+        }
+        return settings;
+    }
+
     @Override
     public void destroy()
     {
+        batchExecutor.shutdown();
 
         // Close all search servers
         for (SearchServer searchServer : searchers.values())
@@ -232,6 +397,10 @@ public class SearchServerServlet extends HttpServlet
                 log.severe("Caught exception during closing of index searcher: " + e.getMessage());
             }
         }
+        for (ResourceType resourceType : dismaxSearchers.keySet())
+        {
+            registerDismaxMetrics(resourceType, null);
+        }
         dismaxSearchers.clear();
     }
 
@@ -272,6 +441,17 @@ public class SearchServerServlet extends HttpServlet
             }
         }
 
+        for (SuggestServer suggestServer : suggesters.values())
+        {
+            try
+            {
+                suggestServer.reload();
+            }
+            catch (IOException e)
+            {
+                log.severe("Caught exception during reloading of suggester: " + e.getMessage());
+            }
+        }
     }
 
     /**
@@ -384,6 +564,40 @@ public class SearchServerServlet extends HttpServlet
                 return true ;
             }
         }
+
+        // How often dismax searches needed fuzzy/prefix expansion, and how often parsed queries and filters were reused
+        String stats = request.getParameter(RequestParameter.STATS.getName());
+        if (stats != null)
+        {
+            if (isRequestFromLocalHost(request))
+            {
+                StringBuilder sb = new StringBuilder();
+                for (Map.Entry<ResourceType, SearchServer> next : dismaxSearchers.entrySet())
+                {
+                    if (next.getValue() instanceof AbstractDismaxSearchServer)
+                    {
+                        sb.append(next.getKey().getName()).append(':');
+                        sb.append(((AbstractDismaxSearchServer) next.getValue()).getPhaseStats());
+                        sb.append(",dismaxquerycache:").append(((AbstractDismaxSearchServer) next.getValue()).getQueryCacheStats());
+                        SearchServer searchServer = searchers.get(next.getKey());
+                        if (searchServer instanceof AbstractSearchServer)
+                        {
+                            sb.append(",querycache:").append(((AbstractSearchServer) searchServer).getQueryCacheStats());
+                        }
+                        sb.append('\n');
+                    }
+                }
+                sb.append("filtercache:").append(FilterBitSetCache.getStats()).append('\n');
+                sb.append("queryguard:").append(QueryGuard.getStats()).append('\n');
+                outputConfirmation( response, sb.toString());
+                return true ;
+            }
+            else
+            {
+                response.sendError(HttpServletResponse.SC_FORBIDDEN);
+                return true ;
+            }
+        }
         return false;
     }
 
@@ -462,18 +676,27 @@ public class SearchServerServlet extends HttpServlet
                 return;
             }
 
-            if (isRateLimiterEnabled)
+            if (isRateLimited(request, response, 1))
             {
-                RateLimiterChecker.RateLimiterResponse rateLimiterResponse = RateLimiterChecker.checkRateLimiter(request);
-                if (!rateLimiterResponse.isValid())
-                {
-                    if (rateLimiterResponse.getHeaderMsg() != null)
-                    {
-                        response.setHeader(RateLimiterChecker.HEADER_RATE_LIMITED, rateLimiterResponse.getHeaderMsg());
-                    }
-                    response.sendError(HttpServletResponse.SC_SERVICE_UNAVAILABLE, rateLimiterResponse.getMsg());
-                    return;
-                }
+                return;
+            }
+
+            // Look up documents by identifier rather than searching, ids are comma separated
+            String lookupField = request.getParameter(RequestParameter.LOOKUP.getName());
+            if (lookupField != null)
+            {
+                query = lookupField;
+                doLookup(request, response, resourceType, type, lookupField, request.getParameter(RequestParameter.IDS.getName()));
+                return;
+            }
+
+            // Suggest names starting with the given prefix instead of searching
+            String suggest = request.getParameter(RequestParameter.SUGGEST.getName());
+            if (suggest != null)
+            {
+                query = suggest;
+                doSuggest(request, response, resourceType, type, suggest);
+                return;
             }
 
             query = request.getParameter(RequestParameter.QUERY.getName());
@@ -483,28 +706,7 @@ public class SearchServerServlet extends HttpServlet
                 return;
             }
 
-            // Response Format, first defined by fmt parameter, if not set defined by accept header, if not set default
-            // to Xml. Note if accept header set to json this will set format to RESPONSE_JSON_NEW not RESPONSE_JSON (the
-            // old internal format)
-            String responseFormat = request.getParameter(RequestParameter.FORMAT.getName());
-            if (Strings.isNullOrEmpty(responseFormat))
-            {
-                Enumeration<String> headers = request.getHeaders("Accept");
-                while (headers.hasMoreElements())
-                {
-                    String nextHeader = headers.nextElement();
-                    if (nextHeader.equals("application/json"))
-                    {
-                        responseFormat = RESPONSE_JSON_NEW;
-                        break;
-                    }
-                }
-                // Default to xml if not provided
-                if (responseFormat == null)
-                {
-                    responseFormat = RESPONSE_XML;
-                }
-            }
+            String responseFormat = getResponseFormat(request);
 
             String responseVersion = request.getParameter(RequestParameter.VERSION.getName());
             if (Strings.isNullOrEmpty(responseVersion))
@@ -562,11 +764,72 @@ public class SearchServerServlet extends HttpServlet
                 isDismax = true;
             }
 
+            // Only read the requested fields for each hit rather than the whole document, the mbid is always included
+            Set<ProjectionIndexField> projection = null;
+            String strFields = request.getParameter(RequestParameter.FIELDS.getName());
+            if (!Strings.isNullOrEmpty(strFields))
+            {
+                if (resourceType == null || !ProjectionWriter.SUPPORTED_TYPES.contains(resourceType) || responseVersion.equals(WS_VERSION_1))
+                {
+                    response.sendError(HttpServletResponse.SC_BAD_REQUEST, ErrorMessage.FIELDS_NOT_SUPPORTED_FOR_TYPE.getMsg(type));
+                    return;
+                }
+                projection = EnumSet.of(ProjectionIndexField.MBID);
+                for (String next : strFields.split(","))
+                {
+                    next = next.trim();
+                    if (next.length() == 0)
+                    {
+                        continue;
+                    }
+                    ProjectionIndexField field = ProjectionIndexField.getByParamName(next);
+                    if (field == null)
+                    {
+                        response.sendError(HttpServletResponse.SC_BAD_REQUEST, ErrorMessage.UNKNOWN_FIELD.getMsg(next));
+                        return;
+                    }
+                    projection.add(field);
+                }
+            }
+
+            // Count how many matches have each value of these fields while collecting the hits
+            Set<FacetIndexField> facets = null;
+            String strFacets = request.getParameter(RequestParameter.FACETS.getName());
+            if (!Strings.isNullOrEmpty(strFacets))
+            {
+                SearchServer facetServer = resourceType != null ? searchers.get(resourceType) : null;
+                if (facetServer == null || facetServer.getFacetFields().isEmpty() || responseVersion.equals(WS_VERSION_1))
+                {
+                    response.sendError(HttpServletResponse.SC_BAD_REQUEST, ErrorMessage.FACETS_NOT_SUPPORTED_FOR_TYPE.getMsg(type));
+                    return;
+                }
+                facets = EnumSet.noneOf(FacetIndexField.class);
+                for (String next : strFacets.split(","))
+                {
+                    next = next.trim();
+                    if (next.length() == 0)
+                    {
+                        continue;
+                    }
+                    FacetIndexField field = FacetIndexField.getByParamName(next);
+                    if (field == null || !facetServer.getFacetFields().contains(field))
+                    {
+                        response.sendError(HttpServletResponse.SC_BAD_REQUEST, ErrorMessage.UNKNOWN_FACET.getMsg(next, type));
+                        return;
+                    }
+                    facets.add(field);
+                }
+                if (facets.isEmpty())
+                {
+                    facets = null;
+                }
+            }
+
             try 
             {
                 if (resourceType != null)
                 {
-                    doSearch(response, resourceType, query, isDismax, isExplain, isPretty, offset, limit, responseFormat, responseVersion);
+                    doSearch(request, response, resourceType, query, isDismax, isExplain, isPretty, offset, limit, projection, facets, responseFormat, responseVersion);
                 }
                 else
                 {
@@ -579,6 +842,11 @@ public class SearchServerServlet extends HttpServlet
                 response.sendError(HttpServletResponse.SC_REQUEST_TIMEOUT, ErrorMessage.REQUEST_TIMEOUT_EXCEEDED.getMsg());
                 return;
             }
+            catch (QueryGuard.QueryTooExpensiveException qte)
+            {
+                response.sendError(HttpServletResponse.SC_SERVICE_UNAVAILABLE, ErrorMessage.QUERY_TOO_EXPENSIVE.getMsg(query));
+                return;
+            }
         }
         catch (ParseException pe)
         {
@@ -612,6 +880,433 @@ public class SearchServerServlet extends HttpServlet
         }
     }
 
+    /**
+     * Check request against the rate limiter, sending the error response if over the limit
+     *
+     * @param request
+     * @param response
+     * @param noOfSearches
+     * @return true if the request has been rejected
+     * @throws IOException
+     */
+    private boolean isRateLimited(HttpServletRequest request, HttpServletResponse response, int noOfSearches) throws IOException
+    {
+        if (!isRateLimiterEnabled)
+        {
+            return false;
+        }
+        RateLimiterChecker.RateLimiterResponse rateLimiterResponse = RateLimiterChecker.checkRateLimiter(request, noOfSearches);
+        if (rateLimiterResponse.isValid())
+        {
+            return false;
+        }
+        if (rateLimiterResponse.getHeaderMsg() != null)
+        {
+            response.setHeader(RateLimiterChecker.HEADER_RATE_LIMITED, rateLimiterResponse.getHeaderMsg());
+        }
+        response.sendError(HttpServletResponse.SC_SERVICE_UNAVAILABLE, rateLimiterResponse.getMsg());
+        return true;
+    }
+
+    /**
+     * Find documents by identifier without parsing or scoring a query, used by sync jobs to resolve many mbids or
+     * isrcs in one request. Results are returned in the usual format.
+     *
+     * @param request
+     * @param response
+     * @param resourceType
+     * @param type
+     * @param field
+     * @param ids separated by commas or whitespace
+     * @throws IOException
+     */
+    private void doLookup(HttpServletRequest request, HttpServletResponse response, ResourceType resourceType, String type, String field, String ids) throws IOException
+    {
+        if (resourceType == null)
+        {
+            response.sendError(HttpServletResponse.SC_BAD_REQUEST, ErrorMessage.UNKNOWN_RESOURCE_TYPE.getMsg(type));
+            return;
+        }
+
+        SearchServer searchServer = searchers.get(resourceType);
+        if (searchServer == null)
+        {
+            response.sendError(HttpServletResponse.SC_INTERNAL_SERVER_ERROR, ErrorMessage.INDEX_NOT_AVAILABLE_FOR_TYPE.getMsg(resourceType));
+            return;
+        }
+
+        if (!searchServer.getIdentifierFields().contains(field))
+        {
+            response.sendError(HttpServletResponse.SC_BAD_REQUEST, ErrorMessage.NOT_AN_IDENTIFIER_FIELD.getMsg(field, type));
+            return;
+        }
+
+        List<String> values = new ArrayList<String>();
+        for (String id : Splitter.on(CharMatcher.anyOf(", \t\r\n")).omitEmptyStrings().split(Strings.nullToEmpty(ids)))
+        {
+            values.add(id);
+        }
+        if (values.isEmpty())
+        {
+            response.sendError(HttpServletResponse.SC_BAD_REQUEST, ErrorMessage.NO_IDS_IN_LOOKUP.getMsg());
+            return;
+        }
+        if (values.size() > MAX_LOOKUP_IDS)
+        {
+            response.sendError(HttpServletResponse.SC_BAD_REQUEST, ErrorMessage.TOO_MANY_IDS_IN_LOOKUP.getMsg(values.size(), MAX_LOOKUP_IDS));
+            return;
+        }
+
+        Integer offset = DEFAULT_OFFSET;
+        String strOffset = request.getParameter(RequestParameter.OFFSET.getName());
+        if (!Strings.isNullOrEmpty(strOffset))
+        {
+            offset = new Integer(strOffset);
+        }
+
+        // By default allow for one match per id
+        Integer limit = Math.max(values.size(), DEFAULT_MATCHES_LIMIT);
+        String strLimit = request.getParameter(RequestParameter.LIMIT.getName());
+        if (!Strings.isNullOrEmpty(strLimit))
+        {
+            limit = new Integer(strLimit);
+        }
+        if (limit > MAX_LOOKUP_IDS)
+        {
+            limit = MAX_LOOKUP_IDS;
+        }
+
+        String responseVersion = request.getParameter(RequestParameter.VERSION.getName());
+        if (Strings.isNullOrEmpty(responseVersion))
+        {
+            responseVersion = WS_VERSION_2;
+        }
+        String responseFormat = getResponseFormat(request);
+        boolean isPretty = "true".equals(request.getParameter(RequestParameter.PRETTY.getName()));
+
+        org.musicbrainz.search.servlet.ResultsWriter writer = searchServer.getWriter(responseVersion);
+        if (writer == null)
+        {
+            response.sendError(HttpServletResponse.SC_INTERNAL_SERVER_ERROR, ErrorMessage.NO_HANDLER_FOR_TYPE_AND_FORMAT.getMsg(resourceType, responseFormat));
+            return;
+        }
+
+        Results results = searchServer.lookup(field, values, offset, limit);
+
+        response.setCharacterEncoding(CHARSET);
+        if (responseFormat.equals(RESPONSE_XML))
+        {
+            response.setContentType(writer.getMimeType());
+        }
+        else
+        {
+            response.setContentType(((ResultsWriter) writer).getJsonMimeType());
+        }
+
+        PrintWriter out = new PrintWriter(new BufferedWriter(new OutputStreamWriter(response.getOutputStream(), CHARSET)));
+        try
+        {
+            writer.write(out, results, responseFormat, isPretty);
+        }
+        finally
+        {
+            out.close();
+        }
+    }
+
+    /**
+     * Suggest names of the given resource type starting with prefix, ordered by popularity
+     *
+     * @param request
+     * @param response
+     * @param resourceType
+     * @param type
+     * @param prefix
+     * @throws IOException
+     */
+    private void doSuggest(HttpServletRequest request, HttpServletResponse response, ResourceType resourceType, String type, String prefix) throws IOException
+    {
+        SuggestServer suggestServer = resourceType != null ? suggesters.get(resourceType) : null;
+        if (suggestServer == null)
+        {
+            response.sendError(HttpServletResponse.SC_BAD_REQUEST, ErrorMessage.SUGGEST_NOT_AVAILABLE_FOR_TYPE.getMsg(type));
+            return;
+        }
+
+        Integer limit = DEFAULT_SUGGEST_LIMIT;
+        String strLimit = request.getParameter(RequestParameter.LIMIT.getName());
+        if (!Strings.isNullOrEmpty(strLimit))
+        {
+            limit = new Integer(strLimit);
+            if (limit > MAX_MATCHES_LIMIT)
+            {
+                limit = MAX_MATCHES_LIMIT;
+            }
+        }
+
+        List<Lookup.LookupResult> suggestions = Strings.isNullOrEmpty(prefix)
+                ? Collections.<Lookup.LookupResult>emptyList()
+                : suggestServer.suggest(prefix, limit);
+
+        SuggestWriter writer = new SuggestWriter(resourceType, getResponseFormat(request));
+        response.setCharacterEncoding(CHARSET);
+        response.setContentType(writer.getMimeType());
+        PrintWriter out = new PrintWriter(new BufferedWriter(new OutputStreamWriter(response.getOutputStream(), CHARSET)));
+        try
+        {
+            writer.write(out, suggestions);
+        }
+        finally
+        {
+            out.close();
+        }
+    }
+
+    /**
+     * Response Format, first defined by fmt parameter, if not set defined by accept header, if not set default
+     * to Xml. Note if accept header set to json this will set format to RESPONSE_JSON_NEW not RESPONSE_JSON (the
+     * old internal format)
+     *
+     * @param request
+     * @return
+     */
+    private String getResponseFormat(HttpServletRequest request)
+    {
+        String responseFormat = request.getParameter(RequestParameter.FORMAT.getName());
+        if (Strings.isNullOrEmpty(responseFormat))
+        {
+            Enumeration<String> headers = request.getHeaders("Accept");
+            while (headers.hasMoreElements())
+            {
+                String nextHeader = headers.nextElement();
+                if (nextHeader.equals("application/json"))
+                {
+                    responseFormat = RESPONSE_JSON_NEW;
+                    break;
+                }
+            }
+            // Default to xml if not provided
+            if (responseFormat == null)
+            {
+                responseFormat = RESPONSE_XML;
+            }
+        }
+        return responseFormat;
+    }
+
+    /**
+     * Batch search, runs many searches posted in one request, the body is Xml or Json depending on the content type
+     */
+    @Override
+    protected void doPost(HttpServletRequest request, HttpServletResponse response) throws ServletException, IOException
+    {
+        try
+        {
+            // Check if servlet is initialized ok
+            if (!isServletInitialized)
+            {
+                response.sendError(HttpServletResponse.SC_INTERNAL_SERVER_ERROR, ErrorMessage.SERVLET_INIT_FAILED.getMsg(initMessage));
+                return;
+            }
+            // Ensure encoding set to UTF8
+            request.setCharacterEncoding(CHARSET);
+
+            // Bulk lookup, the ids are in the body separated by newlines or commas
+            String lookupField = request.getParameter(RequestParameter.LOOKUP.getName());
+            if (lookupField != null)
+            {
+                String type = Strings.nullToEmpty(request.getParameter(RequestParameter.TYPE.getName()));
+                if (isRateLimited(request, response, 1))
+                {
+                    return;
+                }
+                doLookup(request, response, ResourceType.getValue(type), type, lookupField, CharStreams.toString(request.getReader()));
+                return;
+            }
+
+            String contentType = request.getContentType();
+            boolean isJsonRequest = contentType != null && contentType.contains("json");
+            BatchRequest batchRequest;
+            try
+            {
+                batchRequest = BatchRequest.parse(request.getReader(), isJsonRequest);
+            }
+            catch (Exception e)
+            {
+                response.sendError(HttpServletResponse.SC_BAD_REQUEST, ErrorMessage.UNABLE_TO_PARSE_BATCH.getMsg(e.getMessage()));
+                return;
+            }
+
+            List<BatchRequest.Search> searches = batchRequest.getSearches();
+            if (searches.isEmpty())
+            {
+                response.sendError(HttpServletResponse.SC_BAD_REQUEST, ErrorMessage.NO_SEARCHES_IN_BATCH.getMsg());
+                return;
+            }
+            if (searches.size() > MAX_BATCH_SEARCHES)
+            {
+                response.sendError(HttpServletResponse.SC_BAD_REQUEST, ErrorMessage.TOO_MANY_SEARCHES_IN_BATCH.getMsg(searches.size(), MAX_BATCH_SEARCHES));
+                return;
+            }
+
+            // Each search in the batch counts against the limit, not the request as a whole
+            if (isRateLimited(request, response, searches.size()))
+            {
+                return;
+            }
+
+            doBatchSearch(response, searches, getResponseFormat(request));
+        }
+        catch (Exception e)
+        {
+            log.log(Level.WARNING, "Batch:" + e.getMessage(), e);
+            if (!response.isCommitted())
+            {
+                response.sendError(HttpServletResponse.SC_BAD_REQUEST, e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Run each search of a batch in parallel, all searches against the same resource share one searcher, and write the
+     * results in the order they were requested as soon as each is available
+     *
+     * @param response
+     * @param searches
+     * @param responseFormat
+     * @throws IOException
+     */
+    private void doBatchSearch(HttpServletResponse response, List<BatchRequest.Search> searches, String responseFormat) throws IOException
+    {
+        Map<SearcherManager, IndexSearcher> acquiredSearchers = new IdentityHashMap<SearcherManager, IndexSearcher>();
+        List<Future<BatchResult>> results = new ArrayList<Future<BatchResult>>(searches.size());
+        try
+        {
+            for (BatchRequest.Search search : searches)
+            {
+                results.add(submitBatchSearch(search, acquiredSearchers));
+            }
+
+            BatchWriter writer = new BatchWriter(responseFormat);
+            response.setCharacterEncoding(CHARSET);
+            response.setContentType(writer.getMimeType());
+            PrintWriter out = new PrintWriter(new BufferedWriter(new OutputStreamWriter(response.getOutputStream(), CHARSET)));
+            try
+            {
+                writer.writeStart(out);
+                for (Future<BatchResult> next : results)
+                {
+                    writer.write(out, getBatchResult(next));
+                }
+                writer.writeEnd(out);
+            }
+            finally
+            {
+                out.close();
+            }
+        }
+        finally
+        {
+            // Searches may still be running if writing failed so wait for them before releasing their searchers
+            for (Future<BatchResult> next : results)
+            {
+                try
+                {
+                    next.get();
+                }
+                catch (Exception e)
+                {
+                    // Already reported
+                }
+            }
+            for (Map.Entry<SearcherManager, IndexSearcher> next : acquiredSearchers.entrySet())
+            {
+                next.getKey().release(next.getValue());
+            }
+        }
+    }
+
+    /**
+     * Validate a search from a batch and if valid submit it to run, acquiring the searcher for its resource if this is
+     * the first search against that resource
+     *
+     * @param search
+     * @param acquiredSearchers
+     * @return
+     * @throws IOException
+     */
+    private Future<BatchResult> submitBatchSearch(BatchRequest.Search search, Map<SearcherManager, IndexSearcher> acquiredSearchers) throws IOException
+    {
+        String type = search.getType();
+        if (type == null)
+        {
+            return Futures.immediateFuture(BatchResult.error(search, HttpServletResponse.SC_BAD_REQUEST, ErrorMessage.UNKNOWN_RESOURCE_TYPE.getMsg("none")));
+        }
+
+        // V1 Compatibility
+        if (type.equals(TYPE_TRACK))
+        {
+            type = ResourceType.RECORDING.getName();
+        }
+
+        ResourceType resourceType = ResourceType.getValue(type);
+        if (resourceType == null)
+        {
+            return Futures.immediateFuture(BatchResult.error(search, HttpServletResponse.SC_BAD_REQUEST, ErrorMessage.UNKNOWN_RESOURCE_TYPE.getMsg(type)));
+        }
+
+        if (Strings.isNullOrEmpty(search.getQuery()))
+        {
+            return Futures.immediateFuture(BatchResult.error(search, HttpServletResponse.SC_BAD_REQUEST, ErrorMessage.NO_QUERY_PARAMETER.getMsg()));
+        }
+
+        SearchServer searchServer = search.isDismax() ? dismaxSearchers.get(resourceType) : searchers.get(resourceType);
+        if (searchServer == null)
+        {
+            return Futures.immediateFuture(BatchResult.error(search, HttpServletResponse.SC_INTERNAL_SERVER_ERROR, ErrorMessage.INDEX_NOT_AVAILABLE_FOR_TYPE.getMsg(resourceType)));
+        }
+
+        // Dismax and normal search servers for a resource share the same SearcherManager
+        SearcherManager searcherManager = searchServer.getSearcherManager();
+        IndexSearcher searcher = acquiredSearchers.get(searcherManager);
+        if (searcher == null)
+        {
+            searcher = searcherManager.acquire();
+            acquiredSearchers.put(searcherManager, searcher);
+        }
+
+        Integer offset = DEFAULT_OFFSET;
+        if (search.getOffset() != null && search.getOffset() > 0)
+        {
+            offset = search.getOffset();
+        }
+
+        Integer limit = DEFAULT_MATCHES_LIMIT;
+        if (search.getLimit() != null && search.getLimit() > 0)
+        {
+            limit = Math.min(search.getLimit(), MAX_MATCHES_LIMIT);
+        }
+        return batchExecutor.submit(new CallableBatchSearch(searchServer, searcher, search, offset, limit));
+    }
+
+    /**
+     * CallableBatchSearch reports its own errors so only interruption can fail here
+     *
+     * @param future
+     * @return
+     */
+    private BatchResult getBatchResult(Future<BatchResult> future)
+    {
+        try
+        {
+            return future.get();
+        }
+        catch (Exception e)
+        {
+            throw new RuntimeException(e);
+        }
+    }
+
     /**
      * See http://tickets.musicbrainz.org/browse/SEARCH-411
      *
@@ -632,9 +1327,89 @@ public class SearchServerServlet extends HttpServlet
         return false;
     }
 
+    /**
+     * Compute a strong ETag for a search, the same search against the same version of the index always produces the
+     * same response so this is all that is needed to identify the representation
+     *
+     * @param indexVersion
+     * @param resourceType
+     * @param query
+     * @param isDismax
+     * @param isPretty
+     * @param offset
+     * @param limit
+     * @param projection fields returned, or null for the full response
+     * @param facets facets counted, or null if none
+     * @param responseFormat
+     * @param responseVersion
+     * @return quoted ETag value
+     */
+    public static String computeETag(long indexVersion, ResourceType resourceType, String query, boolean isDismax, boolean isPretty, Integer offset, Integer limit, Set<ProjectionIndexField> projection, Set<FacetIndexField> facets, String responseFormat, String responseVersion)
+    {
+        StringBuilder sb = new StringBuilder();
+        sb.append(indexVersion).append('|')
+          .append(resourceType.getName()).append('|')
+          .append(query.trim().replaceAll("\\s+", " ")).append('|')
+          .append(isDismax).append('|')
+          .append(isPretty).append('|')
+          .append(offset).append('|')
+          .append(limit).append('|')
+          .append(projection == null ? "" : projection.toString()).append('|')
+          .append(facets == null ? "" : facets.toString()).append('|')
+          .append(responseFormat).append('|')
+          .append(responseVersion);
+        return '"' + Hashing.md5().hashString(sb, Charsets.UTF_8).toString() + '"';
+    }
+
+    /**
+     * Check the conditional headers of the request, If-None-Match takes precedence over If-Modified-Since as
+     * required by RFC 2616
+     *
+     * @param request
+     * @param eTag
+     * @param lastModified
+     * @return true if the client already has the current representation
+     */
+    public boolean isNotModified(HttpServletRequest request, String eTag, Date lastModified)
+    {
+        String ifNoneMatch = request.getHeader(HEADER_IF_NONE_MATCH);
+        if (ifNoneMatch != null)
+        {
+            for (String next : ifNoneMatch.split(","))
+            {
+                next = next.trim();
+                if (next.equals("*") || next.equals(eTag))
+                {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        if (lastModified != null)
+        {
+            long ifModifiedSince;
+            try
+            {
+                ifModifiedSince = request.getDateHeader(HEADER_IF_MODIFIED_SINCE);
+            }
+            catch (IllegalArgumentException iae)
+            {
+                return false;
+            }
+            // Http dates only have second precision
+            if (ifModifiedSince != -1 && lastModified.getTime() / 1000 <= ifModifiedSince / 1000)
+            {
+                return true;
+            }
+        }
+        return false;
+    }
+
     /**
      * Normal Search over one index
      *
+     * @param request
      * @param response
      * @param resourceType
      * @param query
@@ -642,11 +1417,13 @@ public class SearchServerServlet extends HttpServlet
      * @param isPretty
      * @param offset
      * @param limit
+     * @param projection fields to return, or null for the full response
+     * @param facets fields whose values are counted over all matches, or null for none
      * @param responseFormat
      * @param responseVersion @throws ParseException
      * @throws IOException
      */
-    public void doSearch(HttpServletResponse response, ResourceType resourceType, String query, boolean isDismax, boolean isExplain, boolean isPretty, Integer offset, Integer limit, String responseFormat, String responseVersion) throws ParseException, IOException
+    public void doSearch(HttpServletRequest request, HttpServletResponse response, ResourceType resourceType, String query, boolean isDismax, boolean isExplain, boolean isPretty, Integer offset, Integer limit, Set<ProjectionIndexField> projection, Set<FacetIndexField> facets, String responseFormat, String responseVersion) throws ParseException, IOException
     {
 
         SearchServer searchServer;
@@ -685,9 +1462,6 @@ public class SearchServerServlet extends HttpServlet
             */
         }
 
-        long startLucene = System.currentTimeMillis();
-        Results results = searchServer.search(query, offset, limit);
-
         org.musicbrainz.search.servlet.ResultsWriter writer = searchServer.getWriter(responseVersion);
 
         if (writer == null)
@@ -695,6 +1469,43 @@ public class SearchServerServlet extends HttpServlet
             response.sendError(HttpServletResponse.SC_INTERNAL_SERVER_ERROR, ErrorMessage.NO_HANDLER_FOR_TYPE_AND_FORMAT.getMsg(resourceType, responseFormat));
             return;
         }
+
+        // The ETag and the results come from the same searcher, so an index reloaded in between can't tag the results
+        // of the old index with the version of the new one
+        SearcherManager searcherManager = searchServer.getSearcherManager();
+        IndexSearcher searcher = searcherManager.acquire();
+        String eTag;
+        long startLucene;
+        Results results;
+        try
+        {
+            // Downstream caches repeat the same searches between index updates, answer them before doing any Lucene work
+            eTag = computeETag(searchServer.getIndexVersion(searcher), resourceType, query, isDismax, isPretty, offset, limit, projection, facets, responseFormat, responseVersion);
+            if (isNotModified(request, eTag, writer.getLastUpdateDate()))
+            {
+                response.setHeader(HEADER_ETAG, eTag);
+                if (writer.getLastUpdateDate() != null)
+                {
+                    response.setDateHeader(HEADER_LAST_MODIFIED, writer.getLastUpdateDate().getTime());
+                }
+                response.setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+                return;
+            }
+
+            startLucene = System.currentTimeMillis();
+            results = searchServer.search(searcher, query, offset, limit, projection, facets);
+        }
+        finally
+        {
+            searcherManager.release(searcher);
+        }
+        if (results.getProjection() != null)
+        {
+            ProjectionWriter projectionWriter = new ProjectionWriter(resourceType);
+            projectionWriter.setLastServerUpdatedDate(writer.getLastUpdateDate());
+            writer = projectionWriter;
+        }
+
         response.setCharacterEncoding(CHARSET);
         if (responseFormat.equals(RESPONSE_XML))
         {
@@ -705,9 +1516,10 @@ public class SearchServerServlet extends HttpServlet
             response.setContentType(((ResultsWriter) writer).getJsonMimeType());
         }
 
+        response.setHeader(HEADER_ETAG, eTag);
         if (writer.getLastUpdateDate() != null)
         {
-            response.setDateHeader("Last-Modified", writer.getLastUpdateDate().getTime());
+            response.setDateHeader(HEADER_LAST_MODIFIED, writer.getLastUpdateDate().getTime());
         }
 
         PrintWriter out = new PrintWriter(new BufferedWriter(new OutputStreamWriter(response.getOutputStream(), CHARSET)));
@@ -780,7 +1592,7 @@ public class SearchServerServlet extends HttpServlet
 
         if (writer.getLastUpdateDate() != null)
         {
-            response.setDateHeader("Last-Modified", writer.getLastUpdateDate().getTime());
+            response.setDateHeader(HEADER_LAST_MODIFIED, writer.getLastUpdateDate().getTime());
         }
 
         PrintWriter out = new PrintWriter(new BufferedWriter(new OutputStreamWriter(response.getOutputStream(), CHARSET)));
@@ -54,6 +54,8 @@ public class SeriesSearch extends AbstractSearchServer {
   public SeriesSearch() throws Exception {
     resultsWriter = new SeriesWriter();
     setupDefaultFields();
+    identifierFields = fieldNames(SeriesIndexField.SERIES_ID);
+    uniqueIdentifierFields = fieldNames(SeriesIndexField.SERIES_ID);
     analyzer = DatabaseIndex.getAnalyzer(SeriesIndexField.class);
   }
 
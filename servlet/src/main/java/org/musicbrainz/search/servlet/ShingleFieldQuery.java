@@ -0,0 +1,102 @@
+package org.musicbrainz.search.servlet;
+
+import org.apache.lucene.index.IndexReader;
+import org.apache.lucene.index.MultiFields;
+import org.apache.lucene.index.Term;
+import org.apache.lucene.search.BooleanClause;
+import org.apache.lucene.search.BooleanQuery;
+import org.apache.lucene.search.PhraseQuery;
+import org.apache.lucene.search.Query;
+import org.apache.lucene.search.TermQuery;
+import org.apache.lucene.util.ToStringUtils;
+import org.musicbrainz.search.analysis.ShingleAnalyzer;
+
+import java.io.IOException;
+import java.util.Map;
+
+/**
+ * Two word phrase match against a field indexed with each pair of adjacent terms of the phrase field (see
+ * ShingleAnalyzer), so rather than matching positions of two terms it is just a single term lookup.
+ *
+ * If the index was built without the shingle field it is rewritten to the original phrase query instead.
+ */
+public class ShingleFieldQuery extends Query {
+
+    private final PhraseQuery phrase;
+    private final String shingleField;
+
+    public ShingleFieldQuery(PhraseQuery phrase, String shingleField) {
+        this.phrase = phrase;
+        this.shingleField = shingleField;
+    }
+
+    /**
+     * @param query
+     * @param shingleFields map of phrase field to its shingle field
+     * @return the query with two word phrases on fields with a shingle field replaced, boolean queries are changed in
+     * place
+     */
+    public static Query replacePhrases(Query query, Map<String, String> shingleFields) {
+        if (query instanceof BooleanQuery) {
+            for (BooleanClause clause : ((BooleanQuery) query).clauses()) {
+                clause.setQuery(replacePhrases(clause.getQuery(), shingleFields));
+            }
+            return query;
+        }
+        if (query instanceof PhraseQuery) {
+            Term[] terms = ((PhraseQuery) query).getTerms();
+            if (terms.length == 2 && shingleFields.containsKey(terms[0].field())) {
+                return replacePhrase((PhraseQuery) query, shingleFields.get(terms[0].field()));
+            }
+        }
+        return query;
+    }
+
+    /**
+     * @param phrase
+     * @param shingleField
+     * @return shingle query if the phrase is two adjacent terms, otherwise the original phrase
+     */
+    public static Query replacePhrase(PhraseQuery phrase, String shingleField) {
+        int[] positions = phrase.getPositions();
+        if (shingleField == null || phrase.getSlop() != 0 || positions.length != 2 || positions[1] != positions[0] + 1) {
+            return phrase;
+        }
+        Query query = new ShingleFieldQuery(phrase, shingleField);
+        query.setBoost(phrase.getBoost());
+        return query;
+    }
+
+    @Override
+    public Query rewrite(IndexReader reader) throws IOException {
+        if (MultiFields.getTerms(reader, shingleField) == null) {
+            PhraseQuery query = (PhraseQuery) phrase.clone();
+            query.setBoost(getBoost());
+            return query;
+        }
+        Term[] terms = phrase.getTerms();
+        Query query = new TermQuery(new Term(shingleField, terms[0].text() + ShingleAnalyzer.TOKEN_SEPARATOR + terms[1].text()));
+        query.setBoost(getBoost());
+        return query;
+    }
+
+    @Override
+    public String toString(String field) {
+        Term[] terms = phrase.getTerms();
+        return shingleField + ":\"" + terms[0].text() + " " + terms[1].text() + "\"" + ToStringUtils.boost(getBoost());
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (!super.equals(o)) {
+            return false;
+        }
+        ShingleFieldQuery that = (ShingleFieldQuery) o;
+        return phrase.equals(that.phrase) && shingleField.equals(that.shingleField);
+    }
+
+    @Override
+    public int hashCode() {
+        return 31 * (31 * super.hashCode() + phrase.hashCode()) + shingleField.hashCode();
+    }
+}
@@ -0,0 +1,66 @@
+package org.musicbrainz.search.servlet;
+
+import org.apache.lucene.search.suggest.Lookup;
+import org.musicbrainz.search.index.MusicBrainzSuggester;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.EnumSet;
+import java.util.List;
+
+/**
+ * Suggests names for a resource type as the user types, using the suggester built alongside the index by the
+ * IndexBuilder. Lookups do not touch the index, so are much cheaper than a prefix search.
+ */
+public class SuggestServer
+{
+    public static final EnumSet<ResourceType> SUPPORTED_TYPES = EnumSet.of(
+            ResourceType.ARTIST,
+            ResourceType.RELEASE,
+            ResourceType.RELEASE_GROUP,
+            ResourceType.RECORDING,
+            ResourceType.LABEL,
+            ResourceType.WORK,
+            ResourceType.AREA,
+            ResourceType.PLACE,
+            ResourceType.TAG);
+
+    private final File file;
+    private volatile Lookup lookup;
+    private long lastModified;
+
+    /**
+     * @param indexDir directory of the index the suggester was built from
+     * @throws IOException if suggester cannot be loaded
+     */
+    public SuggestServer(File indexDir) throws IOException
+    {
+        this.file = new File(indexDir, MusicBrainzSuggester.SUGGEST_FILE);
+        reload();
+    }
+
+    /**
+     * Load suggester if it has been rebuilt since last loaded, lookups in progress continue to use the old one
+     *
+     * @throws IOException
+     */
+    public synchronized void reload() throws IOException
+    {
+        if (file.lastModified() != lastModified)
+        {
+            lastModified = file.lastModified();
+            lookup = MusicBrainzSuggester.load(file);
+        }
+    }
+
+    /**
+     * @param prefix
+     * @param limit
+     * @return names starting with prefix, most popular first
+     * @throws IOException
+     */
+    public List<Lookup.LookupResult> suggest(String prefix, int limit) throws IOException
+    {
+        return lookup.lookup(prefix, false, limit);
+    }
+}
@@ -174,7 +174,7 @@ public class TestSearchOnly {
         // Make the search
         long start = System.nanoTime();
         SearchServer searchServer = searchers.get(resourceType);
-        Results results = searchServer.search(query, offset, limit);
+        Results results = searchServer.search(null, query, offset, limit, null, null);
         org.musicbrainz.search.servlet.ResultsWriter writer = searchServer.getWriter(responseVersion);
         PrintWriter out = new PrintWriter(new BufferedWriter(new OutputStreamWriter(new NullOutputStream(), CHARSET)));
         writer.write(out, results, "xml", false);
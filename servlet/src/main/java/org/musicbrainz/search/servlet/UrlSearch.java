@@ -24,6 +24,8 @@ public class UrlSearch extends AbstractSearchServer {
 
     resultsWriter = new UrlWriter();
     setupDefaultFields();
+    identifierFields = fieldNames(UrlIndexField.URL_ID, UrlIndexField.TARGET_ID);
+    uniqueIdentifierFields = fieldNames(UrlIndexField.URL_ID);
     analyzer = DatabaseIndex.getAnalyzer(UrlIndexField.class);
   }
 
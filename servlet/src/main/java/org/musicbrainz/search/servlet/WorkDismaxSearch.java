@@ -40,7 +40,8 @@ public class WorkDismaxSearch extends AbstractDismaxSearchServer {
   @Override
   protected DismaxSearcher initDismaxSearcher() {
     Map<String, DismaxAlias.AliasField> fieldBoosts = new HashMap<String, DismaxAlias.AliasField>(2);
-    fieldBoosts.put(WorkIndexField.WORK.getName(),      new DismaxAlias.AliasField(true, 1.3f));
+    fieldBoosts.put(WorkIndexField.WORK.getName(),      new DismaxAlias.AliasField(true, 1.3f, WorkIndexField.WORK_PREFIX.getName(),
+            WorkIndexField.WORK_SHINGLE.getName()));
     fieldBoosts.put(WorkIndexField.ALIAS.getName(),     new DismaxAlias.AliasField(true, 0.9f));
     fieldBoosts.put(WorkIndexField.COMMENT.getName(),   new DismaxAlias.AliasField(true, 0.7f));
     DismaxAlias dismaxAlias = new DismaxAlias();
@@ -1,14 +1,40 @@
 package org.musicbrainz.search.servlet;
 
 import org.apache.lucene.queryparser.classic.MultiFieldQueryParser;
+import org.apache.lucene.queryparser.classic.ParseException;
+import org.apache.lucene.search.BooleanClause;
+import org.apache.lucene.search.Query;
 import org.musicbrainz.search.LuceneVersion;
+import org.musicbrainz.search.index.WorkIndexField;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
 
 
 public class WorkQueryParser extends MultiFieldQueryParser
 {
 
+    // Two word phrases on these fields are looked up in their shingle field
+    private static final Map<String, String> SHINGLE_FIELDS
+            = Collections.singletonMap(WorkIndexField.WORK.getName(), WorkIndexField.WORK_SHINGLE.getName());
+
     public WorkQueryParser(java.lang.String[] strings, org.apache.lucene.analysis.Analyzer analyzer)
     {
         super(LuceneVersion.LUCENE_VERSION, strings, analyzer);
     }
+
+    @Override
+    protected Query getFieldQuery(String field, String queryText, int slop) throws ParseException
+    {
+        return ShingleFieldQuery.replacePhrases(super.getFieldQuery(field, queryText, slop), SHINGLE_FIELDS);
+    }
+
+    @Override
+    protected Query getBooleanQuery(List<BooleanClause> clauses, boolean disableCoord) throws ParseException
+    {
+        Query query = super.getBooleanQuery(clauses, disableCoord);
+        // Only the queries of words entered by the user, not expansion over multiple fields
+        return disableCoord ? query : CommonTermsBooleanQuery.wrap(query);
+    }
 }
\ No newline at end of file
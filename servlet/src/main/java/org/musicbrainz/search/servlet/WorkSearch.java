@@ -25,6 +25,9 @@ public class WorkSearch extends AbstractSearchServer {
   public WorkSearch() throws Exception {
     resultsWriter = new WorkWriter();
     setupDefaultFields();
+    identifierFields = fieldNames(WorkIndexField.WORK_ID, WorkIndexField.ARTIST_ID, WorkIndexField.RECORDING_ID, WorkIndexField.ISWC);
+    uniqueIdentifierFields = fieldNames(WorkIndexField.WORK_ID, WorkIndexField.ISWC);
+    filterFields = fieldNames(WorkIndexField.TYPE);
     analyzer = DatabaseIndex.getAnalyzer(WorkIndexField.class);
   }
 
@@ -0,0 +1,93 @@
+package org.musicbrainz.search.servlet.mmd2;
+
+import org.apache.commons.lang.StringEscapeUtils;
+import org.musicbrainz.search.servlet.BatchResult;
+import org.musicbrainz.search.servlet.SearchServerServlet;
+import org.musicbrainz.search.servlet.Utils;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+
+/**
+ * Writes the combined response of a batch search one result at a time, wrapping the usual mmd2 output of each
+ * search in an envelope identifying the search and its status.
+ */
+public class BatchWriter {
+
+    private final String outputFormat;
+    private boolean isFirst = true;
+
+    public BatchWriter(String outputFormat) {
+        this.outputFormat = outputFormat;
+    }
+
+    private boolean isXml() {
+        return outputFormat.equals(SearchServerServlet.RESPONSE_XML);
+    }
+
+    public String getMimeType() {
+        return isXml() ? "application/xml; charset=UTF-8" : "application/json; charset=UTF-8";
+    }
+
+    public void writeStart(PrintWriter out) {
+        if (isXml()) {
+            out.print("<?xml version=\"1.0\" encoding=\"UTF-8\" standalone=\"yes\"?><batch>");
+        }
+        else {
+            out.print("{\"results\":[");
+        }
+    }
+
+    public void write(PrintWriter out, BatchResult result) throws IOException {
+        if (isXml()) {
+            out.print("<result");
+            if (result.getId() != null) {
+                out.print(" id=\"" + StringEscapeUtils.escapeXml(result.getId()) + "\"");
+            }
+            if (result.getType() != null) {
+                out.print(" type=\"" + StringEscapeUtils.escapeXml(result.getType()) + "\"");
+            }
+            out.print(" status=\"" + result.getStatus() + "\">");
+            if (result.isError()) {
+                out.print("<error>" + StringEscapeUtils.escapeXml(result.getError()) + "</error>");
+            }
+            else {
+                result.getWriter().writeFragment(out, result.getResults(), outputFormat);
+            }
+            out.print("</result>");
+        }
+        else {
+            if (!isFirst) {
+                out.print(',');
+            }
+            out.print('{');
+            if (result.getId() != null) {
+                out.print("\"id\":" + Utils.quoteJson(result.getId()) + ",");
+            }
+            if (result.getType() != null) {
+                out.print("\"type\":" + Utils.quoteJson(result.getType()) + ",");
+            }
+            out.print("\"status\":" + result.getStatus() + ",");
+            if (result.isError()) {
+                out.print("\"error\":" + Utils.quoteJson(result.getError()));
+            }
+            else {
+                out.print("\"metadata\":");
+                result.getWriter().writeFragment(out, result.getResults(), outputFormat);
+            }
+            out.print('}');
+        }
+        isFirst = false;
+        // Let the client start on the results it already has whilst the remaining searches complete
+        out.flush();
+    }
+
+    public void writeEnd(PrintWriter out) {
+        if (isXml()) {
+            out.print("</batch>");
+        }
+        else {
+            out.print("]}");
+        }
+    }
+}
@@ -0,0 +1,79 @@
+package org.musicbrainz.search.servlet.mmd2;
+
+import org.apache.commons.lang.StringEscapeUtils;
+import org.musicbrainz.search.index.FacetIndexField;
+import org.musicbrainz.search.servlet.SearchServerServlet;
+import org.musicbrainz.search.servlet.Utils;
+
+import java.util.Map;
+
+/**
+ * Writes facet counts, these are not part of mmd2 so are added to the end of the marshalled response rather than via
+ * jaxb, e.g
+ *
+ * <pre>
+ * &lt;ext:facets xmlns:ext="http://musicbrainz.org/ns/ext#-2.0"&gt;&lt;ext:facet name="status"&gt;&lt;ext:value count="12"&gt;Official&lt;/ext:value&gt;&lt;/ext:facet&gt;&lt;/ext:facets&gt;
+ * "facets":{"status":{"Official":12}}
+ * </pre>
+ */
+public class FacetWriter {
+
+    private static final String EXT_NAMESPACE = "http://musicbrainz.org/ns/ext#-2.0";
+
+    /**
+     * @param response marshalled response
+     * @param facets
+     * @param outputFormat
+     * @return response with the facets added as the last child of the root element or object
+     */
+    public static String addFacets(String response, Map<FacetIndexField, Map<String, Integer>> facets, String outputFormat) {
+        StringBuilder sb = new StringBuilder(response.length() + 256);
+        if (outputFormat.equals(SearchServerServlet.RESPONSE_XML)) {
+            int end = response.lastIndexOf("</");
+            if (end == -1) {
+                return response;
+            }
+            sb.append(response, 0, end);
+            sb.append("<ext:facets xmlns:ext=\"").append(EXT_NAMESPACE).append("\">");
+            for (Map.Entry<FacetIndexField, Map<String, Integer>> facet : facets.entrySet()) {
+                sb.append("<ext:facet name=\"").append(facet.getKey().getParamName()).append("\">");
+                for (Map.Entry<String, Integer> value : facet.getValue().entrySet()) {
+                    sb.append("<ext:value count=\"").append(value.getValue()).append("\">");
+                    sb.append(StringEscapeUtils.escapeXml(value.getKey()));
+                    sb.append("</ext:value>");
+                }
+                sb.append("</ext:facet>");
+            }
+            sb.append("</ext:facets>");
+            sb.append(response, end, response.length());
+        }
+        else {
+            int end = response.lastIndexOf('}');
+            if (end == -1) {
+                return response;
+            }
+            sb.append(response, 0, end);
+            sb.append(",\"facets\":{");
+            boolean isFirstFacet = true;
+            for (Map.Entry<FacetIndexField, Map<String, Integer>> facet : facets.entrySet()) {
+                if (!isFirstFacet) {
+                    sb.append(',');
+                }
+                sb.append(Utils.quoteJson(facet.getKey().getParamName())).append(":{");
+                boolean isFirst = true;
+                for (Map.Entry<String, Integer> value : facet.getValue().entrySet()) {
+                    if (!isFirst) {
+                        sb.append(',');
+                    }
+                    sb.append(Utils.quoteJson(value.getKey())).append(':').append(value.getValue());
+                    isFirst = false;
+                }
+                sb.append('}');
+                isFirstFacet = false;
+            }
+            sb.append('}');
+            sb.append(response, end, response.length());
+        }
+        return sb.toString();
+    }
+}
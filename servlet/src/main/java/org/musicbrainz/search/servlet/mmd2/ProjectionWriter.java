@@ -0,0 +1,153 @@
+package org.musicbrainz.search.servlet.mmd2;
+
+import org.musicbrainz.mmd2.*;
+import org.musicbrainz.search.MbDocument;
+import org.musicbrainz.search.index.ProjectionIndexField;
+import org.musicbrainz.search.servlet.ErrorMessage;
+import org.musicbrainz.search.servlet.ResourceType;
+import org.musicbrainz.search.servlet.Result;
+import org.musicbrainz.search.servlet.Results;
+
+import java.io.IOException;
+import java.math.BigInteger;
+import java.util.EnumSet;
+
+/**
+ * Writes results that only hold the projection fields read from DocValues, producing the same structure as the
+ * full writer for the resource type but with only the requested fields and the score set.
+ */
+public class ProjectionWriter extends ResultsWriter {
+
+    /** Resource types whose indexes contain the projection fields */
+    public static final EnumSet<ResourceType> SUPPORTED_TYPES = EnumSet.of(
+            ResourceType.ARTIST,
+            ResourceType.LABEL,
+            ResourceType.RELEASE,
+            ResourceType.RELEASE_GROUP,
+            ResourceType.RECORDING,
+            ResourceType.WORK);
+
+    private final ResourceType resourceType;
+
+    public ProjectionWriter(ResourceType resourceType) {
+        this.resourceType = resourceType;
+    }
+
+    /**
+     * @param metadata
+     * @param results
+     * @throws IOException
+     */
+    public void write(Metadata metadata, Results results) throws IOException {
+        ObjectFactory of = new ObjectFactory();
+
+        for (Result result : results.results) {
+            result.setNormalizedScore(results.getMaxScore());
+        }
+
+        BigInteger count = BigInteger.valueOf(results.getTotalHits());
+        BigInteger offset = BigInteger.valueOf(results.getOffset());
+        switch (resourceType) {
+            case ARTIST: {
+                ArtistList artistList = of.createArtistList();
+                for (Result result : results.results) {
+                    MbDocument doc = result.getDoc();
+                    Artist artist = of.createArtist();
+                    artist.setId(doc.get(ProjectionIndexField.MBID));
+                    artist.setName(doc.get(ProjectionIndexField.NAME));
+                    artist.setSortName(doc.get(ProjectionIndexField.SORTNAME));
+                    artist.setDisambiguation(doc.get(ProjectionIndexField.DISAMBIGUATION));
+                    artist.setScore(result.getNormalizedScore());
+                    artistList.getArtist().add(artist);
+                }
+                artistList.setCount(count);
+                artistList.setOffset(offset);
+                metadata.setArtistList(artistList);
+                break;
+            }
+            case LABEL: {
+                LabelList labelList = of.createLabelList();
+                for (Result result : results.results) {
+                    MbDocument doc = result.getDoc();
+                    Label label = of.createLabel();
+                    label.setId(doc.get(ProjectionIndexField.MBID));
+                    label.setName(doc.get(ProjectionIndexField.NAME));
+                    label.setSortName(doc.get(ProjectionIndexField.SORTNAME));
+                    label.setDisambiguation(doc.get(ProjectionIndexField.DISAMBIGUATION));
+                    label.setScore(result.getNormalizedScore());
+                    labelList.getLabel().add(label);
+                }
+                labelList.setCount(count);
+                labelList.setOffset(offset);
+                metadata.setLabelList(labelList);
+                break;
+            }
+            case RELEASE: {
+                ReleaseList releaseList = of.createReleaseList();
+                for (Result result : results.results) {
+                    MbDocument doc = result.getDoc();
+                    Release release = of.createRelease();
+                    release.setId(doc.get(ProjectionIndexField.MBID));
+                    release.setTitle(doc.get(ProjectionIndexField.NAME));
+                    release.setDisambiguation(doc.get(ProjectionIndexField.DISAMBIGUATION));
+                    release.setScore(result.getNormalizedScore());
+                    releaseList.getRelease().add(release);
+                }
+                releaseList.setCount(count);
+                releaseList.setOffset(offset);
+                metadata.setReleaseList(releaseList);
+                break;
+            }
+            case RELEASE_GROUP: {
+                ReleaseGroupList releaseGroupList = of.createReleaseGroupList();
+                for (Result result : results.results) {
+                    MbDocument doc = result.getDoc();
+                    ReleaseGroup releaseGroup = of.createReleaseGroup();
+                    releaseGroup.setId(doc.get(ProjectionIndexField.MBID));
+                    releaseGroup.setTitle(doc.get(ProjectionIndexField.NAME));
+                    releaseGroup.setDisambiguation(doc.get(ProjectionIndexField.DISAMBIGUATION));
+                    releaseGroup.setScore(result.getNormalizedScore());
+                    releaseGroupList.getReleaseGroup().add(releaseGroup);
+                }
+                releaseGroupList.setCount(count);
+                releaseGroupList.setOffset(offset);
+                metadata.setReleaseGroupList(releaseGroupList);
+                break;
+            }
+            case RECORDING: {
+                RecordingList recordingList = of.createRecordingList();
+                for (Result result : results.results) {
+                    MbDocument doc = result.getDoc();
+                    Recording recording = of.createRecording();
+                    recording.setId(doc.get(ProjectionIndexField.MBID));
+                    recording.setTitle(doc.get(ProjectionIndexField.NAME));
+                    recording.setDisambiguation(doc.get(ProjectionIndexField.DISAMBIGUATION));
+                    recording.setScore(result.getNormalizedScore());
+                    recordingList.getRecording().add(recording);
+                }
+                recordingList.setCount(count);
+                recordingList.setOffset(offset);
+                metadata.setRecordingList(recordingList);
+                break;
+            }
+            case WORK: {
+                WorkList workList = of.createWorkList();
+                for (Result result : results.results) {
+                    MbDocument doc = result.getDoc();
+                    Work work = of.createWork();
+                    work.setId(doc.get(ProjectionIndexField.MBID));
+                    work.setTitle(doc.get(ProjectionIndexField.NAME));
+                    work.setDisambiguation(doc.get(ProjectionIndexField.DISAMBIGUATION));
+                    work.setScore(result.getNormalizedScore());
+                    workList.getWork().add(work);
+                }
+                workList.setCount(count);
+                workList.setOffset(offset);
+                metadata.setWorkList(workList);
+                break;
+            }
+            default:
+                throw new IOException(ErrorMessage.FIELDS_NOT_SUPPORTED_FOR_TYPE.getMsg(resourceType.getName()));
+        }
+    }
+}
@@ -49,6 +49,7 @@ import javax.xml.datatype.DatatypeFactory;
 import javax.xml.datatype.XMLGregorianCalendar;
 import java.io.IOException;
 import java.io.PrintWriter;
+import java.io.StringWriter;
 import java.util.GregorianCalendar;
 import java.util.HashMap;
 import java.util.Map;
@@ -152,6 +153,36 @@ public abstract class ResultsWriter extends org.musicbrainz.search.servlet.Resul
      * @throws java.io.IOException
      */
     public void write(PrintWriter out, Results results, String outputFormat, boolean isPretty) throws IOException {
+        write(out, results, outputFormat, isPretty, false);
+    }
+
+    /**
+     * Write the results to provider writer in required format as a fragment without any xml declaration, so that
+     * it can be embedded within a larger document such as a batch response
+     *
+     * @param out
+     * @param results
+     * @param outputFormat
+     * @throws IOException
+     */
+    public void writeFragment(PrintWriter out, Results results, String outputFormat) throws IOException {
+        write(out, results, outputFormat, false, true);
+    }
+
+    private void write(PrintWriter out, Results results, String outputFormat, boolean isPretty, boolean isFragment) throws IOException {
+
+        if(results.getFacets() == null) {
+            marshal(out, results, outputFormat, isPretty, isFragment);
+            return;
+        }
+
+        // Facets are not part of mmd2 so are added to the marshalled response
+        StringWriter buffer = new StringWriter();
+        marshal(new PrintWriter(buffer), results, outputFormat, isPretty, isFragment);
+        out.print(FacetWriter.addFacets(buffer.toString(), results.getFacets(), outputFormat));
+    }
+
+    private void marshal(PrintWriter out, Results results, String outputFormat, boolean isPretty, boolean isFragment) throws IOException {
 
         if(outputFormat.equals(SearchServerServlet.RESPONSE_XML)) {
 
@@ -159,6 +190,9 @@ public abstract class ResultsWriter extends org.musicbrainz.search.servlet.Resul
                 Metadata metadata = write(results);
                 Marshaller m = context.createMarshaller();
                 m.setProperty("com.sun.xml.bind.namespacePrefixMapper", prefixMapper);
+                if(isFragment) {
+                    m.setProperty(Marshaller.JAXB_FRAGMENT, true);
+                }
                 if(isPretty) {
                     m.setProperty(Marshaller.JAXB_FORMATTED_OUTPUT, true);
                 }
@@ -0,0 +1,81 @@
+package org.musicbrainz.search.servlet.mmd2;
+
+import org.apache.commons.lang.StringEscapeUtils;
+import org.apache.lucene.search.suggest.Lookup;
+import org.musicbrainz.search.servlet.ResourceType;
+import org.musicbrainz.search.servlet.SearchServerServlet;
+import org.musicbrainz.search.servlet.Utils;
+
+import java.io.PrintWriter;
+import java.util.List;
+
+/**
+ * Writes suggestions, these are not part of mmd2 so are written directly rather than via jaxb, e.g
+ *
+ * <pre>
+ * &lt;suggestions type="artist"&gt;&lt;suggestion id="..." weight="100"&gt;Björk&lt;/suggestion&gt;&lt;/suggestions&gt;
+ * {"suggestions":[{"id":"...","name":"Björk","weight":100}]}
+ * </pre>
+ */
+public class SuggestWriter {
+
+    private final ResourceType resourceType;
+    private final String outputFormat;
+
+    public SuggestWriter(ResourceType resourceType, String outputFormat) {
+        this.resourceType = resourceType;
+        this.outputFormat = outputFormat;
+    }
+
+    private boolean isXml() {
+        return outputFormat.equals(SearchServerServlet.RESPONSE_XML);
+    }
+
+    public String getMimeType() {
+        return isXml() ? "application/xml; charset=UTF-8" : "application/json; charset=UTF-8";
+    }
+
+    public void write(PrintWriter out, List<Lookup.LookupResult> suggestions) {
+        if (isXml()) {
+            out.print("<?xml version=\"1.0\" encoding=\"UTF-8\" standalone=\"yes\"?>");
+            out.print("<suggestions type=\"" + resourceType.getName() + "\">");
+            for (Lookup.LookupResult suggestion : suggestions) {
+                out.print("<suggestion");
+                String id = getId(suggestion);
+                if (id != null) {
+                    out.print(" id=\"" + StringEscapeUtils.escapeXml(id) + "\"");
+                }
+                out.print(" weight=\"" + suggestion.value + "\">");
+                out.print(StringEscapeUtils.escapeXml(suggestion.key.toString()));
+                out.print("</suggestion>");
+            }
+            out.print("</suggestions>");
+        }
+        else {
+            out.print("{\"suggestions\":[");
+            boolean isFirst = true;
+            for (Lookup.LookupResult suggestion : suggestions) {
+                if (!isFirst) {
+                    out.print(',');
+                }
+                out.print('{');
+                String id = getId(suggestion);
+                if (id != null) {
+                    out.print("\"id\":" + Utils.quoteJson(id) + ",");
+                }
+                out.print("\"name\":" + Utils.quoteJson(suggestion.key.toString()) + ",");
+                out.print("\"weight\":" + suggestion.value);
+                out.print('}');
+                isFirst = false;
+            }
+            out.print("]}");
+        }
+    }
+
+    private String getId(Lookup.LookupResult suggestion) {
+        if (suggestion.payload == null || suggestion.payload.length == 0) {
+            return null;
+        }
+        return suggestion.payload.utf8ToString();
+    }
+}
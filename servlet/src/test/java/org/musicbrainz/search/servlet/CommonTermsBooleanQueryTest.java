@@ -0,0 +1,76 @@
+package org.musicbrainz.search.servlet;
+
+import static org.junit.Assert.assertEquals;
+
+import org.apache.lucene.analysis.Analyzer;
+import org.apache.lucene.index.DirectoryReader;
+import org.apache.lucene.index.IndexReader;
+import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.index.IndexWriterConfig;
+import org.apache.lucene.index.Term;
+import org.apache.lucene.search.BooleanClause;
+import org.apache.lucene.search.BooleanQuery;
+import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.search.Query;
+import org.apache.lucene.search.TermQuery;
+import org.apache.lucene.store.RAMDirectory;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.musicbrainz.search.LuceneVersion;
+import org.musicbrainz.search.MbDocument;
+import org.musicbrainz.search.index.DatabaseIndex;
+import org.musicbrainz.search.index.RecordingIndexField;
+
+public class CommonTermsBooleanQueryTest {
+
+    private IndexReader reader;
+
+    @Before
+    public void setUp() throws Exception {
+        RAMDirectory ramDir = new RAMDirectory();
+        Analyzer analyzer = DatabaseIndex.getAnalyzer(RecordingIndexField.class);
+        IndexWriterConfig writerConfig = new IndexWriterConfig(LuceneVersion.LUCENE_VERSION, analyzer);
+        IndexWriter writer = new IndexWriter(ramDir, writerConfig);
+
+        // Every recording contains 'love'
+        for (int i = 0; i < 2000; i++) {
+            MbDocument doc = new MbDocument();
+            doc.addField(RecordingIndexField.RECORDING, i == 0 ? "Love Zebra" : "Love Song");
+            writer.addDocument(doc.getLuceneDocument());
+        }
+        writer.close();
+        reader = DirectoryReader.open(ramDir);
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        reader.close();
+    }
+
+    private Query newQuery(String... words) {
+        BooleanQuery bq = new BooleanQuery();
+        for (String word : words) {
+            bq.add(new TermQuery(new Term(RecordingIndexField.RECORDING.getName(), word)), BooleanClause.Occur.SHOULD);
+        }
+        return bq;
+    }
+
+    @Test
+    public void testCommonTermOnlyScoredForDocsMatchingRareTerm() throws Exception {
+        IndexSearcher searcher = new IndexSearcher(reader);
+        assertEquals(2000, searcher.search(newQuery("love", "zebra"), 10).totalHits);
+        assertEquals(1, searcher.search(CommonTermsBooleanQuery.wrap(newQuery("love", "zebra")), 10).totalHits);
+    }
+
+    @Test
+    public void testAllCommonTermsUnchanged() throws Exception {
+        IndexSearcher searcher = new IndexSearcher(reader);
+        assertEquals(2000, searcher.search(CommonTermsBooleanQuery.wrap(newQuery("love", "song")), 10).totalHits);
+    }
+
+    @Test
+    public void testCutoffHasMinimum() throws Exception {
+        assertEquals(1000, CommonTermsBooleanQuery.getCutoff(reader, RecordingIndexField.RECORDING.getName()));
+    }
+}
@@ -3,16 +3,20 @@ package org.musicbrainz.search.servlet;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertTrue;
 
 import java.io.PrintWriter;
 import java.io.StringWriter;
 import java.math.BigInteger;
+import java.util.Arrays;
 import java.util.Date;
+import java.util.EnumSet;
 
 import org.apache.lucene.analysis.Analyzer;
 import org.apache.lucene.index.IndexWriter;
 import org.apache.lucene.index.IndexWriterConfig;
+import org.apache.lucene.search.Query;
 import org.apache.lucene.search.SearcherManager;
 import org.apache.lucene.store.RAMDirectory;
 import org.junit.Before;
@@ -24,6 +28,7 @@ import org.musicbrainz.search.analysis.MusicbrainzSimilarity;
 import org.musicbrainz.search.index.*;
 import org.musicbrainz.search.servlet.mmd1.ArtistMmd1XmlWriter;
 import org.musicbrainz.search.servlet.mmd1.Mmd1XmlWriter;
+import org.musicbrainz.search.servlet.mmd2.ProjectionWriter;
 import org.musicbrainz.search.servlet.mmd2.ResultsWriter;
 
 /**
@@ -49,7 +54,12 @@ public class FindArtistTest {
         {
             MbDocument doc = new MbDocument();
             doc.addField(ArtistIndexField.ARTIST_ID, "4302e264-1cf0-4d1f-aca7-2a6f89e34b36");
+            doc.addDocValuesField(ProjectionIndexField.MBID, "4302e264-1cf0-4d1f-aca7-2a6f89e34b36");
             doc.addField(ArtistIndexField.ARTIST, "Farming Incident");
+            doc.addField(ArtistIndexField.ARTIST_PREFIX, "Farming Incident");
+            doc.addField(ArtistIndexField.ARTIST_SHINGLE, "Farming Incident");
+            doc.addDocValuesField(ProjectionIndexField.NAME, "Farming Incident");
+            doc.addDocValuesField(ProjectionIndexField.SORTNAME, "Incident, Farming");
             doc.addField(ArtistIndexField.SORTNAME, "Incident, Farming");
             doc.addField(ArtistIndexField.BEGIN, "1999-04");
             doc.addField(ArtistIndexField.ENDED, "true");
@@ -120,6 +130,8 @@ public class FindArtistTest {
             MbDocument doc = new MbDocument();
             doc.addField(ArtistIndexField.ARTIST_ID, "ccd4879c-5e88-4385-b131-bf65296bf245");
             doc.addField(ArtistIndexField.ARTIST, "Echo & The Bunnymen");
+            doc.addField(ArtistIndexField.ARTIST_PREFIX, "Echo & The Bunnymen");
+            doc.addField(ArtistIndexField.ARTIST_SHINGLE, "Echo & The Bunnymen");
             doc.addField(ArtistIndexField.SORTNAME, "Echo & The Bunnymen");
             doc.addField(ArtistIndexField.BEGIN, "1978");
             doc.addField(ArtistIndexField.COUNTRY, "unknown");
@@ -170,6 +182,8 @@ public class FindArtistTest {
             MbDocument doc = new MbDocument();
             doc.addField(ArtistIndexField.ARTIST_ID, "dde4879c-5e88-4385-b131-bf65296bf245");
             doc.addField(ArtistIndexField.ARTIST, "PJ Harvey");
+            doc.addField(ArtistIndexField.ARTIST_PREFIX, "PJ Harvey");
+            doc.addField(ArtistIndexField.ARTIST_SHINGLE, "PJ Harvey");
             doc.addField(ArtistIndexField.TYPE, "Person");
             doc.addField(ArtistIndexField.GENDER, "unknown");
 
@@ -209,6 +223,28 @@ public class FindArtistTest {
         assertEquals("4302e264-1cf0-4d1f-aca7-2a6f89e34b36", getArtistId(res.results.get(0).getDoc()));
     }
 
+    @Test
+    public void testFindArtistByIdProjection() throws Exception {
+        Results res = ss.search(null, "arid:\"4302e264-1cf0-4d1f-aca7-2a6f89e34b36\"", 0, 10, EnumSet.of(ProjectionIndexField.MBID, ProjectionIndexField.NAME), null);
+        assertEquals(1, res.getTotalHits());
+        MbDocument doc = res.results.get(0).getDoc();
+        assertEquals("4302e264-1cf0-4d1f-aca7-2a6f89e34b36", doc.get(ProjectionIndexField.MBID));
+        assertEquals("Farming Incident", doc.get(ProjectionIndexField.NAME));
+        assertNull(doc.get(ProjectionIndexField.SORTNAME));
+        assertNull(doc.get(ArtistIndexField.ARTIST_STORE));
+
+        StringWriter sw = new StringWriter();
+        PrintWriter pr = new PrintWriter(sw);
+        ProjectionWriter writer = new ProjectionWriter(ResourceType.ARTIST);
+        writer.setLastServerUpdatedDate(new Date());
+        writer.write(pr, res);
+        pr.close();
+        String output = sw.toString();
+        assertTrue(output.contains("id=\"4302e264-1cf0-4d1f-aca7-2a6f89e34b36\""));
+        assertTrue(output.contains("<name>Farming Incident</name>"));
+        assertFalse(output.contains("sort-name"));
+    }
+
     @Test
     public void testFindArtistByName() throws Exception {
         Results res = ss.search("artist:\"Farming Incident\"", 0, 10);
@@ -252,6 +288,41 @@ public class FindArtistTest {
         assertEquals("4302e264-1cf0-4d1f-aca7-2a6f89e34b36", getArtistId(res.results.get(0).getDoc()));
     }
 
+    @Test
+    public void testFindArtistDismaxPhraseRescoredSameAsFullQuery() throws Exception {
+        Results res = sd.search("Farming Incident", 0, 10);
+        Results full = ss.search(sd.parseQuery("Farming Incident"), 0, 10);
+        assertEquals(1, res.getTotalHits());
+        assertEquals(full.results.get(0).getScore(), res.results.get(0).getScore(), 0.0001f);
+    }
+
+    @Test
+    public void testFindArtistDismaxPageOutsideRescoreWindowUsesFullQuery() throws Exception {
+        AbstractDismaxSearchServer.setPhraseRescoreWindow(1);
+        try {
+            Results full = ss.search(sd.parseQuery("Farming Incident"), 0, 10);
+            Results inWindow = sd.search("Farming Incident", 0, 1);
+            Results outsideWindow = sd.search("Farming Incident", 0, 10);
+            assertEquals(1, outsideWindow.getTotalHits());
+            assertEquals(full.results.get(0).getScore(), inWindow.results.get(0).getScore(), 0.0001f);
+            assertEquals(full.results.get(0).getScore(), outsideWindow.results.get(0).getScore(), 0.0001f);
+        } finally {
+            AbstractDismaxSearchServer.setPhraseRescoreWindow(AbstractDismaxSearchServer.DEFAULT_PHRASE_RESCORE_WINDOW);
+        }
+    }
+
+    @Test
+    public void testFindArtistByPhraseUsesShingles() throws Exception {
+        Query query = new ArtistQueryParser(new String[]{ArtistIndexField.ARTIST.getName()}, ss.getAnalyzer())
+                .parse("artist:\"Farming Incident\"");
+        assertTrue(query instanceof ShingleFieldQuery);
+        Results res = ss.search("artist:\"Farming Incident\"", 0, 10);
+        assertEquals(1, res.getTotalHits());
+        assertEquals("4302e264-1cf0-4d1f-aca7-2a6f89e34b36", getArtistId(res.results.get(0).getDoc()));
+        res = ss.search("artist:\"Incident Farming\"", 0, 10);
+        assertEquals(0, res.getTotalHits());
+    }
+
     @Test
     public void testFindArtistDismaxFuzzy() throws Exception {
         Results res = sd.search("Farmin", 0, 10);
@@ -260,6 +331,62 @@ public class FindArtistTest {
 
     }
 
+    @Test
+    public void testParsedQueriesCached() throws Exception {
+        assertSame(sd.parseQuery("Farming Incident"), sd.parseQuery("Farming Incident"));
+        assertSame(ss.parseQuery("artist:Farming"), ss.parseQuery("artist:Farming"));
+    }
+
+    @Test
+    public void testFindArtistDismaxFuzzyRewriteCached() throws Exception {
+        Results res = sd.search("Farmin", 0, 10);
+        Results cached = sd.search("Farmin", 0, 10);
+        assertEquals(1, cached.getTotalHits());
+        assertEquals(res.results.get(0).getScore(), cached.results.get(0).getScore(), 0.0001f);
+    }
+
+    @Test
+    public void testFindArtistDismaxMinExactScore() throws Exception {
+        // Exact query matches so by default only the hit count decides
+        sd.search("Farming", 0, 1);
+        assertTrue(sd.getPhaseStats().startsWith("exact=1,expanded=0"));
+
+        sd.setMinExactScore(Float.MAX_VALUE);
+        sd.search("Farming", 0, 1);
+        assertTrue(sd.getPhaseStats().startsWith("exact=1,expanded=1"));
+    }
+
+    @Test
+    public void testFindArtistDismaxMinExactHitsIndependentOfPage() throws Exception {
+        // A single exact match is enough even though it doesn't fill the page
+        sd.search("Farming", 0, 10);
+        sd.search("Farming", 10, 10);
+        assertEquals(2, sd.getExactCount());
+        assertEquals(0, sd.getExpandedCount());
+
+        sd.setMinExactHits(2);
+        sd.search("Farming", 0, 10);
+        assertEquals(2, sd.getExactCount());
+        assertEquals(1, sd.getExpandedCount());
+    }
+
+    @Test
+    public void testFindArtistDismaxFuzzyOnlyWhenExactFails() throws Exception {
+        assertEquals(0, ss.search(sd.parseExactQuery("Farmin"), 0, 10).getTotalHits());
+        assertEquals(1, ss.search(sd.parseExactQuery("Farming"), 0, 10).getTotalHits());
+
+        Results res = sd.search("Farmin", 0, 10);
+        assertEquals(1, res.getTotalHits());
+        assertEquals("4302e264-1cf0-4d1f-aca7-2a6f89e34b36", getArtistId(res.results.get(0).getDoc()));
+    }
+
+    @Test
+    public void testFindArtistDismaxPrefix() throws Exception {
+        Results res = sd.search("Bunny", 0, 10);
+        assertEquals(1, res.getTotalHits());
+        assertEquals("ccd4879c-5e88-4385-b131-bf65296bf245", getArtistId(res.results.get(0).getDoc()));
+    }
+
     @Test
     public void testFindArtistDismaxFuzzyShort() throws Exception {
         Results res = sd.search("Fa", 0, 10);
@@ -301,6 +428,25 @@ public class FindArtistTest {
 
     }
 
+    @Test
+    public void testFindArtistByIsniUppercase() throws Exception {
+        Results res = ss.search("isni:ABCDEF", 0, 10);
+        assertEquals(1, res.getTotalHits());
+        assertEquals("4302e264-1cf0-4d1f-aca7-2a6f89e34b36", getArtistId(res.results.get(0).getDoc()));
+    }
+
+    @Test
+    public void testLookupArtistsByIds() throws Exception {
+        Results res = ss.lookup(ArtistIndexField.ARTIST_ID.getName(), Arrays.asList(
+                "ccd4879c-5e88-4385-b131-bf65296bf245",
+                "4302e264-1cf0-4d1f-aca7-2a6f89e34b36",
+                "4302e264-1cf0-4d1f-aca7-2a6f89e34b36",
+                "00000000-0000-0000-0000-000000000000"), 0, 10);
+        assertEquals(2, res.getTotalHits());
+        assertEquals("4302e264-1cf0-4d1f-aca7-2a6f89e34b36", getArtistId(res.results.get(0).getDoc()));
+        assertEquals("ccd4879c-5e88-4385-b131-bf65296bf245", getArtistId(res.results.get(1).getDoc()));
+    }
+
     @Test
     public void testFindArtistByNumericType() throws Exception {
         Results res = ss.search("type:2", 0, 10);
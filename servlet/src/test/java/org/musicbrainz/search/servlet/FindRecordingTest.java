@@ -11,7 +11,12 @@ import java.util.Date;
 import org.apache.lucene.analysis.Analyzer;
 import org.apache.lucene.index.IndexWriter;
 import org.apache.lucene.index.IndexWriterConfig;
+import org.apache.lucene.search.BooleanClause;
+import org.apache.lucene.search.BooleanQuery;
+import org.apache.lucene.search.IndexSearcher;
 import org.apache.lucene.search.SearcherManager;
+import org.apache.lucene.search.TermQuery;
+import org.apache.lucene.search.TopDocs;
 import org.apache.lucene.store.RAMDirectory;
 import org.apache.lucene.util.BytesRef;
 import org.apache.lucene.util.NumericUtils;
@@ -298,6 +303,15 @@ public class FindRecordingTest {
         assertEquals("7ca7782b-a602-448b-b108-bb881a7be2d6", getRecordingId(res.results.get(0).getDoc()));
     }
 
+    @Test
+    public void testOnlyUniqueIdentifiersLookedUpDirectly() throws Exception {
+        // The recording's own mbid matches one recording, the artist's mbid matches all their recordings so is scored
+        assertTrue(ss.getIdentifierTerm("rid:\"7ca7782b-a602-448b-b108-bb881a7be2d6\"") != null);
+        assertTrue(ss.getIdentifierTerm("isrc:123456789") != null);
+        assertTrue(ss.getIdentifierTerm("arid:\"4302e264-1cf0-4d1f-aca7-2a6f89e34b36\"") == null);
+        assertTrue(ss.getIdentifierTerm("reid:\"1d9e8ed6-3893-4d3b-aa7d-6cd79609e386\"") == null);
+    }
+
     public void testFindRecordingByArtistName() throws Exception {
         Results res = ss.search("artist:\"Farming Incident\"", 0, 10);
         assertEquals(1, res.getTotalHits());
@@ -639,6 +653,56 @@ public class FindRecordingTest {
         assertTrue(output.contains("\"length\":233000,\"artist-credit\""));
     }
 
+    /**
+     * Status is multi valued, the cached status clause must still score a recording on two official releases the
+     * way the TermQuery on status does
+     */
+    @Test
+    public void testFindRecordingByRepeatedStatusScoresAsTermQuery() throws Exception {
+        RAMDirectory ramDir = new RAMDirectory();
+        IndexWriterConfig writerConfig = new IndexWriterConfig(LuceneVersion.LUCENE_VERSION,
+                DatabaseIndex.getAnalyzer(RecordingIndexField.class));
+        IndexWriter writer = new IndexWriter(ramDir, writerConfig);
+        for (int count = 1; count <= 2; count++) {
+            MbDocument doc = new MbDocument();
+            doc.addField(RecordingIndexField.RECORDING_ID, "7ca7782b-a602-448b-b108-bb881a7be2d" + count);
+            doc.addField(RecordingIndexField.RECORDING, "Gravitational Lens");
+            for (int i = 0; i < count; i++) {
+                doc.addField(RecordingIndexField.RELEASE_STATUS, "Official");
+            }
+            writer.addDocument(doc.getLuceneDocument());
+        }
+        writer.close();
+
+        AbstractSearchServer search = new RecordingSearch(new SearcherManager(ramDir,
+                new MusicBrainzSearcherFactory(ResourceType.RECORDING)));
+        BooleanQuery cached = (BooleanQuery) search.parseQuery("recording:lens AND status:official");
+        BooleanQuery plain = new BooleanQuery();
+        for (BooleanClause clause : cached.clauses()) {
+            if (clause.getQuery() instanceof CachedTermQuery) {
+                plain.add(new TermQuery(((CachedTermQuery) clause.getQuery()).getTerm()), clause.getOccur());
+            } else {
+                plain.add(clause);
+            }
+        }
+        assertTrue(!plain.equals(cached));
+
+        IndexSearcher searcher = search.getSearcherManager().acquire();
+        try {
+            TopDocs expected = searcher.search(plain, 10);
+            TopDocs actual = searcher.search(cached, 10);
+            assertEquals(2, expected.totalHits);
+            assertEquals(expected.totalHits, actual.totalHits);
+            for (int i = 0; i < expected.scoreDocs.length; i++) {
+                assertEquals(expected.scoreDocs[i].doc, actual.scoreDocs[i].doc);
+                assertEquals(expected.scoreDocs[i].score, actual.scoreDocs[i].score, 0.0001f);
+            }
+        }
+        finally {
+            search.getSearcherManager().release(searcher);
+        }
+    }
+
     @Test
     public void testOutputJsonNewPretty() throws Exception {
 
@@ -1,6 +1,7 @@
 package org.musicbrainz.search.servlet;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertTrue;
 
 import java.io.IOException;
@@ -8,14 +9,20 @@ import java.io.PrintWriter;
 import java.io.StringWriter;
 import java.math.BigInteger;
 import java.util.Date;
+import java.util.EnumSet;
 import java.util.HashMap;
 import java.util.Map;
 
 import org.apache.lucene.analysis.Analyzer;
 import org.apache.lucene.document.Document;
 import org.apache.lucene.index.*;
+import org.apache.lucene.search.BooleanClause;
+import org.apache.lucene.search.BooleanQuery;
 import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.search.Query;
 import org.apache.lucene.search.SearcherManager;
+import org.apache.lucene.search.TermQuery;
+import org.apache.lucene.search.TopDocs;
 import org.apache.lucene.store.RAMDirectory;
 import org.apache.lucene.util.BytesRef;
 import org.apache.lucene.util.NumericUtils;
@@ -164,6 +171,9 @@ public class FindReleaseTest {
             release.setMediumList(mediumList);
 
             doc.addField(ReleaseIndexField.STATUS, "Official");
+            doc.addSortedSetDocValuesField(FacetIndexField.STATUS, "Official");
+            doc.addSortedSetDocValuesField(FacetIndexField.FORMAT, "Vinyl");
+            doc.addSortedSetDocValuesField(FacetIndexField.TYPE, "Compilation");
             Status stat = new Status();
             stat.setContent("Official");
             release.setStatus(stat);
@@ -282,6 +292,9 @@ public class FindReleaseTest {
             doc.addNumericField(ReleaseIndexField.NUM_TRACKS_MEDIUM, 14);
             doc.addNumericField(ReleaseIndexField.NUM_DISCIDS_MEDIUM, 1);
             doc.addField(ReleaseIndexField.STATUS, "Promotion");
+            doc.addSortedSetDocValuesField(FacetIndexField.STATUS, "Promotion");
+            doc.addSortedSetDocValuesField(FacetIndexField.FORMAT, "CD");
+            doc.addSortedSetDocValuesField(FacetIndexField.TYPE, ReleaseGroupType.SINGLE.getName());
             doc.addNumericField(ReleaseIndexField.NUM_TRACKS, 14);
             doc.addNumericField(ReleaseIndexField.NUM_DISCIDS, 1);
             doc.addField(ReleaseIndexField.FORMAT, "CD");
@@ -706,6 +719,81 @@ public class FindReleaseTest {
         assertEquals("1d9e8ed6-3893-4d3b-aa7d-6cd79609e386", getReleaseId(res.results.get(0).getDoc()));
     }
 
+    @Test
+    public void testFindReleaseByStatusConstraintUsesCachedFilter() throws Exception {
+        Query query = ss.parseQuery("release:epics AND status:promotion");
+        assertTrue(((BooleanQuery) query).clauses().get(1).getQuery() instanceof CachedTermQuery);
+
+        Results res = ss.search("release:epics AND status:promotion", 0, 10);
+        assertEquals(1, res.getTotalHits());
+        assertEquals("0011c128-b1f2-300e-88cc-c33c30dce704", getReleaseId(res.results.get(0).getDoc()));
+        res = ss.search("release:epics AND status:official", 0, 10);
+        assertEquals(0, res.getTotalHits());
+    }
+
+    @Test
+    public void testFindReleaseByStatusConstraintScoresAsTermQuery() throws Exception {
+        BooleanQuery cached = (BooleanQuery) ss.parseQuery("(release:epics OR release:crocodiles) AND status:promotion");
+        BooleanQuery plain = new BooleanQuery();
+        plain.add(cached.clauses().get(0));
+        plain.add(new TermQuery(((CachedTermQuery) cached.clauses().get(1).getQuery()).getTerm()), BooleanClause.Occur.MUST);
+
+        IndexSearcher searcher = ss.getSearcherManager().acquire();
+        try {
+            TopDocs expected = searcher.search(plain, 10);
+            TopDocs actual = searcher.search(cached, 10);
+            assertTrue(expected.totalHits > 0);
+            assertEquals(expected.totalHits, actual.totalHits);
+            for (int i = 0; i < expected.scoreDocs.length; i++) {
+                assertEquals(expected.scoreDocs[i].doc, actual.scoreDocs[i].doc);
+                assertEquals(expected.scoreDocs[i].score, actual.scoreDocs[i].score, 0.0001f);
+            }
+        }
+        finally {
+            ss.getSearcherManager().release(searcher);
+        }
+    }
+
+    @Test
+    public void testFindReleaseWithFacetCounts() throws Exception {
+        Results res = ss.search(null, "release:epics OR release:plan", 0, 1, null, EnumSet.of(FacetIndexField.STATUS, FacetIndexField.FORMAT));
+        assertEquals(2, res.getTotalHits());
+        assertEquals(1, res.results.size());
+        Map<String, Integer> statuses = res.getFacets().get(FacetIndexField.STATUS);
+        assertEquals(2, statuses.size());
+        assertEquals(1, statuses.get("Official").intValue());
+        assertEquals(1, statuses.get("Promotion").intValue());
+        assertEquals(1, res.getFacets().get(FacetIndexField.FORMAT).get("CD").intValue());
+
+        res = ss.search(null, "release:epics", 0, 10, null, EnumSet.of(FacetIndexField.STATUS));
+        assertEquals(1, res.getFacets().get(FacetIndexField.STATUS).size());
+        assertEquals(1, res.getFacets().get(FacetIndexField.STATUS).get("Promotion").intValue());
+
+        res = sd.search(null, "epics", 0, 10, null, EnumSet.of(FacetIndexField.FORMAT));
+        assertEquals(1, res.getFacets().get(FacetIndexField.FORMAT).get("CD").intValue());
+        assertNull(ss.search("release:epics", 0, 10).getFacets());
+    }
+
+    @Test
+    public void testOutputFacetsXmlAndJson() throws Exception {
+        Results res = ss.search(null, "release:epics", 0, 10, null, EnumSet.of(FacetIndexField.STATUS));
+        org.musicbrainz.search.servlet.mmd2.ResultsWriter writer = ss.getMmd2Writer();
+
+        StringWriter sw = new StringWriter();
+        PrintWriter pr = new PrintWriter(sw);
+        writer.write(pr, res, SearchServerServlet.RESPONSE_XML, false);
+        pr.close();
+        String output = sw.toString();
+        assertTrue(output.contains("<ext:facets xmlns:ext=\"http://musicbrainz.org/ns/ext#-2.0\"><ext:facet name=\"status\"><ext:value count=\"1\">Promotion</ext:value></ext:facet></ext:facets></metadata>"));
+
+        sw = new StringWriter();
+        pr = new PrintWriter(sw);
+        writer.write(pr, res, SearchServerServlet.RESPONSE_JSON_NEW, false);
+        pr.close();
+        output = sw.toString();
+        assertTrue(output.contains(",\"facets\":{\"status\":{\"Promotion\":1}}}"));
+    }
+
     @Test
     public void testFindReleaseByNumericstatus() throws Exception {
         Results res = ss.search("status:1", 0, 10);
@@ -0,0 +1,138 @@
+package org.musicbrainz.search.servlet;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import org.apache.lucene.analysis.Analyzer;
+import org.apache.lucene.index.DirectoryReader;
+import org.apache.lucene.index.IndexReader;
+import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.index.IndexWriterConfig;
+import org.apache.lucene.index.Term;
+import org.apache.lucene.search.BooleanClause;
+import org.apache.lucene.search.BooleanQuery;
+import org.apache.lucene.search.FuzzyQuery;
+import org.apache.lucene.search.Query;
+import org.apache.lucene.search.TermQuery;
+import org.apache.lucene.search.WildcardQuery;
+import org.apache.lucene.store.RAMDirectory;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.musicbrainz.search.LuceneVersion;
+import org.musicbrainz.search.MbDocument;
+import org.musicbrainz.search.index.DatabaseIndex;
+import org.musicbrainz.search.index.RecordingIndexField;
+
+public class QueryCostEstimatorTest {
+
+    private IndexReader reader;
+
+    @Before
+    public void setUp() throws Exception {
+        RAMDirectory ramDir = new RAMDirectory();
+        Analyzer analyzer = DatabaseIndex.getAnalyzer(RecordingIndexField.class);
+        IndexWriterConfig writerConfig = new IndexWriterConfig(LuceneVersion.LUCENE_VERSION, analyzer);
+        IndexWriter writer = new IndexWriter(ramDir, writerConfig);
+
+        for (int i = 0; i < 100; i++) {
+            MbDocument doc = new MbDocument();
+            doc.addField(RecordingIndexField.RECORDING, i < 10 ? "Love Zebra" : "Love Song " + i);
+            writer.addDocument(doc.getLuceneDocument());
+        }
+        writer.close();
+        reader = DirectoryReader.open(ramDir);
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        reader.close();
+    }
+
+    private Term term(String text) {
+        return new Term(RecordingIndexField.RECORDING.getName(), text);
+    }
+
+    @Test
+    public void testTermsChargedTheirDocFreq() throws Exception {
+        BooleanQuery bq = new BooleanQuery();
+        bq.add(new TermQuery(term("love")), BooleanClause.Occur.SHOULD);
+        bq.add(new TermQuery(term("zebra")), BooleanClause.Occur.SHOULD);
+        QueryCostEstimator.Cost cost = QueryCostEstimator.estimate(reader, bq, 1000);
+        assertEquals(110, cost.getPostings());
+        assertEquals(0, cost.getExpandedTerms());
+    }
+
+    @Test
+    public void testCachedFuzzyRewriteReusedBySearch() throws Exception {
+        DismaxQueryParser.CachedFuzzyTermRewrite rewrite = new DismaxQueryParser.CachedFuzzyTermRewrite(200);
+        FuzzyQuery fq = new FuzzyQuery(term("zebre"), 1);
+        fq.setRewriteMethod(rewrite);
+        QueryCostEstimator.Cost cost = QueryCostEstimator.estimate(reader, fq, 1000);
+        assertEquals(1, cost.getFuzzyTerms());
+        assertEquals(10, cost.getPostings());
+
+        // Estimating cached the rewrite so the search does not enumerate the terms again
+        assertSame(rewrite.getCachedRewrite(reader, fq), rewrite.getCachedRewrite(reader, fq));
+        assertEquals(cost.toString(), QueryCostEstimator.estimate(reader, fq, 1000).toString());
+    }
+
+    @Test
+    public void testFuzzyTermsEnumeratedUpToLimit() throws Exception {
+        QueryCostEstimator.Cost cost = QueryCostEstimator.estimate(reader, new FuzzyQuery(term("zebre"), 1), 1000);
+        assertEquals(1, cost.getFuzzyTerms());
+        assertEquals(10, cost.getPostings());
+
+        // Matches the ten terms 10 to 19, only the first few are enumerated
+        cost = QueryCostEstimator.estimate(reader, new WildcardQuery(term("1*")), 5);
+        assertTrue(cost.isTruncated());
+        assertEquals(6, cost.getExpandedTerms());
+    }
+
+    @Test
+    public void testLeadingWildcardChargedForEveryTerm() throws Exception {
+        QueryCostEstimator.Cost cost = QueryCostEstimator.estimate(reader, new WildcardQuery(term("*bra")), 1000);
+        assertTrue(cost.isTruncated());
+        assertEquals(0, cost.getExpandedTerms());
+        assertTrue(cost.getPostings() > 0);
+    }
+
+    @Test
+    public void testFuzzyQueriesReplacedByExactTerms() throws Exception {
+        BooleanQuery bq = new BooleanQuery();
+        bq.add(new TermQuery(term("love")), BooleanClause.Occur.MUST);
+        FuzzyQuery fuzzy = new FuzzyQuery(term("zebre"), 1);
+        fuzzy.setBoost(0.5f);
+        bq.add(fuzzy, BooleanClause.Occur.SHOULD);
+
+        Query exact = QueryGuard.withoutFuzzy(reader, bq);
+        assertTrue(exact != bq);
+        BooleanClause clause = ((BooleanQuery) exact).clauses().get(1);
+        assertEquals(term("zebre"), ((TermQuery) clause.getQuery()).getTerm());
+        assertEquals(0.5f, clause.getQuery().getBoost(), 0f);
+        assertEquals(BooleanClause.Occur.SHOULD, clause.getOccur());
+        // Original is unchanged
+        assertSame(fuzzy, bq.clauses().get(1).getQuery());
+
+        TermQuery term = new TermQuery(term("love"));
+        assertSame(term, QueryGuard.withoutFuzzy(reader, term));
+    }
+
+    @Test
+    public void testExpensiveQueryRejected() throws Exception {
+        QueryGuard.setMaxPostings(50);
+        try {
+            QueryGuard.admit(reader, new TermQuery(term("love")));
+            fail();
+        } catch (QueryGuard.QueryTooExpensiveException e) {
+            // Expected
+        } finally {
+            QueryGuard.setMaxPostings(QueryGuard.DEFAULT_MAX_POSTINGS);
+        }
+
+        QueryGuard.Admission admission = QueryGuard.admit(reader, new TermQuery(term("love")));
+        admission.finish(100);
+    }
+}
@@ -15,16 +15,21 @@ import org.musicbrainz.search.MbDocument;
 import org.musicbrainz.search.analysis.MusicbrainzSimilarity;
 import org.musicbrainz.search.index.ArtistIndexField;
 import org.musicbrainz.search.index.DatabaseIndex;
+import org.musicbrainz.search.index.FacetIndexField;
 import org.musicbrainz.search.index.MMDSerializer;
 import org.musicbrainz.search.index.MetaIndexField;
+import org.musicbrainz.search.index.ProjectionIndexField;
 
 import java.io.IOException;
 import java.io.PrintWriter;
+import java.io.StringReader;
 import java.io.StringWriter;
 import java.math.BigInteger;
 import java.util.Date;
+import java.util.EnumSet;
 import java.util.Stack;
 
+import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertTrue;
 
@@ -67,6 +72,66 @@ public class SearchServletTest
         assertFalse(result);
     }
 
+    @Test
+    public void testETagIgnoresQueryWhitespace() throws Exception {
+
+        String eTag1 = SearchServerServlet.computeETag(10, ResourceType.ARTIST, "farming incident", false, false, 0, 25, null, null, "xml", "2");
+        String eTag2 = SearchServerServlet.computeETag(10, ResourceType.ARTIST, "  farming   incident ", false, false, 0, 25, null, null, "xml", "2");
+        assertEquals(eTag1, eTag2);
+        assertTrue(eTag1.startsWith("\"") && eTag1.endsWith("\""));
+    }
+
+    @Test
+    public void testETagChangesWithIndexVersionAndPaging() throws Exception {
+
+        String eTag = SearchServerServlet.computeETag(10, ResourceType.ARTIST, "farming incident", false, false, 0, 25, null, null, "xml", "2");
+        assertFalse(eTag.equals(SearchServerServlet.computeETag(11, ResourceType.ARTIST, "farming incident", false, false, 0, 25, null, null, "xml", "2")));
+        assertFalse(eTag.equals(SearchServerServlet.computeETag(10, ResourceType.ARTIST, "farming incident", false, false, 25, 25, null, null, "xml", "2")));
+        assertFalse(eTag.equals(SearchServerServlet.computeETag(10, ResourceType.ARTIST, "farming incident", false, false, 0, 25, null, null, "json", "2")));
+        assertFalse(eTag.equals(SearchServerServlet.computeETag(10, ResourceType.LABEL, "farming incident", false, false, 0, 25, null, null, "xml", "2")));
+    }
+
+    @Test
+    public void testETagChangesWithProjectionAndFacets() throws Exception {
+
+        String eTag = SearchServerServlet.computeETag(10, ResourceType.RELEASE, "epics", false, false, 0, 25, null, null, "xml", "2");
+        assertFalse(eTag.equals(SearchServerServlet.computeETag(10, ResourceType.RELEASE, "epics", false, false, 0, 25,
+                EnumSet.of(ProjectionIndexField.MBID), null, "xml", "2")));
+        assertFalse(eTag.equals(SearchServerServlet.computeETag(10, ResourceType.RELEASE, "epics", false, false, 0, 25,
+                null, EnumSet.of(FacetIndexField.STATUS), "xml", "2")));
+    }
+
+    @Test
+    public void testParseBatchRequestXml() throws Exception {
+
+        String body = "<batch><search id=\"1\" type=\"recording\" dismax=\"true\" limit=\"5\"><query>Blue Monday</query></search>"
+                    + "<search id=\"2\" type=\"artist\"><query>New Order</query></search></batch>";
+        BatchRequest batchRequest = BatchRequest.parse(new StringReader(body), false);
+        assertEquals(2, batchRequest.getSearches().size());
+        BatchRequest.Search search = batchRequest.getSearches().get(0);
+        assertEquals("1", search.getId());
+        assertEquals("recording", search.getType());
+        assertTrue(search.isDismax());
+        assertEquals(5, search.getLimit().intValue());
+        assertEquals("Blue Monday", search.getQuery());
+        assertFalse(batchRequest.getSearches().get(1).isDismax());
+    }
+
+    @Test
+    public void testParseBatchRequestJson() throws Exception {
+
+        String body = "{\"search\":[{\"id\":\"1\",\"type\":\"recording\",\"dismax\":true,\"limit\":5,\"query\":\"Blue Monday\"},"
+                    + "{\"id\":\"2\",\"type\":\"artist\",\"query\":\"New Order\"}]}";
+        BatchRequest batchRequest = BatchRequest.parse(new StringReader(body), true);
+        assertEquals(2, batchRequest.getSearches().size());
+        BatchRequest.Search search = batchRequest.getSearches().get(0);
+        assertEquals("recording", search.getType());
+        assertTrue(search.isDismax());
+        assertEquals(5, search.getLimit().intValue());
+        assertEquals("Blue Monday", search.getQuery());
+        assertEquals("New Order", batchRequest.getSearches().get(1).getQuery());
+    }
+
     @Test
     public void testSearch411DoSearch() throws Exception
     {
@@ -158,7 +223,7 @@ public class SearchServletTest
             writer.close();
             SearcherManager searcherManager = new SearcherManager(ramDir, new MusicBrainzSearcherFactory(ResourceType.ARTIST));
             SearchServer ss = new ArtistSearch(searcherManager);
-            Results results = ss.search(query, 0, 1);
+            Results results = ss.search(null, query, 0, 1, null, null);
         }
         catch (NullPointerException npe)
         {
@@ -32,8 +32,10 @@ import org.musicbrainz.search.index.AnnotationIndex;
 import org.musicbrainz.search.index.ArtistIndex;
 import org.musicbrainz.search.index.CommonTables;
 import org.musicbrainz.search.index.DatabaseIndex;
+import org.musicbrainz.search.index.FuzzyCandidateIndex;
 import org.musicbrainz.search.index.LabelIndex;
 import org.musicbrainz.search.index.MetaIndexField;
+import org.musicbrainz.search.index.MusicBrainzSuggester;
 import org.musicbrainz.search.index.RecordingIndex;
 import org.musicbrainz.search.index.ReleaseGroupIndex;
 import org.musicbrainz.search.index.ReleaseIndex;
@@ -51,7 +53,7 @@ public class LiveDataFeedIndexUpdater {
 
 	private LiveDataFeedIndexUpdaterOptions options;
 	private List<DatabaseIndex> indexes;
-	private final Map<DatabaseIndex, IndexWriter> indexWriters = new HashMap<DatabaseIndex, IndexWriter>();
+	private final Map<DatabaseIndex, ThreadedIndexWriter> indexWriters = new HashMap<DatabaseIndex, ThreadedIndexWriter>();
 	private final Map<DatabaseIndex, ReplicationInformation> indexReplicationInfos = new HashMap<DatabaseIndex, ReplicationInformation>();
 	private final Map<DatabaseIndex, ChangesAnalyzer> indexChangesAnalyzers = new HashMap<DatabaseIndex, ChangesAnalyzer>();
 
@@ -105,7 +107,7 @@ public class LiveDataFeedIndexUpdater {
 		for (DatabaseIndex index : indexes) {
 
 			// Initialize index writer
-			IndexWriter indexWriter = createWriterForIndex(index, options);
+			ThreadedIndexWriter indexWriter = createWriterForIndex(index, options);
 			indexWriters.put(index, indexWriter);
 
 			// Load replication information
@@ -203,7 +205,7 @@ public class LiveDataFeedIndexUpdater {
 			clock.start();
 			LOGGER.info("Started updating index: " + index.getName());
 
-			IndexWriter indexWriter = indexWriters.get(index);
+			ThreadedIndexWriter indexWriter = indexWriters.get(index);
 			ReplicationInformation replicationInfo = indexReplicationInfos.get(index);
 			ChangesAnalyzer changesAnalyzer = indexChangesAnalyzers.get(index);
 
@@ -222,11 +224,11 @@ public class LiveDataFeedIndexUpdater {
 
 	}
 
-	private IndexWriter createWriterForIndex(DatabaseIndex index, LiveDataFeedIndexUpdaterOptions options) throws IOException {
+	private ThreadedIndexWriter createWriterForIndex(DatabaseIndex index, LiveDataFeedIndexUpdaterOptions options) throws IOException {
 		IndexWriterConfig writerConfig = new IndexWriterConfig(LuceneVersion.LUCENE_VERSION, index.getAnalyzer());
 
 		String path = options.getIndexesDir() + index.getFilename();
-		IndexWriter indexWriter = new ThreadedIndexWriter(FSDirectory.open(new File(path)), writerConfig, Runtime.getRuntime()
+		ThreadedIndexWriter indexWriter = new ThreadedIndexWriter(FSDirectory.open(new File(path)), writerConfig, Runtime.getRuntime()
 				.availableProcessors(), 10);
 
 		return indexWriter;
@@ -240,7 +242,7 @@ public class LiveDataFeedIndexUpdater {
 	 * @throws SQLException
 	 * @throws DatabaseSchemaChangedException
 	 */
-	private void updateDatabaseIndex(DatabaseIndex index, IndexWriter indexWriter, ReplicationInformation currentReplicationInfo,
+	private void updateDatabaseIndex(DatabaseIndex index, ThreadedIndexWriter indexWriter, ReplicationInformation currentReplicationInfo,
 			ChangesAnalyzer changesAnalyzer, ReplicationInformation newReplicationInfo) throws IOException, SQLException,
 			DatabaseSchemaChangedException {
 
@@ -264,11 +266,16 @@ public class LiveDataFeedIndexUpdater {
 		if (!changesAnalyzer.getInsertedOrUpdatedIds().isEmpty()) {
 			index.init(indexWriter, true);
 
+			// Delete the old documents together, a delete waits for every queued document to be added, so that
+			// the new documents can then be analysed in parallel
+			List<Term> terms = new ArrayList<Term>();
+			for (Integer id : changesAnalyzer.getInsertedOrUpdatedIds()) {
+				terms.add(new Term(index.getIdentifierField().getName(), id.toString()));
+			}
+			indexWriter.deleteDocuments(terms.toArray(new Term[terms.size()]));
+
 			for (Integer id : changesAnalyzer.getInsertedOrUpdatedIds()) {
 				LOGGER.fine("Reindexing " + index.getName() + " #" + id.toString());
-				term = new Term(index.getIdentifierField().getName(), id.toString());
-				query = new TermQuery(term);
-				indexWriter.deleteDocuments(query);
 				index.indexData(indexWriter, id, id);
 			}
 			index.destroy();
@@ -278,7 +285,9 @@ public class LiveDataFeedIndexUpdater {
 		if (currentReplicationInfo.compareTo(newReplicationInfo) != 0) {
 
 			index.updateMetaInformation(indexWriter, newReplicationInfo);
+			indexWriter.waitForQueuedDocuments();
 			indexWriter.commit();
+			LOGGER.fine("Analysis " + indexWriter.getStats());
 			// TODO: index don't need to be optimized on each update, it's way too resource intensive
 			// => disabled for now, need to be done on a regular basis that should determined
 			// indexWriter.optimize();
@@ -287,6 +296,17 @@ public class LiveDataFeedIndexUpdater {
 			int dbRows = index.getNoOfRows(Integer.MAX_VALUE);
 			IndexReader indexReader = DirectoryReader.open(indexWriter, true);
 			LOGGER.info(dbRows + " rows in database, " + (indexReader.maxDoc() - 1) + " lucene documents");
+
+			// The suggester can't be updated in place so rebuild it, the search server picks it up when it reopens
+			String path = options.getIndexesDir() + index.getFilename();
+			if (MusicBrainzSuggester.build(indexReader, new File(path, MusicBrainzSuggester.SUGGEST_FILE))) {
+				LOGGER.fine("Rebuilt suggester for index " + index.getName());
+			}
+			int fuzzyTerms = FuzzyCandidateIndex.update(indexReader, index.getFuzzyFields(), new File(path, FuzzyCandidateIndex.FUZZY_DIR));
+			if (fuzzyTerms > 0) {
+				LOGGER.fine("Added " + fuzzyTerms + " terms to fuzzy candidate index for index " + index.getName());
+			}
+			indexReader.close();
 		} else {
 			LOGGER.info("No changes found");
 		}